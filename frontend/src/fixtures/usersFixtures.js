@@ -1,48 +1,60 @@
+const threeUsers = [
+  {
+    id: 1,
+    email: "phtcon@ucsb.edu",
+    googleSub: "115856948234298493496",
+    pictureUrl:
+      "https://lh3.googleusercontent.com/-bQynVrzVIrU/AAAAAAAAAAI/AAAAAAAAAAA/AMZuucmkGuVsELD1ZeV5iDUAUfe6_K-p8w/s96-c/photo.jpg",
+    fullName: "Phill Conrad",
+    givenName: "Phill",
+    familyName: "Conrad",
+    emailVerified: true,
+    locale: "en",
+    hostedDomain: "ucsb.edu",
+    admin: true,
+  },
+  {
+    id: 2,
+    email: "pconrad.cis@gmail.com",
+    googleSub: "102656447703889917227",
+    pictureUrl:
+      "https://lh3.googleusercontent.com/a-/AOh14GhpDBUt8eCEqiRT45hrFbcimsX_h1ONn0dc3HV8Bp8=s96-c",
+    fullName: "Phillip Conrad",
+    givenName: "Phillip",
+    familyName: "Conrad",
+    emailVerified: true,
+    locale: "en",
+    hostedDomain: null,
+    admin: false,
+  },
+  {
+    id: 3,
+    email: "craig.zzyzx@example.org",
+    googleSub: "123456789012345678901",
+    pictureUrl:
+      "https://lh3.googleusercontent.com/a-/AOh14GhpDBUt8eCEqiRT45hrFbcimsX_h1ONn0dc3HV8Bp8=s96-c",
+    fullName: "Craig Zzyxx",
+    givenName: "Craig",
+    familyName: "Zzyxx",
+    emailVerified: true,
+    locale: "en",
+    hostedDomain: null,
+    admin: false,
+  },
+];
+
 const usersFixtures = {
-  threeUsers: [
-    {
-      id: 1,
-      email: "phtcon@ucsb.edu",
-      googleSub: "115856948234298493496",
-      pictureUrl:
-        "https://lh3.googleusercontent.com/-bQynVrzVIrU/AAAAAAAAAAI/AAAAAAAAAAA/AMZuucmkGuVsELD1ZeV5iDUAUfe6_K-p8w/s96-c/photo.jpg",
-      fullName: "Phill Conrad",
-      givenName: "Phill",
-      familyName: "Conrad",
-      emailVerified: true,
-      locale: "en",
-      hostedDomain: "ucsb.edu",
-      admin: true,
-    },
-    {
-      id: 2,
-      email: "pconrad.cis@gmail.com",
-      googleSub: "102656447703889917227",
-      pictureUrl:
-        "https://lh3.googleusercontent.com/a-/AOh14GhpDBUt8eCEqiRT45hrFbcimsX_h1ONn0dc3HV8Bp8=s96-c",
-      fullName: "Phillip Conrad",
-      givenName: "Phillip",
-      familyName: "Conrad",
-      emailVerified: true,
-      locale: "en",
-      hostedDomain: null,
-      admin: false,
-    },
-    {
-      id: 3,
-      email: "craig.zzyzx@example.org",
-      googleSub: "123456789012345678901",
-      pictureUrl:
-        "https://lh3.googleusercontent.com/a-/AOh14GhpDBUt8eCEqiRT45hrFbcimsX_h1ONn0dc3HV8Bp8=s96-c",
-      fullName: "Craig Zzyxx",
-      givenName: "Craig",
-      familyName: "Zzyxx",
-      emailVerified: true,
-      locale: "en",
-      hostedDomain: null,
-      admin: false,
-    },
-  ],
+  threeUsers: threeUsers,
+  // a page of users, as returned by /api/admin/users
+  threeUsersPage: {
+    content: threeUsers,
+    page: { size: 20, number: 0, totalElements: 3, totalPages: 1 },
+  },
+  // the first of three pages of users
+  firstOfThreePages: {
+    content: threeUsers,
+    page: { size: 3, number: 0, totalElements: 9, totalPages: 3 },
+  },
 };
 
 export default usersFixtures;
@@ -1,23 +1,79 @@
+import { useEffect, useState } from "react";
+import { Button, Form } from "react-bootstrap";
 import BasicLayout from "main/layouts/BasicLayout/BasicLayout";
 import UsersTable from "main/components/Users/UsersTable";
 
 import { useBackend } from "main/utils/useBackend";
+
+export const PAGE_SIZE = 20;
+
+// how long to wait after the last keystroke in the search box before searching
+export const SEARCH_DELAY_MS = 300;
+
 const AdminUsersPage = () => {
+  const [page, setPage] = useState(0);
+  const [searchInput, setSearchInput] = useState("");
+  const [search, setSearch] = useState("");
+
+  useEffect(() => {
+    if (searchInput === search) {
+      return;
+    }
+    const timeout = setTimeout(() => {
+      setSearch(searchInput);
+      setPage(0);
+    }, SEARCH_DELAY_MS);
+    return () => clearTimeout(timeout);
+  }, [searchInput, search]);
+
   const {
-    data: users,
+    data: usersPage,
     error: _error,
     status: _status,
   } = useBackend(
     // Stryker disable next-line all : don't test internal caching of React Query
-    ["/api/admin/users"],
-    { method: "GET", url: "/api/admin/users" },
-    [],
+    ["/api/admin/users", page, search],
+    {
+      method: "GET",
+      url: "/api/admin/users",
+      params: { page: page, size: PAGE_SIZE, search: search },
+    },
+    { content: [], page: { number: 0, totalPages: 0, totalElements: 0 } },
   );
 
+  const totalPages = usersPage.page.totalPages;
+  const pageLabel = `Page ${totalPages === 0 ? 0 : page + 1} of ${totalPages} (${usersPage.page.totalElements} users)`;
+
   return (
     <BasicLayout>
       <h2>Users</h2>
-      <UsersTable users={users} />
+      <Form.Control
+        type="search"
+        placeholder="Search by email or name"
+        aria-label="Search by email or name"
+        data-testid="AdminUsersPage-search"
+        className="mb-3"
+        value={searchInput}
+        onChange={(e) => setSearchInput(e.target.value)}
+      />
+      <UsersTable users={usersPage.content} />
+      <div className="d-flex align-items-center gap-2">
+        <Button
+          data-testid="AdminUsersPage-previous"
+          disabled={page === 0}
+          onClick={() => setPage(page - 1)}
+        >
+          Previous
+        </Button>
+        <span data-testid="AdminUsersPage-page">{pageLabel}</span>
+        <Button
+          data-testid="AdminUsersPage-next"
+          disabled={page + 1 >= totalPages}
+          onClick={() => setPage(page + 1)}
+        >
+          Next
+        </Button>
+      </div>
     </BasicLayout>
   );
 };
@@ -1,7 +1,10 @@
-import { render, waitFor, screen } from "@testing-library/react";
+import { fireEvent, render, waitFor, screen } from "@testing-library/react";
 import { QueryClient, QueryClientProvider } from "@tanstack/react-query";
 import { MemoryRouter } from "react-router";
-import AdminUsersPage from "main/pages/AdminUsersPage";
+import AdminUsersPage, {
+  PAGE_SIZE,
+  SEARCH_DELAY_MS,
+} from "main/pages/AdminUsersPage";
 import usersFixtures from "fixtures/usersFixtures";
 import { apiCurrentUserFixtures } from "fixtures/currentUserFixtures";
 import { systemInfoFixtures } from "fixtures/systemInfoFixtures";
@@ -27,34 +30,141 @@ describe("AdminUsersPage tests", () => {
       .reply(200, systemInfoFixtures.showingNeither);
   });
 
-  test("renders without crashing on three users", async () => {
-    const queryClient = new QueryClient();
-    axiosMock.onGet("/api/admin/users").reply(200, usersFixtures.threeUsers);
-
+  const renderPage = () =>
     render(
-      <QueryClientProvider client={queryClient}>
+      <QueryClientProvider client={new QueryClient()}>
         <MemoryRouter>
           <AdminUsersPage />
         </MemoryRouter>
       </QueryClientProvider>,
     );
+
+  test("renders without crashing on three users", async () => {
+    axiosMock
+      .onGet("/api/admin/users")
+      .reply(200, usersFixtures.threeUsersPage);
+
+    renderPage();
+
     await screen.findByText("Users");
     expect(screen.getByText("Users")).toBeInTheDocument();
+    expect(
+      await screen.findByTestId(`${testId}-cell-row-2-col-id`),
+    ).toHaveTextContent("3");
+    expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+      "Page 1 of 1 (3 users)",
+    );
+    expect(screen.getByTestId("AdminUsersPage-previous")).toBeDisabled();
+    expect(screen.getByTestId("AdminUsersPage-next")).toBeDisabled();
+    expect(axiosMock.history.get.at(-1).params).toEqual({
+      page: 0,
+      size: PAGE_SIZE,
+      search: "",
+    });
+  });
+
+  test("fetches the next and previous pages", async () => {
+    axiosMock
+      .onGet("/api/admin/users")
+      .reply(200, usersFixtures.firstOfThreePages);
+
+    renderPage();
+
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+        "Page 1 of 3 (9 users)",
+      ),
+    );
+    expect(screen.getByTestId("AdminUsersPage-previous")).toBeDisabled();
+
+    fireEvent.click(screen.getByTestId("AdminUsersPage-next"));
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+        "Page 2 of 3 (9 users)",
+      ),
+    );
+    expect(axiosMock.history.get.at(-1).params.page).toBe(1);
+    expect(screen.getByTestId("AdminUsersPage-previous")).toBeEnabled();
+
+    fireEvent.click(screen.getByTestId("AdminUsersPage-next"));
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+        "Page 3 of 3 (9 users)",
+      ),
+    );
+    expect(axiosMock.history.get.at(-1).params.page).toBe(2);
+    expect(screen.getByTestId("AdminUsersPage-next")).toBeDisabled();
+
+    fireEvent.click(screen.getByTestId("AdminUsersPage-previous"));
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+        "Page 2 of 3 (9 users)",
+      ),
+    );
+  });
+
+  test("searching starts again from the first page", async () => {
+    axiosMock
+      .onGet("/api/admin/users")
+      .reply(200, usersFixtures.firstOfThreePages);
+
+    renderPage();
+
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-next")).toBeEnabled(),
+    );
+    fireEvent.click(screen.getByTestId("AdminUsersPage-next"));
+    await waitFor(() =>
+      expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+        "Page 2 of 3 (9 users)",
+      ),
+    );
+
+    fireEvent.change(screen.getByTestId("AdminUsersPage-search"), {
+      target: { value: "phill" },
+    });
+
+    await waitFor(() =>
+      expect(axiosMock.history.get.at(-1).params).toEqual({
+        page: 0,
+        size: PAGE_SIZE,
+        search: "phill",
+      }),
+    );
+    expect(screen.getByTestId("AdminUsersPage-search")).toHaveValue("phill");
+  });
+
+  test("searches only once typing pauses", async () => {
+    axiosMock
+      .onGet("/api/admin/users")
+      .reply(200, usersFixtures.threeUsersPage);
+
+    renderPage();
+
+    const searches = () =>
+      axiosMock.history.get
+        .filter((request) => request.url === "/api/admin/users")
+        .map((request) => request.params.search);
+    await waitFor(() => expect(searches()).toEqual([""]));
+
+    const searchBox = screen.getByTestId("AdminUsersPage-search");
+    fireEvent.change(searchBox, { target: { value: "p" } });
+    fireEvent.change(searchBox, { target: { value: "ph" } });
+    fireEvent.change(searchBox, { target: { value: "phi" } });
+    expect(searchBox).toHaveValue("phi");
+    expect(searches()).toEqual([""]);
+
+    await waitFor(() => expect(searches()).toEqual(["", "phi"]), {
+      timeout: SEARCH_DELAY_MS + 1000,
+    });
   });
 
   test("renders empty table when backend unavailable", async () => {
-    const queryClient = new QueryClient();
     axiosMock.onGet("/api/admin/users").timeout();
 
     const restoreConsole = mockConsole();
 
-    render(
-      <QueryClientProvider client={queryClient}>
-        <MemoryRouter>
-          <AdminUsersPage />
-        </MemoryRouter>
-      </QueryClientProvider>,
-    );
+    renderPage();
 
     await waitFor(() => {
       expect(axiosMock.history.get.length).toBeGreaterThanOrEqual(1);
@@ -69,5 +179,8 @@ describe("AdminUsersPage tests", () => {
     expect(
       screen.queryByTestId(`${testId}-cell-row-0-col-id`),
     ).not.toBeInTheDocument();
+    expect(screen.getByTestId("AdminUsersPage-page")).toHaveTextContent(
+      "Page 0 of 0 (0 users)",
+    );
   });
 });
@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * The `CacheConfig` class configures the caches whose entries expire sooner, or are more numerous,
+ * than spring.cache.caffeine.spec allows for: app.cache.specs.NAME is the Caffeine spec of the
+ * cache NAME, e.g. app.cache.specs.adminFlags=maximumSize=10000,expireAfterWrite=60s.
+ */
+@Configuration
+public class CacheConfig {
+
+  /**
+   * Replaces each cache that has a spec of its own with one built from that spec.
+   *
+   * @param environment the environment (injected by Spring)
+   * @return the customizer of the Caffeine cache manager
+   */
+  @Bean
+  public CacheManagerCustomizer<CaffeineCacheManager> cacheSpecs(Environment environment) {
+    Map<String, String> specs =
+        Binder.get(environment)
+            .bind("app.cache.specs", Bindable.mapOf(String.class, String.class))
+            .orElse(Map.of());
+    return cacheManager ->
+        specs.forEach(
+            (name, spec) -> cacheManager.registerCustomCache(name, Caffeine.from(spec).build()));
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.jobs.JobExecutor;
+import edu.ucsb.cs156.example.services.jobs.VirtualThreadJobExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `JobExecutorConfig` class configures the executor that runs jobs launched through JobService.
+ *
+ * <p>At most app.jobs.executor.maxConcurrency jobs run at once. With rejectionPolicy "reject", up
+ * to app.jobs.executor.queueCapacity further jobs wait in a queue and any job launched beyond that
+ * is rejected (the API answers 429 Too Many Requests); with rejectionPolicy "queue", the queue is
+ * unbounded and no job is rejected.
+ *
+ * <p>When app.jobs.executor.virtualThreads is true, each job runs on a virtual thread of its own,
+ * which suits jobs that spend most of their time waiting on I/O; the same limits apply (see
+ * VirtualThreadJobExecutor).
+ *
+ * <p>Log lines are sent to clients streaming a job's log on the jobLogStreamExecutor, so that a
+ * slow client never holds up the job that logs them.
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfig {
+
+  @Value("${app.jobs.executor.maxConcurrency:4}")
+  private int maxConcurrency;
+
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity;
+
+  @Value("${app.jobs.executor.rejectionPolicy:reject}")
+  private String rejectionPolicy;
+
+  @Value("${app.jobs.executor.virtualThreads:false}")
+  private boolean virtualThreads;
+
+  /**
+   * The executor used by JobService.runJobAsync.
+   *
+   * @return the job executor
+   */
+  @Bean
+  public JobExecutor jobExecutor() {
+    int capacity = rejectionPolicy.equals("queue") ? Integer.MAX_VALUE : queueCapacity;
+    log.info(
+        "jobExecutor: maxConcurrency={} queueCapacity={} rejectionPolicy={} virtualThreads={}",
+        maxConcurrency,
+        queueCapacity,
+        rejectionPolicy,
+        virtualThreads);
+    if (virtualThreads) {
+      return new VirtualThreadJobExecutor(maxConcurrency, capacity);
+    }
+    ThreadPoolJobExecutor executor = new ThreadPoolJobExecutor();
+    executor.setCorePoolSize(maxConcurrency);
+    executor.setMaxPoolSize(maxConcurrency);
+    executor.setQueueCapacity(capacity);
+    executor.setThreadNamePrefix("job-");
+    return executor;
+  }
+
+  /** Runs jobs on a fixed pool of platform threads, with a queue in front of it */
+  static class ThreadPoolJobExecutor extends ThreadPoolTaskExecutor implements JobExecutor {}
+
+  /**
+   * The executor on which JobLogWriter hands log lines to its listeners. Sending to a client is
+   * blocking I/O, so each listener being caught up gets a virtual thread of its own.
+   *
+   * @return the job log stream executor
+   */
+  @Bean
+  public TaskExecutor jobLogStreamExecutor() {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("job-log-");
+    executor.setVirtualThreads(true);
+    return executor;
+  }
+}
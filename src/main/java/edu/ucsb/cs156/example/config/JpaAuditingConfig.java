@@ -0,0 +1,26 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on JPA auditing, which fills in the createdAt and updatedAt
+ * fields (annotated with CreatedDate and LastModifiedDate) of entities that use the
+ * AuditingEntityListener, such as Job.
+ *
+ * <p>Those fields are ZonedDateTimes, which the default date time provider (LocalDateTime) cannot
+ * be converted to, so this class provides its own.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
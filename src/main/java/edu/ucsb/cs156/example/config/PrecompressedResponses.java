@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * The `PrecompressedResponses` class keeps the gzipped bodies of the largest GET responses of the
+ * controllers marked with VersionedTable, keyed by their URL and ETag, so that a table that hasn't
+ * changed is neither read, serialized nor compressed again for clients that accept gzip.
+ *
+ * <p>TableVersions sends a kept body when there is one. Otherwise it marks the request, and this
+ * advice serializes and gzips the body, keeps it, and sends it. Only bodies of at least
+ * server.compression.min-response-size are kept, since smaller ones aren't worth compressing, and
+ * at most app.compression.cache.maxEntries of them (0 turns this off), the least recently used
+ * being dropped first. Bodies of older versions of a table are never sent again, and are dropped in
+ * turn. The X- headers the controller added to a response (such as X-Truncated) are kept with its
+ * body.
+ *
+ * <p>All other responses are compressed, or not, by the server (see server.compression in
+ * application.properties).
+ */
+@ControllerAdvice
+public class PrecompressedResponses implements ResponseBodyAdvice<Object> {
+
+  /** The request attribute under which TableVersions leaves the key of a body to keep */
+  static final String KEY_ATTRIBUTE = PrecompressedResponses.class.getName() + ".key";
+
+  @Autowired private ObjectMapper mapper;
+
+  @Value("${app.compression.cache.maxEntries:100}")
+  private int maxEntries = 100;
+
+  @Value("${server.compression.min-response-size:2KB}")
+  private DataSize minResponseSize = DataSize.ofKilobytes(2);
+
+  /** A kept, gzipped body, and the X- headers sent with it */
+  private record Kept(byte[] gzipped, Map<String, String> headers) {}
+
+  private final Map<String, Kept> bodies =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Kept> eldest) {
+              return size() > maxEntries;
+            }
+          });
+
+  /**
+   * This method sends the kept, gzipped body of a GET request, if there is one and the client
+   * accepts gzip. If there is none, it marks the request so that its body is kept.
+   *
+   * @param request the request
+   * @param response the response
+   * @param etag the ETag of the current version of the table the request reads
+   * @return true if the body was sent
+   * @throws IOException if the body cannot be sent
+   */
+  public boolean send(HttpServletRequest request, HttpServletResponse response, String etag)
+      throws IOException {
+    if (maxEntries <= 0 || !acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+      return false;
+    }
+    String query = request.getQueryString();
+    String key = etag + " " + request.getRequestURI() + (query == null ? "" : "?" + query);
+    Kept kept = bodies.get(key);
+    if (kept == null) {
+      request.setAttribute(KEY_ATTRIBUTE, key);
+      return false;
+    }
+    byte[] gzipped = kept.gzipped();
+    kept.headers().forEach(response::setHeader);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    response.setContentLength(gzipped.length);
+    response.getOutputStream().write(gzipped);
+    return true;
+  }
+
+  /**
+   * This method returns whether an Accept-Encoding header accepts gzip, i.e. lists gzip or *
+   * without q=0.
+   *
+   * @param acceptEncoding the header, or null
+   * @return true if gzip is accepted
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.trim().split(";");
+      String name = parts[0].trim();
+      boolean refused = parts.length > 1 && parts[1].trim().matches("q=0(\\.0*)?");
+      if ((name.equalsIgnoreCase("gzip") || name.equals("*")) && !refused) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean supports(
+      MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+    return true;
+  }
+
+  @Override
+  public Object beforeBodyWrite(
+      Object body,
+      MethodParameter returnType,
+      MediaType selectedContentType,
+      Class<? extends HttpMessageConverter<?>> selectedConverterType,
+      ServerHttpRequest request,
+      ServerHttpResponse response) {
+    if (body == null
+        || !MediaType.APPLICATION_JSON.isCompatibleWith(selectedContentType)
+        || !(request instanceof ServletServerHttpRequest servletRequest)
+        || !(servletRequest.getServletRequest().getAttribute(KEY_ATTRIBUTE)
+            instanceof String key)) {
+      return body;
+    }
+    try {
+      byte[] json = mapper.writeValueAsBytes(body);
+      if (json.length < minResponseSize.toBytes()) {
+        return body;
+      }
+      byte[] gzipped = gzip(json);
+      Map<String, String> headers = new LinkedHashMap<>();
+      response
+          .getHeaders()
+          .forEach(
+              (name, values) -> {
+                if (name.regionMatches(true, 0, "X-", 0, 2)) {
+                  headers.put(name, values.get(0));
+                }
+              });
+      bodies.put(key, new Kept(gzipped, headers));
+      response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+      response.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      response.getHeaders().set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+      response.getHeaders().setContentLength(gzipped.length);
+      response.getBody().write(gzipped);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    // the body has been written, so there is nothing left for Spring to write
+    return null;
+  }
+
+  private static byte[] gzip(byte[] bytes) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    }
+    return out.toByteArray();
+  }
+}
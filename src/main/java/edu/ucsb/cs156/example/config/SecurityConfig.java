@@ -4,33 +4,37 @@ import static org.springframework.security.web.util.matcher.AntPathRequestMatche
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminEmailsService;
+import edu.ucsb.cs156.example.services.CurrentUserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
 import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.Http403ForbiddenEntryPoint;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
 import org.springframework.security.web.csrf.CsrfToken;
@@ -51,11 +55,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
+  @Autowired AdminEmailsService adminEmailsService;
 
   @Autowired UserRepository userRepository;
 
+  @Lazy @Autowired CurrentUserService currentUserService;
+
+  @Autowired CacheManager cacheManager;
+
+  /**
+   * The cache of the admin flags read from the users table, by lower-case email (see
+   * app.cache.specs.adminFlags)
+   */
+  public static final String ADMIN_FLAGS_CACHE = "adminFlags";
+
+  private Cache adminFlags() {
+    return cacheManager.getCache(ADMIN_FLAGS_CACHE);
+  }
+
   /**
    * The `filterChain` method in this Java code configures various security settings for an HTTP
    * request, including authorization, exception handling, OAuth2 login, CSRF protection, and logout
@@ -70,14 +87,23 @@ public class SecurityConfig {
             handling -> handling.authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
         .oauth2Login(
             oauth2 ->
-                oauth2.userInfoEndpoint(
-                    userInfo -> userInfo.userAuthoritiesMapper(this.userAuthoritiesMapper())))
+                oauth2
+                    .userInfoEndpoint(
+                        userInfo -> userInfo.userAuthoritiesMapper(this.userAuthoritiesMapper()))
+                    .successHandler(new LoginSuccessHandler(currentUserService)))
         .csrf(
             csrf ->
                 csrf.csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
                     .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
         .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .authorizeHttpRequests(
+            auth ->
+                auth.requestMatchers(antMatcher("/actuator/health"))
+                    .permitAll()
+                    .requestMatchers(antMatcher("/actuator/**"))
+                    .hasRole("ADMIN")
+                    .anyRequest()
+                    .permitAll())
         .logout(
             logout ->
                 logout
@@ -127,17 +153,57 @@ public class SecurityConfig {
 
   /**
    * This method checks if the given email belongs to an admin user either from a predefined list or
-   * by querying the user repository.
+   * by querying the user repository. Emails are compared without regard to case, and the admin flag
+   * from the user repository is kept in the adminFlags cache, so that many logins in a short time
+   * don't each query the users table.
    *
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
+    if (adminEmailsService.isAdmin(email)) {
       return true;
     }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminFlags()
+        .get(
+            email.toLowerCase(Locale.ROOT),
+            () -> userRepository.findByEmailIgnoringCase(email).map(User::getAdmin).orElse(false));
+  }
+
+  /**
+   * This method forgets the cached admin flag for the given email, so that it is read from the user
+   * repository again at the user's next login.
+   *
+   * @param email email address of the user
+   */
+  public void evictAdmin(String email) {
+    adminFlags().evict(email.toLowerCase(Locale.ROOT));
+  }
+
+  /** This method forgets all cached admin flags. */
+  public void evictAllAdmins() {
+    adminFlags().clear();
+  }
+}
+
+/**
+ * Tells the CurrentUserService that a user has logged in, so that the user is stored in the
+ * database once per login rather than on every request, and then redirects them to where they were
+ * going, as the default success handler does.
+ */
+final class LoginSuccessHandler extends SavedRequestAwareAuthenticationSuccessHandler {
+  private final CurrentUserService currentUserService;
+
+  LoginSuccessHandler(CurrentUserService currentUserService) {
+    this.currentUserService = currentUserService;
+  }
+
+  @Override
+  public void onAuthenticationSuccess(
+      HttpServletRequest request, HttpServletResponse response, Authentication authentication)
+      throws ServletException, IOException {
+    currentUserService.userLoggedIn(authentication, request.getSession());
+    super.onAuthenticationSuccess(request, response, authentication);
   }
 }
 
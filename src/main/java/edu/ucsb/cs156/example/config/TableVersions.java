@@ -0,0 +1,106 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The `TableVersions` class keeps a version of each table read by a controller marked with
+ * VersionedTable, in TABLE_VERSIONS, and uses it as the ETag of the GET responses of that
+ * controller.
+ *
+ * <p>A GET request whose If-None-Match matches the current version of the table gets a 304 Not
+ * Modified, without reading the table or serializing the response. Responses are sent with
+ * Cache-Control "no-cache, private", so that browsers keep them but revalidate them each time.
+ *
+ * <p>The version of a table is increased in the transaction of each write made through its
+ * controller, so that every server sees the new version as soon as it can read the write, and it
+ * survives restarts. Writes made other than through the controllers (e.g. directly in the database)
+ * do not change it. Each versioned table needs a row in TABLE_VERSIONS, added by a Liquibase
+ * changeset.
+ */
+@Component
+public class TableVersions implements HandlerInterceptor, WebMvcConfigurer {
+
+  @Autowired private PrecompressedResponses precompressedResponses;
+
+  @Autowired private TableVersionRepository tableVersionRepository;
+
+  /**
+   * This method returns the current version of a table.
+   *
+   * @param table the name of the table
+   * @return its version, or 0 if it has none
+   */
+  public long version(String table) {
+    return tableVersionRepository.findById(table).map(TableVersion::getVersion).orElse(0L);
+  }
+
+  /**
+   * This method records a write to a table. It must be called in the transaction of the write.
+   *
+   * @param table the name of the table
+   * @throws IllegalStateException if the table has no row in TABLE_VERSIONS
+   */
+  public void bump(String table) {
+    if (tableVersionRepository.bump(table, System.currentTimeMillis()) == 0) {
+      throw new IllegalStateException("Table %s has no version in TABLE_VERSIONS".formatted(table));
+    }
+  }
+
+  /**
+   * This method returns the ETag of the current version of a table.
+   *
+   * @param table the name of the table
+   * @return the ETag, in quotes
+   */
+  public String etag(String table) {
+    return "\"%s-%d\"".formatted(table, version(table));
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(this);
+  }
+
+  /**
+   * This method answers a GET request to a versioned controller with 304 Not Modified if the
+   * request's If-None-Match matches the version of its table, and otherwise adds the ETag to the
+   * response. Requests by users without ROLE_USER, which every GET endpoint of those controllers
+   * requires, are left to the controller to refuse. If the response body has been kept gzipped (see
+   * PrecompressedResponses), it is sent without calling the controller.
+   */
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!"GET".equals(request.getMethod())
+        || !(handler instanceof HandlerMethod method)
+        || !request.isUserInRole("USER")) {
+      return true;
+    }
+    VersionedTable table =
+        AnnotationUtils.findAnnotation(method.getBeanType(), VersionedTable.class);
+    if (table == null) {
+      return true;
+    }
+    response.setHeader(
+        HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+    String etag = etag(table.value());
+    if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+      return false;
+    }
+    return !precompressedResponses.send(request, response, etag);
+  }
+}
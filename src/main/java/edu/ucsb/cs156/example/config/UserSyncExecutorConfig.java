@@ -0,0 +1,37 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * The `UserSyncExecutorConfig` class configures the executor that copies changed Google profiles
+ * into the users table (see UserProfileSyncService), so that logins don't wait for those writes.
+ *
+ * <p>A single thread does the writes. At most app.users.profileSync.queueCapacity updates wait for
+ * it; beyond that, updates are dropped, and are made again at the user's next login.
+ */
+@Configuration
+public class UserSyncExecutorConfig {
+
+  @Value("${app.users.profileSync.queueCapacity:1000}")
+  private int queueCapacity;
+
+  /**
+   * The executor used by UserProfileSyncService.syncProfile.
+   *
+   * @return the user sync executor
+   */
+  @Bean
+  public ThreadPoolTaskExecutor userSyncExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("user-sync-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+    return executor;
+  }
+}
@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a controller whose GET endpoints read only one table, so that their responses can be
+ * revalidated with the version of that table (see TableVersions). The controller must call
+ * ApiController.tableChanged() in the transaction of each write to the table, and the table needs a
+ * row in TABLE_VERSIONS.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface VersionedTable {
+  /**
+   * The name of the table, as used by TableVersions and in the ETags of its responses.
+   *
+   * @return the name of the table
+   */
+  String value();
+}
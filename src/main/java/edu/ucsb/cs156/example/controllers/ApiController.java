@@ -1,20 +1,121 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.TableVersions;
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.InvalidRowsException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.repositories.PagingCrudRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.Id;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 /** This is an abstract class that provides common functionality for all API controllers. */
 @Slf4j
 public abstract class ApiController {
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private TableVersions tableVersions;
+
+  @Value("${app.api.maxUnpagedRows:1000}")
+  private int maxUnpagedRows = 1000;
+
+  @Value("${app.api.maxBulkRows:1000}")
+  private int maxBulkRows = 1000;
+
+  /** The most entities an /all endpoint returns per page */
+  public static final int MAX_PAGE_SIZE = 100;
+
+  /**
+   * The response header, with value "true", of an /all list that was cut short at
+   * app.api.maxUnpagedRows
+   */
+  public static final String TRUNCATED_HEADER = "X-Truncated";
+
+  /** The query parameters of an /all endpoint that are not filters */
+  private static final Set<String> PAGING_PARAMETERS = Set.of("page", "size", "sort", "direction");
+
+  /**
+   * This method records a write to the table of this controller (see VersionedTable), so that the
+   * ETags of its GET responses change. It is called after each save or delete, in the transaction
+   * of the write.
+   */
+  protected void tableChanged() {
+    tableVersions.bump(AnnotationUtils.findAnnotation(getClass(), VersionedTable.class).value());
+  }
+
+  /**
+   * This method runs an action once the current transaction has committed, or right away if there
+   * is none, e.g. to tell readers about a change only once they can read it.
+   *
+   * @param action the action
+   */
+  protected static void afterCommit(Runnable action) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      action.run();
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            action.run();
+          }
+        });
+  }
+
+  /**
+   * This method returns the most entities an /all endpoint lists when it is not asked for a page.
+   *
+   * @return app.api.maxUnpagedRows
+   */
+  protected int getMaxUnpagedRows() {
+    return maxUnpagedRows;
+  }
+
   /**
    * This method returns the current user.
    *
@@ -34,6 +135,444 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method lists the entities in a repository for an /all endpoint, according to its query
+   * parameters:
+   *
+   * <ul>
+   *   <li>page and size: the page to return, starting at 0, and how many entities per page (at most
+   *       MAX_PAGE_SIZE);
+   *   <li>sort and direction: the field to sort by, and ASC (the default) or DESC;
+   *   <li>any other parameter that is the name of a field filters the entities: only those whose
+   *       field equals its value are listed; dates and times are written as e.g.
+   *       2025-01-01T12:00:00. Parameters that name no field (e.g. the "_" some clients add to
+   *       defeat caches) are ignored.
+   * </ul>
+   *
+   * With page or size, the page is returned in the same form as the pages of /api/jobs/paged: the
+   * entities in "content", and the page number, page size, total number of entities and total
+   * number of pages in "page". Without either, a plain list of at most app.api.maxUnpagedRows
+   * entities is returned, as the /all endpoints always have (see unpagedList).
+   *
+   * @param <T> the entity type
+   * @param repository the repository of the entities
+   * @param entityClass the entity class, whose fields can be sorted and filtered by
+   * @param params the query parameters
+   * @return a PagedModel, or a list of entities
+   * @throws ResponseStatusException (400) if sort names no field, or a parameter has a bad value
+   */
+  protected <T> Object listAll(
+      PagingCrudRepository<T, ?> repository, Class<T> entityClass, Map<String, String> params) {
+    boolean paged = params.containsKey("page") || params.containsKey("size");
+    int page = intParameter(params, "page", 0);
+    int size = intParameter(params, "size", 20);
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "page must be at least 0 and size at least 1");
+    }
+
+    Sort sort = Sort.unsorted();
+    String sortBy = params.get("sort");
+    if (sortBy != null || paged) {
+      Sort.Direction direction;
+      try {
+        direction = Sort.Direction.fromString(params.getOrDefault("direction", "ASC"));
+      } catch (IllegalArgumentException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "direction must be ASC or DESC");
+      }
+      // sort by id as well, so that entities with equal sort fields stay in a stable order
+      String id = idField(entityClass);
+      String sortField = sortBy != null ? field(entityClass, sortBy).getName() : id;
+      sort = Sort.by(direction, sortField);
+      if (!sortField.equals(id)) {
+        sort = sort.and(Sort.by(direction, id));
+      }
+    }
+
+    List<Specification<T>> filters = new ArrayList<>();
+    params.forEach(
+        (name, value) -> {
+          Field field = ReflectionUtils.findField(entityClass, name);
+          if (!PAGING_PARAMETERS.contains(name) && field != null) {
+            Object filterValue = convert(entityClass, field, value);
+            filters.add((root, query, cb) -> cb.equal(root.get(name), filterValue));
+          }
+        });
+
+    Pageable pageable =
+        paged
+            ? PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), sort)
+            : PageRequest.of(0, maxUnpagedRows, sort);
+    Page<T> result =
+        filters.isEmpty()
+            ? repository.findAll(pageable)
+            : repository.findAll(Specification.allOf(filters), pageable);
+    if (paged) {
+      return new PagedModel<>(result);
+    }
+    return unpagedList(result, entityClass.getSimpleName());
+  }
+
+  /**
+   * This method returns the first page of entities as the plain list of an /all endpoint. If there
+   * are more entities than fit on the page, the response has the header X-Truncated: true, so that
+   * clients can tell that they got only part of the list.
+   *
+   * @param <T> the entity type
+   * @param page the first page of the entities, of at most app.api.maxUnpagedRows entities
+   * @param what what the entities are, for the log
+   * @return the entities of the page
+   */
+  protected <T> ResponseEntity<List<T>> unpagedList(Page<T> page, String what) {
+    if (!page.hasNext()) {
+      return ResponseEntity.ok(page.getContent());
+    }
+    log.warn(
+        "Listed only {} of {} {} entities; use page and size to list the rest",
+        page.getNumberOfElements(),
+        page.getTotalElements(),
+        what);
+    return ResponseEntity.ok().header(TRUNCATED_HEADER, "true").body(page.getContent());
+  }
+
+  private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+    String value = params.get(name);
+    try {
+      return value == null ? defaultValue : Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, name + " must be a number");
+    }
+  }
+
+  private static Field field(Class<?> entityClass, String name) {
+    Field field = ReflectionUtils.findField(entityClass, name);
+    if (field == null) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "%s has no field %s".formatted(entityClass.getSimpleName(), name));
+    }
+    return field;
+  }
+
+  private static String idField(Class<?> entityClass) {
+    return idFieldOf(entityClass).getName();
+  }
+
+  private static Field idFieldOf(Class<?> entityClass) {
+    return Arrays.stream(entityClass.getDeclaredFields())
+        .filter(f -> f.isAnnotationPresent(Id.class))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static Object idOf(Object entity) {
+    Field id = idFieldOf(entity.getClass());
+    ReflectionUtils.makeAccessible(id);
+    return ReflectionUtils.getField(id, entity);
+  }
+
+  private static Object convert(Class<?> entityClass, Field field, String value) {
+    try {
+      if (field.getType() == LocalDateTime.class) {
+        return LocalDateTime.parse(value);
+      }
+      return DefaultConversionService.getSharedInstance().convert(value, field.getType());
+    } catch (DateTimeParseException | ConversionException e) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "Cannot filter %s by %s=%s"
+              .formatted(entityClass.getSimpleName(), field.getName(), value));
+    }
+  }
+
+  /**
+   * This method creates entities for a bulk write, all of them or none: if any row is invalid,
+   * nothing is written, and an InvalidRowsException says which rows are invalid and why. Besides
+   * the check each controller makes, ids chosen by the client (rather than generated by the
+   * database) must be new, and not repeated.
+   *
+   * <p>The entities are saved together, so that they are written in JDBC batches within the
+   * transaction of the caller, and tableChanged is called in that transaction too.
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of the id of the entity
+   * @param repository the repository of the entities
+   * @param rows the rows sent by the client
+   * @param invalid why a row is invalid, or null if it is valid
+   * @param fresh a new entity with the fields of a row that a client may set
+   * @return the created entities, in the order of the rows
+   * @throws ResponseStatusException (400) if there are more than app.api.maxBulkRows rows
+   * @throws InvalidRowsException if any row is invalid
+   */
+  protected <T, ID> List<T> createAll(
+      CrudRepository<T, ID> repository,
+      List<T> rows,
+      Function<T, String> invalid,
+      UnaryOperator<T> fresh) {
+    checkBulkSize(rows.size());
+    if (rows.isEmpty()) {
+      return List.of();
+    }
+    List<T> entities = rows.stream().map(fresh).toList();
+    List<String> problems = new ArrayList<>(entities.stream().map(invalid).toList());
+    Class<?> entityClass = entities.get(0).getClass();
+    List<Object> ids;
+    if (idFieldOf(entityClass).isAnnotationPresent(GeneratedValue.class)) {
+      ids = Collections.nCopies(entities.size(), null);
+    } else {
+      ids = entities.stream().map(ApiController::idOf).toList();
+      checkIds(entityClass, ids, problems, findAll(repository, ids, problems).keySet(), false);
+    }
+    refuseInvalid(ids, problems);
+
+    List<T> created = new ArrayList<>();
+    repository.saveAll(entities).forEach(created::add);
+    tableChanged();
+    return created;
+  }
+
+  /**
+   * This method updates entities for a bulk write, all of them or none, as createAll creates them.
+   * Each row names the entity it updates by its id, which must exist and not be repeated.
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of the id of the entity
+   * @param repository the repository of the entities
+   * @param rows the rows sent by the client
+   * @param invalid why a row is invalid, or null if it is valid
+   * @param copy copies the fields of a row that a client may set to the entity it updates
+   * @return the updated entities, in the order of the rows
+   * @throws ResponseStatusException (400) if there are more than app.api.maxBulkRows rows
+   * @throws InvalidRowsException if any row is invalid
+   */
+  protected <T, ID> List<T> updateAll(
+      CrudRepository<T, ID> repository,
+      List<T> rows,
+      Function<T, String> invalid,
+      BiConsumer<T, T> copy) {
+    checkBulkSize(rows.size());
+    if (rows.isEmpty()) {
+      return List.of();
+    }
+    List<String> problems = new ArrayList<>(rows.stream().map(invalid).toList());
+    List<Object> ids = rows.stream().map(ApiController::idOf).toList();
+    Map<Object, T> existing = findAll(repository, ids, problems);
+    checkIds(rows.get(0).getClass(), ids, problems, existing.keySet(), true);
+    refuseInvalid(ids, problems);
+
+    List<T> updated = new ArrayList<>();
+    for (int i = 0; i < rows.size(); i++) {
+      T entity = existing.get(ids.get(i));
+      copy.accept(rows.get(i), entity);
+      updated.add(entity);
+    }
+    repository.saveAll(updated);
+    tableChanged();
+    return updated;
+  }
+
+  /**
+   * This method deletes entities for a bulk write, all of them or none, as createAll creates them.
+   * Each id must exist and not be repeated.
+   *
+   * @param <T> the entity type
+   * @param <ID> the type of the id of the entity
+   * @param repository the repository of the entities
+   * @param entityClass the entity class
+   * @param ids the ids sent by the client
+   * @return the deleted entities, in the order of the ids
+   * @throws ResponseStatusException (400) if there are more than app.api.maxBulkRows ids
+   * @throws InvalidRowsException if any id is missing or not found
+   */
+  protected <T, ID> List<T> deleteAll(
+      CrudRepository<T, ID> repository, Class<T> entityClass, List<ID> ids) {
+    checkBulkSize(ids.size());
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    List<String> problems =
+        new ArrayList<>(ids.stream().map(id -> id == null ? "id is required" : null).toList());
+    Map<Object, T> existing = findAll(repository, ids, problems);
+    checkIds(entityClass, ids, problems, existing.keySet(), true);
+    refuseInvalid(ids, problems);
+
+    List<T> deleted = ids.stream().map(existing::get).toList();
+    repository.deleteAll(deleted);
+    tableChanged();
+    return deleted;
+  }
+
+  /**
+   * This method reports what a bulk write did with each row.
+   *
+   * @param entities the entities written, in the order of the rows
+   * @param status created, updated or deleted
+   * @return the result of each row
+   */
+  protected static List<BulkRowResult> rowResults(List<?> entities, String status) {
+    return IntStream.range(0, entities.size())
+        .mapToObj(
+            i -> BulkRowResult.builder().index(i).id(idOf(entities.get(i))).status(status).build())
+        .toList();
+  }
+
+  /**
+   * This method names the required fields of a row sent to a bulk write that are missing.
+   *
+   * @param namesAndValues the name of each required field, followed by its value
+   * @return e.g. "name, description are required", or null if none is missing
+   */
+  protected static String missing(Object... namesAndValues) {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < namesAndValues.length; i += 2) {
+      if (namesAndValues[i + 1] == null) {
+        names.add((String) namesAndValues[i]);
+      }
+    }
+    if (names.isEmpty()) {
+      return null;
+    }
+    return String.join(", ", names) + (names.size() == 1 ? " is required" : " are required");
+  }
+
+  private void checkBulkSize(int rows) {
+    if (rows > maxBulkRows) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST,
+          "at most %d rows can be written at a time".formatted(maxBulkRows));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T, ID> Map<Object, T> findAll(
+      CrudRepository<T, ID> repository, List<?> ids, List<String> problems) {
+    List<ID> valid = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i++) {
+      if (problems.get(i) == null) {
+        valid.add((ID) ids.get(i));
+      }
+    }
+    Map<Object, T> found = new HashMap<>();
+    repository.findAllById(valid).forEach(entity -> found.put(idOf(entity), entity));
+    return found;
+  }
+
+  private static void checkIds(
+      Class<?> entityClass,
+      List<?> ids,
+      List<String> problems,
+      Set<Object> existing,
+      boolean mustExist) {
+    Set<Object> seen = new HashSet<>();
+    for (int i = 0; i < ids.size(); i++) {
+      Object id = ids.get(i);
+      if (problems.get(i) != null) {
+        continue;
+      }
+      if (existing.contains(id) != mustExist) {
+        problems.set(
+            i,
+            "%s with id %s %s"
+                .formatted(
+                    entityClass.getSimpleName(), id, mustExist ? "not found" : "already exists"));
+      } else if (!seen.add(id)) {
+        problems.set(i, "id %s is repeated".formatted(id));
+      }
+    }
+  }
+
+  private static void refuseInvalid(List<?> ids, List<String> problems) {
+    if (problems.stream().allMatch(Objects::isNull)) {
+      return;
+    }
+    List<BulkRowResult> results = new ArrayList<>();
+    for (int i = 0; i < ids.size(); i++) {
+      String problem = problems.get(i);
+      results.add(
+          BulkRowResult.builder()
+              .index(i)
+              .id(ids.get(i))
+              .status(problem == null ? "valid" : "invalid")
+              .message(problem)
+              .build());
+    }
+    throw new InvalidRowsException(results);
+  }
+
+  /**
+   * This record is where a client is in a list read a page at a time by id with a cursor: the order
+   * of the list, and the id of the last entity on the page the client has already read.
+   *
+   * @param direction ASC or DESC
+   * @param lastId the id of the last entity read, or a bound beyond every id before the first page
+   */
+  protected record Cursor(Sort.Direction direction, long lastId) {}
+
+  /**
+   * This method decodes the cursor sent by a client. Without a cursor, the client is at the start
+   * of a list in the given direction.
+   *
+   * @param cursor the cursor, or null for the first page
+   * @param direction the direction of the list, when there is no cursor
+   * @return where the client is in the list
+   * @throws ResponseStatusException (400) if the cursor was not made by cursorPage
+   */
+  protected static Cursor decodeCursor(String cursor, Sort.Direction direction) {
+    if (cursor == null) {
+      return new Cursor(direction, direction.isAscending() ? Long.MIN_VALUE : Long.MAX_VALUE);
+    }
+    try {
+      String[] parts =
+          new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+      if (parts.length == 2) {
+        return new Cursor(Sort.Direction.valueOf(parts[0]), Long.parseLong(parts[1]));
+      }
+    } catch (IllegalArgumentException e) {
+      // not base64, or not a direction and an id; rejected below
+    }
+    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor " + cursor);
+  }
+
+  /**
+   * This method checks the size of a page read with a cursor, and caps it at MAX_PAGE_SIZE.
+   *
+   * @param size the size asked for
+   * @return the size to read
+   * @throws ResponseStatusException (400) if the size is less than 1
+   */
+  protected static int cursorPageSize(int size) {
+    if (size < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be at least 1");
+    }
+    return Math.min(size, MAX_PAGE_SIZE);
+  }
+
+  /**
+   * This method makes a page from the entities read after a cursor. The repository is asked for one
+   * entity more than fits on the page; if it is there, the list goes on, and the next cursor points
+   * after the last entity on this page.
+   *
+   * @param <T> the entity type
+   * @param rows up to size + 1 entities, in the direction of the list
+   * @param size the number of entities on a page
+   * @param direction the direction of the list
+   * @param idOf the id of an entity
+   * @return the page
+   */
+  protected static <T> CursorPage<T> cursorPage(
+      List<T> rows, int size, Sort.Direction direction, ToLongFunction<T> idOf) {
+    if (rows.size() <= size) {
+      return new CursorPage<>(rows, null);
+    }
+    List<T> content = rows.subList(0, size);
+    String next = direction.name() + ":" + idOf.applyAsLong(content.get(size - 1));
+    return new CursorPage<>(
+        content,
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(next.getBytes(StandardCharsets.UTF_8)));
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    *
@@ -47,4 +586,36 @@ public abstract class ApiController {
         "type", e.getClass().getSimpleName(),
         "message", e.getMessage());
   }
+
+  /**
+   * This method handles the InvalidRowsException, which is thrown when a bulk write is refused.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception, and the result of each row
+   */
+  @ExceptionHandler({InvalidRowsException.class})
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleInvalidRowsException(InvalidRowsException e) {
+    return Map.of(
+        "type", e.getClass().getSimpleName(),
+        "message", e.getMessage(),
+        "results", e.getResults());
+  }
+
+  /**
+   * This method handles the TaskRejectedException, which is thrown when work is handed to an
+   * executor (e.g. the job executor) that is already at capacity.
+   *
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({TaskRejectedException.class})
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Object handleTaskRejectedException(Throwable e) {
+    return Map.of(
+        "type",
+        e.getClass().getSimpleName(),
+        "message",
+        "Too many jobs are running or queued; try again later");
+  }
 }
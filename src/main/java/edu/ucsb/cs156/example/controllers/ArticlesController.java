@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,6 +31,7 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
 @RestController
+@VersionedTable("articles")
 @Slf4j
 public class ArticlesController extends ApiController {
 
@@ -34,14 +40,21 @@ public class ArticlesController extends ApiController {
   /**
    * List all archives
    *
-   * @return an iterable of archives
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of articles
    */
   @Operation(summary = "List all articles")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Articles> allArticles() {
-    Iterable<Articles> articles = articlesRepository.findAll();
-    return articles;
+  public Object allArticles(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 articles")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(articlesRepository, Articles.class, params);
   }
 
   /**
@@ -76,6 +89,7 @@ public class ArticlesController extends ApiController {
   @Operation(summary = "Create a new article")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @Transactional
   public Articles postArticles(
       @Parameter(name = "title") @RequestParam String title,
       @Parameter(name = "url") @RequestParam String url,
@@ -103,6 +117,7 @@ public class ArticlesController extends ApiController {
     articles.setDateAdded(dateAdded);
 
     Articles savedArticles = articlesRepository.save(articles);
+    tableChanged();
 
     return savedArticles;
   }
@@ -116,6 +131,7 @@ public class ArticlesController extends ApiController {
   @Operation(summary = "Delete an Article")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @Transactional
   public Object deleteArticle(@Parameter(name = "id") @RequestParam Long id) {
     Articles articles =
         articlesRepository
@@ -123,6 +139,7 @@ public class ArticlesController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
     articlesRepository.delete(articles);
+    tableChanged();
     return genericMessage("Articles with id %s deleted".formatted(id));
   }
 
@@ -136,6 +153,7 @@ public class ArticlesController extends ApiController {
   @Operation(summary = "Update a single article")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @Transactional
   public Articles updateArticle(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Articles incoming) {
 
@@ -144,14 +162,87 @@ public class ArticlesController extends ApiController {
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
-    articles.setTitle(incoming.getTitle());
-    articles.setUrl(incoming.getUrl());
-    articles.setExplanation(incoming.getExplanation());
-    articles.setEmail(incoming.getEmail());
-    articles.setDateAdded(incoming.getDateAdded());
+    copy(incoming, articles);
 
     articlesRepository.save(articles);
+    tableChanged();
 
     return articles;
   }
+
+  /**
+   * This method creates articles in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the articles to create; their ids are ignored
+   * @return the result of each row
+   */
+  @Operation(summary = "Create articles in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkCreateArticles(@RequestBody List<Articles> rows) {
+    return rowResults(
+        createAll(
+            articlesRepository,
+            rows,
+            ArticlesController::invalid,
+            article -> copy(article, new Articles())),
+        "created");
+  }
+
+  /**
+   * This method updates articles in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the articles, each with the id of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update articles in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkUpdateArticles(@RequestBody List<Articles> rows) {
+    return rowResults(
+        updateAll(articlesRepository, rows, ArticlesController::invalid, ArticlesController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes articles in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the articles to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete articles in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkDeleteArticles(@RequestBody List<Long> ids) {
+    return rowResults(deleteAll(articlesRepository, Articles.class, ids), "deleted");
+  }
+
+  private static String invalid(Articles article) {
+    return missing(
+        "title",
+        article.getTitle(),
+        "url",
+        article.getUrl(),
+        "explanation",
+        article.getExplanation(),
+        "email",
+        article.getEmail(),
+        "dateAdded",
+        article.getDateAdded());
+  }
+
+  private static Articles copy(Articles from, Articles to) {
+    to.setTitle(from.getTitle());
+    to.setUrl(from.getUrl());
+    to.setExplanation(from.getExplanation());
+    to.setEmail(from.getEmail());
+    to.setDateAdded(from.getDateAdded());
+    return to;
+  }
 }
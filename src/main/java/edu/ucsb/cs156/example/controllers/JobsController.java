@@ -5,22 +5,46 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobPurgeReport;
+import edu.ucsb.cs156.example.models.JobSummary;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.services.jobs.SseJobLogListener;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
@@ -31,22 +55,133 @@ public class JobsController extends ApiController {
 
   @Autowired private JobService jobService;
 
+  @Autowired private JobRetentionService jobRetentionService;
+
   @Autowired ObjectMapper mapper;
 
-  @Operation(summary = "List all jobs")
+  private static final int MAX_PAGE_SIZE = 100;
+
+  private static final Set<String> SORTABLE_JOB_PROPERTIES =
+      Set.of("id", "createdAt", "updatedAt", "status");
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long logStreamTimeoutMs = 1800000;
+
+  @Operation(
+      summary =
+          "List the most recent jobs, newest first, without their logs (at most"
+              + " app.api.maxUnpagedRows, with X-Truncated: true if there are more; use /paged for"
+              + " the rest)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/all")
-  public Iterable<Job> allJobs() {
-    Iterable<Job> jobs = jobsRepository.findAll();
-    return jobs;
+  public ResponseEntity<List<JobSummary>> allJobs() {
+    Pageable newestFirst =
+        PageRequest.of(
+            0,
+            getMaxUnpagedRows(),
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    return unpagedList(
+        jobsRepository.findSummaries(null, null, null, null, null, newestFirst), "Job");
+  }
+
+  @Operation(
+      summary =
+          "List jobs a page at a time, without their logs, optionally filtered by status, creator,"
+              + " creation time and parent job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/paged")
+  public PagedModel<JobSummary> pagedJobs(
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Jobs per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "sort", description = "One of id, createdAt, updatedAt, status")
+          @RequestParam(defaultValue = "createdAt")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction,
+      @Parameter(name = "status") @RequestParam(required = false) String status,
+      @Parameter(name = "createdById", description = "Id of the user who launched the job")
+          @RequestParam(required = false)
+          Long createdById,
+      @Parameter(name = "createdAfter", description = "e.g. 2025-01-01T00:00:00Z (inclusive)")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "e.g. 2025-02-01T00:00:00Z (exclusive)")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(name = "parentJobId", description = "Only the child jobs of this job")
+          @RequestParam(required = false)
+          Long parentJobId) {
+
+    if (!SORTABLE_JOB_PROPERTIES.contains(sort)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort jobs by " + sort);
+    }
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "page must be at least 0 and size at least 1");
+    }
+
+    // sort by id as well, so that jobs created at the same time stay in a stable order
+    Pageable pageable =
+        PageRequest.of(
+            page,
+            Math.min(size, MAX_PAGE_SIZE),
+            Sort.by(direction, sort).and(Sort.by(direction, "id")));
+    return new PagedModel<>(
+        jobsRepository.findSummaries(
+            status, createdById, createdAfter, createdBefore, parentJobId, pageable));
+  }
+
+  @Operation(
+      summary =
+          "List jobs a page at a time by id, without their logs, optionally filtered by status;"
+              + " pass back nextCursor for the next page")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/cursor")
+  public CursorPage<JobSummary> jobsByCursor(
+      @Parameter(
+              name = "cursor",
+              description = "nextCursor of the previous page; omit for the first")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size", description = "Jobs per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "direction",
+              description = "ASC or DESC (newest first); ignored with a cursor")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction,
+      @Parameter(name = "status") @RequestParam(required = false) String status) {
+    Cursor position = decodeCursor(cursor, direction);
+    int pageSize = cursorPageSize(size);
+    Pageable limit = PageRequest.ofSize(pageSize + 1);
+    List<JobSummary> jobs =
+        position.direction().isAscending()
+            ? jobsRepository.findSummariesAfter(status, position.lastId(), limit)
+            : jobsRepository.findSummariesBefore(status, position.lastId(), limit);
+    return cursorPage(jobs, pageSize, position.direction(), JobSummary::getId);
   }
 
-  @Operation(summary = "Delete all job records")
+  @Operation(summary = "Delete all finished job records; queued and running jobs are kept")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
   public Map<String, String> deleteAllJobs() {
-    jobsRepository.deleteAll();
-    return Map.of("message", "All jobs deleted");
+    long deleted = jobRetentionService.deleteAllFinished();
+    return Map.of("message", "%d finished jobs deleted".formatted(deleted));
+  }
+
+  @Operation(summary = "Delete the jobs that the retention policy no longer keeps, right now")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/purge")
+  public JobPurgeReport purgeJobs() {
+    return jobRetentionService.purge();
   }
 
   @Operation(summary = "Get a specific Job Log by ID if it is in the database")
@@ -70,9 +205,27 @@ public class JobsController extends ApiController {
       return Map.of("message", String.format("Job with id %d not found", id));
     }
     jobsRepository.deleteById(id);
+    jobService.deleteJobLogs(id);
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(
+      summary =
+          "Cancel a queued or running job; a running job stops at its next check for"
+              + " cancellation")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Map<String, String> cancelJob(@Parameter(name = "id") @RequestParam Long id) {
+    if (!jobsRepository.existsById(id)) {
+      throw new EntityNotFoundException(Job.class, id);
+    }
+    if (!jobService.cancelJob(id)) {
+      throw new ResponseStatusException(
+          HttpStatus.CONFLICT, String.format("Job with id %d has already finished", id));
+    }
+    return Map.of("message", String.format("Job with id %d cancelled", id));
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
@@ -84,11 +237,52 @@ public class JobsController extends ApiController {
     return jobService.runAsJob(testJob);
   }
 
+  @Operation(summary = "Get the number of running and queued jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/executor")
+  public JobExecutorStatus getExecutorStatus() {
+    return jobService.getExecutorStatus();
+  }
+
   @Operation(summary = "Get long job logs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
+  public void getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      HttpServletResponse response)
+      throws IOException {
+
+    // written straight to the response, so a large (compressed) log is streamed, not buffered
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    jobService.writeJobLogs(id, response.getWriter());
+  }
+
+  @Operation(
+      summary =
+          "Stream job log lines as server-sent events, starting at line offset (resumes after"
+              + " Last-Event-ID on reconnect)")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "offset", description = "Number of log lines the client already has")
+          @RequestParam(defaultValue = "0")
+          Long offset,
+      @Parameter(hidden = true) @RequestHeader(value = "Last-Event-ID", required = false)
+          Long lastEventId) {
+
+    Job job =
+        jobsRepository.findById(id).orElseThrow(() -> new EntityNotFoundException(Job.class, id));
+
+    long fromSeq = Math.max(0, offset);
+    if (lastEventId != null) {
+      fromSeq = Math.max(fromSeq, lastEventId + 1);
+    }
 
-    return jobService.getJobLogs(id);
+    SseEmitter emitter = new SseEmitter(logStreamTimeoutMs);
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+    emitter.onCompletion(jobService.streamJobLogs(job, fromSeq, listener));
+    return emitter;
   }
 }
@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.RatingSummary;
+import edu.ucsb.cs156.example.models.TrendingMenuItem;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * This is a REST controller for the ratings of menu items, i.e. the number of reviews, average
+ * stars and number of reviews giving each number of stars, read from running totals rather than
+ * from the reviews themselves.
+ */
+@Tag(name = "Menu Item Ratings")
+@RequestMapping("/api/menuitemratings")
+@RestController
+public class MenuItemRatingsController extends ApiController {
+
+  @Autowired MenuItemRatingService menuItemRatingService;
+
+  @Autowired TrendingMenuItemsService trendingMenuItemsService;
+
+  @Value("${app.trending.cacheTtlMs:60000}")
+  private long trendingCacheTtlMs = 60000;
+
+  /**
+   * This method returns the rating of a menu item.
+   *
+   * @param itemId id of the menu item
+   * @return the rating, with no reviews if the item has none
+   */
+  @Operation(summary = "Get the rating of a menu item")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("")
+  public RatingSummary itemRating(@Parameter(name = "itemId") @RequestParam long itemId) {
+    return menuItemRatingService.summaryForItem(itemId);
+  }
+
+  /**
+   * This method returns the rating of all the menu items of a dining commons.
+   *
+   * @param diningCommonsCode code of the dining commons, e.g. ortega
+   * @return the rating, with no reviews if none of its items has any
+   */
+  @Operation(summary = "Get the rating of all the menu items of a dining commons")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/commons")
+  public RatingSummary commonsRating(
+      @Parameter(name = "diningCommonsCode") @RequestParam String diningCommonsCode) {
+    return menuItemRatingService.summaryForCommons(diningCommonsCode);
+  }
+
+  /**
+   * This method returns the menu items that have been reviewed the most, or the best, lately. A
+   * review counts for less the older it is, and half as much every app.trending.halfLifeHours. The
+   * ranking may be up to app.trending.cacheTtlMs old, and may be cached by the browser that long.
+   *
+   * @param diningCommonsCode code of the dining commons, or null for all of them
+   * @param ranking VOLUME (most recent reviews) or STARS (best average stars)
+   * @param limit the most items to return
+   * @return the items, most popular first
+   */
+  @Operation(summary = "List the menu items reviewed the most, or the best, lately")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/trending")
+  public ResponseEntity<List<TrendingMenuItem>> trending(
+      @Parameter(name = "diningCommonsCode", description = "e.g. ortega; all commons if omitted")
+          @RequestParam(required = false)
+          String diningCommonsCode,
+      @Parameter(name = "ranking", description = "VOLUME (most reviewed) or STARS (best rated)")
+          @RequestParam(defaultValue = "VOLUME")
+          TrendingMenuItemsService.Ranking ranking,
+      @Parameter(name = "limit", description = "Items to list (at most 50)")
+          @RequestParam(defaultValue = "10")
+          int limit) {
+    if (limit < 1) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be at least 1");
+    }
+    return ResponseEntity.ok()
+        .cacheControl(CacheControl.maxAge(trendingCacheTtlMs, TimeUnit.MILLISECONDS).cachePrivate())
+        .body(trendingMenuItemsService.topItems(diningCommonsCode, ranking, limit));
+  }
+
+  /**
+   * This method computes the recent reviews of every menu item again from the reviews, in case they
+   * have drifted from them, e.g. because a review was written directly to the database.
+   *
+   * @return a message saying how many menu items have recent reviews
+   */
+  @Operation(summary = "Compute the recent reviews of every menu item again from the reviews")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/trending/rebuild")
+  public Object rebuildTrending() {
+    int items = trendingMenuItemsService.rebuild();
+    return genericMessage("Rebuilt the recent reviews of %d menu items".formatted(items));
+  }
+
+  /**
+   * This method computes the ratings of every menu item again from the reviews, in case they have
+   * drifted from them.
+   *
+   * @return a message saying how many menu items have ratings
+   */
+  @Operation(summary = "Compute the ratings of every menu item again from the reviews")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/rebuild")
+  public Object rebuild() {
+    int items = menuItemRatingService.rebuild();
+    return genericMessage("Rebuilt the ratings of %d menu items".formatted(items));
+  }
+}
@@ -1,35 +1,183 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.server.ResponseStatusException;
 
 /** Controller for MenuItemReview */
 @Tag(name = "Menu Item Reviews")
 @RequestMapping("/api/menuitemreview")
 @RestController
+@VersionedTable("menuItemReviews")
 @Slf4j
 public class MenuItemReviewController extends ApiController {
 
+  private static final String STARS_OUT_OF_RANGE = "stars must be between 1 and 5";
+
   @Autowired private MenuItemReviewRepository menuItemReviewRepository;
 
+  @Autowired private MenuItemRatingService menuItemRatingService;
+
+  @Autowired private TrendingMenuItemsService trendingMenuItemsService;
+
   /** List all menu item reviews */
   @Operation(summary = "List all menu item reviews")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<MenuItemReview> allReviews() {
-    return menuItemReviewRepository.findAll();
+  public Object allReviews(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 menu item reviews")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(menuItemReviewRepository, MenuItemReview.class, params);
+  }
+
+  /** List menu item reviews a page at a time, following a cursor */
+  @Operation(
+      summary =
+          "List menu item reviews a page at a time by id; pass back nextCursor for the next page")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/cursor")
+  public CursorPage<MenuItemReview> reviewsByCursor(
+      @Parameter(
+              name = "cursor",
+              description = "nextCursor of the previous page; omit for the first")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size", description = "Reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "direction",
+              description = "ASC or DESC (newest first); ignored with a cursor")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction) {
+    Cursor position = decodeCursor(cursor, direction);
+    int pageSize = cursorPageSize(size);
+    Pageable limit = PageRequest.ofSize(pageSize + 1);
+    List<MenuItemReview> reviews =
+        position.direction().isAscending()
+            ? menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(position.lastId(), limit)
+            : menuItemReviewRepository.findByIdLessThanOrderByIdDesc(position.lastId(), limit);
+    return cursorPage(reviews, pageSize, position.direction(), MenuItemReview::getId);
+  }
+
+  /** List the reviews of a menu item a page at a time, newest first by default */
+  @Operation(summary = "List the reviews of a menu item a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/byItem")
+  public PagedModel<MenuItemReview> reviewsByItem(
+      @Parameter(name = "itemId") @RequestParam long itemId,
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC (newest first)")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction) {
+    return new PagedModel<>(
+        menuItemReviewRepository.findByItemId(itemId, byDateReviewed(page, size, direction)));
+  }
+
+  /** List the reviews written by a reviewer a page at a time, newest first by default */
+  @Operation(summary = "List the reviews written by a reviewer a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/byReviewer")
+  public PagedModel<MenuItemReview> reviewsByReviewer(
+      @Parameter(name = "reviewerEmail") @RequestParam String reviewerEmail,
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC (newest first)")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction) {
+    return new PagedModel<>(
+        menuItemReviewRepository.findByReviewerEmail(
+            reviewerEmail, byDateReviewed(page, size, direction)));
+  }
+
+  /** List the reviews written in a period a page at a time, newest first by default */
+  @Operation(summary = "List the reviews written in a period a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/byDate")
+  public PagedModel<MenuItemReview> reviewsByDate(
+      @Parameter(name = "from", description = "e.g. 2025-10-01T00:00:00 (inclusive)")
+          @RequestParam
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @Parameter(name = "to", description = "e.g. 2025-11-01T00:00:00 (exclusive)")
+          @RequestParam
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Reviews per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(name = "direction", description = "ASC or DESC (newest first)")
+          @RequestParam(defaultValue = "DESC")
+          Sort.Direction direction) {
+    if (!from.isBefore(to)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+    }
+    return new PagedModel<>(
+        menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+            from, to, byDateReviewed(page, size, direction)));
+  }
+
+  /**
+   * This method checks the paging parameters of the by-item, by-reviewer and by-date listings,
+   * which sort the reviews by date and then, for reviews written at the same time, by id.
+   *
+   * @param page page number, starting at 0
+   * @param size reviews per page, capped at MAX_PAGE_SIZE
+   * @param direction ASC or DESC
+   * @return the page to read
+   */
+  private static Pageable byDateReviewed(int page, int size, Sort.Direction direction) {
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "page must be at least 0 and size at least 1");
+    }
+    return PageRequest.of(
+        page,
+        Math.min(size, MAX_PAGE_SIZE),
+        Sort.by(direction, "dateReviewed").and(Sort.by(direction, "id")));
   }
 
   /** Get a single menu item review by id */
@@ -46,6 +194,7 @@ public class MenuItemReviewController extends ApiController {
   @Operation(summary = "Create a new menu item review")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @Transactional
   public MenuItemReview postReview(
       @Parameter(name = "itemId") @RequestParam long itemId,
       @Parameter(name = "reviewerEmail") @RequestParam String reviewerEmail,
@@ -55,6 +204,7 @@ public class MenuItemReviewController extends ApiController {
           @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
           LocalDateTime dateReviewed,
       @Parameter(name = "comments") @RequestParam String comments) {
+    checkStars(stars);
 
     MenuItemReview mir = new MenuItemReview();
     mir.setItemId(itemId);
@@ -63,28 +213,34 @@ public class MenuItemReviewController extends ApiController {
     mir.setDateReviewed(dateReviewed);
     mir.setComments(comments);
 
-    return menuItemReviewRepository.save(mir);
+    MenuItemReview saved = menuItemReviewRepository.save(mir);
+    tableChanged();
+    menuItemRatingService.reviewAdded(saved);
+    afterCommit(() -> trendingMenuItemsService.reviewAdded(saved));
+    return saved;
   }
 
   /** Update a single menu item review */
   @Operation(summary = "Update a single menu item review")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @Transactional
   public MenuItemReview updateMenuItemReview(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody MenuItemReview incoming) {
+    checkStars(incoming.getStars());
 
     MenuItemReview existing =
         menuItemReviewRepository
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
-    existing.setItemId(incoming.getItemId());
-    existing.setReviewerEmail(incoming.getReviewerEmail());
-    existing.setStars(incoming.getStars());
-    existing.setDateReviewed(incoming.getDateReviewed());
-    existing.setComments(incoming.getComments());
+    MenuItemReview before = countedAs(existing);
+    copy(incoming, existing);
 
     menuItemReviewRepository.save(existing);
+    tableChanged();
+    menuItemRatingService.reviewChanged(before, existing);
+    afterCommit(() -> trendingMenuItemsService.reviewChanged(before, existing));
     return existing;
   }
 
@@ -92,6 +248,7 @@ public class MenuItemReviewController extends ApiController {
   @Operation(summary = "Delete a single menu item review by id")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @Transactional
   public ResponseEntity<Object> deleteMenuItemReview(
       @Parameter(name = "id") @RequestParam Long id) {
 
@@ -105,6 +262,113 @@ public class MenuItemReviewController extends ApiController {
 
     // Found -> delete and return 200 with message "record {id} deleted"
     menuItemReviewRepository.delete(mirOpt.get());
+    tableChanged();
+    menuItemRatingService.reviewRemoved(mirOpt.get());
+    afterCommit(() -> trendingMenuItemsService.reviewRemoved(mirOpt.get()));
     return ResponseEntity.ok(genericMessage(String.format("record %d deleted", id)));
   }
+
+  /**
+   * Create menu item reviews in bulk, all of them or none. The ratings are updated in the same
+   * transaction; the trends once it has committed.
+   */
+  @Operation(summary = "Create menu item reviews in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkCreateMenuItemReviews(@RequestBody List<MenuItemReview> rows) {
+    List<MenuItemReview> created =
+        createAll(
+            menuItemReviewRepository,
+            rows,
+            MenuItemReviewController::invalid,
+            review -> copy(review, new MenuItemReview()));
+    created.forEach(menuItemRatingService::reviewAdded);
+    afterCommit(() -> created.forEach(trendingMenuItemsService::reviewAdded));
+    return rowResults(created, "created");
+  }
+
+  /** Update menu item reviews in bulk, all of them or none */
+  @Operation(summary = "Update menu item reviews in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkUpdateMenuItemReviews(@RequestBody List<MenuItemReview> rows) {
+    List<MenuItemReview> before = new ArrayList<>();
+    List<MenuItemReview> updated =
+        updateAll(
+            menuItemReviewRepository,
+            rows,
+            MenuItemReviewController::invalid,
+            (incoming, existing) -> {
+              before.add(countedAs(existing));
+              copy(incoming, existing);
+            });
+    for (int i = 0; i < updated.size(); i++) {
+      menuItemRatingService.reviewChanged(before.get(i), updated.get(i));
+    }
+    afterCommit(
+        () -> {
+          for (int i = 0; i < updated.size(); i++) {
+            trendingMenuItemsService.reviewChanged(before.get(i), updated.get(i));
+          }
+        });
+    return rowResults(updated, "updated");
+  }
+
+  /** Delete menu item reviews in bulk, all of them or none */
+  @Operation(summary = "Delete menu item reviews in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkDeleteMenuItemReviews(@RequestBody List<Long> ids) {
+    List<MenuItemReview> deleted = deleteAll(menuItemReviewRepository, MenuItemReview.class, ids);
+    deleted.forEach(menuItemRatingService::reviewRemoved);
+    afterCommit(() -> deleted.forEach(trendingMenuItemsService::reviewRemoved));
+    return rowResults(deleted, "deleted");
+  }
+
+  /**
+   * This method refuses stars outside 1 to 5, which the histogram of a rating does not count, so
+   * that its stars always add up to its review count.
+   *
+   * @param stars the stars of a review
+   * @throws ResponseStatusException (400) if they are not between 1 and 5
+   */
+  private static void checkStars(int stars) {
+    if (stars < 1 || stars > 5) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, STARS_OUT_OF_RANGE);
+    }
+  }
+
+  private static String invalid(MenuItemReview review) {
+    if (review.getStars() < 1 || review.getStars() > 5) {
+      return STARS_OUT_OF_RANGE;
+    }
+    return missing(
+        "reviewerEmail",
+        review.getReviewerEmail(),
+        "dateReviewed",
+        review.getDateReviewed(),
+        "comments",
+        review.getComments());
+  }
+
+  /** The fields of a review that its item's rating and trend count, before it is changed */
+  private static MenuItemReview countedAs(MenuItemReview review) {
+    return MenuItemReview.builder()
+        .itemId(review.getItemId())
+        .stars(review.getStars())
+        .dateReviewed(review.getDateReviewed())
+        .build();
+  }
+
+  private static MenuItemReview copy(MenuItemReview from, MenuItemReview to) {
+    to.setItemId(from.getItemId());
+    to.setReviewerEmail(from.getReviewerEmail());
+    to.setStars(from.getStars());
+    to.setDateReviewed(from.getDateReviewed());
+    to.setComments(from.getComments());
+    return to;
+  }
 }
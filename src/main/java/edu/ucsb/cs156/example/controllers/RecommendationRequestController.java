@@ -1,18 +1,23 @@
 package edu.ucsb.cs156.example.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -25,6 +30,7 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "RecommendationRequests")
 @RequestMapping("/api/recommendationrequests")
 @RestController
+@VersionedTable("recommendationRequests")
 @Slf4j
 public class RecommendationRequestController extends ApiController {
 
@@ -33,13 +39,21 @@ public class RecommendationRequestController extends ApiController {
   @Operation(summary = "List all recommendation requests")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<RecommendationRequest> allRecommendationRequests() {
-    return recommendationRequestRepository.findAll();
+  public Object allRecommendationRequests(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 recommendation requests")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(recommendationRequestRepository, RecommendationRequest.class, params);
   }
 
   @Operation(summary = "Create a new recommendation request")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @Transactional
   public RecommendationRequest postRecommendationRequest(
       @Parameter(name = "requesterEmail") @RequestParam String requesterEmail,
       @Parameter(name = "professorEmail") @RequestParam String professorEmail,
@@ -63,7 +77,9 @@ public class RecommendationRequestController extends ApiController {
     rr.setDateNeeded(dateNeeded);
     rr.setDone(done);
 
-    return recommendationRequestRepository.save(rr);
+    RecommendationRequest saved = recommendationRequestRepository.save(rr);
+    tableChanged();
+    return saved;
   }
 
   @Operation(summary = "Get a single recommendation request by id")
@@ -79,6 +95,7 @@ public class RecommendationRequestController extends ApiController {
   @Operation(summary = "Update a single recommendation request")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @Transactional
   public RecommendationRequest updateRecommendationRequest(
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid RecommendationRequest incoming) {
@@ -88,20 +105,17 @@ public class RecommendationRequestController extends ApiController {
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
-    rr.setRequesterEmail(incoming.getRequesterEmail());
-    rr.setProfessorEmail(incoming.getProfessorEmail());
-    rr.setExplanation(incoming.getExplanation());
-    rr.setDateRequested(incoming.getDateRequested());
-    rr.setDateNeeded(incoming.getDateNeeded());
-    rr.setDone(incoming.getDone());
+    copy(incoming, rr);
 
     recommendationRequestRepository.save(rr);
+    tableChanged();
     return rr;
   }
 
   @Operation(summary = "Delete a RecommendationRequest")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @Transactional
   public Object deleteRecommendationRequest(@Parameter(name = "id") @RequestParam Long id) {
     RecommendationRequest recommendationRequest =
         recommendationRequestRepository
@@ -109,6 +123,92 @@ public class RecommendationRequestController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
     recommendationRequestRepository.delete(recommendationRequest);
+    tableChanged();
     return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
   }
+
+  /**
+   * This method creates recommendation requests in bulk, all of them or none (see
+   * ApiController.createAll). Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the recommendation requests to create; their ids are ignored
+   * @return the result of each row
+   */
+  @Operation(summary = "Create recommendation requests in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkCreateRecommendationRequests(
+      @RequestBody List<RecommendationRequest> rows) {
+    return rowResults(
+        createAll(
+            recommendationRequestRepository,
+            rows,
+            RecommendationRequestController::invalid,
+            rr -> copy(rr, new RecommendationRequest())),
+        "created");
+  }
+
+  /**
+   * This method updates recommendation requests in bulk, all of them or none (see
+   * ApiController.updateAll). Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the recommendation requests, each with the id of the one it
+   *     updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update recommendation requests in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkUpdateRecommendationRequests(
+      @RequestBody List<RecommendationRequest> rows) {
+    return rowResults(
+        updateAll(
+            recommendationRequestRepository,
+            rows,
+            RecommendationRequestController::invalid,
+            RecommendationRequestController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes recommendation requests in bulk, all of them or none (see
+   * ApiController.deleteAll). Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the recommendation requests to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete recommendation requests in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkDeleteRecommendationRequests(@RequestBody List<Long> ids) {
+    return rowResults(
+        deleteAll(recommendationRequestRepository, RecommendationRequest.class, ids), "deleted");
+  }
+
+  private static String invalid(RecommendationRequest rr) {
+    return missing(
+        "requesterEmail",
+        rr.getRequesterEmail(),
+        "professorEmail",
+        rr.getProfessorEmail(),
+        "explanation",
+        rr.getExplanation(),
+        "dateRequested",
+        rr.getDateRequested(),
+        "dateNeeded",
+        rr.getDateNeeded());
+  }
+
+  private static RecommendationRequest copy(RecommendationRequest from, RecommendationRequest to) {
+    to.setRequesterEmail(from.getRequesterEmail());
+    to.setProfessorEmail(from.getProfessorEmail());
+    to.setExplanation(from.getExplanation());
+    to.setDateRequested(from.getDateRequested());
+    to.setDateNeeded(from.getDateNeeded());
+    to.setDone(from.getDone());
+    return to;
+  }
 }
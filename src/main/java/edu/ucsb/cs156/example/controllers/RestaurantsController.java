@@ -1,14 +1,21 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -18,10 +25,18 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-/** This is a REST controller for Restaurants */
+/**
+ * This is a REST controller for Restaurants
+ *
+ * <p>The /all listings are cached in the restaurants cache (see spring.cache in
+ * application.properties), keyed by the version of the table in the database (see TableVersions),
+ * so that a listing is not reused once a restaurant has been written through any server. The cache
+ * is also cleared whenever a restaurant is created, changed or deleted through this server.
+ */
 @Tag(name = "Restaurants")
 @RequestMapping("/api/restaurants")
 @RestController
+@VersionedTable("restaurants")
 public class RestaurantsController extends ApiController {
 
   @Autowired RestaurantRepository restaurantRepository;
@@ -29,14 +44,22 @@ public class RestaurantsController extends ApiController {
   /**
    * This method returns a list of all restaurants.
    *
-   * @return a list of all restaurants
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of restaurants
    */
   @Operation(summary = "List all restaurants")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<Restaurant> allRestaurants() {
-    Iterable<Restaurant> restaurants = restaurantRepository.findAll();
-    return restaurants;
+  @Cacheable(cacheNames = "restaurants", key = "{@tableVersions.version('restaurants'), #params}")
+  public Object allRestaurants(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 restaurants")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(restaurantRepository, Restaurant.class, params);
   }
 
   /**
@@ -67,6 +90,8 @@ public class RestaurantsController extends ApiController {
   @Operation(summary = "Create a new restaurant")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
   public Restaurant postRestaurant(
       @Parameter(name = "name") @RequestParam String name,
       @Parameter(name = "description") @RequestParam String description) {
@@ -76,6 +101,7 @@ public class RestaurantsController extends ApiController {
     restaurant.setDescription(description);
 
     Restaurant savedrestaurant = restaurantRepository.save(restaurant);
+    tableChanged();
     return savedrestaurant;
   }
 
@@ -88,6 +114,8 @@ public class RestaurantsController extends ApiController {
   @Operation(summary = "Delete a Restaurant")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
   public Object deleteRestaurant(@Parameter(name = "id") @RequestParam Long id) {
     Restaurant restaurant =
         restaurantRepository
@@ -95,6 +123,7 @@ public class RestaurantsController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
     restaurantRepository.delete(restaurant);
+    tableChanged();
     return genericMessage("Restaurant with id %s deleted".formatted(id));
   }
 
@@ -108,6 +137,8 @@ public class RestaurantsController extends ApiController {
   @Operation(summary = "Update a single restaurant")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
   public Restaurant updateRestaurant(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid Restaurant incoming) {
 
@@ -116,11 +147,81 @@ public class RestaurantsController extends ApiController {
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(Restaurant.class, id));
 
-    restaurant.setName(incoming.getName());
-    restaurant.setDescription(incoming.getDescription());
+    copy(incoming, restaurant);
 
     restaurantRepository.save(restaurant);
+    tableChanged();
 
     return restaurant;
   }
+
+  /**
+   * This method creates restaurants in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the restaurants to create; their ids are ignored
+   * @return the result of each row
+   */
+  @Operation(summary = "Create restaurants in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkCreateRestaurants(@RequestBody List<Restaurant> rows) {
+    return rowResults(
+        createAll(
+            restaurantRepository,
+            rows,
+            RestaurantsController::invalid,
+            restaurant -> copy(restaurant, new Restaurant())),
+        "created");
+  }
+
+  /**
+   * This method updates restaurants in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the restaurants, each with the id of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update restaurants in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkUpdateRestaurants(@RequestBody List<Restaurant> rows) {
+    return rowResults(
+        updateAll(
+            restaurantRepository,
+            rows,
+            RestaurantsController::invalid,
+            RestaurantsController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes restaurants in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the restaurants to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete restaurants in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @CacheEvict(cacheNames = "restaurants", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkDeleteRestaurants(@RequestBody List<Long> ids) {
+    return rowResults(deleteAll(restaurantRepository, Restaurant.class, ids), "deleted");
+  }
+
+  private static String invalid(Restaurant restaurant) {
+    return missing("name", restaurant.getName(), "description", restaurant.getDescription());
+  }
+
+  private static Restaurant copy(Restaurant from, Restaurant to) {
+    to.setName(from.getName());
+    to.setDescription(from.getDescription());
+    return to;
+  }
 }
@@ -1,18 +1,31 @@
 package edu.ucsb.cs156.example.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,27 +34,150 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-/** This is a REST controller for UCSBDates */
+/**
+ * This is a REST controller for UCSBDates
+ *
+ * <p>The dates of each quarter are cached in the ucsbDatesByQuarter cache (see
+ * app.cache.specs.ucsbDatesByQuarter in application.properties), and the /all listings in the
+ * ucsbDates cache (see spring.cache). Both are keyed by the version of the table in the database
+ * (see TableVersions), so that nothing cached is reused once a date has been written through any
+ * server, and both are also cleared as soon as a date is created, changed or deleted through this
+ * one.
+ */
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
 @RestController
+@VersionedTable("ucsbDates")
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
   @Autowired UCSBDateRepository ucsbDateRepository;
 
+  private static final Pattern QUARTER = Pattern.compile("\\d{4}[1-4]");
+
+  private static final Sort BY_DATE = Sort.by("localDateTime").and(Sort.by("id"));
+
+  /**
+   * List the dates of a quarter, in order
+   *
+   * @param quarterYYYYQ the quarter in the format YYYYQ
+   * @return the dates of the quarter, earliest first
+   */
+  @Operation(summary = "List the dates of a quarter")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/quarter")
+  @Cacheable(
+      cacheNames = "ucsbDatesByQuarter",
+      key = "{@tableVersions.version('ucsbDates'), #quarterYYYYQ}")
+  public List<UCSBDate> datesOfQuarter(
+      @Parameter(name = "quarterYYYYQ", description = "e.g. 20244 for Fall 2024") @RequestParam
+          String quarterYYYYQ) {
+    checkQuarter(quarterYYYYQ);
+    return ucsbDateRepository.findAllByQuarterYYYYQ(quarterYYYYQ, BY_DATE);
+  }
+
+  /**
+   * List the dates of a range of quarters a page at a time
+   *
+   * @param from the first quarter, in the format YYYYQ
+   * @param to the last quarter, in the format YYYYQ
+   * @param page page number, starting at 0
+   * @param size dates per page
+   * @return a page of the dates, by quarter and then by date
+   */
+  @Operation(summary = "List the dates of a range of quarters a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/quarters")
+  public PagedModel<UCSBDate> datesOfQuarters(
+      @Parameter(name = "from", description = "e.g. 20241 (inclusive)") @RequestParam String from,
+      @Parameter(name = "to", description = "e.g. 20244 (inclusive)") @RequestParam String to,
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Dates per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size) {
+    checkQuarter(from);
+    checkQuarter(to);
+    if (from.compareTo(to) > 0) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+    }
+    return new PagedModel<>(
+        ucsbDateRepository.findByQuarterYYYYQBetween(
+            from, to, pageOf(page, size, Sort.by("quarterYYYYQ").and(BY_DATE))));
+  }
+
+  /**
+   * List the dates in a period a page at a time
+   *
+   * @param from the start of the period (inclusive)
+   * @param to the end of the period (exclusive)
+   * @param page page number, starting at 0
+   * @param size dates per page
+   * @return a page of the dates, earliest first
+   */
+  @Operation(summary = "List the dates in a period a page at a time")
+  @PreAuthorize("hasRole('ROLE_USER')")
+  @GetMapping("/between")
+  public PagedModel<UCSBDate> datesBetween(
+      @Parameter(name = "from", description = "e.g. 2024-09-01T00:00:00 (inclusive)")
+          @RequestParam
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime from,
+      @Parameter(name = "to", description = "e.g. 2025-01-01T00:00:00 (exclusive)")
+          @RequestParam
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          LocalDateTime to,
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Dates per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size) {
+    if (!from.isBefore(to)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must be before to");
+    }
+    return new PagedModel<>(
+        ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+            from, to, pageOf(page, size, BY_DATE)));
+  }
+
+  private static void checkQuarter(String quarterYYYYQ) {
+    if (!QUARTER.matcher(quarterYYYYQ).matches()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Invalid quarter %s (expected YYYYQ)".formatted(quarterYYYYQ));
+    }
+  }
+
+  private static Pageable pageOf(int page, int size, Sort sort) {
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "page must be at least 0 and size at least 1");
+    }
+    return PageRequest.of(page, Math.min(size, MAX_PAGE_SIZE), sort);
+  }
+
   /**
    * List all UCSB dates
    *
-   * @return an iterable of UCSBDate
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of UCSB dates
    */
   @Operation(summary = "List all ucsb dates")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDate> allUCSBDates() {
-    Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
-    return dates;
+  @Cacheable(cacheNames = "ucsbDates", key = "{@tableVersions.version('ucsbDates'), #params}")
+  public Object allUCSBDates(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 UCSB dates")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(ucsbDateRepository, UCSBDate.class, params);
   }
 
   /**
@@ -73,6 +209,10 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Create a new date")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
   public UCSBDate postUCSBDate(
       @Parameter(name = "quarterYYYYQ") @RequestParam String quarterYYYYQ,
       @Parameter(name = "name") @RequestParam String name,
@@ -96,6 +236,7 @@ public class UCSBDatesController extends ApiController {
     ucsbDate.setLocalDateTime(localDateTime);
 
     UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+    tableChanged();
 
     return savedUcsbDate;
   }
@@ -109,6 +250,10 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Delete a UCSBDate")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
   public Object deleteUCSBDate(@Parameter(name = "id") @RequestParam Long id) {
     UCSBDate ucsbDate =
         ucsbDateRepository
@@ -116,6 +261,7 @@ public class UCSBDatesController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
     ucsbDateRepository.delete(ucsbDate);
+    tableChanged();
     return genericMessage("UCSBDate with id %s deleted".formatted(id));
   }
 
@@ -129,6 +275,10 @@ public class UCSBDatesController extends ApiController {
   @Operation(summary = "Update a single date")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
   public UCSBDate updateUCSBDate(
       @Parameter(name = "id") @RequestParam Long id, @RequestBody @Valid UCSBDate incoming) {
 
@@ -137,12 +287,100 @@ public class UCSBDatesController extends ApiController {
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
-    ucsbDate.setQuarterYYYYQ(incoming.getQuarterYYYYQ());
-    ucsbDate.setName(incoming.getName());
-    ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
+    copy(incoming, ucsbDate);
 
     ucsbDateRepository.save(ucsbDate);
+    tableChanged();
 
     return ucsbDate;
   }
+
+  /**
+   * This method creates dates in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the dates to create; their ids are ignored
+   * @return the result of each row
+   */
+  @Operation(summary = "Create dates in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkCreateDates(@RequestBody List<UCSBDate> rows) {
+    List<UCSBDate> created =
+        createAll(
+            ucsbDateRepository,
+            rows,
+            UCSBDatesController::invalid,
+            date -> copy(date, new UCSBDate()));
+    return rowResults(created, "created");
+  }
+
+  /**
+   * This method updates dates in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the dates, each with the id of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update dates in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkUpdateDates(@RequestBody List<UCSBDate> rows) {
+    List<UCSBDate> updated =
+        updateAll(
+            ucsbDateRepository,
+            rows,
+            UCSBDatesController::invalid,
+            (incoming, existing) -> copy(incoming, existing));
+    return rowResults(updated, "updated");
+  }
+
+  /**
+   * This method deletes dates in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the dates to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete dates in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @CacheEvict(
+      cacheNames = {"ucsbDates", "ucsbDatesByQuarter"},
+      allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkDeleteDates(@RequestBody List<Long> ids) {
+    List<UCSBDate> deleted = deleteAll(ucsbDateRepository, UCSBDate.class, ids);
+    return rowResults(deleted, "deleted");
+  }
+
+  private static String invalid(UCSBDate date) {
+    String missing =
+        missing(
+            "quarterYYYYQ",
+            date.getQuarterYYYYQ(),
+            "name",
+            date.getName(),
+            "localDateTime",
+            date.getLocalDateTime());
+    if (missing == null && !QUARTER.matcher(date.getQuarterYYYYQ()).matches()) {
+      return "Invalid quarter %s (expected YYYYQ)".formatted(date.getQuarterYYYYQ());
+    }
+    return missing;
+  }
+
+  private static UCSBDate copy(UCSBDate from, UCSBDate to) {
+    to.setQuarterYYYYQ(from.getQuarterYYYYQ());
+    to.setName(from.getName());
+    to.setLocalDateTime(from.getLocalDateTime());
+    return to;
+  }
 }
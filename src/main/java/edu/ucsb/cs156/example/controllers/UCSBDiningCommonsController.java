@@ -1,15 +1,22 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,10 +26,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-/** This is a REST controller for UCSBDiningCommons */
+/**
+ * This is a REST controller for UCSBDiningCommons
+ *
+ * <p>The /all listings are cached in the ucsbDiningCommons cache (see spring.cache in
+ * application.properties), keyed by the version of the table in the database (see TableVersions),
+ * so that a listing is not reused once a dining commons has been written through any server. The
+ * cache is also cleared whenever a dining commons is created, changed or deleted through this
+ * server.
+ */
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
+@VersionedTable("ucsbDiningCommons")
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
@@ -31,14 +47,24 @@ public class UCSBDiningCommonsController extends ApiController {
   /**
    * THis method returns a list of all ucsbdiningcommons.
    *
-   * @return a list of all ucsbdiningcommons
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of dining commons
    */
   @Operation(summary = "List all ucsb dining commons")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommons> allCommonss() {
-    Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
-    return commons;
+  @Cacheable(
+      cacheNames = "ucsbDiningCommons",
+      key = "{@tableVersions.version('ucsbDiningCommons'), #params}")
+  public Object allCommonss(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 dining commons")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(ucsbDiningCommonsRepository, UCSBDiningCommons.class, params);
   }
 
   /**
@@ -74,6 +100,8 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Create a new commons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
   public UCSBDiningCommons postCommons(
       @Parameter(name = "code") @RequestParam String code,
       @Parameter(name = "name") @RequestParam String name,
@@ -93,6 +121,7 @@ public class UCSBDiningCommonsController extends ApiController {
     commons.setLongitude(longitude);
 
     UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+    tableChanged();
 
     return savedCommons;
   }
@@ -106,6 +135,8 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Delete a UCSBDiningCommons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
   public Object deleteCommons(@Parameter(name = "code") @RequestParam String code) {
     UCSBDiningCommons commons =
         ucsbDiningCommonsRepository
@@ -113,6 +144,7 @@ public class UCSBDiningCommonsController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
     ucsbDiningCommonsRepository.delete(commons);
+    tableChanged();
     return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
   }
 
@@ -126,6 +158,8 @@ public class UCSBDiningCommonsController extends ApiController {
   @Operation(summary = "Update a single commons")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
   public UCSBDiningCommons updateCommons(
       @Parameter(name = "code") @RequestParam String code,
       @RequestBody @Valid UCSBDiningCommons incoming) {
@@ -135,15 +169,94 @@ public class UCSBDiningCommonsController extends ApiController {
             .findById(code)
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
-    commons.setName(incoming.getName());
-    commons.setHasSackMeal(incoming.getHasSackMeal());
-    commons.setHasTakeOutMeal(incoming.getHasTakeOutMeal());
-    commons.setHasDiningCam(incoming.getHasDiningCam());
-    commons.setLatitude(incoming.getLatitude());
-    commons.setLongitude(incoming.getLongitude());
+    copy(incoming, commons);
 
     ucsbDiningCommonsRepository.save(commons);
+    tableChanged();
 
     return commons;
   }
+
+  /**
+   * This method creates dining commons in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the dining commons to create; the code of each must be new
+   * @return the result of each row
+   */
+  @Operation(summary = "Create dining commons in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkCreateDiningCommons(@RequestBody List<UCSBDiningCommons> rows) {
+    return rowResults(
+        createAll(
+            ucsbDiningCommonsRepository,
+            rows,
+            UCSBDiningCommonsController::invalid,
+            commons -> copy(commons, UCSBDiningCommons.builder().code(commons.getCode()).build())),
+        "created");
+  }
+
+  /**
+   * This method updates dining commons in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the dining commons, each with the code of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update dining commons in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkUpdateDiningCommons(@RequestBody List<UCSBDiningCommons> rows) {
+    return rowResults(
+        updateAll(
+            ucsbDiningCommonsRepository,
+            rows,
+            UCSBDiningCommonsController::invalid,
+            UCSBDiningCommonsController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes dining commons in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the codes of the dining commons to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete dining commons in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbDiningCommons", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkDeleteDiningCommons(@RequestBody List<String> ids) {
+    return rowResults(
+        deleteAll(ucsbDiningCommonsRepository, UCSBDiningCommons.class, ids), "deleted");
+  }
+
+  private static String invalid(UCSBDiningCommons commons) {
+    return missing(
+        "code",
+        commons.getCode(),
+        "name",
+        commons.getName(),
+        "latitude",
+        commons.getLatitude(),
+        "longitude",
+        commons.getLongitude());
+  }
+
+  private static UCSBDiningCommons copy(UCSBDiningCommons from, UCSBDiningCommons to) {
+    to.setName(from.getName());
+    to.setHasSackMeal(from.getHasSackMeal());
+    to.setHasTakeOutMeal(from.getHasTakeOutMeal());
+    to.setHasDiningCam(from.getHasDiningCam());
+    to.setLatitude(from.getLatitude());
+    to.setLongitude(from.getLongitude());
+    return to;
+  }
 }
@@ -1,16 +1,21 @@
 package edu.ucsb.cs156.example.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,6 +29,7 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(name = "UCSBDiningCommonsMenuItem")
 @RequestMapping("/api/ucsbdiningcommonsmenuitem")
 @RestController
+@VersionedTable("ucsbDiningCommonsMenuItems")
 @Slf4j
 public class UCSBDiningCommonsMenuItemController extends ApiController {
 
@@ -32,15 +38,21 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   /**
    * List all UCSB Dining Commons Menu Items
    *
-   * @return an iterable of UCSBDiningCommonsMenuItem
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of menu items
    */
   @Operation(summary = "List all UCSB Dining Commons Menu Items")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBDiningCommonsMenuItem> allUCSBDiningCommonsMenuItems() {
-    Iterable<UCSBDiningCommonsMenuItem> ucsbDiningCommonsMenuItems =
-        ucsbDiningCommonsMenuItemRepository.findAll();
-    return ucsbDiningCommonsMenuItems;
+  public Object allUCSBDiningCommonsMenuItems(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 menu items")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, params);
   }
 
   /**
@@ -54,6 +66,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Operation(summary = "Create a new UCSB Dining Commons Menu Item")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @Transactional
   public UCSBDiningCommonsMenuItem postUCSBDiningCommonsMenuItem(
       @Parameter(name = "diningCommonsCode") @RequestParam String diningCommonsCode,
       @Parameter(name = "name") @RequestParam String name,
@@ -70,6 +83,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
 
     UCSBDiningCommonsMenuItem savedUcsbDiningCommonsMenuItem =
         ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
+    tableChanged();
 
     return savedUcsbDiningCommonsMenuItem;
   }
@@ -102,6 +116,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Operation(summary = "Update a single UCSB Dining Commons Menu Item")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @Transactional
   public UCSBDiningCommonsMenuItem updateUCSBDiningCommonsMenuItem(
       @Parameter(name = "id") @RequestParam Long id,
       @RequestBody @Valid UCSBDiningCommonsMenuItem incoming) {
@@ -111,11 +126,10 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
             .findById(id)
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
-    ucsbDiningCommonsMenuItem.setDiningCommonsCode(incoming.getDiningCommonsCode());
-    ucsbDiningCommonsMenuItem.setName(incoming.getName());
-    ucsbDiningCommonsMenuItem.setStation(incoming.getStation());
+    copy(incoming, ucsbDiningCommonsMenuItem);
 
     ucsbDiningCommonsMenuItemRepository.save(ucsbDiningCommonsMenuItem);
+    tableChanged();
 
     return ucsbDiningCommonsMenuItem;
   }
@@ -129,6 +143,7 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
   @Operation(summary = "Delete a UCSBDiningCommonsMenuItem")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @Transactional
   public Object deleteUCSBDiningCommonsMenuItem(@Parameter(name = "id") @RequestParam Long id) {
     UCSBDiningCommonsMenuItem ucsbDiningCommonsMenuItem =
         ucsbDiningCommonsMenuItemRepository
@@ -136,6 +151,86 @@ public class UCSBDiningCommonsMenuItemController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommonsMenuItem.class, id));
 
     ucsbDiningCommonsMenuItemRepository.delete(ucsbDiningCommonsMenuItem);
+    tableChanged();
     return genericMessage("UCSBDiningCommonsMenuItem with id %s deleted".formatted(id));
   }
+
+  /**
+   * This method creates menu items in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the menu items to create; their ids are ignored
+   * @return the result of each row
+   */
+  @Operation(summary = "Create menu items in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkCreateMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> rows) {
+    return rowResults(
+        createAll(
+            ucsbDiningCommonsMenuItemRepository,
+            rows,
+            UCSBDiningCommonsMenuItemController::invalid,
+            item -> copy(item, new UCSBDiningCommonsMenuItem())),
+        "created");
+  }
+
+  /**
+   * This method updates menu items in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the menu items, each with the id of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update menu items in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkUpdateMenuItems(
+      @RequestBody List<UCSBDiningCommonsMenuItem> rows) {
+    return rowResults(
+        updateAll(
+            ucsbDiningCommonsMenuItemRepository,
+            rows,
+            UCSBDiningCommonsMenuItemController::invalid,
+            UCSBDiningCommonsMenuItemController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes menu items in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the ids of the menu items to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete menu items in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @Transactional
+  public List<BulkRowResult> bulkDeleteMenuItems(@RequestBody List<Long> ids) {
+    return rowResults(
+        deleteAll(ucsbDiningCommonsMenuItemRepository, UCSBDiningCommonsMenuItem.class, ids),
+        "deleted");
+  }
+
+  private static String invalid(UCSBDiningCommonsMenuItem item) {
+    return missing(
+        "diningCommonsCode",
+        item.getDiningCommonsCode(),
+        "name",
+        item.getName(),
+        "station",
+        item.getStation());
+  }
+
+  private static UCSBDiningCommonsMenuItem copy(
+      UCSBDiningCommonsMenuItem from, UCSBDiningCommonsMenuItem to) {
+    to.setDiningCommonsCode(from.getDiningCommonsCode());
+    to.setName(from.getName());
+    to.setStation(from.getStation());
+    return to;
+  }
 }
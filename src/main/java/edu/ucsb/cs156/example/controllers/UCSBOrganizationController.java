@@ -1,15 +1,22 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.VersionedTable;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -19,10 +26,19 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-/** This is a REST controller for UCSBOrganization */
+/**
+ * This is a REST controller for UCSBOrganization
+ *
+ * <p>The /all listings are cached in the ucsbOrganizations cache (see spring.cache in
+ * application.properties), keyed by the version of the table in the database (see TableVersions),
+ * so that a listing is not reused once an organization has been written through any server. The
+ * cache is also cleared whenever an organization is created, changed or deleted through this
+ * server.
+ */
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/UCSBOrganization")
 @RestController
+@VersionedTable("ucsbOrganizations")
 @Slf4j
 public class UCSBOrganizationController extends ApiController {
 
@@ -31,14 +47,24 @@ public class UCSBOrganizationController extends ApiController {
   /**
    * THis method returns a list of all ucsborganization.
    *
-   * @return a list of all ucsborganization
+   * @param params paging, sorting and filtering parameters (see ApiController.listAll)
+   * @return a page, or a list, of organizations
    */
   @Operation(summary = "List all UCSB organizations")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("/all")
-  public Iterable<UCSBOrganization> allOrganizations() {
-    Iterable<UCSBOrganization> orgs = ucsbOrganizationRepository.findAll();
-    return orgs;
+  @Cacheable(
+      cacheNames = "ucsbOrganizations",
+      key = "{@tableVersions.version('ucsbOrganizations'), #params}")
+  public Object allOrganizations(
+      @Parameter(
+              name = "params",
+              description =
+                  "Optional page, size, sort and direction, and field=value filters; "
+                      + "without page or size, a list of at most 1000 organizations")
+          @RequestParam
+          Map<String, String> params) {
+    return listAll(ucsbOrganizationRepository, UCSBOrganization.class, params);
   }
 
   /**
@@ -53,6 +79,8 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Create a new UCSBOrganization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/post")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
   public UCSBOrganization postOrganization(
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @Parameter(name = "orgTranslationShort") @RequestParam String orgTranslationShort,
@@ -65,6 +93,7 @@ public class UCSBOrganizationController extends ApiController {
     org.setInactive(inactive);
 
     UCSBOrganization savedOrg = ucsbOrganizationRepository.save(org);
+    tableChanged();
     return savedOrg;
   }
 
@@ -96,6 +125,8 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Update a single UCSBOrganization")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PutMapping("")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
   public UCSBOrganization updateOrganization(
       @Parameter(name = "orgCode") @RequestParam String orgCode,
       @RequestBody @Valid UCSBOrganization incoming) {
@@ -105,11 +136,10 @@ public class UCSBOrganizationController extends ApiController {
             .findById(orgCode)
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
-    org.setOrgTranslationShort(incoming.getOrgTranslationShort());
-    org.setOrgTranslation(incoming.getOrgTranslation());
-    org.setInactive(incoming.getInactive());
+    copy(incoming, org);
 
     ucsbOrganizationRepository.save(org);
+    tableChanged();
     return org;
   }
 
@@ -122,6 +152,8 @@ public class UCSBOrganizationController extends ApiController {
   @Operation(summary = "Delete a UCSBOrganization by orgCode")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
   public Object deleteOrganization(@Parameter(name = "orgCode") @RequestParam String orgCode) {
     UCSBOrganization org =
         ucsbOrganizationRepository
@@ -129,6 +161,85 @@ public class UCSBOrganizationController extends ApiController {
             .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
     ucsbOrganizationRepository.delete(org);
+    tableChanged();
     return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
   }
+
+  /**
+   * This method creates organizations in bulk, all of them or none (see ApiController.createAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the organizations to create; the orgCode of each must be new
+   * @return the result of each row
+   */
+  @Operation(summary = "Create organizations in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkCreateOrganizations(@RequestBody List<UCSBOrganization> rows) {
+    return rowResults(
+        createAll(
+            ucsbOrganizationRepository,
+            rows,
+            UCSBOrganizationController::invalid,
+            org -> copy(org, UCSBOrganization.builder().orgCode(org.getOrgCode()).build())),
+        "created");
+  }
+
+  /**
+   * This method updates organizations in bulk, all of them or none (see ApiController.updateAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param rows the new contents of the organizations, each with the orgCode of the one it updates
+   * @return the result of each row
+   */
+  @Operation(summary = "Update organizations in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PutMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkUpdateOrganizations(@RequestBody List<UCSBOrganization> rows) {
+    return rowResults(
+        updateAll(
+            ucsbOrganizationRepository,
+            rows,
+            UCSBOrganizationController::invalid,
+            UCSBOrganizationController::copy),
+        "updated");
+  }
+
+  /**
+   * This method deletes organizations in bulk, all of them or none (see ApiController.deleteAll).
+   * Accessible only to users with the role "ROLE_ADMIN".
+   *
+   * @param ids the orgCodes of the organizations to delete
+   * @return the result of each row
+   */
+  @Operation(summary = "Delete organizations in bulk")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @DeleteMapping("/bulk")
+  @CacheEvict(cacheNames = "ucsbOrganizations", allEntries = true)
+  @Transactional
+  public List<BulkRowResult> bulkDeleteOrganizations(@RequestBody List<String> ids) {
+    return rowResults(
+        deleteAll(ucsbOrganizationRepository, UCSBOrganization.class, ids), "deleted");
+  }
+
+  private static String invalid(UCSBOrganization org) {
+    return missing(
+        "orgCode",
+        org.getOrgCode(),
+        "orgTranslationShort",
+        org.getOrgTranslationShort(),
+        "orgTranslation",
+        org.getOrgTranslation());
+  }
+
+  private static UCSBOrganization copy(UCSBOrganization from, UCSBOrganization to) {
+    to.setOrgTranslationShort(from.getOrgTranslationShort());
+    to.setOrgTranslation(from.getOrgTranslation());
+    to.setInactive(from.getInactive());
+    return to;
+  }
 }
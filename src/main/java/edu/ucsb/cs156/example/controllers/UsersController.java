@@ -1,17 +1,31 @@
 package edu.ucsb.cs156.example.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.config.SecurityConfig;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Set;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 /**
  * This is a REST controller for getting information about the users.
@@ -26,18 +40,122 @@ public class UsersController extends ApiController {
 
   @Autowired ObjectMapper mapper;
 
+  @Autowired SecurityConfig securityConfig;
+
+  @Autowired CurrentUserService currentUserService;
+
+  private static final int MAX_PAGE_SIZE = 100;
+
+  private static final Set<String> SORTABLE_USER_PROPERTIES =
+      Set.of("id", "email", "fullName", "givenName", "familyName", "admin");
+
   /**
-   * This method returns a list of all users. Accessible only to users with the role "ROLE_ADMIN".
+   * This method returns a page of users, optionally only those whose email or name starts with a
+   * search string. Accessible only to users with the role "ROLE_ADMIN".
    *
-   * @return a list of all users
-   * @throws JsonProcessingException if there is an error processing the JSON
+   * <p>The page is written to the response as it is serialized, in the same form as the pages of
+   * /api/jobs/paged: the users in "content", and the page number, page size, total number of users
+   * and total number of pages in "page".
+   *
+   * @param page page number, starting at 0
+   * @param size users per page
+   * @param sort property to sort the users by
+   * @param direction ASC or DESC
+   * @param search only users whose email, full name, given name or family name starts with this
+   * @param response the response to write the page to
+   * @throws IOException if the page cannot be written
    */
-  @Operation(summary = "Get a list of all users")
+  @Operation(summary = "List users a page at a time, optionally searching by email or name")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("")
-  public ResponseEntity<String> users() throws JsonProcessingException {
-    Iterable<User> users = userRepository.findAll();
-    String body = mapper.writeValueAsString(users);
-    return ResponseEntity.ok().body(body);
+  public void users(
+      @Parameter(name = "page", description = "Page number, starting at 0")
+          @RequestParam(defaultValue = "0")
+          int page,
+      @Parameter(name = "size", description = "Users per page (at most 100)")
+          @RequestParam(defaultValue = "20")
+          int size,
+      @Parameter(
+              name = "sort",
+              description = "One of id, email, fullName, givenName, familyName, admin")
+          @RequestParam(defaultValue = "id")
+          String sort,
+      @Parameter(name = "direction", description = "ASC or DESC")
+          @RequestParam(defaultValue = "ASC")
+          Sort.Direction direction,
+      @Parameter(
+              name = "search",
+              description = "Start of the email, full name, given name or family name")
+          @RequestParam(required = false)
+          String search,
+      HttpServletResponse response)
+      throws IOException {
+
+    if (!SORTABLE_USER_PROPERTIES.contains(sort)) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot sort users by " + sort);
+    }
+    if (page < 0 || size < 1) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "page must be at least 0 and size at least 1");
+    }
+
+    String prefix =
+        search == null || search.isBlank()
+            ? null
+            : search
+                .trim()
+                .toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+    Page<User> users =
+        userRepository.search(
+            prefix,
+            PageRequest.of(
+                page,
+                Math.min(size, MAX_PAGE_SIZE),
+                Sort.by(direction, sort).and(Sort.by(direction, "id"))));
+
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    try (JsonGenerator json = mapper.createGenerator(response.getOutputStream())) {
+      json.writeStartObject();
+      json.writeArrayFieldStart("content");
+      for (User user : users) {
+        json.writeObject(user);
+      }
+      json.writeEndArray();
+      json.writeObjectFieldStart("page");
+      json.writeNumberField("size", users.getSize());
+      json.writeNumberField("number", users.getNumber());
+      json.writeNumberField("totalElements", users.getTotalElements());
+      json.writeNumberField("totalPages", users.getTotalPages());
+      json.writeEndObject();
+      json.writeEndObject();
+    }
+  }
+
+  /**
+   * This method forgets the cached admin flag, and cached user, for one user or for all users, so
+   * that a change made directly in the database is seen at their next login or request. Accessible
+   * only to users with the role "ROLE_ADMIN".
+   *
+   * @param email email address of the user, or null for all users
+   * @return a message saying whose cached entries were forgotten
+   */
+  @Operation(summary = "Forget cached admin flags, so they are read from the database again")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/evictAdminCache")
+  public Object evictAdminCache(
+      @Parameter(name = "email", description = "email of the user; all users if omitted")
+          @RequestParam(required = false)
+          String email) {
+    if (email == null) {
+      securityConfig.evictAllAdmins();
+      currentUserService.evictAllUsers();
+      return genericMessage("Cached admin flags cleared for all users");
+    }
+    securityConfig.evictAdmin(email);
+    currentUserService.evictUser(email);
+    return genericMessage("Cached admin flag cleared for %s".formatted(email));
   }
 }
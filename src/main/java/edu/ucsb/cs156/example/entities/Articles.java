@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.repositories.CreateIdSequence;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +20,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "articles")
 public class Articles {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ARTICLES_SEQ")
+  @SequenceGenerator(
+      name = "ARTICLES_SEQ",
+      sequenceName = "ARTICLES_SEQ",
+      allocationSize = CreateIdSequence.ALLOCATION_SIZE)
   private long id;
 
   private String title;
@@ -29,10 +29,42 @@ public class Job {
 
   private String status;
 
+  // the job that spawned this one, if any (see JobContext.spawn)
+  private Long parentJobId;
+
+  // when the job last started running, and when it finished
+  private ZonedDateTime startedAt;
+  private ZonedDateTime completedAt;
+
+  // progress reported by the job through its JobContext
+  private String phase;
+  private Long itemsProcessed;
+  private Long itemsTotal;
+  private Integer progressPercent;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
       length = 1048576) // needed for long strings, i.e. log entries longer than 255
   // characters
   private String log;
+
+  // class name and JSON parameters of a QueueableJob, so that any instance can run it
+  // (or re-run it after a crash); null for jobs that can only run in memory
+  private String jobType;
+
+  @Column(columnDefinition = "TEXT")
+  private String jobParams;
+
+  // the instance currently running the job, and when its claim on the job runs out
+  // unless it sends another heartbeat
+  private String leaseOwner;
+  private ZonedDateTime leaseExpiresAt;
+  private ZonedDateTime heartbeatAt;
+
+  // set when someone asks for the job to be cancelled while another instance runs it; that
+  // instance sees it on its next heartbeat. Only ever written with an UPDATE (see JobsRepository),
+  // so that saving a stale copy of the job cannot clear it.
+  @Column(insertable = false, updatable = false)
+  private boolean cancelRequested;
 }
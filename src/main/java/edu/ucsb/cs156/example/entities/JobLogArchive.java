@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents the deflate-compressed log of a finished job whose log was
+ * too large to keep as one row per line (see JobLogArchiveService).
+ *
+ * <p>In format "entries", the log is stored as its lines, each one preceded by its length in bytes,
+ * so that line n of the archive is the line with seq n even if some lines contain newlines. In
+ * format "lines", used for the logs of jobs that ran before log lines were stored separately, the
+ * log is stored as its text, whose lines are split on newlines.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_archives")
+public class JobLogArchive {
+  @Id private long jobId;
+
+  // "entries" or "lines"
+  private String format;
+
+  private long lineCount;
+
+  // length of the log before compression, in characters
+  private long originalLength;
+
+  @Column(length = Integer.MAX_VALUE)
+  private byte[] compressedLog;
+}
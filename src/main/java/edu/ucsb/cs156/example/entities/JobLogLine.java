@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that represents a single line of a job's log.
+ *
+ * <p>Lines are append-only; the full log of a job is assembled by reading its lines in order of
+ * seq.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_lines")
+public class JobLogLine {
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private long jobId;
+
+  private long seq;
+
+  @Column(
+      columnDefinition = "TEXT",
+      length = 1048576) // needed for long strings, i.e. log entries longer than 255
+  // characters
+  private String line;
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds the running totals of the reviews of one menu item: how many
+ * there are, the sum of their stars, and how many gave each number of stars from 1 to 5. It is kept
+ * up to date as reviews are added, changed and deleted (see MenuItemRatingService), so that ratings
+ * can be read without reading the reviews.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "MENUITEMRATINGS")
+public class MenuItemRating {
+  @Id private long itemId;
+
+  private long reviewCount;
+  private long starsSum;
+  private long stars1;
+  private long stars2;
+  private long stars3;
+  private long stars4;
+  private long stars5;
+}
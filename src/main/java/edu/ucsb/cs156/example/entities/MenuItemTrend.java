@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds how much a menu item has been reviewed lately (see
+ * TrendingMenuItemsService): its reviews, and the sum of their stars, each weighted by how recent
+ * the review was as of asOfMs (milliseconds since the epoch).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "MENUITEMTRENDS")
+public class MenuItemTrend {
+  @Id private long itemId;
+
+  private String diningCommonsCode;
+  private double weightedReviews;
+  private double weightedStars;
+  private long asOfMs;
+}
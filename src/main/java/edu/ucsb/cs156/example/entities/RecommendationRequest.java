@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.repositories.CreateIdSequence;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,7 +20,11 @@ import lombok.NoArgsConstructor;
 public class RecommendationRequest {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RECOMMENDATIONREQUESTS_SEQ")
+  @SequenceGenerator(
+      name = "RECOMMENDATIONREQUESTS_SEQ",
+      sequenceName = "RECOMMENDATIONREQUESTS_SEQ",
+      allocationSize = CreateIdSequence.ALLOCATION_SIZE)
   private long id;
 
   private String requesterEmail;
@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.repositories.CreateIdSequence;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -17,7 +19,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "restaurants")
 public class Restaurant {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "RESTAURANTS_SEQ")
+  @SequenceGenerator(
+      name = "RESTAURANTS_SEQ",
+      sequenceName = "RESTAURANTS_SEQ",
+      allocationSize = CreateIdSequence.ALLOCATION_SIZE)
   private long id;
 
   private String name;
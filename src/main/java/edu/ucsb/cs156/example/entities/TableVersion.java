@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a JPA entity that holds the version of a table read by a controller marked with
+ * VersionedTable (see TableVersions). It is increased in the same transaction as each write to the
+ * table made through the controller.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "TABLE_VERSIONS")
+public class TableVersion {
+  @Id private String tableName;
+
+  private long version;
+}
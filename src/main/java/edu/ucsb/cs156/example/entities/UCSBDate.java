@@ -1,9 +1,11 @@
 package edu.ucsb.cs156.example.entities;
 
+import edu.ucsb.cs156.example.repositories.CreateIdSequence;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import java.time.LocalDateTime;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -21,7 +23,11 @@ import lombok.NoArgsConstructor;
 @Entity(name = "ucsbdates")
 public class UCSBDate {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "UCSBDATES_SEQ")
+  @SequenceGenerator(
+      name = "UCSBDATES_SEQ",
+      sequenceName = "UCSBDATES_SEQ",
+      allocationSize = CreateIdSequence.ALLOCATION_SIZE)
   private long id;
 
   private String quarterYYYYQ;
@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.errors;
+
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import java.util.List;
+
+/**
+ * This is an error class for a custom RuntimeException in Java that is used to indicate that some
+ * of the rows sent to a bulk write are invalid, so that none of them were written.
+ */
+public class InvalidRowsException extends RuntimeException {
+  private final List<BulkRowResult> results;
+
+  /**
+   * Constructor for the exception
+   *
+   * @param results what is wrong with each row, or that it is valid
+   */
+  public InvalidRowsException(List<BulkRowResult> results) {
+    super(
+        "%d of %d rows are invalid; none were written"
+            .formatted(
+                results.stream().filter(r -> r.getMessage() != null).count(), results.size()));
+    this.results = results;
+  }
+
+  /**
+   * This method returns the result of each row.
+   *
+   * @return the results, in the order of the rows
+   */
+  public List<BulkRowResult> getResults() {
+    return results;
+  }
+}
@@ -1,22 +1,23 @@
 package edu.ucsb.cs156.example.jobs;
 
 import edu.ucsb.cs156.example.services.jobs.JobContext;
-import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.QueueableJob;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
 
+@Data
 @Builder
-public class TestJob implements JobContextConsumer {
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestJob implements QueueableJob {
 
   private boolean fail;
   private int sleepMs;
 
   @Override
   public void accept(JobContext ctx) throws Exception {
-    // Ensure this is not null
-    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
     ctx.log("Hello World! from test job!");
     Thread.sleep(sleepMs);
     if (fail) {
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents what a bulk write (e.g. POST /api/restaurants/bulk) did
+ * with one of the rows it was sent: the row's index in the request, the id of its entity, and its
+ * status, which is created, updated or deleted. When any row is invalid nothing is written, and
+ * each row is instead reported as valid or invalid, with the reason.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class BulkRowResult {
+  private int index;
+  private Object id;
+  private String status;
+  private String message; // why the row is invalid, or null
+}
@@ -0,0 +1,24 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents one page of a list read with a cursor (keyset pagination):
+ * the entities on the page, and the cursor to pass back to get the next page, which is null on the
+ * last page.
+ *
+ * @param <T> the type of the entities
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class CursorPage<T> {
+  private List<T> content;
+  private String nextCursor;
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents the current load on the job executor. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobExecutorStatus {
+  private int maxConcurrency;
+  private int activeCount; // jobs currently running
+  private int queueDepth; // jobs waiting for a free slot
+  private int queueCapacity;
+}
@@ -0,0 +1,18 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents the outcome of one run of the job retention purge. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobPurgeReport {
+  private long purgedByAge; // jobs older than the maximum age
+  private long purgedByCount; // oldest jobs beyond the maximum number of rows
+  private long totalPurged;
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents a job in a list of jobs. It leaves out the job's log and
+ * parameters, which can be large; those can be fetched for one job at a time.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobSummary {
+  private long id;
+  private Long createdById;
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String status;
+  private Long parentJobId;
+  private String jobType;
+  private ZonedDateTime startedAt;
+  private ZonedDateTime completedAt;
+  private String phase;
+  private Integer progressPercent;
+}
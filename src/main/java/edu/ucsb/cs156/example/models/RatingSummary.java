@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that represents the rating of a menu item, or of all the menu items of a
+ * dining commons.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class RatingSummary {
+  private long reviewCount;
+  private Double averageStars; // null when there are no reviews
+  private List<Long> starCounts; // reviews giving 1, 2, 3, 4 and 5 stars
+}
@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** This is a model class that represents a menu item in a ranking of popular menu items. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class TrendingMenuItem {
+  private long itemId;
+  private String diningCommonsCode;
+  private String name;
+  private String station;
+  private double recentReviews; // reviews, each counting less the older it is
+  private double averageStars; // average stars of those reviews, weighted the same way
+}
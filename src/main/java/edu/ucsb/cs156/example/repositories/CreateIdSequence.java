@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * This is a Liquibase change that creates the sequence an entity draws its ids from, in blocks of
+ * ALLOCATION_SIZE (see the @SequenceGenerator of the entity), so that Hibernate can batch the
+ * inserts into its table. The table's ids were generated by the database (IDENTITY) before, so the
+ * sequence starts past the largest id already in the table; the identity column is left as it is.
+ */
+@Getter
+@Setter
+public class CreateIdSequence implements CustomTaskChange {
+  /**
+   * The number of ids Hibernate takes from the sequence at a time; the increment of the sequence
+   */
+  public static final int ALLOCATION_SIZE = 50;
+
+  private String tableName;
+
+  private String sequenceName;
+
+  private long start;
+
+  @Override
+  public void execute(Database database) throws CustomChangeException {
+    Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    try (Statement statement = connection.createStatement()) {
+      try (ResultSet rows = statement.executeQuery("SELECT MAX(ID) FROM " + tableName)) {
+        rows.next();
+        // Hibernate's pooled optimizer hands out the ALLOCATION_SIZE ids up to each value it reads
+        start = rows.getLong(1) + ALLOCATION_SIZE;
+      }
+      statement.execute(
+          "CREATE SEQUENCE %s START WITH %d INCREMENT BY %d"
+              .formatted(sequenceName, start, ALLOCATION_SIZE));
+    } catch (SQLException e) {
+      throw new CustomChangeException("Cannot create sequence " + sequenceName, e);
+    }
+  }
+
+  @Override
+  public String getConfirmationMessage() {
+    return "Created sequence %s starting at %d".formatted(sequenceName, start);
+  }
+
+  @Override
+  public void setUp() {}
+
+  @Override
+  public void setFileOpener(ResourceAccessor resourceAccessor) {}
+
+  @Override
+  public ValidationErrors validate(Database database) {
+    return new ValidationErrors();
+  }
+}
@@ -0,0 +1,163 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * This method returns all log lines of a job, in the order they were logged.
+   *
+   * @param jobId id of the job
+   * @return the log lines of the job, ordered by seq
+   */
+  List<JobLogLine> findByJobIdOrderBySeqAsc(long jobId);
+
+  /**
+   * This method returns at most limit log lines of a job starting at a given seq, in the order they
+   * were logged.
+   *
+   * @param jobId id of the job
+   * @param seq seq of the first line to return
+   * @param limit the most lines to return
+   * @return the log lines of the job with seq &gt;= the given seq, ordered by seq
+   */
+  List<JobLogLine> findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+      long jobId, long seq, Limit limit);
+
+  /**
+   * This method returns at most limit log lines of a job with seqs in a given range, in the order
+   * they were logged.
+   *
+   * @param jobId id of the job
+   * @param seq seq of the first line to return
+   * @param toSeq seq of the first line not to return
+   * @param limit the most lines to return
+   * @return the log lines of the job with the given seq &lt;= seq &lt; toSeq, ordered by seq
+   */
+  List<JobLogLine> findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+      long jobId, long seq, long toSeq, Limit limit);
+
+  /**
+   * This method passes the log lines of a job starting at a given seq to a consumer, in the order
+   * they were logged, reading them pageSize lines at a time so that a long log is never loaded as a
+   * whole.
+   *
+   * @param repository the repository to read the lines from
+   * @param jobId id of the job
+   * @param fromSeq seq of the first line to pass on
+   * @param pageSize how many lines to read at a time
+   * @param consumer receives the lines
+   * @return the number of lines passed on
+   */
+  static long forEachLine(
+      JobLogLinesRepository repository,
+      long jobId,
+      long fromSeq,
+      int pageSize,
+      Consumer<JobLogLine> consumer) {
+    return forEachPage(
+        seq ->
+            repository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+                jobId, seq, Limit.of(pageSize)),
+        fromSeq,
+        pageSize,
+        consumer);
+  }
+
+  /**
+   * This method passes the log lines of a job with seqs in a given range to a consumer, in the
+   * order they were logged, reading them pageSize lines at a time.
+   *
+   * @param repository the repository to read the lines from
+   * @param jobId id of the job
+   * @param fromSeq seq of the first line to pass on
+   * @param toSeq seq of the first line not to pass on
+   * @param pageSize how many lines to read at a time
+   * @param consumer receives the lines
+   * @return the number of lines passed on
+   */
+  static long forEachLine(
+      JobLogLinesRepository repository,
+      long jobId,
+      long fromSeq,
+      long toSeq,
+      int pageSize,
+      Consumer<JobLogLine> consumer) {
+    return forEachPage(
+        seq ->
+            repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+                jobId, seq, toSeq, Limit.of(pageSize)),
+        fromSeq,
+        pageSize,
+        consumer);
+  }
+
+  private static long forEachPage(
+      LongFunction<List<JobLogLine>> readPage,
+      long fromSeq,
+      int pageSize,
+      Consumer<JobLogLine> consumer) {
+    long count = 0;
+    long seq = fromSeq;
+    List<JobLogLine> page;
+    do {
+      page = readPage.apply(seq);
+      page.forEach(consumer);
+      count += page.size();
+      if (!page.isEmpty()) {
+        seq = page.get(page.size() - 1).getSeq() + 1;
+      }
+    } while (page.size() == pageSize);
+    return count;
+  }
+
+  /**
+   * This method returns the last log line of a job.
+   *
+   * @param jobId id of the job
+   * @return the log line of the job with the highest seq, if the job has logged anything
+   */
+  Optional<JobLogLine> findFirstByJobIdOrderBySeqDesc(long jobId);
+
+  /**
+   * This method adds up the lengths of the log lines of a job, without loading them.
+   *
+   * @param jobId id of the job
+   * @return the total number of characters in the lines, or null if the job has logged nothing
+   */
+  @Query("SELECT SUM(LENGTH(l.line)) FROM job_log_lines l WHERE l.jobId = :jobId")
+  Long sumLineLengths(@Param("jobId") long jobId);
+
+  /**
+   * This method deletes all log lines of a job with a single statement.
+   *
+   * @param jobId id of the job
+   */
+  @Modifying
+  @Transactional
+  @Query("DELETE FROM job_log_lines l WHERE l.jobId = :jobId")
+  void deleteByJobId(@Param("jobId") long jobId);
+
+  /**
+   * This method deletes all log lines of several jobs with a single statement.
+   *
+   * @param jobIds ids of the jobs
+   * @return the number of lines deleted
+   */
+  @Modifying
+  @Query("DELETE FROM job_log_lines l WHERE l.jobId IN :jobIds")
+  int deleteByJobIdIn(@Param("jobIds") Collection<Long> jobIds);
+}
@@ -1,8 +1,240 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.models.JobSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository
+    extends CrudRepository<Job, Long>, PagingAndSortingRepository<Job, Long> {
+  /**
+   * This method returns a page of jobs, without their logs, filtered by whichever of the filters
+   * are not null.
+   *
+   * @param status only jobs with this status
+   * @param createdById only jobs created by the user with this id
+   * @param createdAfter only jobs created at or after this time
+   * @param createdBefore only jobs created before this time
+   * @param parentJobId only child jobs of the job with this id
+   * @param pageable which page to return, and how to sort the jobs
+   * @return the page of job summaries
+   */
+  @Query(
+      value =
+          "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+              + "j.id, j.createdBy.id, j.createdAt, j.updatedAt, j.status, j.parentJobId,"
+              + " j.jobType, j.startedAt, j.completedAt, j.phase, j.progressPercent) "
+              + "FROM jobs j "
+              + "WHERE (:status IS NULL OR j.status = :status) "
+              + "AND (:createdById IS NULL OR j.createdBy.id = :createdById) "
+              + "AND (:createdAfter IS NULL OR j.createdAt >= :createdAfter) "
+              + "AND (:createdBefore IS NULL OR j.createdAt < :createdBefore) "
+              + "AND (:parentJobId IS NULL OR j.parentJobId = :parentJobId)",
+      countQuery =
+          "SELECT COUNT(j) FROM jobs j "
+              + "WHERE (:status IS NULL OR j.status = :status) "
+              + "AND (:createdById IS NULL OR j.createdBy.id = :createdById) "
+              + "AND (:createdAfter IS NULL OR j.createdAt >= :createdAfter) "
+              + "AND (:createdBefore IS NULL OR j.createdAt < :createdBefore) "
+              + "AND (:parentJobId IS NULL OR j.parentJobId = :parentJobId)")
+  Page<JobSummary> findSummaries(
+      @Param("status") String status,
+      @Param("createdById") Long createdById,
+      @Param("createdAfter") ZonedDateTime createdAfter,
+      @Param("createdBefore") ZonedDateTime createdBefore,
+      @Param("parentJobId") Long parentJobId,
+      Pageable pageable);
+
+  /**
+   * This method returns the jobs with ids below a given id, without their logs, highest id first,
+   * optionally only those with a given status. It is a range query on the primary key, or on
+   * JOBS_STATUS_ID_IDX, so it costs the same however deep into the table it starts.
+   *
+   * @param status only jobs with this status, if not null
+   * @param id the id to start below
+   * @param pageable how many jobs to return
+   * @return the job summaries
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.createdBy.id, j.createdAt, j.updatedAt, j.status, j.parentJobId,"
+          + " j.jobType, j.startedAt, j.completedAt, j.phase, j.progressPercent) "
+          + "FROM jobs j "
+          + "WHERE (:status IS NULL OR j.status = :status) AND j.id < :id ORDER BY j.id DESC")
+  List<JobSummary> findSummariesBefore(
+      @Param("status") String status, @Param("id") long id, Pageable pageable);
+
+  /**
+   * This method returns the jobs with ids above a given id, without their logs, lowest id first,
+   * optionally only those with a given status.
+   *
+   * @param status only jobs with this status, if not null
+   * @param id the id to start above
+   * @param pageable how many jobs to return
+   * @return the job summaries
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.createdBy.id, j.createdAt, j.updatedAt, j.status, j.parentJobId,"
+          + " j.jobType, j.startedAt, j.completedAt, j.phase, j.progressPercent) "
+          + "FROM jobs j "
+          + "WHERE (:status IS NULL OR j.status = :status) AND j.id > :id ORDER BY j.id ASC")
+  List<JobSummary> findSummariesAfter(
+      @Param("status") String status, @Param("id") long id, Pageable pageable);
+
+  /**
+   * This method returns the child jobs of a job, without their logs.
+   *
+   * @param parentJobId the id of the parent job
+   * @return the summaries of the children, in the order they were spawned
+   */
+  @Query(
+      "SELECT new edu.ucsb.cs156.example.models.JobSummary("
+          + "j.id, j.createdBy.id, j.createdAt, j.updatedAt, j.status, j.parentJobId,"
+          + " j.jobType, j.startedAt, j.completedAt, j.phase, j.progressPercent) "
+          + "FROM jobs j "
+          + "WHERE j.parentJobId = :parentJobId ORDER BY j.id")
+  List<JobSummary> findChildSummaries(@Param("parentJobId") long parentJobId);
+
+  /**
+   * This method locks a job, waiting for any other transaction that holds the lock. Must be called
+   * inside a transaction.
+   *
+   * @param id the id of the job
+   * @return the job, if it exists
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT j FROM jobs j WHERE j.id = :id")
+  Optional<Job> lockById(@Param("id") long id);
+
+  /**
+   * This method locks the oldest queued jobs, skipping rows already locked by another instance, so
+   * that several instances can claim jobs from the same table without blocking on or
+   * double-claiming each other's rows. A lock timeout of -2 is Hibernate's SKIP_LOCKED; on Postgres
+   * this is run as SELECT ... FOR UPDATE SKIP LOCKED, and on databases without SKIP LOCKED as a
+   * plain SELECT ... FOR UPDATE. Must be called inside a transaction.
+   *
+   * @param pageable how many jobs to lock
+   * @return the locked jobs, oldest first
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query("SELECT j FROM jobs j WHERE j.status = 'queued' ORDER BY j.id")
+  List<Job> lockQueuedJobs(Pageable pageable);
+
+  /**
+   * This method locks the running jobs whose lease has expired, i.e. whose instance stopped sending
+   * heartbeats, skipping rows already locked by another instance. Running jobs with no lease at
+   * all, e.g. those left running by a version of the app that did not lease jobs, count as expired.
+   * Must be called inside a transaction.
+   *
+   * @param now the current time
+   * @return the locked jobs
+   */
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+  @Query(
+      "SELECT j FROM jobs j WHERE j.status = 'running'"
+          + " AND (j.leaseExpiresAt < :now OR j.leaseExpiresAt IS NULL)")
+  List<Job> lockJobsWithExpiredLease(@Param("now") ZonedDateTime now);
+
+  /**
+   * This method returns the ids of the oldest jobs with one of the given statuses that were created
+   * before a cutoff. Jobs with no creation time were created before it was recorded, so they count
+   * as old.
+   *
+   * @param statuses the statuses
+   * @param cutoff the cutoff
+   * @param pageable how many ids to return
+   * @return the ids, oldest first
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.status IN :statuses"
+          + " AND (j.createdAt < :cutoff OR j.createdAt IS NULL) ORDER BY j.id")
+  List<Long> findIdsByStatusInCreatedBefore(
+      @Param("statuses") Collection<String> statuses,
+      @Param("cutoff") ZonedDateTime cutoff,
+      Pageable pageable);
+
+  /**
+   * This method returns the ids of the oldest jobs with one of the given statuses.
+   *
+   * @param statuses the statuses
+   * @param pageable how many ids to return
+   * @return the ids, oldest first
+   */
+  @Query("SELECT j.id FROM jobs j WHERE j.status IN :statuses ORDER BY j.id")
+  List<Long> findIdsByStatusIn(@Param("statuses") Collection<String> statuses, Pageable pageable);
+
+  /**
+   * This method deletes the jobs with the given ids with a single statement.
+   *
+   * @param ids the ids
+   * @return the number of jobs deleted
+   */
+  @Modifying
+  @Query("DELETE FROM jobs j WHERE j.id IN :ids")
+  int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method cancels a job if it is still queued, in a single statement, so that it cannot be
+   * claimed by a poller meanwhile.
+   *
+   * @param id the id of the job
+   * @param now the current time, recorded as when the job finished
+   * @return 1 if the job was cancelled, 0 if it was not queued
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE jobs j SET j.status = 'cancelled', j.completedAt = :now"
+          + " WHERE j.id = :id AND j.status = 'queued'")
+  int cancelQueuedJob(@Param("id") long id, @Param("now") ZonedDateTime now);
+
+  /**
+   * This method flags a running job to be cancelled by whichever instance is running it.
+   *
+   * @param id the id of the job
+   * @return 1 if the job was flagged, 0 if it was not running
+   */
+  @Transactional
+  @Modifying
+  @Query("UPDATE jobs j SET j.cancelRequested = true WHERE j.id = :id AND j.status = 'running'")
+  int requestCancel(@Param("id") long id);
+
+  /**
+   * This method returns the ids of the running jobs leased to an instance that have been flagged to
+   * be cancelled.
+   *
+   * @param leaseOwner the instance
+   * @return the ids
+   */
+  @Query(
+      "SELECT j.id FROM jobs j WHERE j.leaseOwner = :leaseOwner AND j.status = 'running'"
+          + " AND j.cancelRequested = true")
+  List<Long> findIdsToCancel(@Param("leaseOwner") String leaseOwner);
+
+  /**
+   * This method counts the jobs with a given status.
+   *
+   * @param status the status
+   * @return the number of jobs with that status
+   */
+  long countByStatus(String status);
+}
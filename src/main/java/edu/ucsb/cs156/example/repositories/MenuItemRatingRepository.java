@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MenuItemRatingRepository extends CrudRepository<MenuItemRating, Long> {
+  /**
+   * This method adds reviews with a given number of stars to, or with a negative count removes them
+   * from, the totals of a menu item, in a single statement, so that concurrent reviews of the same
+   * item are not lost.
+   *
+   * @param itemId the id of the menu item
+   * @param stars the stars of the reviews
+   * @param count the number of reviews to add, or remove if negative
+   * @return 1 if the totals were updated, 0 if the item has no totals yet
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE MENUITEMRATINGS r SET r.reviewCount = r.reviewCount + :count,"
+          + " r.starsSum = r.starsSum + :stars * :count,"
+          + " r.stars1 = r.stars1 + CASE WHEN :stars = 1 THEN :count ELSE 0 END,"
+          + " r.stars2 = r.stars2 + CASE WHEN :stars = 2 THEN :count ELSE 0 END,"
+          + " r.stars3 = r.stars3 + CASE WHEN :stars = 3 THEN :count ELSE 0 END,"
+          + " r.stars4 = r.stars4 + CASE WHEN :stars = 4 THEN :count ELSE 0 END,"
+          + " r.stars5 = r.stars5 + CASE WHEN :stars = 5 THEN :count ELSE 0 END"
+          + " WHERE r.itemId = :itemId")
+  int addReviews(
+      @Param("itemId") long itemId, @Param("stars") long stars, @Param("count") long count);
+
+  /**
+   * This method creates the totals of a menu item with no reviews, unless the item already has
+   * totals, e.g. created meanwhile by another request. It never fails because of them, so it can be
+   * called in the transaction of a bulk write without ending it.
+   *
+   * @param itemId the id of the menu item
+   * @return 1 if the totals were created, 0 if the item already had totals
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "INSERT INTO MENUITEMRATINGS"
+          + " (itemId, reviewCount, starsSum, stars1, stars2, stars3, stars4, stars5)"
+          + " VALUES (:itemId, 0, 0, 0, 0, 0, 0, 0) ON CONFLICT DO NOTHING")
+  int insertEmpty(@Param("itemId") long itemId);
+
+  /**
+   * This method returns the totals of the menu items of a dining commons.
+   *
+   * @param diningCommonsCode the code of the dining commons
+   * @return the totals of those of its items that have been reviewed
+   */
+  @Query(
+      "SELECT r FROM MENUITEMRATINGS r WHERE r.itemId IN (SELECT i.id FROM"
+          + " ucsbdiningcommonsmenuitem i WHERE i.diningCommonsCode = :diningCommonsCode)")
+  List<MenuItemRating> findByDiningCommonsCode(
+      @Param("diningCommonsCode") String diningCommonsCode);
+
+  /**
+   * This method deletes the totals of every menu item.
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying
+  @Query("DELETE FROM MENUITEMRATINGS r")
+  int deleteAllTotals();
+
+  /**
+   * This method computes the totals of every reviewed menu item from its reviews.
+   *
+   * @return the number of rows inserted
+   */
+  @Modifying
+  @Query(
+      "INSERT INTO MENUITEMRATINGS"
+          + " (itemId, reviewCount, starsSum, stars1, stars2, stars3, stars4, stars5)"
+          + " SELECT v.itemId, COUNT(v), SUM(v.stars),"
+          + " SUM(CASE WHEN v.stars = 1 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN v.stars = 2 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN v.stars = 3 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN v.stars = 4 THEN 1 ELSE 0 END),"
+          + " SUM(CASE WHEN v.stars = 5 THEN 1 ELSE 0 END)"
+          + " FROM MENUITEMREVIEWS v GROUP BY v.itemId")
+  int insertTotalsFromReviews();
+}
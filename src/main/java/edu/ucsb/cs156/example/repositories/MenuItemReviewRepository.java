@@ -1,8 +1,62 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {}
+public interface MenuItemReviewRepository extends PagingCrudRepository<MenuItemReview, Long> {
+  /**
+   * This method returns the reviews with ids below a given id, highest id first. It reads only as
+   * many rows of the primary key index as are asked for, however deep into the table they are.
+   *
+   * @param id the id to start below
+   * @param pageable how many reviews to return
+   * @return the reviews
+   */
+  List<MenuItemReview> findByIdLessThanOrderByIdDesc(long id, Pageable pageable);
+
+  /**
+   * This method returns the reviews with ids above a given id, lowest id first.
+   *
+   * @param id the id to start above
+   * @param pageable how many reviews to return
+   * @return the reviews
+   */
+  List<MenuItemReview> findByIdGreaterThanOrderByIdAsc(long id, Pageable pageable);
+
+  /**
+   * This method returns a page of the reviews of a menu item, read through the index on (item_id,
+   * date_reviewed).
+   *
+   * @param itemId the id of the menu item
+   * @param pageable which page to return, and how to sort the reviews
+   * @return the page of reviews
+   */
+  Page<MenuItemReview> findByItemId(long itemId, Pageable pageable);
+
+  /**
+   * This method returns a page of the reviews written by a reviewer, read through the index on
+   * (reviewer_email, date_reviewed).
+   *
+   * @param reviewerEmail the email of the reviewer
+   * @param pageable which page to return, and how to sort the reviews
+   * @return the page of reviews
+   */
+  Page<MenuItemReview> findByReviewerEmail(String reviewerEmail, Pageable pageable);
+
+  /**
+   * This method returns a page of the reviews written in a period, read through the index on
+   * date_reviewed.
+   *
+   * @param from the start of the period (inclusive)
+   * @param to the end of the period (exclusive)
+   * @param pageable which page to return, and how to sort the reviews
+   * @return the page of reviews
+   */
+  Page<MenuItemReview> findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+      LocalDateTime from, LocalDateTime to, Pageable pageable);
+}
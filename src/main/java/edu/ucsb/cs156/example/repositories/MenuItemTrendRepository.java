@@ -0,0 +1,108 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.MenuItemTrend;
+import java.util.List;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface MenuItemTrendRepository extends CrudRepository<MenuItemTrend, Long> {
+  /**
+   * This method adds reviews to, or with a negative weight removes them from, the recent reviews of
+   * a menu item, in a single statement, so that concurrent reviews of the same item, from this or
+   * any other server, are not lost. The reviews are weighted as of the row's asOfMs. It runs in a
+   * transaction of its own, as it is called once the write of the reviews has committed.
+   *
+   * @param itemId the id of the menu item
+   * @param stars the stars of the reviews
+   * @param weight the number of reviews to add, or remove if negative
+   * @param reviewedMs when the reviews were written, in milliseconds since the epoch
+   * @param decayPerMs how much less a review counts every millisecond, as an exponent
+   * @return 1 if the recent reviews were updated, 0 if the item has none yet
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Modifying
+  @Query(
+      "UPDATE MENUITEMTRENDS t SET"
+          + " t.weightedReviews = t.weightedReviews"
+          + " + :weight * exp(cast(:decayPerMs as Double) * (:reviewedMs - t.asOfMs)),"
+          + " t.weightedStars = t.weightedStars"
+          + " + :weight * :stars * exp(cast(:decayPerMs as Double) * (:reviewedMs - t.asOfMs))"
+          + " WHERE t.itemId = :itemId")
+  int addReviews(
+      @Param("itemId") long itemId,
+      @Param("stars") double stars,
+      @Param("weight") double weight,
+      @Param("reviewedMs") long reviewedMs,
+      @Param("decayPerMs") double decayPerMs);
+
+  /**
+   * This method creates the recent reviews of a menu item with no reviews, unless the item already
+   * has recent reviews, e.g. created meanwhile by another request. Like addReviews, it runs in a
+   * transaction of its own.
+   *
+   * @param itemId the id of the menu item
+   * @param diningCommonsCode the code of its dining commons
+   * @param asOfMs the time to weight its reviews as of, in milliseconds since the epoch
+   * @return 1 if the recent reviews were created, 0 if the item already had them
+   */
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Modifying
+  @Query(
+      "INSERT INTO MENUITEMTRENDS (itemId, diningCommonsCode, weightedReviews, weightedStars,"
+          + " asOfMs) VALUES (:itemId, :diningCommonsCode, 0, 0, :asOfMs) ON CONFLICT DO NOTHING")
+  int insertEmpty(
+      @Param("itemId") long itemId,
+      @Param("diningCommonsCode") String diningCommonsCode,
+      @Param("asOfMs") long asOfMs);
+
+  /**
+   * This method weights the recent reviews of every menu item as of a later time, so that the
+   * weights added by addReviews stay small.
+   *
+   * @param nowMs the time to weight them as of, in milliseconds since the epoch
+   * @param decayPerMs how much less a review counts every millisecond, as an exponent
+   * @return the number of rows updated
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE MENUITEMTRENDS t SET"
+          + " t.weightedReviews = t.weightedReviews"
+          + " * exp(cast(:decayPerMs as Double) * (t.asOfMs - :nowMs)),"
+          + " t.weightedStars = t.weightedStars"
+          + " * exp(cast(:decayPerMs as Double) * (t.asOfMs - :nowMs)),"
+          + " t.asOfMs = :nowMs"
+          + " WHERE t.asOfMs < :nowMs")
+  int decayTo(@Param("nowMs") long nowMs, @Param("decayPerMs") double decayPerMs);
+
+  /**
+   * This method returns the recent reviews of the menu items of a dining commons.
+   *
+   * @param diningCommonsCode the code of the dining commons
+   * @return the recent reviews of those of its items that have been reviewed
+   */
+  List<MenuItemTrend> findByDiningCommonsCode(String diningCommonsCode);
+
+  /**
+   * This method returns the codes of the dining commons with reviewed menu items.
+   *
+   * @return the codes
+   */
+  @Query("SELECT DISTINCT t.diningCommonsCode FROM MENUITEMTRENDS t")
+  List<String> findDiningCommonsCodes();
+
+  /**
+   * This method deletes the recent reviews of every menu item.
+   *
+   * @return the number of rows deleted
+   */
+  @Modifying
+  @Query("DELETE FROM MENUITEMTRENDS t")
+  int deleteAllTrends();
+}
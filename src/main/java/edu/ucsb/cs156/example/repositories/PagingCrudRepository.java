@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.repositories;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+/**
+ * The PagingCrudRepository is the base of the repositories behind the /all endpoints: on top of
+ * CrudRepository, it lets ApiController.listAll read entities a page at a time, sorted, and
+ * filtered by Specification.
+ *
+ * @param <T> the entity type
+ * @param <ID> the type of the id of the entity
+ */
+@NoRepositoryBean
+public interface PagingCrudRepository<T, ID>
+    extends CrudRepository<T, ID>, PagingAndSortingRepository<T, ID> {
+
+  /**
+   * This method returns a page of the entities that match a Specification. It is implemented by
+   * SimpleJpaRepository, as JpaSpecificationExecutor.findAll; the rest of JpaSpecificationExecutor
+   * is left out so that delete(entity) stays unambiguous.
+   *
+   * @param spec the entities to return
+   * @param pageable the page to return, and how it is sorted
+   * @return the page of entities
+   */
+  Page<T> findAll(Specification<T> spec, Pageable pageable);
+}
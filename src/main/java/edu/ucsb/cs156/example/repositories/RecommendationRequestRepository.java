@@ -1,9 +1,8 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface RecommendationRequestRepository
-    extends CrudRepository<RecommendationRequest, Long> {}
+    extends PagingCrudRepository<RecommendationRequest, Long> {}
@@ -0,0 +1,28 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.TableVersion;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface TableVersionRepository extends CrudRepository<TableVersion, String> {
+  /**
+   * This method increases the version of a table, in the transaction of the caller if there is one,
+   * so that the new version is seen by other servers only once the write it records is. The new
+   * version is at least nowMs, so that versions are not used again if the database is recreated.
+   *
+   * @param tableName the name of the table
+   * @param nowMs the current time, in milliseconds since the epoch
+   * @return 1 if the version was increased, 0 if the table has no version
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "UPDATE TABLE_VERSIONS t SET t.version = greatest(t.version + 1, :nowMs)"
+          + " WHERE t.tableName = :tableName")
+  int bump(@Param("tableName") String tableName, @Param("nowMs") long nowMs);
+}
@@ -1,18 +1,50 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
-import org.springframework.data.repository.CrudRepository;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Repository;
 
-/** The UCSBDateRepository is a repository for UCSBDate entities. */
+/**
+ * The UCSBDateRepository is a repository for UCSBDate entities.
+ *
+ * <p>The lookups by quarter use the (QUARTERYYYYQ, LOCAL_DATE_TIME) index, and the lookups by date
+ * the LOCAL_DATE_TIME index (see UCSBDates.json).
+ */
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends PagingCrudRepository<UCSBDate, Long> {
   /**
    * This method returns all UCSBDate entities with a given quarterYYYYQ.
    *
    * @param quarterYYYYQ quarter in the format YYYYQ (e.g. 20241 for Winter 2024, 20242 for Spring
    *     2024, 20243 for Summer 2024, 20244 for Fall 2024)
+   * @param sort the order to return them in
    * @return all UCSBDate entities with a given quarterYYYYQ
    */
-  Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
+  List<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ, Sort sort);
+
+  /**
+   * This method returns a page of the UCSBDate entities of a range of quarters. Since quarters are
+   * all in the format YYYYQ, they compare as strings in the same order as in time.
+   *
+   * @param from the first quarter, in the format YYYYQ
+   * @param to the last quarter, in the format YYYYQ
+   * @param pageable the page to return
+   * @return a page of the UCSBDate entities from quarter from through quarter to
+   */
+  Page<UCSBDate> findByQuarterYYYYQBetween(String from, String to, Pageable pageable);
+
+  /**
+   * This method returns a page of the UCSBDate entities in a period.
+   *
+   * @param from the start of the period (inclusive)
+   * @param to the end of the period (exclusive)
+   * @param pageable the page to return
+   * @return a page of the UCSBDate entities with a localDateTime in [from, to)
+   */
+  Page<UCSBDate> findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+      LocalDateTime from, LocalDateTime to, Pageable pageable);
 }
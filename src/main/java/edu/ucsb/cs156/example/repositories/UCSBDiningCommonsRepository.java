@@ -1,9 +1,9 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 /** The UCSBDiningCommonsRepository is a repository for UCSBDiningCommons entities */
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {}
+public interface UCSBDiningCommonsRepository
+    extends PagingCrudRepository<UCSBDiningCommons, String> {}
@@ -1,8 +1,8 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {}
+public interface UCSBOrganizationRepository
+    extends PagingCrudRepository<UCSBOrganization, String> {}
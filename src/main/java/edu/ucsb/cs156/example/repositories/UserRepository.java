@@ -1,7 +1,11 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
+import java.util.Locale;
 import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,4 +19,48 @@ public interface UserRepository extends CrudRepository<User, Long> {
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method returns a User entity with a given email, ignoring case. Emails are stored in lower
+   * case, so this looks up the lower-case email, which can use the unique index on email (a query
+   * comparing UPPER(email) could not).
+   *
+   * @param email email address of the user, in any case
+   * @return Optional of User (empty if not found)
+   */
+  default Optional<User> findByEmailIgnoringCase(String email) {
+    return findByEmail(email.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * This method returns a User entity with a given OAuth2 subject.
+   *
+   * @param googleSub OAuth2 subject of the user
+   * @return Optional of User (empty if not found)
+   */
+  Optional<User> findByGoogleSub(String googleSub);
+
+  /**
+   * This method returns a page of users whose email, full name, given name or family name starts
+   * with the given prefix, ignoring case, or of all users if the prefix is null. In the prefix, the
+   * LIKE wildcards % and _, and the escape character !, must be escaped with !.
+   *
+   * @param prefix lower-case prefix, or null for all users
+   * @param pageable which page to return, and how to sort the users
+   * @return the page of users
+   */
+  @Query(
+      value =
+          "SELECT u FROM users u WHERE :prefix IS NULL "
+              + "OR u.email LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.fullName) LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.givenName) LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.familyName) LIKE CONCAT(:prefix, '%') ESCAPE '!'",
+      countQuery =
+          "SELECT COUNT(u) FROM users u WHERE :prefix IS NULL "
+              + "OR u.email LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.fullName) LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.givenName) LIKE CONCAT(:prefix, '%') ESCAPE '!' "
+              + "OR LOWER(u.familyName) LIKE CONCAT(:prefix, '%') ESCAPE '!'")
+  Page<User> search(String prefix, Pageable pageable);
 }
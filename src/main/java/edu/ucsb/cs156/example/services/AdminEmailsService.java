@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that tells whether an email address is one of the admin emails in
+ * app.admin.emails. Emails are compared without regard to case or surrounding whitespace.
+ */
+@Service("adminEmails")
+public class AdminEmailsService {
+  /** app.admin.emails, trimmed and in lower case */
+  private final Set<String> adminEmails;
+
+  public AdminEmailsService(@Value("${app.admin.emails}") List<String> adminEmails) {
+    this.adminEmails =
+        adminEmails.stream()
+            .map(e -> e.trim().toLowerCase(Locale.ROOT))
+            .collect(Collectors.toUnmodifiableSet());
+  }
+
+  /**
+   * This method returns whether the given email is listed in app.admin.emails.
+   *
+   * @param email email address of the user
+   * @return true if the email is an admin email, in any case
+   */
+  public boolean isAdmin(String email) {
+    return email != null && adminEmails.contains(email.trim().toLowerCase(Locale.ROOT));
+  }
+}
@@ -2,7 +2,9 @@ package edu.ucsb.cs156.example.services;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
+import jakarta.servlet.http.HttpSession;
 import java.util.Collection;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
 /**
@@ -33,6 +35,31 @@ public abstract class CurrentUserService {
    */
   public abstract Collection<? extends GrantedAuthority> getRoles();
 
+  /**
+   * This method is called when a user has just logged in, before they are redirected back to the
+   * app, so that the service can do once per login what it would otherwise do on every request. By
+   * default it does nothing.
+   *
+   * @param authentication the authentication of the user
+   * @param session the session of the user
+   */
+  public void userLoggedIn(Authentication authentication, HttpSession session) {}
+
+  /**
+   * This method forgets any copy of the user with the given email that the service has cached, so
+   * that changes to the user, e.g. to their admin flag, are seen by their next request. By default
+   * nothing is cached, so there is nothing to forget.
+   *
+   * @param email email address of the user
+   */
+  public void evictUser(String email) {}
+
+  /**
+   * This method forgets every user that the service has cached. By default nothing is cached, so
+   * there is nothing to forget.
+   */
+  public void evictAllUsers() {}
+
   /**
    * This method returns whether the current user is logged in.
    *
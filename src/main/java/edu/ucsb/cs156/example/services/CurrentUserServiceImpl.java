@@ -3,14 +3,16 @@ package edu.ucsb.cs156.example.services;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
-import java.util.ArrayList;
+import jakarta.servlet.http.HttpSession;
 import java.util.Collection;
-import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -18,11 +20,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * This is a service that provides information about the current user.
  *
  * <p>This is the version of the service used in production.
+ *
+ * <p>The User of the current request is looked up at most once per request, however many times the
+ * request asks for it, and is then kept in the currentUsers cache, by OAuth2 subject, for later
+ * requests of the same user (see app.cache.specs.currentUsers). Anything that changes the admin
+ * flag of a user must call evictUser, so that the change is seen by their next request.
  */
 @Slf4j
 @Service("currentUser")
@@ -32,8 +41,38 @@ public class CurrentUserServiceImpl extends CurrentUserService {
 
   @Autowired GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<String>();
+  @Autowired UserProfileSyncService userProfileSyncService;
+
+  @Autowired AdminEmailsService adminEmailsService;
+
+  @Autowired CacheManager cacheManager;
+
+  private static final String REQUEST_ATTRIBUTE = CurrentUserServiceImpl.class.getName() + ".user";
+
+  /** Session attribute holding the id of the user, set when they log in */
+  public static final String SESSION_USER_ID = CurrentUserServiceImpl.class.getName() + ".userId";
+
+  /** The cache of the users resolved by earlier requests, by OAuth2 subject */
+  public static final String CURRENT_USERS_CACHE = "currentUsers";
+
+  private Cache currentUsers() {
+    return cacheManager.getCache(CURRENT_USERS_CACHE);
+  }
+
+  private static String subjectOf(Authentication authentication) {
+    String sub = ((OAuth2AuthenticationToken) authentication).getPrincipal().getAttribute("sub");
+    return sub != null ? sub : authentication.getName();
+  }
+
+  /**
+   * This method finds the stored user with the given email or, for users without an email, with the
+   * given OAuth2 subject.
+   */
+  private Optional<User> findStoredUser(String email, String sub) {
+    return email != null
+        ? userRepository.findByEmailIgnoringCase(email)
+        : userRepository.findByGoogleSub(sub);
+  }
 
   /**
    * This method returns the current user as a User object.
@@ -51,7 +90,8 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * automatically injected by Spring.
    *
    * <p>This method also has a side effect of storing the user in the database if they are not
-   * already there.
+   * already there, with their email in lower case. If they are, and their profile (name, picture,
+   * etc.) has changed since it was stored, the stored profile is updated in the background.
    *
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
@@ -61,58 +101,142 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
-    String googleSub = oAuthUser.getAttribute("sub");
-    String pictureUrl = oAuthUser.getAttribute("picture");
-    String fullName = oAuthUser.getAttribute("name");
-    String givenName = oAuthUser.getAttribute("given_name");
-    String familyName = oAuthUser.getAttribute("family_name");
-    boolean emailVerified = oAuthUser.getAttribute("email_verified");
-    String locale = oAuthUser.getAttribute("locale");
-    String hostedDomain = oAuthUser.getAttribute("hd");
-
-    java.util.Map<java.lang.String, java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}", attrs);
-
-    Optional<User> ou = userRepository.findByEmail(email);
+    String sub = oAuthUser.getAttribute("sub");
+    log.debug("attrs={}", oAuthUser.getAttributes());
+
+    User profile =
+        User.builder()
+            .googleSub(sub)
+            .email(email != null ? email.toLowerCase(Locale.ROOT) : null)
+            .pictureUrl(oAuthUser.getAttribute("picture"))
+            .fullName(oAuthUser.getAttribute("name"))
+            .givenName(oAuthUser.getAttribute("given_name"))
+            .familyName(oAuthUser.getAttribute("family_name"))
+            .emailVerified(oAuthUser.getAttribute("email_verified"))
+            .locale(oAuthUser.getAttribute("locale"))
+            .hostedDomain(oAuthUser.getAttribute("hd"))
+            .admin(adminEmailsService.isAdmin(email))
+            .build();
+
+    Optional<User> ou = findStoredUser(email, sub);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (profile.getAdmin() && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
       }
+      if (userProfileSyncService.profileChanged(u, profile)) {
+        userProfileSyncService.syncProfile(u.getId(), profile);
+      }
       return u;
     }
 
-    User u =
-        User.builder()
-            .googleSub(googleSub)
-            .email(email)
-            .pictureUrl(pictureUrl)
-            .fullName(fullName)
-            .givenName(givenName)
-            .familyName(familyName)
-            .emailVerified(emailVerified)
-            .locale(locale)
-            .hostedDomain(hostedDomain)
-            .admin(adminEmails.contains(email))
-            .build();
-    userRepository.save(u);
-    return u;
+    try {
+      userRepository.save(profile);
+    } catch (DataIntegrityViolationException e) {
+      // Another request by the same user, at their first login, saved them first
+      return findStoredUser(email, sub).orElseThrow(() -> e);
+    }
+    return profile;
+  }
+
+  /**
+   * This method stores the user who just logged in with OAuth2 in the database, if they are not
+   * already there, and keeps their id in the session, so that later requests in the session can
+   * find them by id instead of by their OAuth2 attributes.
+   *
+   * @param authentication the authentication of the user
+   * @param session the session of the user
+   */
+  @Override
+  public void userLoggedIn(Authentication authentication, HttpSession session) {
+    if (!(authentication instanceof OAuth2AuthenticationToken)) {
+      return;
+    }
+    User u = getOAuth2AuthenticatedUser(SecurityContextHolder.getContext(), authentication);
+    session.setAttribute(SESSION_USER_ID, u.getId());
+    currentUsers().put(subjectOf(authentication), u);
   }
 
   /**
    * This method returns the current user as a User object.
    *
+   * <p>It is found, in order, in the request, in the cache of recently used users, by the id kept
+   * in the session at login, and, for sessions from before that id was kept, from the OAuth2
+   * attributes of the user.
+   *
    * @return the current user
    */
   public User getUser() {
     SecurityContext securityContext = SecurityContextHolder.getContext();
     Authentication authentication = securityContext.getAuthentication();
 
-    if (authentication instanceof OAuth2AuthenticationToken) {
-      return getOAuth2AuthenticatedUser(securityContext, authentication);
+    if (!(authentication instanceof OAuth2AuthenticationToken)) {
+      return null;
+    }
+
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request != null
+        && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+            instanceof User u) {
+      return u;
+    }
+
+    User u =
+        currentUsers()
+            .get(subjectOf(authentication), () -> lookUp(request, securityContext, authentication));
+
+    if (request != null) {
+      request.setAttribute(REQUEST_ATTRIBUTE, u, RequestAttributes.SCOPE_REQUEST);
     }
-    return null;
+    return u;
+  }
+
+  /**
+   * This method looks the current user up by the id kept in the session at login, if there is one,
+   * and otherwise by their OAuth2 attributes.
+   */
+  private User lookUp(
+      RequestAttributes request, SecurityContext securityContext, Authentication authentication) {
+    if (request != null
+        && request.getAttribute(SESSION_USER_ID, RequestAttributes.SCOPE_SESSION)
+            instanceof Long userId) {
+      Optional<User> u = userRepository.findById(userId);
+      if (u.isPresent()) {
+        return u.get();
+      }
+    }
+    return getOAuth2AuthenticatedUser(securityContext, authentication);
+  }
+
+  /**
+   * This method forgets the cached User for the given email, so that the next request by that user
+   * looks them up again. It must be called whenever the admin flag of a user changes. The User is
+   * cached by OAuth2 subject, which is found from the stored user; if that has none, all cached
+   * Users are forgotten.
+   *
+   * @param email email address of the user
+   */
+  @Override
+  public void evictUser(String email) {
+    if (email == null) {
+      return;
+    }
+    Optional<User> u = userRepository.findByEmailIgnoringCase(email);
+    if (u.isEmpty()) {
+      return;
+    }
+    if (u.get().getGoogleSub() == null) {
+      evictAllUsers();
+      return;
+    }
+    currentUsers().evict(u.get().getGoogleSub());
+  }
+
+  /** This method forgets all cached Users, e.g. after the admin flags of many users change. */
+  @Override
+  public void evictAllUsers() {
+    currentUsers().clear();
   }
 
   /**
@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.RatingSummary;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that keeps the running totals of the reviews of each menu item (see
+ * MenuItemRating) up to date as reviews are added, changed and deleted, and that summarizes them
+ * for a menu item or a dining commons.
+ *
+ * <p>The totals of an item are changed with a single UPDATE, so concurrent reviews of the same item
+ * don't overwrite each other. If they ever drift from the reviews, e.g. because a review was
+ * written directly to the database, rebuild() computes them again from the reviews.
+ */
+@Slf4j
+@Service
+public class MenuItemRatingService {
+  @Autowired private MenuItemRatingRepository menuItemRatingRepository;
+
+  /**
+   * This method adds a new review to the totals of its menu item.
+   *
+   * @param review the review
+   */
+  public void reviewAdded(MenuItemReview review) {
+    addReviews(review.getItemId(), review.getStars(), 1);
+  }
+
+  /**
+   * This method removes a deleted review from the totals of its menu item.
+   *
+   * @param review the review, as it was before it was deleted
+   */
+  public void reviewRemoved(MenuItemReview review) {
+    addReviews(review.getItemId(), review.getStars(), -1);
+  }
+
+  /**
+   * This method moves a changed review from the totals it was counted in to those it now belongs
+   * in, if its item or stars changed.
+   *
+   * @param before the review before it was changed
+   * @param after the review after it was changed
+   */
+  public void reviewChanged(MenuItemReview before, MenuItemReview after) {
+    if (before.getItemId() != after.getItemId() || before.getStars() != after.getStars()) {
+      reviewRemoved(before);
+      reviewAdded(after);
+    }
+  }
+
+  private void addReviews(long itemId, int stars, int count) {
+    if (menuItemRatingRepository.addReviews(itemId, stars, count) > 0 || count < 0) {
+      return;
+    }
+    menuItemRatingRepository.insertEmpty(itemId);
+    menuItemRatingRepository.addReviews(itemId, stars, count);
+  }
+
+  /**
+   * This method summarizes the reviews of a menu item.
+   *
+   * @param itemId the id of the menu item
+   * @return the summary, with no reviews if the item has none
+   */
+  public RatingSummary summaryForItem(long itemId) {
+    return summarize(menuItemRatingRepository.findById(itemId).stream().toList());
+  }
+
+  /**
+   * This method summarizes the reviews of all the menu items of a dining commons. It reads one row
+   * per reviewed item, however many reviews there are.
+   *
+   * @param diningCommonsCode the code of the dining commons
+   * @return the summary, with no reviews if none of its items has any
+   */
+  public RatingSummary summaryForCommons(String diningCommonsCode) {
+    return summarize(menuItemRatingRepository.findByDiningCommonsCode(diningCommonsCode));
+  }
+
+  /**
+   * This method adds up the totals of some menu items.
+   *
+   * @param ratings the totals
+   * @return their summary
+   */
+  public static RatingSummary summarize(List<MenuItemRating> ratings) {
+    long reviewCount = 0;
+    long starsSum = 0;
+    long[] starCounts = new long[5];
+    for (MenuItemRating r : ratings) {
+      reviewCount += r.getReviewCount();
+      starsSum += r.getStarsSum();
+      starCounts[0] += r.getStars1();
+      starCounts[1] += r.getStars2();
+      starCounts[2] += r.getStars3();
+      starCounts[3] += r.getStars4();
+      starCounts[4] += r.getStars5();
+    }
+    return RatingSummary.builder()
+        .reviewCount(reviewCount)
+        .averageStars(reviewCount == 0 ? null : (double) starsSum / reviewCount)
+        .starCounts(
+            List.of(starCounts[0], starCounts[1], starCounts[2], starCounts[3], starCounts[4]))
+        .build();
+  }
+
+  /**
+   * This method computes the totals of every menu item again from its reviews.
+   *
+   * @return the number of menu items with reviews
+   */
+  @Transactional
+  public int rebuild() {
+    menuItemRatingRepository.deleteAllTotals();
+    int items = menuItemRatingRepository.insertTotalsFromReviews();
+    log.info("Rebuilt the ratings of {} menu items", items);
+    return items;
+  }
+}
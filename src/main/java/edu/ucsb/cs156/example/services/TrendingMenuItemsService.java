@@ -0,0 +1,331 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemTrend;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.TrendingMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemTrendRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This is a service that ranks the menu items of each dining commons by how much, and how well,
+ * they have been reviewed lately.
+ *
+ * <p>Every review counts for 1 when it is written, and half as much every
+ * app.trending.halfLifeHours after that. For each menu item, the MENUITEMTRENDS table holds the sum
+ * of those weights ("recent reviews") and of the weighted stars, as of a given time. As reviews are
+ * added, changed and deleted, their weights are added to the row of their item with a single
+ * UPDATE, so every server can write to the same rows without losing another's reviews. Every
+ * app.trending.decayIntervalMs, the rows are weighted as of the current time, so that the weights
+ * added to them stay small. Items can be ranked by recent reviews, or by the weighted average of
+ * their stars.
+ *
+ * <p>The top app.trending.maxItems items of a dining commons are found with a heap of that size,
+ * from the rows of that commons, and kept in the trendingMenuItems cache until a review written
+ * through this server changes or the cache entry expires (see app.cache.specs.trendingMenuItems);
+ * reviews written through other servers are seen once it does. If the table is empty at startup, or
+ * rebuild() is called, the rows are computed from the reviews.
+ */
+@Slf4j
+@Service
+public class TrendingMenuItemsService {
+  @Autowired private MenuItemTrendRepository menuItemTrendRepository;
+
+  @Autowired private MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired private UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired private CacheManager cacheManager;
+
+  /** The cache of the top items of each dining commons, by commons and ranking */
+  public static final String TRENDING_CACHE = "trendingMenuItems";
+
+  @Value("${app.trending.halfLifeHours:168}")
+  private double halfLifeHours = 168;
+
+  @Value("${app.trending.maxItems:50}")
+  private int maxItems = 50;
+
+  @Value("${app.trending.minRecentReviews:0.5}")
+  private double minRecentReviews = 0.5;
+
+  private Clock clock = Clock.systemDefaultZone();
+
+  /** The ways items can be ranked */
+  public enum Ranking {
+    VOLUME,
+    STARS
+  }
+
+  private record Ranked(MenuItemTrend trend, double recentReviews, double averageStars) {}
+
+  private Cache rankings() {
+    return cacheManager.getCache(TRENDING_CACHE);
+  }
+
+  private double decayPerMs() {
+    return Math.log(2) / (halfLifeHours * 3_600_000);
+  }
+
+  private long epochMs(LocalDateTime dateReviewed, long nowMs) {
+    if (dateReviewed == null) {
+      return nowMs;
+    }
+    // a review dated in the future counts as written now
+    return Math.min(dateReviewed.atZone(clock.getZone()).toInstant().toEpochMilli(), nowMs);
+  }
+
+  /**
+   * This method counts a new review in the recent reviews of its menu item.
+   *
+   * @param review the review
+   */
+  public void reviewAdded(MenuItemReview review) {
+    addReview(review, 1);
+  }
+
+  /**
+   * This method takes a deleted review out of the recent reviews of its menu item.
+   *
+   * @param review the review, as it was before it was deleted
+   */
+  public void reviewRemoved(MenuItemReview review) {
+    addReview(review, -1);
+  }
+
+  /**
+   * This method moves a changed review from the recent reviews it was counted in to those it now
+   * belongs in, if its item, stars or date changed.
+   *
+   * @param before the review before it was changed
+   * @param after the review after it was changed
+   */
+  public void reviewChanged(MenuItemReview before, MenuItemReview after) {
+    if (before.getItemId() != after.getItemId()
+        || before.getStars() != after.getStars()
+        || !Objects.equals(before.getDateReviewed(), after.getDateReviewed())) {
+      reviewRemoved(before);
+      reviewAdded(after);
+    }
+  }
+
+  /**
+   * This method adds a review to the row of its menu item, creating the row if the item has none
+   * yet. Reviews of unknown items, or of items with no commons, are not counted.
+   */
+  private void addReview(MenuItemReview review, int count) {
+    long itemId = review.getItemId();
+    long nowMs = clock.millis();
+    long reviewedMs = epochMs(review.getDateReviewed(), nowMs);
+    if (menuItemTrendRepository.addReviews(
+            itemId, review.getStars(), count, reviewedMs, decayPerMs())
+        == 0) {
+      Optional<String> diningCommonsCode =
+          ucsbDiningCommonsMenuItemRepository
+              .findById(itemId)
+              .map(UCSBDiningCommonsMenuItem::getDiningCommonsCode);
+      if (count < 0 || diningCommonsCode.isEmpty()) {
+        return;
+      }
+      menuItemTrendRepository.insertEmpty(itemId, diningCommonsCode.get(), nowMs);
+      menuItemTrendRepository.addReviews(
+          itemId, review.getStars(), count, reviewedMs, decayPerMs());
+    }
+    rankings().clear();
+  }
+
+  private static String rankingKey(String diningCommonsCode, Ranking ranking) {
+    return diningCommonsCode + ":" + ranking;
+  }
+
+  /**
+   * This method returns the most popular menu items of a dining commons, or of all dining commons.
+   *
+   * @param diningCommonsCode the code of the dining commons, or null for all of them
+   * @param ranking whether to rank the items by recent reviews or by average stars
+   * @param limit the most items to return; at most app.trending.maxItems are ever returned
+   * @return the items, most popular first
+   */
+  public List<TrendingMenuItem> topItems(String diningCommonsCode, Ranking ranking, int limit) {
+    List<Ranked> ranked;
+    if (diningCommonsCode != null) {
+      ranked = ranking(diningCommonsCode, ranking);
+    } else {
+      // the best items of all the commons are among the best items of each commons
+      ranked = new ArrayList<>();
+      for (String code : menuItemTrendRepository.findDiningCommonsCodes()) {
+        ranked.addAll(ranking(code, ranking));
+      }
+      ranked.sort(comparator(ranking).reversed());
+    }
+    List<Ranked> top = ranked.subList(0, Math.min(Math.min(limit, maxItems), ranked.size()));
+
+    Map<Long, UCSBDiningCommonsMenuItem> items = new HashMap<>();
+    ucsbDiningCommonsMenuItemRepository
+        .findAllById(top.stream().map(r -> r.trend().getItemId()).toList())
+        .forEach(item -> items.put(item.getId(), item));
+    return top.stream()
+        .filter(r -> items.containsKey(r.trend().getItemId()))
+        .map(
+            r ->
+                TrendingMenuItem.builder()
+                    .itemId(r.trend().getItemId())
+                    .diningCommonsCode(r.trend().getDiningCommonsCode())
+                    .name(items.get(r.trend().getItemId()).getName())
+                    .station(items.get(r.trend().getItemId()).getStation())
+                    .recentReviews(r.recentReviews())
+                    .averageStars(r.averageStars())
+                    .build())
+        .toList();
+  }
+
+  private static Comparator<Ranked> comparator(Ranking ranking) {
+    return ranking == Ranking.VOLUME
+        ? Comparator.comparingDouble(Ranked::recentReviews)
+        : Comparator.comparingDouble(Ranked::averageStars).thenComparing(Ranked::recentReviews);
+  }
+
+  /**
+   * This method returns the top app.trending.maxItems items of a dining commons, best first, from
+   * the cache, or from the database if they have changed or expired.
+   *
+   * @param diningCommonsCode the code of the dining commons
+   * @param ranking how to rank the items
+   * @return the top items
+   */
+  private List<Ranked> ranking(String diningCommonsCode, Ranking ranking) {
+    return rankings()
+        .get(rankingKey(diningCommonsCode, ranking), () -> rank(diningCommonsCode, ranking));
+  }
+
+  private List<Ranked> rank(String diningCommonsCode, Ranking ranking) {
+    long nowMs = clock.millis();
+    // a min-heap of the best items seen so far, whose root is the first to be pushed out
+    Comparator<Ranked> comparator = comparator(ranking);
+    PriorityQueue<Ranked> heap = new PriorityQueue<>(maxItems + 1, comparator);
+    for (MenuItemTrend trend : menuItemTrendRepository.findByDiningCommonsCode(diningCommonsCode)) {
+      double decay = Math.exp(-decayPerMs() * (nowMs - trend.getAsOfMs()));
+      double recentReviews = trend.getWeightedReviews() * decay;
+      if (recentReviews < minRecentReviews) {
+        continue;
+      }
+      heap.add(
+          new Ranked(trend, recentReviews, trend.getWeightedStars() / trend.getWeightedReviews()));
+      if (heap.size() > maxItems) {
+        heap.poll();
+      }
+    }
+    List<Ranked> items = new ArrayList<>(heap);
+    items.sort(comparator.reversed());
+    return items;
+  }
+
+  /**
+   * This method weights the recent reviews of every menu item as of now, so that the weights added
+   * to them as reviews are written stay small.
+   *
+   * @return the number of menu items updated
+   */
+  @Scheduled(fixedDelayString = "${app.trending.decayIntervalMs:300000}")
+  public int decay() {
+    int items = menuItemTrendRepository.decayTo(clock.millis(), decayPerMs());
+    log.debug("Weighted the recent reviews of {} menu items as of now", items);
+    return items;
+  }
+
+  /**
+   * This method computes the recent reviews of every menu item from the reviews, if there are none.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    if (menuItemTrendRepository.count() == 0) {
+      replayReviews();
+    }
+  }
+
+  /**
+   * This method deletes the recent reviews of every menu item, and computes them again from the
+   * reviews.
+   *
+   * @return the number of menu items with recent reviews
+   */
+  @Transactional
+  public int rebuild() {
+    menuItemTrendRepository.deleteAllTrends();
+    return replayReviews();
+  }
+
+  /**
+   * This method adds up the reviews of the last 20 half-lives, after which a review counts for less
+   * than a millionth, a page at a time, and saves them as of now. Reviews dated in the future count
+   * as written now.
+   *
+   * @return the number of menu items with recent reviews
+   */
+  private int replayReviews() {
+    long nowMs = clock.millis();
+    LocalDateTime now = LocalDateTime.now(clock);
+    LocalDateTime from = now.minusMinutes((long) (halfLifeHours * 60 * 20));
+    Map<Long, MenuItemTrend> trends = new HashMap<>();
+    Page<MenuItemReview> page;
+    int number = 0;
+    do {
+      page =
+          menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+              from, now.plusYears(100), PageRequest.of(number++, 1000, Sort.by("id")));
+      for (MenuItemReview review : page) {
+        double weight =
+            Math.exp(-decayPerMs() * (nowMs - epochMs(review.getDateReviewed(), nowMs)));
+        MenuItemTrend trend =
+            trends.computeIfAbsent(
+                review.getItemId(),
+                itemId -> MenuItemTrend.builder().itemId(itemId).asOfMs(nowMs).build());
+        trend.setWeightedReviews(trend.getWeightedReviews() + weight);
+        trend.setWeightedStars(trend.getWeightedStars() + weight * review.getStars());
+      }
+    } while (page.hasNext());
+
+    List<MenuItemTrend> saved = new ArrayList<>();
+    ucsbDiningCommonsMenuItemRepository
+        .findAllById(trends.keySet())
+        .forEach(
+            item -> {
+              if (item.getDiningCommonsCode() != null) {
+                MenuItemTrend trend = trends.get(item.getId());
+                trend.setDiningCommonsCode(item.getDiningCommonsCode());
+                saved.add(trend);
+              }
+            });
+    menuItemTrendRepository.saveAll(saved);
+    rankings().clear();
+    log.info(
+        "Computed the recent reviews of {} menu items in {} ms",
+        saved.size(),
+        clock.millis() - nowMs);
+    return saved.size();
+  }
+}
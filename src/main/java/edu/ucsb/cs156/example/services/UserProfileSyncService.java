@@ -0,0 +1,68 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that copies changes to a user's Google profile (name, picture, locale, etc.)
+ * into their row in the users table.
+ *
+ * <p>The profile is compared with the row at login, and only when something has changed is the row
+ * updated, on the userSyncExecutor rather than the thread handling the login.
+ */
+@Slf4j
+@Service("userProfileSync")
+public class UserProfileSyncService {
+  @Autowired private UserRepository userRepository;
+
+  /**
+   * This method returns whether the profile fields of a user differ from those of their stored row.
+   * The email, admin flag and id are not profile fields.
+   *
+   * @param stored the user as stored in the users table
+   * @param profile the user as described by their OAuth2 profile
+   * @return true if any profile field differs
+   */
+  public boolean profileChanged(User stored, User profile) {
+    return !Objects.equals(stored.getGoogleSub(), profile.getGoogleSub())
+        || !Objects.equals(stored.getPictureUrl(), profile.getPictureUrl())
+        || !Objects.equals(stored.getFullName(), profile.getFullName())
+        || !Objects.equals(stored.getGivenName(), profile.getGivenName())
+        || !Objects.equals(stored.getFamilyName(), profile.getFamilyName())
+        || stored.getEmailVerified() != profile.getEmailVerified()
+        || !Objects.equals(stored.getLocale(), profile.getLocale())
+        || !Objects.equals(stored.getHostedDomain(), profile.getHostedDomain());
+  }
+
+  /**
+   * This method copies the profile fields of a user into their stored row, if they still differ
+   * when the row is read again.
+   *
+   * @param userId id of the user
+   * @param profile the user as described by their OAuth2 profile
+   */
+  @Async("userSyncExecutor")
+  public void syncProfile(long userId, User profile) {
+    userRepository
+        .findById(userId)
+        .filter(u -> profileChanged(u, profile))
+        .ifPresent(
+            u -> {
+              u.setGoogleSub(profile.getGoogleSub());
+              u.setPictureUrl(profile.getPictureUrl());
+              u.setFullName(profile.getFullName());
+              u.setGivenName(profile.getGivenName());
+              u.setFamilyName(profile.getFamilyName());
+              u.setEmailVerified(profile.getEmailVerified());
+              u.setLocale(profile.getLocale());
+              u.setHostedDomain(profile.getHostedDomain());
+              userRepository.save(u);
+              log.info("Updated the profile of user {}", userId);
+            });
+  }
+}
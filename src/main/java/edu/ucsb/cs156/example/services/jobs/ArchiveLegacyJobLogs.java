@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * This is a Liquibase change (changeset Jobs-7) that moves the logs that older versions stored on
+ * job rows into JOB_LOG_ARCHIVES, as archives of format "lines", and clears them from the job rows.
+ * It runs once, before the app starts, and reads the job rows a batch at a time.
+ */
+public class ArchiveLegacyJobLogs implements CustomTaskChange {
+  static final int BATCH_SIZE = 50;
+
+  private int archived;
+
+  @Override
+  public void execute(Database database) throws CustomChangeException {
+    Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+    try (PreparedStatement select =
+            connection.prepareStatement(
+                "SELECT ID, LOG FROM JOBS WHERE LOG IS NOT NULL AND ID > ? ORDER BY ID");
+        PreparedStatement insert =
+            connection.prepareStatement(
+                "INSERT INTO JOB_LOG_ARCHIVES"
+                    + " (JOB_ID, FORMAT, LINE_COUNT, ORIGINAL_LENGTH, COMPRESSED_LOG)"
+                    + " VALUES (?, ?, ?, ?, ?)");
+        PreparedStatement clear =
+            connection.prepareStatement("UPDATE JOBS SET LOG = NULL WHERE ID = ?")) {
+      select.setMaxRows(BATCH_SIZE);
+      long lastId = 0;
+      int batch;
+      do {
+        select.setLong(1, lastId);
+        batch = 0;
+        try (ResultSet rows = select.executeQuery()) {
+          while (rows.next()) {
+            lastId = rows.getLong(1);
+            JobLogArchive archive = JobLogArchiveService.archiveText(lastId, rows.getString(2));
+            insert.setLong(1, archive.getJobId());
+            insert.setString(2, archive.getFormat());
+            insert.setLong(3, archive.getLineCount());
+            insert.setLong(4, archive.getOriginalLength());
+            insert.setBytes(5, archive.getCompressedLog());
+            insert.executeUpdate();
+            clear.setLong(1, lastId);
+            clear.executeUpdate();
+            batch++;
+          }
+        }
+        archived += batch;
+      } while (batch == BATCH_SIZE);
+    } catch (SQLException e) {
+      throw new CustomChangeException("Cannot archive the logs stored on job rows", e);
+    }
+  }
+
+  @Override
+  public String getConfirmationMessage() {
+    return "Archived the logs of " + archived + " jobs";
+  }
+
+  @Override
+  public void setUp() {}
+
+  @Override
+  public void setFileOpener(ResourceAccessor resourceAccessor) {}
+
+  @Override
+  public ValidationErrors validate(Database database) {
+    return new ValidationErrors();
+  }
+}
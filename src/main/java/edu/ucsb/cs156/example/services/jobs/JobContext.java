@@ -2,19 +2,186 @@ package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
-import lombok.AllArgsConstructor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import lombok.extern.slf4j.Slf4j;
 
-@AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
-  private Job job;
+  private final Job job;
+  private final JobLogWriter logWriter;
+  private final JobsRepository jobsRepository;
+  private final long progressSaveIntervalMs;
+  private long lastProgressSaveMs = 0;
+
+  /** "cancelled" or "timed_out" once the job has been asked to stop */
+  private volatile String cancelStatus;
+
+  /** The thread running the job, while it runs; guarded by this */
+  private Thread thread;
+
+  /** When the job must have finished by, in epoch ms, or 0 if it may run for as long as it likes */
+  private volatile long deadlineMs = 0;
+
+  /** Launches a child job of this job; null if this job cannot spawn children */
+  private Function<JobContextConsumer, Job> childLauncher;
+
+  private final AtomicInteger childCount = new AtomicInteger();
+
+  public JobContext(Job job, JobLogWriter logWriter) {
+    this(job, logWriter, null, 0);
+  }
+
+  /**
+   * Creates a context that saves the progress of the job to its row, at most once every
+   * progressSaveIntervalMs, so that a job reporting progress in a tight loop does not write to the
+   * database on every item.
+   */
+  public JobContext(
+      Job job, JobLogWriter logWriter, JobsRepository jobsRepository, long progressSaveIntervalMs) {
+    this.job = job;
+    this.logWriter = logWriter;
+    this.jobsRepository = jobsRepository;
+    this.progressSaveIntervalMs = progressSaveIntervalMs;
+  }
 
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    if (logWriter != null) logWriter.append(message);
+  }
+
+  /**
+   * Reports the phase the job is in, e.g. "downloading" or "importing".
+   *
+   * @param phase the phase
+   */
+  public void setPhase(String phase) {
+    job.setPhase(phase);
+    saveProgress();
+  }
+
+  /**
+   * Reports how many items the job has processed, out of how many; the percent complete is worked
+   * out from those.
+   *
+   * @param itemsProcessed items processed so far
+   * @param itemsTotal items to process in all, or 0 if not known
+   */
+  public void setProgress(long itemsProcessed, long itemsTotal) {
+    job.setItemsProcessed(itemsProcessed);
+    job.setItemsTotal(itemsTotal);
+    if (itemsTotal > 0) {
+      job.setProgressPercent((int) Math.min(100, itemsProcessed * 100 / itemsTotal));
+    }
+    saveProgress();
+  }
+
+  /**
+   * Reports how far along the job is, for jobs that don't process countable items.
+   *
+   * @param percent percent complete, from 0 to 100
+   */
+  public void setProgress(int percent) {
+    job.setProgressPercent(Math.max(0, Math.min(100, percent)));
+    saveProgress();
+  }
+
+  /**
+   * Whether the job has been asked to stop, because it was cancelled or ran for too long. Jobs that
+   * loop should check this between items, and return early when it is true.
+   *
+   * @return true if the job should stop
+   */
+  public boolean isCancelled() {
+    return cancelStatus != null;
+  }
+
+  /**
+   * Stops the job if it has been asked to stop; a convenient alternative to isCancelled() for jobs
+   * that would rather unwind by throwing.
+   *
+   * @throws InterruptedException if the job should stop
+   */
+  public void throwIfCancelled() throws InterruptedException {
+    if (isCancelled()) {
+      throw new InterruptedException("Job " + cancelStatus);
+    }
+  }
+
+  String getCancelStatus() {
+    return cancelStatus;
+  }
+
+  /**
+   * Asks the job to stop, and interrupts it in case it is blocked, e.g. sleeping or waiting on I/O.
+   * Only the first request counts, so a job that times out after being cancelled stays cancelled.
+   *
+   * @param status the status to give the job when it stops, "cancelled" or "timed_out"
+   */
+  synchronized void cancel(String status) {
+    if (cancelStatus == null) {
+      cancelStatus = status;
+    }
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /** Records that the current thread is running the job, so that cancel() can interrupt it */
+  synchronized void start() {
+    thread = Thread.currentThread();
+  }
+
+  /**
+   * Records that the job has stopped running, so that a late cancel() does not interrupt whatever
+   * the thread runs next.
+   */
+  synchronized void finish() {
+    thread = null;
+  }
+
+  void setDeadlineMs(long deadlineMs) {
+    this.deadlineMs = deadlineMs;
+  }
+
+  boolean isOverdue(long nowMs) {
+    return deadlineMs > 0 && nowMs >= deadlineMs;
+  }
+
+  /**
+   * Launches a child job, which runs concurrently with this job and its other children: a
+   * QueueableJob on whichever instance has a free worker, any other job on this instance. When this
+   * job returns, it waits, without holding a worker, until all of its children have finished, and
+   * then gets a status and log summing up theirs.
+   *
+   * @param child the child job
+   * @return the child's row
+   * @throws org.springframework.core.task.TaskRejectedException if the child cannot be queued or
+   *     run
+   */
+  public Job spawn(JobContextConsumer child) {
+    if (childLauncher == null) {
+      throw new IllegalStateException("Job " + job.getId() + " cannot spawn child jobs");
+    }
+    Job childJob = childLauncher.apply(child);
+    childCount.incrementAndGet();
+    return childJob;
+  }
+
+  boolean hasChildren() {
+    return childCount.get() > 0;
+  }
+
+  void setChildLauncher(Function<JobContextConsumer, Job> childLauncher) {
+    this.childLauncher = childLauncher;
+  }
+
+  private void saveProgress() {
+    long now = System.currentTimeMillis();
+    if (jobsRepository == null || now - lastProgressSaveMs < progressSaveIntervalMs) {
+      return;
+    }
+    lastProgressSaveMs = now;
+    jobsRepository.save(job);
   }
 }
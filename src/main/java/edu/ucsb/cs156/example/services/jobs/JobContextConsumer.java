@@ -1,6 +1,18 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import java.time.Duration;
+
 @FunctionalInterface
 public interface JobContextConsumer {
   void accept(JobContext c) throws Exception;
+
+  /**
+   * How long a job of this type may run before it is stopped and marked "timed_out". Not a getter,
+   * so that it is not serialized with the parameters of a QueueableJob.
+   *
+   * @return the max runtime, or null to use app.jobs.defaultMaxRuntimeMs
+   */
+  default Duration maxRuntime() {
+    return null;
+  }
 }
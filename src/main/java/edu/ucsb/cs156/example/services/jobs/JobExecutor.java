@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * The executor that runs jobs (see JobExecutorConfig), which also reports how busy it is: on a pool
+ * of platform threads, or on a virtual thread per job (see VirtualThreadJobExecutor).
+ */
+public interface JobExecutor extends AsyncTaskExecutor {
+  /**
+   * @return the most jobs that run at once
+   */
+  int getMaxPoolSize();
+
+  /**
+   * @return the number of jobs running now
+   */
+  int getActiveCount();
+
+  /**
+   * @return the number of jobs waiting for a worker
+   */
+  int getQueueSize();
+
+  /**
+   * @return the most jobs that may wait for a worker
+   */
+  int getQueueCapacity();
+}
@@ -0,0 +1,232 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Stores the logs of finished jobs that are longer than app.jobs.log.compressThresholdChars as a
+ * single deflate-compressed row, instead of one row per line, and reads them back a line at a time
+ * without decompressing the whole log into memory.
+ *
+ * <p>Each line is archived as an entry of its own, so a line that contains newlines keeps its seq.
+ * Logs from before log lines were stored separately were kept on the job row as plain text; the
+ * changelog moves them into archives of format "lines" once (see ArchiveLegacyJobLogs).
+ */
+@Slf4j
+@Service
+public class JobLogArchiveService {
+  /** Format of archives that hold the lines of a log, each preceded by its length in bytes */
+  static final String ENTRIES = "entries";
+
+  /** Format of archives that hold the text of a log, whose lines are split on newlines */
+  static final String LINES = "lines";
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Value("${app.jobs.log.compressThresholdChars:65536}")
+  private long compressThresholdChars = 65536;
+
+  @Value("${app.jobs.log.readPageSize:1000}")
+  private int readPageSize = 1000;
+
+  /**
+   * Compresses the log of a finished job into a single row, and deletes its lines, if it is longer
+   * than the threshold. The lines are read a page at a time.
+   *
+   * @param jobId id of the job
+   * @return true if the log was compressed
+   */
+  @Transactional
+  public boolean archiveIfLarge(long jobId) {
+    Long length = jobLogLinesRepository.sumLineLengths(jobId);
+    if (length == null || length <= compressThresholdChars) {
+      return false;
+    }
+
+    Compressor compressor = new Compressor();
+    long lineCount =
+        JobLogLinesRepository.forEachLine(
+            jobLogLinesRepository,
+            jobId,
+            0,
+            readPageSize,
+            line -> {
+              byte[] text = line.getLine().getBytes(StandardCharsets.UTF_8);
+              compressor.write(ByteBuffer.allocate(Integer.BYTES).putInt(text.length).array());
+              compressor.write(text);
+            });
+    jobLogArchivesRepository.save(
+        JobLogArchive.builder()
+            .jobId(jobId)
+            .format(ENTRIES)
+            .lineCount(lineCount)
+            // the length of the log as text, one line per line
+            .originalLength(length + lineCount - 1)
+            .compressedLog(compressor.finish())
+            .build());
+    jobLogLinesRepository.deleteByJobId(jobId);
+    log.info("Job {}: compressed {} log lines ({} chars)", jobId, lineCount, length);
+    return true;
+  }
+
+  /**
+   * Compresses the text of a log that was stored on its job row, whose line boundaries are known
+   * only from its newlines.
+   *
+   * @param jobId id of the job
+   * @param text the log
+   * @return the archive
+   */
+  static JobLogArchive archiveText(long jobId, String text) {
+    Compressor compressor = new Compressor();
+    compressor.write(text.getBytes(StandardCharsets.UTF_8));
+    return JobLogArchive.builder()
+        .jobId(jobId)
+        .format(LINES)
+        .lineCount(text.chars().filter(c -> c == '\n').count() + 1)
+        .originalLength(text.length())
+        .compressedLog(compressor.finish())
+        .build();
+  }
+
+  /**
+   * Writes the compressed log of a job, if it has one, as text with one line per line.
+   *
+   * @param jobId id of the job
+   * @param out where to write the log
+   * @return false if the log of the job is not compressed
+   */
+  public boolean writeArchivedLog(long jobId, Writer out) {
+    Optional<JobLogArchive> archive = jobLogArchivesRepository.findById(jobId);
+    if (archive.isEmpty()) {
+      return false;
+    }
+    try {
+      if (LINES.equals(archive.get().getFormat())) {
+        try (BufferedReader reader = openText(archive.get())) {
+          reader.transferTo(out);
+        }
+      } else {
+        forEachEntry(
+            archive.get(),
+            (seq, line) -> {
+              if (seq > 0) {
+                out.write('\n');
+              }
+              out.write(line);
+            });
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read compressed log of job " + jobId, e);
+    }
+    return true;
+  }
+
+  /**
+   * Passes the lines of the compressed log of a job, starting at line fromSeq, to a consumer, if
+   * the job has a compressed log.
+   *
+   * @param jobId id of the job
+   * @param fromSeq seq of the first line to pass on
+   * @param consumer receives the lines
+   * @return false if the log of the job is not compressed
+   */
+  public boolean forEachArchivedLine(long jobId, long fromSeq, Consumer<JobLogLine> consumer) {
+    Optional<JobLogArchive> archive = jobLogArchivesRepository.findById(jobId);
+    if (archive.isEmpty()) {
+      return false;
+    }
+    try {
+      forEachEntry(
+          archive.get(),
+          (seq, line) -> {
+            if (seq >= fromSeq) {
+              consumer.accept(JobLogLine.builder().jobId(jobId).seq(seq).line(line).build());
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read compressed log of job " + jobId, e);
+    }
+    return true;
+  }
+
+  /** Deflates the bytes written to it into a byte array, a piece at a time */
+  private static class Compressor {
+    private final Deflater deflater = new Deflater();
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final byte[] buffer = new byte[8192];
+
+    void write(byte[] input) {
+      deflater.setInput(input);
+      while (!deflater.needsInput()) {
+        bytes.write(buffer, 0, deflater.deflate(buffer));
+      }
+    }
+
+    byte[] finish() {
+      deflater.finish();
+      while (!deflater.finished()) {
+        bytes.write(buffer, 0, deflater.deflate(buffer));
+      }
+      deflater.end();
+      return bytes.toByteArray();
+    }
+  }
+
+  /** Receives the lines of an archive, with their seq */
+  private interface EntryConsumer {
+    void accept(long seq, String line) throws IOException;
+  }
+
+  private static void forEachEntry(JobLogArchive archive, EntryConsumer consumer)
+      throws IOException {
+    if (LINES.equals(archive.getFormat())) {
+      try (BufferedReader reader = openText(archive)) {
+        long seq = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine(), seq++) {
+          consumer.accept(seq, line);
+        }
+      }
+      return;
+    }
+    try (DataInputStream in = new DataInputStream(inflate(archive))) {
+      for (long seq = 0; seq < archive.getLineCount(); seq++) {
+        byte[] line = new byte[in.readInt()];
+        in.readFully(line);
+        consumer.accept(seq, new String(line, StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  private static InputStream inflate(JobLogArchive archive) {
+    return new InflaterInputStream(new ByteArrayInputStream(archive.getCompressedLog()));
+  }
+
+  private static BufferedReader openText(JobLogArchive archive) {
+    return new BufferedReader(new InputStreamReader(inflate(archive), StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+
+/**
+ * Receives the log lines of a job as they are produced, e.g. to stream them to a client. A listener
+ * that can take no more lines, e.g. because its client has gone, should throw from onLine; it then
+ * gets no more calls.
+ */
+public interface JobLogListener {
+  /**
+   * Called for each log line, in order of seq.
+   *
+   * @param line the log line
+   */
+  void onLine(JobLogLine line);
+
+  /**
+   * Called once the job has finished; no more lines will follow.
+   *
+   * @param status the final status of the job
+   */
+  void onJobFinished(String status);
+
+  /**
+   * Called instead of any further lines when the listener has fallen too far behind the job. The
+   * lines it missed are in the job_log_lines table, so a client can reconnect and pick up from
+   * there.
+   */
+  default void onOverflow() {}
+}
@@ -0,0 +1,265 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffers the log lines of a single job and appends them to the job_log_lines table in batches.
+ *
+ * <p>The buffer is flushed when it holds batchSize lines, or when a line is appended more than
+ * flushIntervalMs after the previous flush. Callers should call close() when the job ends so that
+ * no lines are left behind.
+ *
+ * <p>Listeners are notified of each line as soon as it is appended, without waiting for the buffer
+ * to be flushed. The lines are handed to each listener on the delivery executor, not on the job's
+ * thread, so that a slow client never holds up the job: each listener has a queue of at most
+ * listenerQueueCapacity lines, and a listener that falls further behind than that is dropped and
+ * told so (see JobLogListener.onOverflow). A listener whose onLine throws is dropped too.
+ */
+@Slf4j
+public class JobLogWriter {
+  /** Delivers lines on the caller's thread; for writers that have no listeners worth isolating */
+  private static final Executor CALLER_RUNS = Runnable::run;
+
+  private static final int DEFAULT_LISTENER_QUEUE_CAPACITY = 1000;
+
+  private static final int DEFAULT_READ_PAGE_SIZE = 1000;
+
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final long jobId;
+  private final int batchSize;
+  private final long flushIntervalMs;
+
+  private final List<JobLogLine> buffer = new ArrayList<>();
+  private long nextSeq;
+  private long lastFlushMs = System.currentTimeMillis();
+  private final Executor deliveryExecutor;
+  private final int listenerQueueCapacity;
+  private final int readPageSize;
+  private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+  private String finalStatus = null;
+
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      int batchSize,
+      long flushIntervalMs) {
+    this(
+        jobLogLinesRepository,
+        jobId,
+        batchSize,
+        flushIntervalMs,
+        0,
+        CALLER_RUNS,
+        DEFAULT_LISTENER_QUEUE_CAPACITY,
+        DEFAULT_READ_PAGE_SIZE);
+  }
+
+  /**
+   * Creates a writer that continues a log that already has lines, e.g. that of a job being re-run
+   * after a crash.
+   *
+   * @param firstSeq seq of the first line this writer appends
+   * @param deliveryExecutor the executor on which lines are handed to listeners
+   * @param listenerQueueCapacity how many lines a listener may fall behind before it is dropped
+   * @param readPageSize how many lines to read at a time when a listener catches up
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      int batchSize,
+      long flushIntervalMs,
+      long firstSeq,
+      Executor deliveryExecutor,
+      int listenerQueueCapacity,
+      int readPageSize) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.jobId = jobId;
+    this.batchSize = batchSize;
+    this.flushIntervalMs = flushIntervalMs;
+    this.nextSeq = firstSeq;
+    this.deliveryExecutor = deliveryExecutor;
+    this.listenerQueueCapacity = listenerQueueCapacity;
+    this.readPageSize = readPageSize;
+  }
+
+  public void append(String line) {
+    List<Subscription> targets;
+    synchronized (this) {
+      JobLogLine logLine = JobLogLine.builder().jobId(jobId).seq(nextSeq++).line(line).build();
+      buffer.add(logLine);
+      // queued in seq order while the lock is held; delivered after it is released
+      targets = List.copyOf(subscriptions);
+      targets.forEach(subscription -> subscription.enqueue(logLine));
+      if (buffer.size() >= batchSize
+          || System.currentTimeMillis() - lastFlushMs >= flushIntervalMs) {
+        flush();
+      }
+    }
+    targets.forEach(Subscription::deliver);
+  }
+
+  public synchronized void flush() {
+    lastFlushMs = System.currentTimeMillis();
+    if (buffer.isEmpty()) {
+      return;
+    }
+    jobLogLinesRepository.saveAll(new ArrayList<>(buffer));
+    buffer.clear();
+  }
+
+  /**
+   * Sends the lines already logged, starting at fromSeq, to the listener, and then subscribes it to
+   * the lines that follow. If the job has already finished, the listener is told so once it has
+   * been sent the lines already logged.
+   *
+   * <p>The lines already logged are read from the table readPageSize lines at a time, on the
+   * delivery executor and without holding the writer's lock, so that the job can keep logging while
+   * the listener catches up. The lines the job logs meanwhile wait in the listener's queue.
+   *
+   * @param fromSeq seq of the first line the listener wants
+   * @param listener the listener
+   */
+  public void subscribe(long fromSeq, JobLogListener listener) {
+    Subscription subscription = new Subscription(listener);
+    synchronized (this) {
+      flush();
+      long replayToSeq = nextSeq;
+      if (fromSeq < replayToSeq) {
+        subscription.replay(fromSeq, replayToSeq);
+      }
+      if (finalStatus != null) {
+        subscription.finish(finalStatus);
+      } else {
+        subscriptions.add(subscription);
+      }
+    }
+    subscription.deliver();
+  }
+
+  public void unsubscribe(JobLogListener listener) {
+    subscriptions.stream()
+        .filter(subscription -> subscription.listener == listener)
+        .forEach(Subscription::drop);
+  }
+
+  /**
+   * Flushes the remaining lines and tells all listeners that the job has finished, once they have
+   * been sent the lines before.
+   *
+   * @param status the final status of the job
+   */
+  public void close(String status) {
+    List<Subscription> closed;
+    synchronized (this) {
+      flush();
+      finalStatus = status;
+      closed = new ArrayList<>(subscriptions);
+      subscriptions.clear();
+      closed.forEach(subscription -> subscription.finish(status));
+    }
+    closed.forEach(Subscription::deliver);
+  }
+
+  public int getListenerCount() {
+    return subscriptions.size();
+  }
+
+  public synchronized int getBufferedLineCount() {
+    return buffer.size();
+  }
+
+  /**
+   * A listener with the lines waiting to be sent to it. At most one delivery task per listener runs
+   * at a time, so the listener gets its lines in order.
+   */
+  private class Subscription {
+    private final JobLogListener listener;
+    private final Queue<Runnable> pending = new ArrayBlockingQueue<>(listenerQueueCapacity + 1);
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private volatile boolean dropped = false;
+
+    Subscription(JobLogListener listener) {
+      this.listener = listener;
+    }
+
+    /** Queues a line; called with the writer locked */
+    void enqueue(JobLogLine line) {
+      if (pending.size() >= listenerQueueCapacity) {
+        log.info(
+            "Job %s: dropping log listener that is %d lines behind"
+                .formatted(jobId, pending.size()));
+        subscriptions.remove(this);
+        // the spare slot holds the overflow notice, which is the last thing the listener gets
+        pending.offer(listener::onOverflow);
+        return;
+      }
+      pending.offer(() -> listener.onLine(line));
+    }
+
+    /** Queues the lines already in the table; called with the writer locked, before any line */
+    void replay(long fromSeq, long toSeq) {
+      pending.offer(
+          () ->
+              JobLogLinesRepository.forEachLine(
+                  jobLogLinesRepository,
+                  jobId,
+                  fromSeq,
+                  toSeq,
+                  readPageSize,
+                  line -> {
+                    if (!dropped) {
+                      listener.onLine(line);
+                    }
+                  }));
+    }
+
+    /** Queues the end of the log; called with the writer locked */
+    void finish(String status) {
+      pending.offer(() -> listener.onJobFinished(status));
+    }
+
+    /** Stops sending lines to the listener, including those already queued */
+    void drop() {
+      dropped = true;
+      subscriptions.remove(this);
+      pending.clear();
+    }
+
+    /** Hands the queued lines to the listener on the delivery executor */
+    void deliver() {
+      if (!pending.isEmpty() && delivering.compareAndSet(false, true)) {
+        try {
+          deliveryExecutor.execute(this::drain);
+        } catch (RuntimeException e) {
+          // e.g. the executor is shutting down; the client can reconnect and resume from the table
+          log.info("Job %s: cannot deliver log lines: %s".formatted(jobId, e.getMessage()));
+          drop();
+        }
+      }
+    }
+
+    private void drain() {
+      Runnable event;
+      while (!dropped && (event = pending.poll()) != null) {
+        try {
+          event.run();
+        } catch (RuntimeException e) {
+          log.info("Job %s: dropping log listener: %s".formatted(jobId, e.getMessage()));
+          drop();
+        }
+      }
+      delivering.set(false);
+      // an event may have been queued after the last poll but before delivering was cleared
+      deliver();
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Runs the jobs queued in the jobs table. Every instance of the app polls the table, claims as many
+ * queued jobs as it has free workers, and leases them while they run (see JobService). Jobs whose
+ * lease has expired, because the instance running them died, are put back on the queue if they can
+ * be re-run, and marked "error" otherwise.
+ */
+@Slf4j
+@Service
+public class JobQueueService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobService jobService;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Lazy @Autowired private JobQueueService self;
+
+  @Autowired
+  @Qualifier("jobExecutor")
+  private JobExecutor jobExecutor;
+
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs:1000}")
+  public void poll() {
+    self.recoverExpiredLeases();
+
+    int freeWorkers =
+        jobExecutor.getMaxPoolSize() - jobExecutor.getActiveCount() - jobExecutor.getQueueSize();
+    if (freeWorkers <= 0) {
+      return;
+    }
+
+    for (Job job : self.claimQueuedJobs(freeWorkers)) {
+      dispatch(job);
+    }
+  }
+
+  /**
+   * Marks up to limit queued jobs as running and leases them to this instance.
+   *
+   * @param limit the most jobs to claim
+   * @return the claimed jobs
+   */
+  @Transactional
+  public List<Job> claimQueuedJobs(int limit) {
+    List<Job> jobs = jobsRepository.lockQueuedJobs(PageRequest.of(0, limit));
+    for (Job job : jobs) {
+      job.setStatus("running");
+      jobService.renewLease(job);
+    }
+    jobsRepository.saveAll(jobs);
+    return jobs;
+  }
+
+  /**
+   * Takes back the jobs whose lease has expired. A queued job is put back on the queue to be run
+   * again from the start; any other job cannot be rebuilt, so it is marked "error". A job that was
+   * being cancelled is marked "cancelled".
+   */
+  @Transactional
+  public void recoverExpiredLeases() {
+    for (Job job : jobsRepository.lockJobsWithExpiredLease(ZonedDateTime.now())) {
+      String message;
+      if (job.getCancelRequested()) {
+        job.setStatus("cancelled");
+        message = "Lease held by " + job.getLeaseOwner() + " expired; job was being cancelled";
+      } else if (job.getJobType() != null) {
+        job.setStatus("queued");
+        message = "Lease held by " + job.getLeaseOwner() + " expired; job re-queued";
+      } else {
+        job.setStatus("error");
+        message = "Lease held by " + job.getLeaseOwner() + " expired; job cannot be re-run";
+      }
+      log.warn("Job {}: {}", job.getId(), message);
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+      jobService.appendJobLog(job, message);
+      if (!"queued".equals(job.getStatus())) {
+        jobService.notifyParent(job);
+      }
+    }
+  }
+
+  private void dispatch(Job job) {
+    JobContextConsumer jobFunction;
+    try {
+      jobFunction = toJobFunction(job);
+    } catch (Exception e) {
+      log.error("Job {}: cannot run job of type {}", job.getId(), job.getJobType(), e);
+      job.setStatus("error");
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+      jobService.appendJobLog(job, "Cannot run job of type " + job.getJobType() + ": " + e);
+      jobService.notifyParent(job);
+      return;
+    }
+
+    try {
+      jobService.startJob(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      // the job is back on the queue; another instance, or a later poll, will pick it up
+      log.info("Job {}: executor is full, job re-queued", job.getId());
+    }
+  }
+
+  private JobContextConsumer toJobFunction(Job job) throws Exception {
+    // don't initialize classes that aren't jobs
+    Class<?> type = Class.forName(job.getJobType(), false, getClass().getClassLoader());
+    if (!QueueableJob.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException(type.getName() + " is not a QueueableJob");
+    }
+    return (JobContextConsumer) mapper.readValue(job.getJobParams(), type);
+  }
+}
@@ -0,0 +1,153 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.models.JobPurgeReport;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Deletes old jobs, and their log lines, according to the retention policy:
+ *
+ * <ul>
+ *   <li>jobs older than app.jobs.retention.maxAgeDays are deleted;
+ *   <li>when there are more than app.jobs.retention.maxRows jobs, the oldest are deleted.
+ * </ul>
+ *
+ * Only jobs with one of app.jobs.retention.statuses (i.e. jobs that have finished) are ever
+ * deleted. A limit of 0 turns that rule off. Jobs are deleted batchSize at a time, each batch with
+ * one DELETE per table in its own transaction, so a purge never holds locks on many rows at once.
+ */
+@Slf4j
+@Service
+public class JobRetentionService {
+  /** The statuses of jobs that have finished */
+  public static final List<String> FINISHED_STATUSES =
+      List.of("complete", "error", "rejected", "cancelled", "timed_out");
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Lazy @Autowired private JobRetentionService self;
+
+  @Value("${app.jobs.retention.maxAgeDays:30}")
+  private int maxAgeDays = 30;
+
+  @Value("${app.jobs.retention.maxRows:10000}")
+  private long maxRows = 10000;
+
+  @Value("${app.jobs.retention.statuses:complete,error,rejected,cancelled,timed_out}")
+  private List<String> statuses = FINISHED_STATUSES;
+
+  @Value("${app.jobs.retention.batchSize:500}")
+  private int batchSize = 500;
+
+  @Scheduled(fixedDelayString = "${app.jobs.retention.purgeIntervalMs:3600000}")
+  public void purgeOnSchedule() {
+    purge();
+  }
+
+  /**
+   * Deletes the jobs that the retention policy no longer keeps.
+   *
+   * @return how many jobs were deleted, and why
+   */
+  public JobPurgeReport purge() {
+    long purgedByAge = 0;
+    if (maxAgeDays > 0) {
+      ZonedDateTime cutoff = ZonedDateTime.now().minusDays(maxAgeDays);
+      purgedByAge =
+          purgeInBatches(
+              Long.MAX_VALUE,
+              limit ->
+                  jobsRepository.findIdsByStatusInCreatedBefore(
+                      statuses, cutoff, PageRequest.of(0, limit)));
+    }
+
+    long purgedByCount = 0;
+    if (maxRows > 0) {
+      long excess = jobsRepository.count() - maxRows;
+      purgedByCount =
+          purgeInBatches(
+              excess,
+              limit -> jobsRepository.findIdsByStatusIn(statuses, PageRequest.of(0, limit)));
+    }
+
+    JobPurgeReport report =
+        JobPurgeReport.builder()
+            .purgedByAge(purgedByAge)
+            .purgedByCount(purgedByCount)
+            .totalPurged(purgedByAge + purgedByCount)
+            .build();
+    log.info(
+        "Job retention purge deleted {} jobs ({} by age, {} by count)",
+        report.getTotalPurged(),
+        purgedByAge,
+        purgedByCount);
+    return report;
+  }
+
+  /**
+   * Deletes every job that has finished, and its logs, batchSize at a time. Queued and running jobs
+   * are kept, since their writers and heartbeats still use their rows.
+   *
+   * @return the number of jobs deleted
+   */
+  public long deleteAllFinished() {
+    long deleted =
+        purgeInBatches(
+            Long.MAX_VALUE,
+            limit -> jobsRepository.findIdsByStatusIn(FINISHED_STATUSES, PageRequest.of(0, limit)));
+    log.info("Deleted all {} finished jobs", deleted);
+    return deleted;
+  }
+
+  /**
+   * Deletes up to max jobs, a batch at a time, until there are none left to delete.
+   *
+   * @param max the most jobs to delete
+   * @param nextBatch returns the ids of at most the given number of jobs to delete next
+   * @return the number of jobs deleted
+   */
+  private long purgeInBatches(long max, IntFunction<List<Long>> nextBatch) {
+    long purged = 0;
+    while (purged < max) {
+      int limit = (int) Math.min(batchSize, max - purged);
+      List<Long> ids = nextBatch.apply(limit);
+      if (ids.isEmpty()) {
+        break;
+      }
+      purged += self.deleteJobs(ids);
+      if (ids.size() < limit) {
+        break;
+      }
+    }
+    return purged;
+  }
+
+  /**
+   * Deletes jobs and their logs in one transaction.
+   *
+   * @param ids ids of the jobs
+   * @return the number of jobs deleted
+   */
+  @Transactional
+  public int deleteJobs(List<Long> ids) {
+    jobLogLinesRepository.deleteByJobIdIn(ids);
+    jobLogArchivesRepository.deleteByJobIdIn(ids);
+    return jobsRepository.deleteByIdIn(ids);
+  }
+}
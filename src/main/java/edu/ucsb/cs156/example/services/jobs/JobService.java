@@ -1,53 +1,713 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class JobService {
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Autowired private JobLogArchiveService jobLogArchiveService;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private MeterRegistry meterRegistry;
+
   @Lazy @Autowired private JobService self;
 
+  @Autowired
+  @Qualifier("jobExecutor")
+  private JobExecutor jobExecutor;
+
+  @Autowired
+  @Qualifier("jobLogStreamExecutor")
+  private TaskExecutor jobLogStreamExecutor;
+
+  @Value("${app.jobs.log.batchSize:100}")
+  private int logBatchSize = 100;
+
+  @Value("${app.jobs.log.flushIntervalMs:1000}")
+  private long logFlushIntervalMs = 1000;
+
+  @Value("${app.jobs.log.readPageSize:1000}")
+  private int logReadPageSize = 1000;
+
+  @Value("${app.jobs.log.listenerQueueCapacity:1000}")
+  private int logListenerQueueCapacity = 1000;
+
+  @Value("${app.jobs.progress.saveIntervalMs:2000}")
+  private long progressSaveIntervalMs = 2000;
+
+  @Value("${app.jobs.executor.queueCapacity:100}")
+  private int queueCapacity = 100;
+
+  @Value("${app.jobs.executor.rejectionPolicy:reject}")
+  private String rejectionPolicy = "reject";
+
+  @Value("${app.jobs.queue.leaseDurationMs:60000}")
+  private long leaseDurationMs = 60000;
+
+  /** How long a job may run, unless its type says otherwise; 0 means no limit */
+  @Value("${app.jobs.defaultMaxRuntimeMs:0}")
+  private long defaultMaxRuntimeMs = 0;
+
+  /** Identifies this instance as the owner of the jobs it leases */
+  @Getter
+  @Value("${app.jobs.queue.workerId:${random.uuid}}")
+  private String workerId = UUID.randomUUID().toString();
+
+  /** Statuses of jobs that have not finished yet */
+  private static final Set<String> UNFINISHED_STATUSES = Set.of("queued", "running", "waiting");
+
+  /** Log writers of the jobs that are currently running, keyed by job id */
+  private final Map<Long, JobLogWriter> activeLogWriters = new ConcurrentHashMap<>();
+
+  /** Jobs leased to this instance that have not finished yet, keyed by job id */
+  private final Map<Long, Job> activeJobs = new ConcurrentHashMap<>();
+
+  /** Contexts of the jobs in activeJobs, through which they are cancelled, keyed by job id */
+  private final Map<Long, JobContext> activeContexts = new ConcurrentHashMap<>();
+
+  /** Listeners following the logs of unfinished jobs that are not running on this instance */
+  private final Set<LogTail> logTails = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Launches a job. A QueueableJob is stored in the jobs table with status "queued" and later
+   * claimed by the poller of whichever instance has a free worker (see JobQueueService); any other
+   * job is leased to this instance and handed to the executor right away.
+   *
+   * @param jobFunction the job
+   * @return the job row
+   * @throws TaskRejectedException if the queue is full
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return launch(Job.builder().createdBy(currentUserService.getUser()).build(), jobFunction);
+  }
+
+  /**
+   * Launches a child job of a running job, on behalf of the user who launched the parent (see
+   * JobContext.spawn).
+   *
+   * @param parent the parent job
+   * @param jobFunction the child job
+   * @return the child's row
+   */
+  public Job spawnChild(Job parent, JobContextConsumer jobFunction) {
+    Job child = Job.builder().createdBy(parent.getCreatedBy()).parentJobId(parent.getId()).build();
+    return launch(child, jobFunction);
+  }
 
+  private Job launch(Job job, JobContextConsumer jobFunction) {
+    if (jobFunction instanceof QueueableJob queueableJob) {
+      return enqueue(job, queueableJob);
+    }
+
+    job.setStatus("running");
+    renewLease(job);
     jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+    startJob(job, jobFunction);
+    return job;
+  }
 
+  private Job enqueue(Job job, QueueableJob jobFunction) {
+    if ("reject".equals(rejectionPolicy)
+        && jobsRepository.countByStatus("queued") >= queueCapacity) {
+      throw new TaskRejectedException("Job queue is full");
+    }
+
+    job.setStatus("queued");
+    job.setJobType(jobFunction.getClass().getName());
+    try {
+      job.setJobParams(mapper.writeValueAsString(jobFunction));
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Cannot queue job of type " + job.getJobType() + ": " + e.getMessage(), e);
+    }
+    jobsRepository.save(job);
     return job;
   }
 
-  @Async
+  /**
+   * Hands a job that is marked running and leased to this instance to the executor. If the executor
+   * is full, the lease is given up, and the job goes back to "queued" if it came from the queue, or
+   * is marked "rejected" if it cannot be queued.
+   *
+   * @param job the job row
+   * @param jobFunction the job
+   * @throws TaskRejectedException if the executor is full
+   */
+  public void startJob(Job job, JobContextConsumer jobFunction) {
+    activeJobs.put(job.getId(), job);
+    // register the log writer now, so that the log of a job that is still queued can be streamed
+    JobLogWriter logWriter = getOrCreateLogWriter(job);
+    // ...and the context now, so that it can be cancelled before it starts
+    getOrCreateContext(job, logWriter);
+    try {
+      self.runJobAsync(job, jobFunction);
+    } catch (TaskRejectedException e) {
+      activeJobs.remove(job.getId());
+      activeContexts.remove(job.getId());
+      activeLogWriters.remove(job.getId());
+      job.setLeaseExpiresAt(null);
+      job.setStatus(job.getJobType() != null ? "queued" : "rejected");
+      jobsRepository.save(job);
+      logWriter.close(job.getStatus());
+      throw e;
+    }
+  }
+
+  private JobLogWriter getOrCreateLogWriter(Job job) {
+    return activeLogWriters.computeIfAbsent(job.getId(), this::newLogWriter);
+  }
+
+  private JobContext getOrCreateContext(Job job, JobLogWriter logWriter) {
+    return activeContexts.computeIfAbsent(
+        job.getId(),
+        id -> {
+          JobContext context =
+              new JobContext(job, logWriter, jobsRepository, progressSaveIntervalMs);
+          context.setChildLauncher(child -> spawnChild(job, child));
+          return context;
+        });
+  }
+
+  private JobLogWriter newLogWriter(long jobId) {
+    // a job that is re-run after a crash keeps the lines it logged before
+    long firstSeq =
+        jobLogLinesRepository
+            .findFirstByJobIdOrderBySeqDesc(jobId)
+            .map(line -> line.getSeq() + 1)
+            .orElse(0L);
+    return new JobLogWriter(
+        jobLogLinesRepository,
+        jobId,
+        logBatchSize,
+        logFlushIntervalMs,
+        firstSeq,
+        jobLogStreamExecutor,
+        logListenerQueueCapacity,
+        logReadPageSize);
+  }
+
+  /**
+   * Appends a line to the log of a job that is not running on this instance.
+   *
+   * @param job the job
+   * @param line the line
+   */
+  public void appendJobLog(Job job, String line) {
+    JobLogWriter logWriter = newLogWriter(job.getId());
+    logWriter.append(line);
+    logWriter.flush();
+  }
+
+  @Async("jobExecutor")
   public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+    JobLogWriter logWriter = getOrCreateLogWriter(job);
+    JobContext context = getOrCreateContext(job, logWriter);
 
+    ZonedDateTime startedAt = ZonedDateTime.now();
+    job.setStartedAt(startedAt);
+    Duration maxRuntime = jobFunction.maxRuntime();
+    long maxRuntimeMs = maxRuntime != null ? maxRuntime.toMillis() : defaultMaxRuntimeMs;
+    if (maxRuntimeMs > 0) {
+      context.setDeadlineMs(startedAt.toInstant().toEpochMilli() + maxRuntimeMs);
+    }
+    if (job.getCreatedAt() != null) {
+      Timer.builder("jobs.queue.latency")
+          .description("Time from launching a job until it starts running")
+          .tag("type", jobTypeTag(job))
+          .register(meterRegistry)
+          .record(Duration.between(job.getCreatedAt(), startedAt));
+    }
+
+    context.start();
     try {
-      jobFunction.accept(context);
+      // a job cancelled while it waited for a worker never runs
+      if (!context.isCancelled()) {
+        jobFunction.accept(context);
+      }
+      job.setStatus("complete");
     } catch (Exception e) {
       job.setStatus("error");
-      context.log(e.getMessage());
+      // a cancelled job typically fails with an InterruptedException, which is not worth logging
+      if (!context.isCancelled()) {
+        context.log(e.getMessage());
+      }
+    } finally {
+      context.finish();
+      // clear an interrupt that arrived after the job stopped checking for one, so that it
+      // doesn't hit the next job run on this thread
+      Thread.interrupted();
+    }
+
+    if (context.isCancelled()) {
+      job.setStatus(context.getCancelStatus());
+      context.log(
+          "timed_out".equals(context.getCancelStatus())
+              ? "Job stopped after running for longer than " + maxRuntimeMs + " ms"
+              : "Job cancelled");
+    }
+    if (context.hasChildren() && "complete".equals(job.getStatus())) {
+      job.setStatus("waiting");
+      context.log("Waiting for child jobs to finish");
+    }
+
+    job.setCompletedAt(ZonedDateTime.now());
+    Timer.builder("jobs.execution")
+        .description("Time jobs spend running, by outcome")
+        .tag("type", jobTypeTag(job))
+        .tag("status", job.getStatus())
+        .register(meterRegistry)
+        .record(Duration.between(startedAt, job.getCompletedAt()));
+
+    try {
+      logWriter.flush();
+      activeJobs.remove(job.getId());
+      activeContexts.remove(job.getId());
+      job.setLeaseExpiresAt(null);
+      jobsRepository.save(job);
+    } finally {
+      activeLogWriters.remove(job.getId());
+      logWriter.close(job.getStatus());
+    }
+
+    if ("waiting".equals(job.getStatus())) {
+      // the children may all have finished already
+      self.onChildFinished(job.getId());
+    } else {
+      if (context.hasChildren()) {
+        // a parent that failed or was stopped has no use for the rest of its children
+        cancelUnfinishedChildren(job.getId());
+      }
+      // the log is complete, so it can now be compressed if it is large
+      jobLogArchiveService.archiveIfLarge(job.getId());
+    }
+    notifyParent(job);
+  }
+
+  /**
+   * Lets the parent of a job that has finished know, so that the parent finishes once all of its
+   * children have.
+   *
+   * @param job a job that has finished
+   */
+  public void notifyParent(Job job) {
+    if (job.getParentJobId() != null) {
+      self.onChildFinished(job.getParentJobId());
+    }
+  }
+
+  /**
+   * Updates the progress of a parent job that is waiting for its children, and, once they have all
+   * finished, gives it a status and log summing up theirs: "complete" if they all completed,
+   * "error" if any failed or timed out, and "cancelled" otherwise. The parent row is locked, so
+   * that when the last children finish at the same time, only one of them rolls the parent up.
+   *
+   * @param parentJobId the id of the parent job
+   */
+  @Transactional
+  public void onChildFinished(long parentJobId) {
+    Job parent = jobsRepository.lockById(parentJobId).orElse(null);
+    if (parent == null || !"waiting".equals(parent.getStatus())) {
+      // the parent is still running, and will check on its children when it returns
       return;
     }
 
-    job.setStatus("complete");
-    jobsRepository.save(job);
+    List<JobSummary> children = jobsRepository.findChildSummaries(parentJobId);
+    List<JobSummary> finished =
+        children.stream()
+            .filter(child -> !UNFINISHED_STATUSES.contains(child.getStatus()))
+            .toList();
+    parent.setItemsProcessed((long) finished.size());
+    parent.setItemsTotal((long) children.size());
+    parent.setProgressPercent(finished.size() * 100 / children.size());
+    if (finished.size() < children.size()) {
+      jobsRepository.save(parent);
+      return;
+    }
+
+    Map<String, Long> statusCounts =
+        children.stream()
+            .collect(
+                Collectors.groupingBy(JobSummary::getStatus, TreeMap::new, Collectors.counting()));
+    parent.setStatus(rollUpStatus(statusCounts.keySet()));
+    parent.setCompletedAt(ZonedDateTime.now());
+    jobsRepository.save(parent);
+
+    JobLogWriter logWriter = newLogWriter(parentJobId);
+    for (JobSummary child : children) {
+      logWriter.append("Child job %d: %s".formatted(child.getId(), child.getStatus()));
+    }
+    logWriter.append("All child jobs finished: " + statusCounts);
+    logWriter.flush();
+    jobLogArchiveService.archiveIfLarge(parentJobId);
+    notifyParent(parent);
+  }
+
+  private static String rollUpStatus(Set<String> childStatuses) {
+    if (childStatuses.equals(Set.of("complete"))) {
+      return "complete";
+    }
+    if (childStatuses.contains("error")
+        || childStatuses.contains("timed_out")
+        || childStatuses.contains("rejected")) {
+      return "error";
+    }
+    return "cancelled";
+  }
+
+  private void cancelUnfinishedChildren(long parentJobId) {
+    jobsRepository.findChildSummaries(parentJobId).stream()
+        .filter(child -> UNFINISHED_STATUSES.contains(child.getStatus()))
+        .forEach(child -> cancelJob(child.getId()));
+  }
+
+  /** The type of a job as a metric tag: the simple class name of a queued job */
+  private static String jobTypeTag(Job job) {
+    String jobType = job.getJobType();
+    return jobType != null ? jobType.substring(jobType.lastIndexOf('.') + 1) : "in-memory";
+  }
+
+  /**
+   * Leases a job to this instance for the next leaseDurationMs.
+   *
+   * @param job the job; its lease fields are updated but it is not saved
+   */
+  public void renewLease(Job job) {
+    ZonedDateTime now = ZonedDateTime.now();
+    job.setLeaseOwner(workerId);
+    job.setHeartbeatAt(now);
+    job.setLeaseExpiresAt(now.plus(Duration.ofMillis(leaseDurationMs)));
+  }
+
+  /**
+   * Periodically renews the leases of the jobs this instance is running or has queued on its
+   * executor, so that other instances do not take them over. If this instance dies, its leases
+   * expire and the jobs are recovered by JobQueueService.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.heartbeatIntervalMs:10000}")
+  public void sendHeartbeats() {
+    // jobs cancelled through another instance
+    jobsRepository.findIdsToCancel(workerId).forEach(this::cancelLocally);
+
+    // computeIfPresent is atomic with the removal of a job that finishes meanwhile, so a
+    // heartbeat never overwrites the end state of a job
+    activeJobs
+        .keySet()
+        .forEach(
+            jobId ->
+                activeJobs.computeIfPresent(
+                    jobId,
+                    (id, job) -> {
+                      renewLease(job);
+                      jobsRepository.save(job);
+                      return job;
+                    }));
+  }
+
+  /**
+   * Asks a job to stop. A queued job is cancelled straight away; a running job is asked to stop,
+   * and is marked "cancelled" when it does. A job running on another instance is cancelled by that
+   * instance on its next heartbeat. Cancelling a job that is waiting for its children cancels them.
+   *
+   * @param jobId the id of the job
+   * @return true if the job was queued or running, false if it had already finished
+   */
+  public boolean cancelJob(long jobId) {
+    if (jobsRepository.cancelQueuedJob(jobId, ZonedDateTime.now()) == 1) {
+      appendJobLog(Job.builder().id(jobId).build(), "Job cancelled before it started");
+      jobsRepository.findById(jobId).ifPresent(this::notifyParent);
+      return true;
+    }
+    // record the request even for jobs running here, so that if this instance dies, the job is
+    // not re-queued by the instance that recovers it
+    if (jobsRepository.requestCancel(jobId) == 1) {
+      cancelLocally(jobId);
+      return true;
+    }
+    // a parent waiting for its children is cancelled once they are
+    List<JobSummary> unfinishedChildren =
+        jobsRepository.findChildSummaries(jobId).stream()
+            .filter(child -> UNFINISHED_STATUSES.contains(child.getStatus()))
+            .toList();
+    unfinishedChildren.forEach(child -> cancelJob(child.getId()));
+    return !unfinishedChildren.isEmpty();
+  }
+
+  private void cancelLocally(long jobId) {
+    JobContext context = activeContexts.get(jobId);
+    if (context != null) {
+      context.cancel("cancelled");
+    }
+  }
+
+  /** Periodically stops the jobs that have been running for longer than they may */
+  @Scheduled(fixedDelayString = "${app.jobs.timeoutCheckIntervalMs:1000}")
+  public void stopOverdueJobs() {
+    long now = System.currentTimeMillis();
+    activeContexts.values().stream()
+        .filter(context -> context.isOverdue(now))
+        .forEach(context -> context.cancel("timed_out"));
+  }
+
+  /**
+   * Periodically flushes the buffered log lines of running jobs, so that a job that logs a line and
+   * then goes quiet still has that line visible in its log.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:1000}")
+  public void flushActiveLogWriters() {
+    activeLogWriters.values().forEach(JobLogWriter::flush);
+  }
+
+  /**
+   * Periodically sends the lines that unfinished jobs running elsewhere have logged since the last
+   * poll to the listeners following them.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.tailIntervalMs:1000}")
+  public void pollLogTails() {
+    logTails.forEach(this::schedulePoll);
+  }
+
+  /**
+   * Reports how busy the job executor is.
+   *
+   * @return the number of running and queued jobs, and the limits on both
+   */
+  public JobExecutorStatus getExecutorStatus() {
+    return JobExecutorStatus.builder()
+        .maxConcurrency(jobExecutor.getMaxPoolSize())
+        .activeCount(jobExecutor.getActiveCount())
+        .queueDepth(jobExecutor.getQueueSize())
+        .queueCapacity(jobExecutor.getQueueCapacity())
+        .build();
   }
 
   public String getJobLogs(Long jobId) {
+    StringWriter out = new StringWriter();
+    writeJobLogs(jobId, new PrintWriter(out));
+    return out.toString();
+  }
+
+  /**
+   * Writes the log of a job, a line at a time, so that a large log is never held in memory as a
+   * whole.
+   *
+   * @param jobId id of the job
+   * @param out where to write the log
+   */
+  public void writeJobLogs(Long jobId, PrintWriter out) {
     Job job =
         jobsRepository
             .findById(jobId)
             .orElseThrow(() -> new IllegalArgumentException("Job not found"));
 
-    String log = job.getLog();
-    return log != null ? log : "";
+    JobLogWriter logWriter = activeLogWriters.get(jobId);
+    if (logWriter != null) {
+      logWriter.flush();
+    }
+
+    long[] nextSeq = {0};
+    Consumer<JobLogLine> write =
+        line -> {
+          if (line.getSeq() > 0) {
+            out.write('\n');
+          }
+          out.write(line.getLine());
+          nextSeq[0] = line.getSeq() + 1;
+        };
+    JobLogLinesRepository.forEachLine(jobLogLinesRepository, jobId, 0, logReadPageSize, write);
+    if (nextSeq[0] > 0) {
+      // the log may have been compressed, and its lines deleted, after the first pages were read
+      jobLogArchiveService.forEachArchivedLine(jobId, nextSeq[0], write);
+    } else if (!jobLogArchiveService.writeArchivedLog(jobId, out)) {
+      // jobs that ran before log lines were stored separately keep their log on the job row
+      String log = job.getLog();
+      out.write(log != null ? log : "");
+    }
+    out.flush();
+  }
+
+  /**
+   * Streams the log of a job to a listener, starting at line fromSeq (0 is the first line). Lines
+   * already logged are replayed first; if the job has not finished, new lines are then passed on
+   * until it does.
+   *
+   * <p>The lines of a job running on this instance are passed on as they are logged. Those of a job
+   * that is queued, or running on another instance, are read from the table every tailIntervalMs,
+   * until the job row has a final status.
+   *
+   * @param job the job
+   * @param fromSeq seq of the first line to send
+   * @param listener the listener that receives the lines
+   * @return stops passing lines to the listener, e.g. when its client goes away
+   */
+  public Runnable streamJobLogs(Job job, long fromSeq, JobLogListener listener) {
+    JobLogWriter logWriter = activeLogWriters.get(job.getId());
+    if (logWriter != null) {
+      logWriter.subscribe(fromSeq, listener);
+      return () -> logWriter.unsubscribe(listener);
+    }
+
+    if (JobRetentionService.FINISHED_STATUSES.contains(job.getStatus())) {
+      forEachStoredLine(job, fromSeq, listener::onLine);
+      listener.onJobFinished(job.getStatus());
+      return () -> {};
+    }
+
+    LogTail tail = new LogTail(job.getId(), fromSeq, listener);
+    logTails.add(tail);
+    schedulePoll(tail);
+    return tail::stop;
+  }
+
+  private void schedulePoll(LogTail tail) {
+    if (!tail.polling.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      jobLogStreamExecutor.execute(
+          () -> {
+            try {
+              pollLogTail(tail);
+            } catch (RuntimeException e) {
+              // e.g. the client has gone
+              tail.stop();
+            } finally {
+              tail.polling.set(false);
+            }
+          });
+    } catch (RuntimeException e) {
+      // e.g. the executor is shutting down; the client can reconnect and resume
+      tail.stop();
+      tail.polling.set(false);
+      tail.listener.onOverflow();
+    }
+  }
+
+  private void pollLogTail(LogTail tail) {
+    Optional<Job> job = jobsRepository.findById(tail.jobId);
+    if (job.isEmpty()) {
+      // the job has been deleted; a client that reconnects is told so
+      tail.stop();
+      tail.listener.onOverflow();
+      return;
+    }
+    // the status is read before the lines, which are all in the table once it is final
+    String status = job.get().getStatus();
+    tail.nextSeq =
+        forEachStoredLine(
+            job.get(),
+            tail.nextSeq,
+            line -> {
+              if (!tail.stopped) {
+                tail.listener.onLine(line);
+              }
+            });
+    if (JobRetentionService.FINISHED_STATUSES.contains(status) && !tail.stopped) {
+      tail.stop();
+      tail.listener.onJobFinished(status);
+    }
+  }
+
+  /**
+   * Passes the stored log lines of a job, starting at line fromSeq, to a consumer. The lines in
+   * job_log_lines are read a page at a time, and the log may be compressed, and its lines deleted,
+   * between two pages; the lines after the last one read are then read from the compressed log.
+   *
+   * @param job the job
+   * @param fromSeq seq of the first line to pass on
+   * @param consumer receives the lines
+   * @return seq of the line after the last one passed on
+   */
+  private long forEachStoredLine(Job job, long fromSeq, Consumer<JobLogLine> consumer) {
+    long[] nextSeq = {fromSeq};
+    Consumer<JobLogLine> counting =
+        line -> {
+          consumer.accept(line);
+          nextSeq[0] = line.getSeq() + 1;
+        };
+    JobLogLinesRepository.forEachLine(
+        jobLogLinesRepository, job.getId(), fromSeq, logReadPageSize, counting);
+    if (!jobLogArchiveService.forEachArchivedLine(job.getId(), nextSeq[0], counting)
+        && nextSeq[0] == fromSeq
+        && job.getLog() != null) {
+      // jobs that ran before log lines were stored separately keep their log on the job row
+      String[] legacyLines = job.getLog().split("\n", -1);
+      for (int seq = (int) fromSeq; seq < legacyLines.length; seq++) {
+        counting.accept(
+            JobLogLine.builder().jobId(job.getId()).seq(seq).line(legacyLines[seq]).build());
+      }
+    }
+    return nextSeq[0];
+  }
+
+  public void deleteJobLogs(Long jobId) {
+    jobLogLinesRepository.deleteByJobId(jobId);
+    jobLogArchivesRepository.deleteByJobIdIn(List.of(jobId));
+  }
+
+  /**
+   * A listener following the log of a job that is not running on this instance. At most one poll
+   * per tail runs at a time, so the listener gets its lines in order.
+   */
+  private class LogTail {
+    private final long jobId;
+    private final JobLogListener listener;
+    private long nextSeq;
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private volatile boolean stopped = false;
+
+    LogTail(long jobId, long fromSeq, JobLogListener listener) {
+      this.jobId = jobId;
+      this.nextSeq = fromSeq;
+      this.listener = listener;
+    }
+
+    void stop() {
+      stopped = true;
+      logTails.remove(this);
+    }
   }
 }
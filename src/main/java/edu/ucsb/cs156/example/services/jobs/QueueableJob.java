@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+/**
+ * A job that can be stored in the jobs table and run later, possibly by another instance of the
+ * app. Implementations are written to the job row as JSON with Jackson, and read back the same way
+ * when the job is claimed, so their state must round-trip through Jackson.
+ */
+public interface QueueableJob extends JobContextConsumer {}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Sends job log lines to a client as server-sent events.
+ *
+ * <p>Each line is sent as a "log" event whose id is the seq of the line, so that a client that
+ * reconnects can resume with the Last-Event-ID header. When the job finishes, a "status" event with
+ * the final status of the job is sent and the stream is completed. A listener that falls behind the
+ * job also completes the stream, and the client's reconnect resumes from the lines it has.
+ */
+@Slf4j
+public class SseJobLogListener implements JobLogListener {
+  private final SseEmitter emitter;
+
+  public SseJobLogListener(SseEmitter emitter) {
+    this.emitter = emitter;
+  }
+
+  @Override
+  public void onLine(JobLogLine line) {
+    try {
+      emitter.send(
+          SseEmitter.event().id(Long.toString(line.getSeq())).name("log").data(line.getLine()));
+    } catch (Exception e) {
+      log.info("Job %s: log stream closed: %s".formatted(line.getJobId(), e.getMessage()));
+      emitter.completeWithError(e);
+      throw new IllegalStateException("Log stream closed", e);
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    emitter.complete();
+  }
+
+  @Override
+  public void onJobFinished(String status) {
+    try {
+      emitter.send(SseEmitter.event().name("status").data(status));
+      emitter.complete();
+    } catch (Exception e) {
+      emitter.completeWithError(e);
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Runs each job on a virtual thread of its own, which suits jobs that spend most of their time
+ * waiting on I/O. At most maxConcurrency jobs run at once; the jobs beyond that wait, each on its
+ * own parked virtual thread, for a permit, in the order they were launched. Once queueCapacity jobs
+ * are waiting, further jobs are rejected.
+ */
+public class VirtualThreadJobExecutor implements JobExecutor, DisposableBean {
+  private final int maxConcurrency;
+  private final int queueCapacity;
+  private final Semaphore workers;
+  private final ExecutorService threads;
+
+  /** Jobs that have been accepted and have not finished, whether running or waiting */
+  private final AtomicInteger accepted = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  private volatile boolean shutDown = false;
+
+  public VirtualThreadJobExecutor(int maxConcurrency, int queueCapacity) {
+    this.maxConcurrency = maxConcurrency;
+    this.queueCapacity = queueCapacity;
+    this.workers = new Semaphore(maxConcurrency, true);
+    this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-", 1).factory());
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (accepted.incrementAndGet() > (long) maxConcurrency + queueCapacity) {
+      accepted.decrementAndGet();
+      throw new TaskRejectedException("Job executor is full");
+    }
+    try {
+      threads.execute(() -> run(task));
+    } catch (RuntimeException e) {
+      accepted.decrementAndGet();
+      throw new TaskRejectedException("Job executor is shut down", e);
+    }
+  }
+
+  private void run(Runnable task) {
+    workers.acquireUninterruptibly();
+    try {
+      // a job still waiting when the executor shuts down gets its permit once the running jobs
+      // have been interrupted, and must not start
+      if (!shutDown) {
+        active.incrementAndGet();
+        try {
+          task.run();
+        } finally {
+          active.decrementAndGet();
+        }
+      }
+    } finally {
+      accepted.decrementAndGet();
+      workers.release();
+    }
+  }
+
+  @Override
+  public int getMaxPoolSize() {
+    return maxConcurrency;
+  }
+
+  @Override
+  public int getActiveCount() {
+    return active.get();
+  }
+
+  @Override
+  public int getQueueSize() {
+    return Math.max(0, accepted.get() - active.get());
+  }
+
+  @Override
+  public int getQueueCapacity() {
+    return queueCapacity;
+  }
+
+  /** Interrupts the running and waiting jobs, as the platform thread pool does on shutdown */
+  @Override
+  public void destroy() {
+    shutDown = true;
+    threads.shutdownNow();
+  }
+}
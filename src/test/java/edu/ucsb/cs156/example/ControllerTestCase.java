@@ -2,12 +2,19 @@ package edu.ucsb.cs156.example;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.TableVersion;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.services.wiremock.WiremockService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.ActiveProfiles;
@@ -28,6 +35,31 @@ public abstract class ControllerTestCase {
 
   @MockitoBean WiremockService mockWiremockService;
 
+  @MockitoBean public TableVersionRepository tableVersionRepository;
+
+  /**
+   * The versions of the tables (see TableVersions), kept for the whole run as the responses kept
+   * for each version are (see PrecompressedResponses)
+   */
+  private static final Map<String, Long> tableVersions = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  public void keepTableVersionsInMemory() {
+    Mockito.when(tableVersionRepository.findById(ArgumentMatchers.anyString()))
+        .thenAnswer(
+            invocation -> {
+              String table = invocation.getArgument(0);
+              return Optional.of(new TableVersion(table, tableVersions.getOrDefault(table, 0L)));
+            });
+    Mockito.when(
+            tableVersionRepository.bump(ArgumentMatchers.anyString(), ArgumentMatchers.anyLong()))
+        .thenAnswer(
+            invocation -> {
+              tableVersions.merge(invocation.getArgument(0), 1L, Long::sum);
+              return 1;
+            });
+  }
+
   protected Map<String, Object> responseToJson(MvcResult result)
       throws UnsupportedEncodingException, JsonProcessingException {
     String responseString = result.getResponse().getContentAsString();
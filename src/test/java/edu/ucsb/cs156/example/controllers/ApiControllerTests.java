@@ -1,25 +1,85 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @WebMvcTest(controllers = DummyController.class)
 @Import(TestConfig.class)
+@TestPropertySource(properties = {"app.api.maxUnpagedRows=2", "app.api.maxBulkRows=4"})
 public class ApiControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean MenuItemReviewRepository menuItemReviewRepository;
+
+  @MockitoBean UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  private static final MenuItemReview r1 =
+      MenuItemReview.builder()
+          .id(1L)
+          .itemId(100L)
+          .reviewerEmail("a@ucsb.edu")
+          .stars(5)
+          .dateReviewed(LocalDateTime.parse("2025-10-25T10:00:00"))
+          .comments("Excellent!")
+          .build();
+
+  private static final MenuItemReview r2 =
+      MenuItemReview.builder()
+          .id(2L)
+          .itemId(100L)
+          .reviewerEmail("b@ucsb.edu")
+          .stars(3)
+          .dateReviewed(LocalDateTime.parse("2025-10-24T09:30:00"))
+          .comments("OK")
+          .build();
+
   @Test
   public void generic_message_test() {
     ApiController apiController = new DummyController();
@@ -53,4 +113,473 @@ public class ApiControllerTests extends ControllerTestCase {
     assertEquals("EntityNotFoundException", json.get("type"));
     assertEquals("String with id 7 not found", json.get("message"));
   }
+
+  @Test
+  public void test_that_task_rejected_exception_returns_too_many_requests() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/busy"))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("TaskRejectedException", json.get("type"));
+    assertEquals("Too many jobs are running or queued; try again later", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_without_page_or_size_returns_a_list_of_at_most_maxUnpagedRows()
+      throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 2)))
+        .thenReturn(new PageImpl<>(List.of(r1, r2)));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/dummycontroller/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll(PageRequest.of(0, 2));
+    assertEquals(
+        mapper.writeValueAsString(List.of(r1, r2)), response.getResponse().getContentAsString());
+    assertNull(response.getResponse().getHeader(ApiController.TRUNCATED_HEADER));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_without_page_or_size_truncates_a_larger_table() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 2)))
+        .thenReturn(new PageImpl<>(List.of(r1, r2), PageRequest.of(0, 2), 5));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/dummycontroller/all")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(r1, r2)), response.getResponse().getContentAsString());
+    assertEquals("true", response.getResponse().getHeader("X-Truncated"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_ignores_parameters_that_name_no_field() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 2)))
+        .thenReturn(new PageImpl<>(List.of(r1, r2)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/all?color=red&_=1735689600000"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll(PageRequest.of(0, 2));
+    assertEquals(
+        mapper.writeValueAsString(List.of(r1, r2)), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_sorts_by_a_field_and_then_by_id() throws Exception {
+    // arrange
+    Sort sort = Sort.by(Sort.Direction.DESC, "stars").and(Sort.by(Sort.Direction.DESC, "id"));
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 2, sort)))
+        .thenReturn(new PageImpl<>(List.of(r1, r2)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/all?sort=stars&direction=desc"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll(PageRequest.of(0, 2, sort));
+    assertEquals(
+        mapper.writeValueAsString(List.of(r1, r2)), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_with_page_and_size_returns_a_page_sorted_by_id() throws Exception {
+    // arrange
+    Pageable pageable = PageRequest.of(1, 1, Sort.by("id"));
+    when(menuItemReviewRepository.findAll(pageable))
+        .thenReturn(new PageImpl<>(List.of(r2), pageable, 2));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/all?page=1&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        mapper.writeValueAsString(List.of(r2)), mapper.writeValueAsString(json.get("content")));
+    assertEquals(
+        Map.of("size", 1, "number", 1, "totalElements", 2, "totalPages", 2), json.get("page"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_caps_the_page_size() throws Exception {
+    // arrange
+    Pageable pageable = PageRequest.of(0, ApiController.MAX_PAGE_SIZE, Sort.by("id"));
+    when(menuItemReviewRepository.findAll(pageable))
+        .thenReturn(new PageImpl<>(List.of(r1, r2), pageable, 2));
+
+    // act
+    mockMvc.perform(get("/dummycontroller/all?size=1000")).andExpect(status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findAll(pageable);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void listAll_filters_by_fields_equal_to_the_parameters() throws Exception {
+    // arrange
+    ArgumentCaptor<Specification<MenuItemReview>> spec =
+        ArgumentCaptor.forClass(Specification.class);
+    when(menuItemReviewRepository.findAll(spec.capture(), eq(PageRequest.of(0, 2))))
+        .thenReturn(new PageImpl<>(List.of(r1)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/dummycontroller/all?itemId=100&stars=5&dateReviewed=2025-10-25T10:00:00"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(List.of(r1)), response.getResponse().getContentAsString());
+    verify(menuItemReviewRepository, never()).findAll(any(Pageable.class));
+
+    Root<MenuItemReview> root = mock(Root.class);
+    CriteriaBuilder cb = mock(CriteriaBuilder.class);
+    Path<Object> itemId = mock(Path.class);
+    Path<Object> stars = mock(Path.class);
+    Path<Object> dateReviewed = mock(Path.class);
+    when(root.get("itemId")).thenReturn(itemId);
+    when(root.get("stars")).thenReturn(stars);
+    when(root.get("dateReviewed")).thenReturn(dateReviewed);
+    spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+    verify(cb, times(1)).equal(itemId, 100L);
+    verify(cb, times(1)).equal(stars, 5);
+    verify(cb, times(1)).equal(dateReviewed, LocalDateTime.parse("2025-10-25T10:00:00"));
+  }
+
+  private void assertBadRequest(String query, String message) throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get("/dummycontroller/all?" + query))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals(message, response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void listAll_rejects_bad_parameters() throws Exception {
+    assertBadRequest("page=x", "page must be a number");
+    assertBadRequest("size=x", "size must be a number");
+    assertBadRequest("page=-1", "page must be at least 0 and size at least 1");
+    assertBadRequest("size=0", "page must be at least 0 and size at least 1");
+    assertBadRequest("sort=id&direction=sideways", "direction must be ASC or DESC");
+    assertBadRequest("sort=color", "MenuItemReview has no field color");
+    assertBadRequest("stars=many", "Cannot filter MenuItemReview by stars=many");
+    assertBadRequest(
+        "dateReviewed=yesterday", "Cannot filter MenuItemReview by dateReviewed=yesterday");
+    verify(menuItemReviewRepository, never()).findAll(any(Pageable.class));
+  }
+
+  // Tests for createAll, updateAll and deleteAll
+
+  private MvcResult bulk(MockHttpServletRequestBuilder request, Object body, ResultMatcher status)
+      throws Exception {
+    return mockMvc
+        .perform(
+            request
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(body)))
+        .andExpect(status)
+        .andReturn();
+  }
+
+  private static MenuItemReview review(long id, String comments) {
+    return MenuItemReview.builder().id(id).itemId(100L).stars(4).comments(comments).build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Map<String, Object>> results(Map<String, Object> json) {
+    return (List<Map<String, Object>>) json.get("results");
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Map<String, Object>> rowsOf(MvcResult response) throws Exception {
+    return mapper.readValue(response.getResponse().getContentAsString(), List.class);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void createAll_saves_every_row_together_and_reports_their_ids() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.saveAll(any()))
+        .thenReturn(List.of(review(11L, "Good"), review(12L, "Bad")));
+
+    // act
+    MvcResult response =
+        bulk(
+            post("/dummycontroller/bulk"),
+            List.of(review(0L, "Good"), review(0L, "Bad")),
+            status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, times(1))
+        .saveAll(List.of(review(0L, "Good"), review(0L, "Bad")));
+    assertEquals(
+        "[{\"index\":0,\"id\":11,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":12,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void createAll_writes_nothing_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        bulk(
+            post("/dummycontroller/bulk"),
+            List.of(review(0L, "Good"), review(0L, null)),
+            status().isBadRequest());
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("InvalidRowsException", json.get("type"));
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    List<Map<String, Object>> results = results(json);
+    assertEquals("valid", results.get(0).get("status"));
+    assertNull(results.get(0).get("message"));
+    assertNull(results.get(0).get("id"));
+    assertEquals(1, results.get(1).get("index"));
+    assertEquals("invalid", results.get(1).get("status"));
+    assertEquals("comments is required", results.get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void createAll_refuses_ids_chosen_by_the_client_that_exist_or_are_repeated()
+      throws Exception {
+    // arrange
+    UCSBOrganization zpr = UCSBOrganization.builder().orgCode("ZPR").orgTranslation("Z").build();
+    UCSBOrganization sky = UCSBOrganization.builder().orgCode("SKY").orgTranslation("S").build();
+    when(ucsbOrganizationRepository.findAllById(List.of("ZPR", "SKY", "SKY")))
+        .thenReturn(List.of(zpr));
+
+    // act
+    MvcResult response =
+        bulk(
+            post("/dummycontroller/bulk/organizations"),
+            List.of(zpr, sky, sky, UCSBOrganization.builder().orgCode("OSLI").build()),
+            status().isBadRequest());
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).saveAll(any());
+    List<Map<String, Object>> results = results(responseToJson(response));
+    assertEquals("UCSBOrganization with id ZPR already exists", results.get(0).get("message"));
+    assertEquals("ZPR", results.get(0).get("id"));
+    assertEquals("valid", results.get(1).get("status"));
+    assertEquals("id SKY is repeated", results.get(2).get("message"));
+    assertEquals("orgTranslation is required", results.get(3).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void createAll_saves_new_ids_chosen_by_the_client() throws Exception {
+    // arrange
+    UCSBOrganization sky = UCSBOrganization.builder().orgCode("SKY").orgTranslation("S").build();
+    when(ucsbOrganizationRepository.findAllById(List.of("SKY"))).thenReturn(List.of());
+    when(ucsbOrganizationRepository.saveAll(List.of(sky))).thenReturn(List.of(sky));
+
+    // act
+    MvcResult response =
+        bulk(post("/dummycontroller/bulk/organizations"), List.of(sky), status().isOk());
+
+    // assert
+    assertEquals("SKY", rowsOf(response).get(0).get("id"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void bulk_writes_of_no_rows_write_nothing() throws Exception {
+    // act
+    bulk(post("/dummycontroller/bulk"), List.of(), status().isOk());
+    bulk(put("/dummycontroller/bulk"), List.of(), status().isOk());
+    MvcResult deleted = bulk(delete("/dummycontroller/bulk"), List.of(), status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    assertEquals("[]", deleted.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void bulk_deletes_of_no_ids_leave_the_table_version_alone() throws Exception {
+    // act
+    MvcResult deleted = bulk(delete("/dummycontroller/bulk"), List.of(), status().isOk());
+
+    // assert
+    assertEquals("[]", deleted.getResponse().getContentAsString());
+    verify(menuItemReviewRepository, never()).deleteAll(any());
+    verify(tableVersionRepository, never()).bump(any(), anyLong());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void bulk_writes_of_more_than_maxBulkRows_are_refused() throws Exception {
+    // arrange
+    List<MenuItemReview> rows =
+        List.of(
+            review(1L, "a"), review(2L, "b"), review(3L, "c"), review(4L, "d"), review(5L, "e"));
+
+    // act
+    MvcResult created = bulk(post("/dummycontroller/bulk"), rows, status().isBadRequest());
+    bulk(put("/dummycontroller/bulk"), rows, status().isBadRequest());
+    bulk(delete("/dummycontroller/bulk"), List.of(1, 2, 3, 4, 5), status().isBadRequest());
+
+    // assert
+    assertEquals(
+        "at most 4 rows can be written at a time", created.getResponse().getErrorMessage());
+    verify(menuItemReviewRepository, never()).findAllById(any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void updateAll_copies_each_row_to_the_entity_with_its_id() throws Exception {
+    // arrange
+    MenuItemReview first = review(1L, "Good");
+    MenuItemReview second = review(2L, "Bad");
+    when(menuItemReviewRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(first, second));
+
+    // act
+    MvcResult response =
+        bulk(
+            put("/dummycontroller/bulk"),
+            List.of(review(2L, "Worse"), review(1L, "Better")),
+            status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, times(1))
+        .saveAll(List.of(review(2L, "Worse"), review(1L, "Better")));
+    assertEquals("Better", first.getComments());
+    assertEquals("Worse", second.getComments());
+    List<Map<String, Object>> results = rowsOf(response);
+    assertEquals(2, results.get(0).get("id"));
+    assertEquals("updated", results.get(1).get("status"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void updateAll_writes_nothing_when_a_row_is_missing_repeated_or_invalid()
+      throws Exception {
+    // arrange
+    MenuItemReview first = review(1L, "Good");
+    when(menuItemReviewRepository.findAllById(List.of(1L, 1L, 7L))).thenReturn(List.of(first));
+
+    // act
+    MvcResult response =
+        bulk(
+            put("/dummycontroller/bulk"),
+            List.of(review(1L, "Better"), review(1L, "Best"), review(7L, "New"), review(2L, null)),
+            status().isBadRequest());
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    assertEquals("Good", first.getComments());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("3 of 4 rows are invalid; none were written", json.get("message"));
+    List<Map<String, Object>> results = results(json);
+    assertEquals("valid", results.get(0).get("status"));
+    assertEquals("id 1 is repeated", results.get(1).get("message"));
+    assertEquals("MenuItemReview with id 7 not found", results.get(2).get("message"));
+    assertEquals("comments is required", results.get(3).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void deleteAll_deletes_the_entities_with_the_ids() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findAllById(List.of(2L, 1L))).thenReturn(List.of(r1, r2));
+
+    // act
+    MvcResult response = bulk(delete("/dummycontroller/bulk"), List.of(2, 1), status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).deleteAll(List.of(r2, r1));
+    List<Map<String, Object>> results = rowsOf(response);
+    assertEquals(2, results.get(0).get("id"));
+    assertEquals("deleted", results.get(1).get("status"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void deleteAll_deletes_nothing_when_an_id_is_null_missing_or_repeated() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findAllById(List.of(1L, 1L, 7L))).thenReturn(List.of(r1));
+
+    // act
+    MvcResult response =
+        bulk(
+            delete("/dummycontroller/bulk"), Arrays.asList(1, 1, 7, null), status().isBadRequest());
+
+    // assert
+    verify(menuItemReviewRepository, never()).deleteAll(any());
+    List<Map<String, Object>> results = results(responseToJson(response));
+    assertEquals("valid", results.get(0).get("status"));
+    assertEquals("id 1 is repeated", results.get(1).get("message"));
+    assertEquals("MenuItemReview with id 7 not found", results.get(2).get("message"));
+    assertEquals("id is required", results.get(3).get("message"));
+  }
+
+  @Test
+  public void missing_names_the_required_fields_that_are_null() {
+    assertNull(ApiController.missing("name", "Freebirds", "description", "burritos"));
+    assertEquals("name is required", ApiController.missing("name", null, "description", "x"));
+    assertEquals(
+        "name, description are required", ApiController.missing("name", null, "description", null));
+  }
+
+  @Test
+  public void afterCommit_waits_for_the_transaction_to_commit() {
+    List<String> actions = new ArrayList<>();
+    ApiController.afterCommit(() -> actions.add("now"));
+    assertEquals(List.of("now"), actions);
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      ApiController.afterCommit(() -> actions.add("after commit"));
+      assertEquals(List.of("now"), actions);
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertEquals(List.of("now", "after commit"), actions);
+  }
 }
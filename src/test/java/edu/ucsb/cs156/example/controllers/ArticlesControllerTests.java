@@ -1,8 +1,11 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,12 +24,15 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -51,6 +57,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(articlesRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/articles/all")).andExpect(status().is(200)); // logged
   }
 
@@ -156,7 +164,8 @@ public class ArticlesControllerTests extends ControllerTestCase {
     ArrayList<Articles> expectedArticles = new ArrayList<>();
     expectedArticles.addAll(Arrays.asList(article1, article2));
 
-    when(articlesRepository.findAll()).thenReturn(expectedArticles);
+    when(articlesRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedArticles));
 
     // act
     MvcResult response =
@@ -164,7 +173,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(articlesRepository, times(1)).findAll();
+    verify(articlesRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedArticles);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -344,4 +353,238 @@ public class ArticlesControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("Articles with id 67 not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_articles_in_bulk() throws Exception {
+    // arrange
+    Articles good =
+        Articles.builder()
+            .id(1L)
+            .title("Good")
+            .url("https://example.org/Good")
+            .explanation("e")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    Articles fine =
+        Articles.builder()
+            .id(2L)
+            .title("Fine")
+            .url("https://example.org/Fine")
+            .explanation("e")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(articlesRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(1))
+        .saveAll(
+            List.of(
+                Articles.builder()
+                    .title("Good")
+                    .url("https://example.org/Good")
+                    .explanation("e")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .build(),
+                Articles.builder()
+                    .title("Fine")
+                    .url("https://example.org/Fine")
+                    .explanation("e")
+                    .email("cgaucho@ucsb.edu")
+                    .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void articles_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                Articles.builder()
+                                    .title("Good")
+                                    .url("https://example.org/Good")
+                                    .explanation("e")
+                                    .email("cgaucho@ucsb.edu")
+                                    .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+                                    .build(),
+                                Articles.builder().title("t").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "url, explanation, email, dateAdded are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_articles_in_bulk() throws Exception {
+    // arrange
+    Articles existing =
+        Articles.builder()
+            .id(7L)
+            .title("Old")
+            .url("https://example.org/Old")
+            .explanation("e")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    Articles updated =
+        Articles.builder()
+            .id(7L)
+            .title("New")
+            .url("https://example.org/New")
+            .explanation("e")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(articlesRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_articles_in_bulk() throws Exception {
+    // arrange
+    Articles existing =
+        Articles.builder()
+            .id(7L)
+            .title("Old")
+            .url("https://example.org/Old")
+            .explanation("e")
+            .email("cgaucho@ucsb.edu")
+            .dateAdded(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(articlesRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/articles/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  // Tests for conditional GETs (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void articles_that_have_not_changed_are_not_sent_again() throws Exception {
+    // arrange
+    when(articlesRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    String etag =
+        mockMvc
+            .perform(get("/api/articles/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    MvcResult notModified =
+        mockMvc
+            .perform(get("/api/articles/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+    mockMvc
+        .perform(get("/api/articles?id=7").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    // assert
+    verify(articlesRepository, times(1)).findAll(PageRequest.of(0, 1000));
+    verify(articlesRepository, never()).findById(7L);
+    assertEquals(etag, notModified.getResponse().getHeader("ETag"));
+    assertEquals("", notModified.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void articles_are_sent_again_once_one_has_been_deleted() throws Exception {
+    // arrange
+    when(articlesRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    when(articlesRepository.findById(eq(15L)))
+        .thenReturn(Optional.of(Articles.builder().id(15L).title("Old").build()));
+    String etag =
+        mockMvc
+            .perform(get("/api/articles/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    mockMvc.perform(delete("/api/articles?id=15").with(csrf())).andExpect(status().isOk());
+    MvcResult changed =
+        mockMvc
+            .perform(get("/api/articles/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(articlesRepository, times(2)).findAll(PageRequest.of(0, 1000));
+    verify(tableVersionRepository, times(1)).bump(eq("articles"), anyLong());
+    assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+  }
 }
@@ -1,16 +1,38 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.config.VersionedTable;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.BulkRowResult;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-/** This class is used to test ApiController and EntityNotFoundException */
+/**
+ * This class is used to test ApiController, its listAll and bulk write methods, and
+ * EntityNotFoundException
+ */
 @RequestMapping("/dummycontroller")
 @RestController
+@VersionedTable("dummy")
 public class DummyController extends ApiController {
 
+  @Autowired MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired UCSBOrganizationRepository ucsbOrganizationRepository;
+
   @GetMapping("")
   public String getById(@RequestParam Long id) throws EntityNotFoundException {
     if (id == 1) {
@@ -18,4 +40,52 @@ public class DummyController extends ApiController {
     }
     throw new EntityNotFoundException(String.class, id);
   }
+
+  @GetMapping("/busy")
+  public String busy() throws TaskRejectedException {
+    throw new TaskRejectedException("Executor is full");
+  }
+
+  @GetMapping("/all")
+  public Object all(@RequestParam Map<String, String> params) {
+    return listAll(menuItemReviewRepository, MenuItemReview.class, params);
+  }
+
+  @PostMapping("/bulk")
+  public List<BulkRowResult> createAll(@RequestBody List<MenuItemReview> rows) {
+    return rowResults(
+        createAll(
+            menuItemReviewRepository,
+            rows,
+            review -> missing("comments", review.getComments()),
+            review -> review),
+        "created");
+  }
+
+  @PutMapping("/bulk")
+  public List<BulkRowResult> updateAll(@RequestBody List<MenuItemReview> rows) {
+    return rowResults(
+        updateAll(
+            menuItemReviewRepository,
+            rows,
+            review -> missing("comments", review.getComments()),
+            (from, to) -> to.setComments(from.getComments())),
+        "updated");
+  }
+
+  @DeleteMapping("/bulk")
+  public List<BulkRowResult> deleteAll(@RequestBody List<Long> ids) {
+    return rowResults(deleteAll(menuItemReviewRepository, MenuItemReview.class, ids), "deleted");
+  }
+
+  @PostMapping("/bulk/organizations")
+  public List<BulkRowResult> createOrganizations(@RequestBody List<UCSBOrganization> rows) {
+    return rowResults(
+        createAll(
+            ucsbOrganizationRepository,
+            rows,
+            org -> missing("orgCode", org.getOrgCode(), "orgTranslation", org.getOrgTranslation()),
+            org -> org),
+        "created");
+  }
 }
@@ -3,47 +3,90 @@ package edu.ucsb.cs156.example.controllers;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.CursorPage;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobPurgeReport;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogArchiveService;
+import edu.ucsb.cs156.example.services.jobs.JobQueueService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({
+  JobService.class,
+  JobQueueService.class,
+  JobExecutorConfig.class,
+  SimpleMeterRegistry.class
+})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean JobLogArchivesRepository jobLogArchivesRepository;
+
+  @MockitoBean JobLogArchiveService jobLogArchiveService;
+
   @MockitoBean UserRepository userRepository;
 
+  @MockitoBean JobRetentionService jobRetentionService;
+
   @Autowired JobService jobService;
 
   @Autowired ObjectMapper objectMapper;
@@ -54,24 +97,238 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    Job job1 = Job.builder().log("this is job 1").build();
-    Job job2 = Job.builder().log("this is job 2").build();
+    JobSummary job1 = JobSummary.builder().id(2L).status("complete").build();
+    JobSummary job2 = JobSummary.builder().id(1L).status("error").build();
+    Pageable expectedPageable =
+        PageRequest.of(
+            0,
+            1000,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    when(jobsRepository.findSummaries(null, null, null, null, null, expectedPageable))
+        .thenReturn(new PageImpl<>(List.of(job1, job2), expectedPageable, 2));
 
-    ArrayList<Job> expectedJobs = new ArrayList<>();
-    expectedJobs.addAll(Arrays.asList(job1, job2));
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/all")).andExpect(status().isOk()).andReturn();
 
-    when(jobsRepository.findAll()).thenReturn(expectedJobs);
+    // assert
+
+    verify(jobsRepository, never()).findAll();
+    String expectedJson = mapper.writeValueAsString(List.of(job1, job2));
+    String responseString = response.getResponse().getContentAsString();
+    assertEquals(expectedJson, responseString);
+    assertFalse(responseString.contains("\"log\""));
+    assertNull(response.getResponse().getHeader("X-Truncated"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void all_jobs_tells_the_client_when_there_are_more() throws Exception {
+    // arrange
+    JobSummary job = JobSummary.builder().id(1001L).status("complete").build();
+    when(jobsRepository.findSummaries(any(), any(), any(), any(), any(), any(Pageable.class)))
+        .thenAnswer(
+            invocation ->
+                new PageImpl<>(List.of(job), invocation.getArgument(5, Pageable.class), 1001));
 
     // act
     MvcResult response =
         mockMvc.perform(get("/api/jobs/all")).andExpect(status().isOk()).andReturn();
 
+    // assert
+    assertEquals("true", response.getResponse().getHeader("X-Truncated"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_a_page_of_jobs_with_default_paging() throws Exception {
+
+    // arrange
+
+    JobSummary summary =
+        JobSummary.builder()
+            .id(3L)
+            .createdById(1L)
+            .createdAt(ZonedDateTime.parse("2025-01-02T03:04:05Z"))
+            .status("complete")
+            .parentJobId(2L)
+            .jobType(TestJob.class.getName())
+            .build();
+    Pageable expectedPageable =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+    Page<JobSummary> page = new PageImpl<>(List.of(summary), expectedPageable, 41);
+    when(jobsRepository.findSummaries(null, null, null, null, null, expectedPageable))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/paged")).andExpect(status().isOk()).andReturn();
+
     // assert
 
-    verify(jobsRepository, atLeastOnce()).findAll();
-    String expectedJson = mapper.writeValueAsString(expectedJobs);
+    verify(jobsRepository, times(1)).findSummaries(null, null, null, null, null, expectedPageable);
+    verify(jobsRepository, never()).findAll();
+    String expectedJson = mapper.writeValueAsString(new PagedModel<>(page));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertTrue(responseString.contains("\"totalElements\":41"));
+    assertFalse(responseString.contains("\"log\""));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_filter_sort_and_page_jobs() throws Exception {
+
+    // arrange
+
+    Pageable expectedPageable =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.ASC, "status").and(Sort.by(Sort.Direction.ASC, "id")));
+    ZonedDateTime after = ZonedDateTime.parse("2025-01-01T00:00:00Z");
+    ZonedDateTime before = ZonedDateTime.parse("2025-02-01T00:00:00Z");
+    when(jobsRepository.findSummaries(
+            eq("error"),
+            eq(7L),
+            any(ZonedDateTime.class),
+            any(ZonedDateTime.class),
+            eq(12L),
+            any()))
+        .thenReturn(new PageImpl<>(List.of(), expectedPageable, 0));
+
+    // act
+    mockMvc
+        .perform(
+            get("/api/jobs/paged")
+                .param("page", "2")
+                .param("size", "1000")
+                .param("sort", "status")
+                .param("direction", "ASC")
+                .param("status", "error")
+                .param("createdById", "7")
+                .param("createdAfter", "2025-01-01T00:00:00Z")
+                .param("createdBefore", "2025-02-01T00:00:00Z")
+                .param("parentJobId", "12"))
+        .andExpect(status().isOk());
+
+    // assert
+
+    ArgumentCaptor<ZonedDateTime> afterCaptor = ArgumentCaptor.forClass(ZonedDateTime.class);
+    ArgumentCaptor<ZonedDateTime> beforeCaptor = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository, times(1))
+        .findSummaries(
+            eq("error"),
+            eq(7L),
+            afterCaptor.capture(),
+            beforeCaptor.capture(),
+            eq(12L),
+            eq(expectedPageable));
+    assertTrue(after.isEqual(afterCaptor.getValue()));
+    assertTrue(before.isEqual(beforeCaptor.getValue()));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void paged_jobs_rejects_unknown_sort_property() throws Exception {
+    // act
+    mockMvc.perform(get("/api/jobs/paged?sort=log")).andExpect(status().isBadRequest());
+
+    // assert
+    verify(jobsRepository, never()).findSummaries(any(), any(), any(), any(), any(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void paged_jobs_rejects_negative_page_and_empty_size() throws Exception {
+    // act
+    mockMvc.perform(get("/api/jobs/paged?page=-1")).andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/jobs/paged?size=0")).andExpect(status().isBadRequest());
+
+    // assert
+    verify(jobsRepository, never()).findSummaries(any(), any(), any(), any(), any(), any());
+  }
+
+  private static String cursor(String position) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_the_newest_jobs_by_cursor() throws Exception {
+
+    // arrange
+
+    List<JobSummary> summaries =
+        List.of(
+            JobSummary.builder().id(12L).status("error").build(),
+            JobSummary.builder().id(10L).status("error").build(),
+            JobSummary.builder().id(4L).status("error").build());
+    when(jobsRepository.findSummariesBefore("error", Long.MAX_VALUE, PageRequest.ofSize(3)))
+        .thenReturn(summaries);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/cursor?size=2&status=error"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson =
+        mapper.writeValueAsString(new CursorPage<>(summaries.subList(0, 2), cursor("DESC:10")));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_follow_a_cursor_through_the_jobs_in_ascending_order() throws Exception {
+
+    // arrange
+
+    List<JobSummary> summaries = List.of(JobSummary.builder().id(11L).build());
+    when(jobsRepository.findSummariesAfter(null, 10L, PageRequest.ofSize(21)))
+        .thenReturn(summaries);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/cursor").param("cursor", cursor("ASC:10")))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(summaries, null));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+    verify(jobsRepository, never()).findSummariesBefore(any(), anyLong(), any());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void jobs_by_cursor_rejects_a_bad_cursor_and_an_empty_size() throws Exception {
+    // act
+    mockMvc.perform(get("/api/jobs/cursor?cursor=nonsense")).andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/jobs/cursor?size=0")).andExpect(status().isBadRequest());
+
+    // assert
+    verify(jobsRepository, never()).findSummariesBefore(any(), anyLong(), any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_get_jobs_by_cursor() throws Exception {
+    mockMvc.perform(get("/api/jobs/cursor")).andExpect(status().isForbidden());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void users_cannot_get_a_page_of_jobs() throws Exception {
+    mockMvc.perform(get("/api/jobs/paged")).andExpect(status().isForbidden());
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -123,7 +380,7 @@ public class JobsControllerTests extends ControllerTestCase {
   @Test
   public void admin_can_delete_all_jobs() throws Exception {
 
-    doNothing().when(jobsRepository).deleteAll();
+    when(jobRetentionService.deleteAllFinished()).thenReturn(3L);
 
     // act
     MvcResult response =
@@ -134,12 +391,88 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(jobsRepository, times(1)).deleteAll();
-    String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
+    verify(jobRetentionService, times(1)).deleteAllFinished();
+    verify(jobsRepository, never()).deleteAll();
+    String expectedJson = mapper.writeValueAsString(Map.of("message", "3 finished jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_purge_jobs() throws Exception {
+
+    // arrange
+
+    JobPurgeReport report =
+        JobPurgeReport.builder().purgedByAge(5).purgedByCount(2).totalPurged(7).build();
+    when(jobRetentionService.purge()).thenReturn(report);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/purge").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    verify(jobRetentionService, times(1)).purge();
+    assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_a_job() throws Exception {
+    // arrange
+    when(jobsRepository.existsById(7L)).thenReturn(true);
+    when(jobsRepository.requestCancel(7L)).thenReturn(1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=7").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 7 cancelled", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancel_of_finished_job_is_a_conflict() throws Exception {
+    // arrange
+    when(jobsRepository.existsById(7L)).thenReturn(true);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=7").with(csrf()))
+            .andExpect(status().isConflict())
+            .andReturn();
+
+    // assert
+    assertEquals("Job with id 7 has already finished", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancel_of_missing_job_returns_not_found() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=7").with(csrf()))
+            .andExpect(status().isNotFound())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 7 not found", json.get("message"));
+    verify(jobsRepository, never()).requestCancel(7L);
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void test_getJobLogs_admin_can_get_job_log() throws Exception {
@@ -149,11 +482,15 @@ public class JobsControllerTests extends ControllerTestCase {
     Job job = Job.builder().build();
     job.setLog(jobLog);
     when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            jobId, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
 
     // Act & Assert
     mockMvc
         .perform(get("/api/jobs/logs/{id}", jobId))
         .andExpect(status().isOk())
+        .andExpect(content().contentType("text/plain;charset=UTF-8"))
         .andExpect(content().string(jobLog));
   }
 
@@ -192,6 +529,7 @@ public class JobsControllerTests extends ControllerTestCase {
     // assert
 
     verify(jobsRepository, times(1)).deleteById(eq(1L));
+    verify(jobLogLinesRepository, times(1)).deleteByJobId(eq(1L));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 1 deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -222,33 +560,32 @@ public class JobsControllerTests extends ControllerTestCase {
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_launch_test_job() throws Exception {
-
-    // arrange
+  public void test_getJobLogs_admin_can_get_job_log_assembled_from_lines() throws Exception {
+    // Arrange
+    Long jobId = 3L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobsRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            jobId, 0L, Limit.of(1000)))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).line("line 1").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).line("line 2").build()));
 
-    User user = currentUserService.getUser();
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}", jobId))
+        .andExpect(status().isOk())
+        .andExpect(content().string("line 1\nline 2"));
+  }
 
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job() throws Exception {
 
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
+    // arrange
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+    AtomicReference<Job> claimed = claimQueuedJobs();
 
     // act
     MvcResult response =
@@ -261,14 +598,18 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
+    assertEquals(TestJob.class.getName(), jobReturned.getJobType());
+    assertEquals("{\"fail\":false,\"sleepMs\":2000}", jobReturned.getJobParams());
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    await().atMost(10, SECONDS).until(() -> claimed.get() != null);
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(() -> assertEquals("complete", claimed.get().getStatus()));
+    assertEquals(jobService.getWorkerId(), claimed.get().getLeaseOwner());
+    assertNull(claimed.get().getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).saveAll(List.of(claimed.get()));
+    assertEquals(List.of("Hello World! from test job!", "Goodbye from test job!"), loggedLines());
   }
 
   @WithMockUser(roles = {"ADMIN"})
@@ -277,29 +618,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // arrange
 
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
+    AtomicReference<Job> claimed = claimQueuedJobs();
 
     // act
     MvcResult response =
@@ -311,14 +630,235 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    assertEquals("queued", jobReturned.getStatus());
+
+    await().atMost(10, SECONDS).until(() -> claimed.get() != null);
+    await()
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> assertEquals("error", claimed.get().getStatus()));
+    assertEquals(List.of("Hello World! from test job!", "Fail!"), loggedLines());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void launch_is_rejected_when_job_queue_is_full() throws Exception {
+    // arrange
+    when(jobsRepository.countByStatus("queued")).thenReturn(100L);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=0").with(csrf()))
+            .andExpect(status().isTooManyRequests())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("TaskRejectedException", json.get("type"));
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_finished_job() throws Exception {
+    // arrange
+    Job job = Job.builder().id(4L).status("complete").build();
+    when(jobsRepository.findById(4L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            4L, 1L, Limit.of(1000)))
+        .thenReturn(List.of(JobLogLine.builder().jobId(4L).seq(1).line("line 2").build()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/4/stream?offset=1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+    assertEquals(
+        "id:1\nevent:log\ndata:line 2\n\nevent:status\ndata:complete\n\n",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_resumes_after_last_event_id_and_ignores_negative_offset() throws Exception {
+    // arrange
+    Job job = Job.builder().id(4L).status("complete").build();
+    when(jobsRepository.findById(4L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            4L, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            4L, 6L, Limit.of(1000)))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult fromHeader =
+        mockMvc
+            .perform(get("/api/jobs/logs/4/stream?offset=2").header("Last-Event-ID", "5"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+    MvcResult fromNegativeOffset =
+        mockMvc
+            .perform(get("/api/jobs/logs/4/stream?offset=-3"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    mockMvc.perform(asyncDispatch(fromHeader)).andExpect(status().isOk());
+    mockMvc.perform(asyncDispatch(fromNegativeOffset)).andExpect(status().isOk());
+    verify(jobLogLinesRepository, times(1))
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(4L, 6L, Limit.of(1000));
+    verify(jobLogLinesRepository, times(1))
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(4L, 0L, Limit.of(1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_keeps_offset_when_last_event_id_is_older() throws Exception {
+    // arrange
+    Job job = Job.builder().id(4L).status("complete").build();
+    when(jobsRepository.findById(4L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            4L, 3L, Limit.of(1000)))
+        .thenReturn(List.of());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/4/stream?offset=3").header("Last-Event-ID", "0"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    // assert
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+    verify(jobLogLinesRepository, times(1))
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(4L, 3L, Limit.of(1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_of_missing_job_returns_not_found() throws Exception {
+    // arrange
+    when(jobsRepository.findById(eq(5L))).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/5/stream").accept("text/event-stream", "application/json"))
+            .andExpect(status().isNotFound())
+            .andReturn();
 
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 5 not found", json.get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_log_of_running_job() throws Exception {
+    // arrange
+    Job job = Job.builder().id(42L).status("running").build();
+    claimQueuedJobs();
+    when(jobsRepository.findById(42L)).thenReturn(Optional.of(job));
+
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=1500").with(csrf()))
+        .andExpect(status().isOk());
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> assertEquals(1, jobService.getExecutorStatus().getActiveCount()));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/jobs/logs/42/stream"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
 
+    // assert
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(
+            () ->
+                assertTrue(
+                    response
+                        .getResponse()
+                        .getContentAsString()
+                        .endsWith(
+                            "id:1\nevent:log\ndata:Goodbye from test job!\n\n"
+                                + "event:status\ndata:complete\n\n")));
+    mockMvc.perform(asyncDispatch(response)).andExpect(status().isOk());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_executor_status() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
+
+    // assert
+    JobExecutorStatus expected =
+        JobExecutorStatus.builder()
+            .maxConcurrency(4)
+            .activeCount(0)
+            .queueDepth(0)
+            .queueCapacity(100)
+            .build();
+    assertEquals(mapper.writeValueAsString(expected), response.getResponse().getContentAsString());
+  }
+
+  /**
+   * Gives saved jobs id 42, and has the poller claim the first job that is queued. The poller works
+   * on a copy of the job, so that the launch response is not affected by the poller.
+   *
+   * @return the job once the poller has claimed it
+   */
+  private AtomicReference<Job> claimQueuedJobs() {
+    AtomicReference<Job> queued = new AtomicReference<>();
+    AtomicReference<Job> claimed = new AtomicReference<>();
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job saved = invocation.getArgument(0);
+              saved.setId(42L);
+              if ("queued".equals(saved.getStatus())) {
+                queued.compareAndSet(
+                    null,
+                    Job.builder()
+                        .id(42L)
+                        .status("queued")
+                        .jobType(saved.getJobType())
+                        .jobParams(saved.getJobParams())
+                        .build());
+              }
+              return saved;
+            });
+    when(jobsRepository.lockQueuedJobs(any()))
+        .thenAnswer(
+            invocation -> {
+              Job job = queued.getAndSet(null);
+              if (job == null) {
+                return List.of();
+              }
+              claimed.set(job);
+              return List.of(job);
+            });
+    return claimed;
+  }
+
+  /** Collects the log lines written to the job log line store, across all batches */
+  @SuppressWarnings("unchecked")
+  private List<String> loggedLines() {
+    ArgumentCaptor<Iterable<JobLogLine>> captor = ArgumentCaptor.forClass(Iterable.class);
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(captor.capture());
+    List<String> lines = new ArrayList<>();
+    captor.getAllValues().forEach(batch -> batch.forEach(l -> lines.add(l.getLine())));
+    return lines;
   }
 }
@@ -0,0 +1,207 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.RatingSummary;
+import edu.ucsb.cs156.example.models.TrendingMenuItem;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService.Ranking;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = MenuItemRatingsController.class)
+@Import(TestConfig.class)
+public class MenuItemRatingsControllerTests extends ControllerTestCase {
+
+  @MockitoBean MenuItemRatingService menuItemRatingService;
+
+  @MockitoBean TrendingMenuItemsService trendingMenuItemsService;
+
+  @MockitoBean UserRepository userRepository;
+
+  private static final RatingSummary summary =
+      new RatingSummary(4, 3.5, List.of(0L, 1L, 0L, 2L, 1L));
+
+  @Test
+  public void logged_out_users_cannot_get_ratings() throws Exception {
+    mockMvc.perform(get("/api/menuitemratings?itemId=7")).andExpect(status().is(403));
+    mockMvc
+        .perform(get("/api/menuitemratings/commons?diningCommonsCode=ortega"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_rating_of_an_item() throws Exception {
+    // arrange
+    when(menuItemRatingService.summaryForItem(7L)).thenReturn(summary);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemratings?itemId=7"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(summary), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_rating_of_a_dining_commons() throws Exception {
+    // arrange
+    when(menuItemRatingService.summaryForCommons("ortega")).thenReturn(summary);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemratings/commons?diningCommonsCode=ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(summary), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_rebuild_ratings() throws Exception {
+    mockMvc.perform(post("/api/menuitemratings/rebuild").with(csrf())).andExpect(status().is(403));
+    verify(menuItemRatingService, never()).rebuild();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_rebuild_ratings() throws Exception {
+    // arrange
+    when(menuItemRatingService.rebuild()).thenReturn(12);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/menuitemratings/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemRatingService, times(1)).rebuild();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Rebuilt the ratings of 12 menu items", json.get("message"));
+  }
+
+  private static final List<TrendingMenuItem> trending =
+      List.of(
+          TrendingMenuItem.builder()
+              .itemId(7L)
+              .diningCommonsCode("ortega")
+              .name("Burrito")
+              .station("Grill")
+              .recentReviews(3.5)
+              .averageStars(4.2)
+              .build());
+
+  @Test
+  public void logged_out_users_cannot_get_trending_items() throws Exception {
+    mockMvc.perform(get("/api/menuitemratings/trending")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_trending_items_of_all_commons() throws Exception {
+    // arrange
+    when(trendingMenuItemsService.topItems(null, Ranking.VOLUME, 10)).thenReturn(trending);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemratings/trending"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(trending), response.getResponse().getContentAsString());
+    assertEquals("max-age=60, private", response.getResponse().getHeader("Cache-Control"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_best_rated_items_of_a_commons() throws Exception {
+    // arrange
+    when(trendingMenuItemsService.topItems("ortega", Ranking.STARS, 3)).thenReturn(trending);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemratings/trending?diningCommonsCode=ortega&ranking=STARS&limit=3"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(mapper.writeValueAsString(trending), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void trending_items_need_a_limit_of_at_least_one() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemratings/trending?limit=0"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    assertEquals("limit must be at least 1", response.getResponse().getErrorMessage());
+    verify(trendingMenuItemsService, never()).topItems(any(), any(), anyInt());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void regular_users_cannot_rebuild_trending_items() throws Exception {
+    mockMvc
+        .perform(post("/api/menuitemratings/trending/rebuild").with(csrf()))
+        .andExpect(status().is(403));
+    verify(trendingMenuItemsService, never()).rebuild();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_can_rebuild_trending_items() throws Exception {
+    // arrange
+    when(trendingMenuItemsService.rebuild()).thenReturn(9);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/menuitemratings/trending/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(trendingMenuItemsService, times(1)).rebuild();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Rebuilt the recent reviews of 9 menu items", json.get("message"));
+  }
+}
@@ -2,7 +2,9 @@ package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,18 +17,31 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.CursorPage;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.MenuItemRatingService;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -37,6 +52,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
   @MockBean private MenuItemReviewRepository menuItemReviewRepository;
   @MockBean private UserRepository userRepository;
+  @MockBean private MenuItemRatingService menuItemRatingService;
+  @MockBean private TrendingMenuItemsService trendingMenuItemsService;
 
   // ---------- Auth checks ----------
   @Test
@@ -47,6 +64,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/menuitemreview/all")).andExpect(status().isOk());
   }
 
@@ -86,17 +105,244 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .comments("Good")
             .build();
 
-    when(menuItemReviewRepository.findAll()).thenReturn(new ArrayList<>(Arrays.asList(r1, r2)));
+    when(menuItemReviewRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>(Arrays.asList(r1, r2))));
 
     MvcResult response =
         mockMvc.perform(get("/api/menuitemreview/all")).andExpect(status().isOk()).andReturn();
 
-    verify(menuItemReviewRepository, times(1)).findAll();
+    verify(menuItemReviewRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(Arrays.asList(r1, r2));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  // ---------- GET /cursor ----------
+  private static MenuItemReview review(long id) {
+    return MenuItemReview.builder()
+        .id(id)
+        .itemId(100L)
+        .reviewerEmail("a@ucsb.edu")
+        .stars(5)
+        .dateReviewed(LocalDateTime.parse("2025-10-25T10:00:00"))
+        .comments("Review " + id)
+        .build();
+  }
+
+  private static String cursor(String position) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_reviews_by_cursor() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/cursor")).andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void first_page_by_cursor_is_the_newest_reviews_and_points_to_the_next() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findByIdLessThanOrderByIdDesc(
+            Long.MAX_VALUE, PageRequest.ofSize(3)))
+        .thenReturn(List.of(review(9), review(8), review(7)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/cursor?size=2"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson =
+        mapper.writeValueAsString(
+            new CursorPage<>(List.of(review(9), review(8)), cursor("DESC:8")));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void next_page_by_cursor_continues_after_the_cursor_and_is_the_last() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(8L, PageRequest.ofSize(21)))
+        .thenReturn(List.of(review(9)));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/cursor")
+                    .param("cursor", cursor("ASC:8"))
+                    .param("direction", "DESC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    String expectedJson = mapper.writeValueAsString(new CursorPage<>(List.of(review(9)), null));
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_cursor_in_ascending_order_start_at_the_lowest_id() throws Exception {
+    // arrange
+    when(menuItemReviewRepository.findByIdGreaterThanOrderByIdAsc(
+            Long.MIN_VALUE, PageRequest.ofSize(101)))
+        .thenReturn(List.of());
+
+    // act
+    mockMvc
+        .perform(get("/api/menuitemreview/cursor?direction=ASC&size=1000"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(menuItemReviewRepository, times(1))
+        .findByIdGreaterThanOrderByIdAsc(Long.MIN_VALUE, PageRequest.ofSize(101));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_cursor_rejects_bad_cursors_and_sizes() throws Exception {
+    for (String bad : List.of("not base64!", cursor("DESC"), cursor("UP:8"), cursor("DESC:x"))) {
+      MvcResult response =
+          mockMvc
+              .perform(get("/api/menuitemreview/cursor").param("cursor", bad))
+              .andExpect(status().isBadRequest())
+              .andReturn();
+      assertEquals("Invalid cursor " + bad, response.getResponse().getErrorMessage());
+    }
+    mockMvc.perform(get("/api/menuitemreview/cursor?size=0")).andExpect(status().isBadRequest());
+    verify(menuItemReviewRepository, never()).findByIdLessThanOrderByIdDesc(anyLong(), any());
+  }
+
+  // ---------- GET /byItem, /byReviewer, /byDate ----------
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_item_are_a_page_newest_first() throws Exception {
+    // arrange
+    Pageable pageable =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "dateReviewed").and(Sort.by(Sort.Direction.DESC, "id")));
+    Page<MenuItemReview> page = new PageImpl<>(List.of(review(9), review(8)), pageable, 2);
+    when(menuItemReviewRepository.findByItemId(100L, pageable)).thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/menuitemreview/byItem?itemId=100"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(new PagedModel<>(page)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_reviewer_are_a_page_in_the_direction_asked_for() throws Exception {
+    // arrange
+    Pageable pageable =
+        PageRequest.of(
+            2,
+            100,
+            Sort.by(Sort.Direction.ASC, "dateReviewed").and(Sort.by(Sort.Direction.ASC, "id")));
+    Page<MenuItemReview> page = new PageImpl<>(List.of(), pageable, 0);
+    when(menuItemReviewRepository.findByReviewerEmail("a@ucsb.edu", pageable)).thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/byReviewer")
+                    .param("reviewerEmail", "a@ucsb.edu")
+                    .param("page", "2")
+                    .param("size", "1000")
+                    .param("direction", "ASC"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).findByReviewerEmail("a@ucsb.edu", pageable);
+    assertEquals(
+        mapper.writeValueAsString(new PagedModel<>(page)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_date_are_those_from_the_start_up_to_the_end() throws Exception {
+    // arrange
+    LocalDateTime from = LocalDateTime.parse("2025-10-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2025-11-01T00:00:00");
+    Pageable pageable =
+        PageRequest.of(
+            0,
+            20,
+            Sort.by(Sort.Direction.DESC, "dateReviewed").and(Sort.by(Sort.Direction.DESC, "id")));
+    Page<MenuItemReview> page = new PageImpl<>(List.of(review(9)), pageable, 1);
+    when(menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+            from, to, pageable))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/byDate")
+                    .param("from", "2025-10-01T00:00:00")
+                    .param("to", "2025-11-01T00:00:00"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(new PagedModel<>(page)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_date_rejects_an_empty_period() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/menuitemreview/byDate")
+                    .param("from", "2025-11-01T00:00:00")
+                    .param("to", "2025-11-01T00:00:00"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    assertEquals("from must be before to", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void reviews_by_item_rejects_negative_page_and_empty_size() throws Exception {
+    mockMvc
+        .perform(get("/api/menuitemreview/byItem?itemId=100&page=-1"))
+        .andExpect(status().isBadRequest());
+    mockMvc
+        .perform(get("/api/menuitemreview/byItem?itemId=100&size=0"))
+        .andExpect(status().isBadRequest());
+    verify(menuItemReviewRepository, never()).findByItemId(anyLong(), any());
+  }
+
+  @Test
+  public void logged_out_users_cannot_get_reviews_by_item_reviewer_or_date() throws Exception {
+    mockMvc.perform(get("/api/menuitemreview/byItem?itemId=100")).andExpect(status().is(403));
+    mockMvc
+        .perform(get("/api/menuitemreview/byReviewer?reviewerEmail=a@ucsb.edu"))
+        .andExpect(status().is(403));
+    mockMvc
+        .perform(get("/api/menuitemreview/byDate?from=2025-10-01T00:00:00&to=2025-11-01T00:00:00"))
+        .andExpect(status().is(403));
+  }
+
   // ---------- POST /post ----------
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
@@ -124,6 +370,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     ArgumentCaptor<MenuItemReview> captor = ArgumentCaptor.forClass(MenuItemReview.class);
     verify(menuItemReviewRepository, times(1)).save(captor.capture());
+    verify(menuItemRatingService, times(1)).reviewAdded(newReview);
+    verify(trendingMenuItemsService, times(1)).reviewAdded(newReview);
     MenuItemReview saved = captor.getValue();
 
     assertEquals(99L, saved.getItemId());
@@ -137,6 +385,29 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_post_review_with_stars_outside_1_to_5() throws Exception {
+    for (String stars : new String[] {"0", "7"}) {
+      MvcResult response =
+          mockMvc
+              .perform(
+                  post("/api/menuitemreview/post")
+                      .param("itemId", "99")
+                      .param("reviewerEmail", "admin@ucsb.edu")
+                      .param("stars", stars)
+                      .param("dateReviewed", "2025-10-25T20:15:00")
+                      .param("comments", "Perfect!")
+                      .with(csrf()))
+              .andExpect(status().isBadRequest())
+              .andReturn();
+      assertEquals("stars must be between 1 and 5", response.getResponse().getErrorMessage());
+    }
+
+    verify(menuItemReviewRepository, never()).save(any());
+    verify(menuItemRatingService, never()).reviewAdded(any());
+  }
+
   // ---------- GET by id ----------
   @WithMockUser(roles = {"USER"})
   @Test
@@ -220,6 +491,9 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
     verify(menuItemReviewRepository, times(1)).findById(67L);
     verify(menuItemReviewRepository, times(1)).save(edited);
+    MenuItemReview before = MenuItemReview.builder().itemId(100L).stars(3).dateReviewed(t1).build();
+    verify(menuItemRatingService, times(1)).reviewChanged(before, edited);
+    verify(trendingMenuItemsService, times(1)).reviewChanged(before, edited);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(requestBody, responseString);
   }
@@ -257,6 +531,35 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     assertEquals("MenuItemReview with id 67 not found", json.get("message"));
   }
 
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void admin_cannot_edit_menuitemreview_to_stars_outside_1_to_5() throws Exception {
+    MenuItemReview body =
+        MenuItemReview.builder()
+            .itemId(100L)
+            .reviewerEmail("a@ucsb.edu")
+            .stars(6)
+            .dateReviewed(LocalDateTime.parse("2025-10-25T10:00:00"))
+            .comments("nice")
+            .build();
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview?id=67")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .characterEncoding("utf-8")
+                    .content(mapper.writeValueAsString(body))
+                    .with(csrf()))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    assertEquals("stars must be between 1 and 5", response.getResponse().getErrorMessage());
+    verify(menuItemReviewRepository, never()).findById(anyLong());
+    verify(menuItemReviewRepository, never()).save(any());
+    verify(menuItemRatingService, never()).reviewChanged(any(), any());
+  }
+
   // ---------- DELETE ----------
   @Test
   public void logged_out_users_cannot_delete() throws Exception {
@@ -294,6 +597,8 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
     // assert
     verify(menuItemReviewRepository, times(1)).findById(15L);
     verify(menuItemReviewRepository, times(1)).delete(any());
+    verify(menuItemRatingService, times(1)).reviewRemoved(mir);
+    verify(trendingMenuItemsService, times(1)).reviewRemoved(mir);
 
     var json = responseToJson(response);
     assertEquals("record 15 deleted", json.get("message"));
@@ -311,8 +616,238 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
             .andReturn();
 
     verify(menuItemReviewRepository, times(1)).findById(15L);
+    verify(menuItemRatingService, never()).reviewRemoved(any());
+    verify(trendingMenuItemsService, never()).reviewRemoved(any());
 
     var json = responseToJson(response);
     assertEquals("record 15 not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_menu_item_reviews_in_bulk() throws Exception {
+    // arrange
+    MenuItemReview good =
+        MenuItemReview.builder()
+            .id(1L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Good")
+            .build();
+    MenuItemReview fine =
+        MenuItemReview.builder()
+            .id(2L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Fine")
+            .build();
+    when(menuItemReviewRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1))
+        .saveAll(
+            List.of(
+                MenuItemReview.builder()
+                    .itemId(27L)
+                    .reviewerEmail("cgaucho@ucsb.edu")
+                    .stars(4)
+                    .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .comments("Good")
+                    .build(),
+                MenuItemReview.builder()
+                    .itemId(27L)
+                    .reviewerEmail("cgaucho@ucsb.edu")
+                    .stars(4)
+                    .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .comments("Fine")
+                    .build()));
+    verify(menuItemRatingService, times(1)).reviewAdded(good);
+    verify(trendingMenuItemsService, times(1)).reviewAdded(fine);
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void menu_item_reviews_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                MenuItemReview.builder()
+                                    .itemId(27L)
+                                    .reviewerEmail("cgaucho@ucsb.edu")
+                                    .stars(4)
+                                    .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+                                    .comments("Good")
+                                    .build(),
+                                MenuItemReview.builder().itemId(27L).stars(3).build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "reviewerEmail, dateReviewed, comments are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_menu_item_reviews_in_bulk() throws Exception {
+    // arrange
+    MenuItemReview existing =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Old")
+            .build();
+    MenuItemReview updated =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("New")
+            .build();
+    when(menuItemReviewRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    MenuItemReview before =
+        MenuItemReview.builder()
+            .itemId(27L)
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    verify(menuItemRatingService, times(1)).reviewChanged(before, updated);
+    verify(trendingMenuItemsService, times(1)).reviewChanged(before, updated);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_menu_item_reviews_in_bulk() throws Exception {
+    // arrange
+    MenuItemReview existing =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(4)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Old")
+            .build();
+    when(menuItemReviewRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, times(1)).deleteAll(List.of(existing));
+    verify(menuItemRatingService, times(1)).reviewRemoved(existing);
+    verify(trendingMenuItemsService, times(1)).reviewRemoved(existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void menu_item_reviews_with_stars_outside_1_to_5_are_not_written_in_bulk()
+      throws Exception {
+    // arrange
+    MenuItemReview none =
+        MenuItemReview.builder()
+            .id(7L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(0)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Awful")
+            .build();
+    MenuItemReview six =
+        MenuItemReview.builder()
+            .id(8L)
+            .itemId(27L)
+            .reviewerEmail("cgaucho@ucsb.edu")
+            .stars(6)
+            .dateReviewed(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .comments("Amazing")
+            .build();
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/menuitemreview/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(none, six))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(menuItemReviewRepository, never()).saveAll(any());
+    verify(menuItemRatingService, never()).reviewChanged(any(), any());
+    List<Map<String, Object>> results =
+        (List<Map<String, Object>>) responseToJson(response).get("results");
+    assertEquals("stars must be between 1 and 5", results.get(0).get("message"));
+    assertEquals("stars must be between 1 and 5", results.get(1).get("message"));
+  }
 }
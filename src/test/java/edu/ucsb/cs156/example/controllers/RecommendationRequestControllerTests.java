@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -21,6 +22,7 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
@@ -28,6 +30,8 @@ import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -52,6 +56,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(recommendationRequestRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc
         .perform(get("/api/recommendationrequests/all"))
         .andExpect(status().is(200)); // logged in user ok
@@ -102,7 +108,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     var expected = new ArrayList<RecommendationRequest>();
     expected.addAll(Arrays.asList(rr1, rr2));
 
-    when(recommendationRequestRepository.findAll()).thenReturn(expected);
+    when(recommendationRequestRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expected));
 
     // act
     MvcResult response =
@@ -112,7 +119,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
             .andReturn();
 
     // assert
-    verify(recommendationRequestRepository, times(1)).findAll();
+    verify(recommendationRequestRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expected);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -371,4 +378,186 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_recommendation_requests_in_bulk() throws Exception {
+    // arrange
+    RecommendationRequest good =
+        RecommendationRequest.builder()
+            .id(1L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("Good")
+            .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+            .done(false)
+            .build();
+    RecommendationRequest fine =
+        RecommendationRequest.builder()
+            .id(2L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("Fine")
+            .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+            .done(false)
+            .build();
+    when(recommendationRequestRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1))
+        .saveAll(
+            List.of(
+                RecommendationRequest.builder()
+                    .requesterEmail("cgaucho@ucsb.edu")
+                    .professorEmail("phtcon@ucsb.edu")
+                    .explanation("Good")
+                    .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+                    .done(false)
+                    .build(),
+                RecommendationRequest.builder()
+                    .requesterEmail("cgaucho@ucsb.edu")
+                    .professorEmail("phtcon@ucsb.edu")
+                    .explanation("Fine")
+                    .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+                    .done(false)
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void recommendation_requests_are_not_created_in_bulk_when_a_row_is_invalid()
+      throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                RecommendationRequest.builder()
+                                    .requesterEmail("cgaucho@ucsb.edu")
+                                    .professorEmail("phtcon@ucsb.edu")
+                                    .explanation("Good")
+                                    .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+                                    .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+                                    .done(false)
+                                    .build(),
+                                RecommendationRequest.builder()
+                                    .requesterEmail("cgaucho@ucsb.edu")
+                                    .build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "professorEmail, explanation, dateRequested, dateNeeded are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_recommendation_requests_in_bulk() throws Exception {
+    // arrange
+    RecommendationRequest existing =
+        RecommendationRequest.builder()
+            .id(7L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("Old")
+            .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+            .done(false)
+            .build();
+    RecommendationRequest updated =
+        RecommendationRequest.builder()
+            .id(7L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("New")
+            .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+            .done(false)
+            .build();
+    when(recommendationRequestRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_recommendation_requests_in_bulk() throws Exception {
+    // arrange
+    RecommendationRequest existing =
+        RecommendationRequest.builder()
+            .id(7L)
+            .requesterEmail("cgaucho@ucsb.edu")
+            .professorEmail("phtcon@ucsb.edu")
+            .explanation("Old")
+            .dateRequested(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .dateNeeded(LocalDateTime.parse("2025-01-02T12:00:00"))
+            .done(false)
+            .build();
+    when(recommendationRequestRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/recommendationrequests/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(recommendationRequestRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
 }
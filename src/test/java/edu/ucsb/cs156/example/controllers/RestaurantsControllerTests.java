@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -11,23 +15,36 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.TableVersions;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = RestaurantsController.class)
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
 @Import(TestConfig.class)
 public class RestaurantsControllerTests extends ControllerTestCase {
 
@@ -35,6 +52,15 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @Autowired CacheManager cacheManager;
+
+  @BeforeEach
+  public void clearCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
+  @Autowired TableVersions tableVersions;
+
   // Authorization tests for /api/phones/admin/all
 
   @Test
@@ -47,6 +73,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/restaurants/all")).andExpect(status().is(200)); // logged
   }
 
@@ -131,7 +159,8 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     ArrayList<Restaurant> expectedRestaurants = new ArrayList<>();
     expectedRestaurants.addAll(Arrays.asList(restaurant1, restaurant2));
 
-    when(restaurantRepository.findAll()).thenReturn(expectedRestaurants);
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedRestaurants));
 
     // act
     MvcResult response =
@@ -139,7 +168,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(restaurantRepository, times(1)).findAll();
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedRestaurants);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -277,4 +306,422 @@ public class RestaurantsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("Restaurant with id 67 not found", json.get("message"));
   }
+
+  // Tests for conditional GETs (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void restaurants_that_have_not_changed_are_not_sent_again() throws Exception {
+    // arrange
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    when(restaurantRepository.findById(eq(7L)))
+        .thenReturn(Optional.of(Restaurant.builder().id(7L).name("Freebirds").build()));
+
+    // act
+    MvcResult all =
+        mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk()).andReturn();
+    String etag = all.getResponse().getHeader("ETag");
+    MvcResult notModified =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("If-None-Match", etag))
+            .andExpect(status().isNotModified())
+            .andReturn();
+    mockMvc
+        .perform(get("/api/restaurants?id=7").header("If-None-Match", etag))
+        .andExpect(status().isNotModified());
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, 1000));
+    verify(restaurantRepository, times(0)).findById(7L);
+    assertEquals("no-cache, private", all.getResponse().getHeader("Cache-Control"));
+    assertEquals(etag, notModified.getResponse().getHeader("ETag"));
+    assertEquals("", notModified.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void restaurants_are_sent_again_once_one_has_been_written() throws Exception {
+    // arrange
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    when(restaurantRepository.save(any())).thenReturn(Restaurant.builder().name("IV Deli").build());
+    String etag =
+        mockMvc
+            .perform(get("/api/restaurants/all"))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+
+    // act
+    mockMvc
+        .perform(post("/api/restaurants/post?name=IV%20Deli&description=sandwiches").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult changed =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("If-None-Match", etag))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+    assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void users_without_role_user_get_no_etag_and_are_refused() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("If-None-Match", "*"))
+            .andExpect(status().isForbidden())
+            .andReturn();
+
+    // assert
+    assertNull(response.getResponse().getHeader("ETag"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void requests_not_handled_by_a_controller_get_no_etag() throws Exception {
+    // act
+    MvcResult response = mockMvc.perform(get("/no-such-page.txt")).andReturn();
+
+    // assert
+    assertNull(response.getResponse().getHeader("ETag"));
+  }
+
+  // Tests for kept, gzipped responses (see PrecompressedResponses); each starts from a version
+  // of the table no other test has seen, so that none is sent a body kept by another
+
+  private static ArrayList<Restaurant> manyRestaurants() {
+    ArrayList<Restaurant> restaurants = new ArrayList<>();
+    for (long id = 1; id <= 40; id++) {
+      restaurants.add(
+          Restaurant.builder()
+              .id(id)
+              .name("Restaurant " + id)
+              .description("A restaurant somewhere in Isla Vista, number " + id)
+              .build());
+    }
+    return restaurants;
+  }
+
+  private static String gunzip(byte[] bytes) throws Exception {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void large_restaurant_lists_are_gzipped_once_and_then_sent_as_they_are() throws Exception {
+    // arrange
+    tableVersions.bump("restaurants");
+    ArrayList<Restaurant> restaurants = manyRestaurants();
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(restaurants));
+
+    // act
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "deflate, gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult second =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "*"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, 1000));
+    String json = gunzip(first.getResponse().getContentAsByteArray());
+    assertEquals("gzip", first.getResponse().getHeader("Content-Encoding"));
+    assertEquals(mapper.writeValueAsString(restaurants), json);
+    assertEquals("gzip", second.getResponse().getHeader("Content-Encoding"));
+    assertEquals("Accept-Encoding", second.getResponse().getHeader("Vary"));
+    assertEquals("application/json", second.getResponse().getContentType());
+    assertEquals(
+        gunzip(first.getResponse().getContentAsByteArray()),
+        gunzip(second.getResponse().getContentAsByteArray()));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void gzipped_restaurant_lists_are_sent_with_their_truncated_header() throws Exception {
+    // arrange
+    tableVersions.bump("restaurants");
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(manyRestaurants(), PageRequest.of(0, 1000), 5000));
+
+    // act
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult second =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, 1000));
+    assertEquals("true", first.getResponse().getHeader("X-Truncated"));
+    assertEquals("true", second.getResponse().getHeader("X-Truncated"));
+    assertEquals("gzip", second.getResponse().getHeader("Content-Encoding"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void gzipped_restaurant_lists_are_not_sent_once_one_has_been_written() throws Exception {
+    // arrange
+    tableVersions.bump("restaurants");
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(manyRestaurants()));
+    when(restaurantRepository.save(any())).thenReturn(Restaurant.builder().name("IV Deli").build());
+    mockMvc
+        .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk());
+
+    // act
+    mockMvc
+        .perform(post("/api/restaurants/post?name=IV%20Deli&description=sandwiches").with(csrf()))
+        .andExpect(status().isOk());
+    MvcResult changed =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+    assertEquals("gzip", changed.getResponse().getHeader("Content-Encoding"));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void restaurants_are_not_gzipped_for_clients_that_do_not_accept_gzip() throws Exception {
+    // arrange
+    tableVersions.bump("restaurants");
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(manyRestaurants()));
+
+    // act; the restaurants cache is cleared so that only a kept body could save a read
+    MvcResult none = mockMvc.perform(get("/api/restaurants/all")).andReturn();
+    cacheManager.getCache("restaurants").clear();
+    MvcResult refused =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip;q=0, br"))
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+    assertNull(none.getResponse().getHeader("Content-Encoding"));
+    assertNull(refused.getResponse().getHeader("Content-Encoding"));
+    assertEquals(
+        mapper.writeValueAsString(manyRestaurants()), refused.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void small_restaurant_responses_are_not_gzipped() throws Exception {
+    // arrange
+    tableVersions.bump("restaurants");
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    when(restaurantRepository.findById(eq(7L)))
+        .thenReturn(Optional.of(Restaurant.builder().id(7L).name("Freebirds").build()));
+
+    // act
+    MvcResult all =
+        mockMvc
+            .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult one =
+        mockMvc
+            .perform(get("/api/restaurants?id=7").header("Accept-Encoding", "gzip"))
+            .andExpect(status().isOk())
+            .andReturn();
+    cacheManager.getCache("restaurants").clear();
+    mockMvc
+        .perform(get("/api/restaurants/all").header("Accept-Encoding", "gzip"))
+        .andExpect(status().isOk());
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+    assertNull(all.getResponse().getHeader("Content-Encoding"));
+    assertNull(one.getResponse().getHeader("Content-Encoding"));
+    assertTrue(one.getResponse().getContentAsString().contains("Freebirds"));
+  }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_restaurants_in_bulk() throws Exception {
+    // arrange
+    Restaurant good = Restaurant.builder().id(1L).name("Good").description("burritos").build();
+    Restaurant fine = Restaurant.builder().id(2L).name("Fine").description("burritos").build();
+    when(restaurantRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1))
+        .saveAll(
+            List.of(
+                Restaurant.builder().name("Good").description("burritos").build(),
+                Restaurant.builder().name("Fine").description("burritos").build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void restaurants_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                Restaurant.builder().name("Good").description("burritos").build(),
+                                Restaurant.builder().name("Freebirds").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "description is required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_restaurants_in_bulk() throws Exception {
+    // arrange
+    Restaurant existing = Restaurant.builder().id(7L).name("Old").description("burritos").build();
+    Restaurant updated = Restaurant.builder().id(7L).name("New").description("burritos").build();
+    when(restaurantRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_restaurants_in_bulk() throws Exception {
+    // arrange
+    Restaurant existing = Restaurant.builder().id(7L).name("Old").description("burritos").build();
+    when(restaurantRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/restaurants/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(restaurantRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  // Tests for the cache of the /all listings, keyed by the version of the table (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void restaurants_are_read_once_and_then_served_from_the_cache() throws Exception {
+    // arrange
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+
+    // act
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    // assert
+    verify(restaurantRepository, times(1)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void restaurants_are_read_again_once_a_restaurant_has_been_written() throws Exception {
+    // arrange
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    // act
+    mockMvc
+        .perform(post("/api/restaurants/post?name=IV%20Deli&description=sandwiches").with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void restaurants_are_read_again_once_another_server_has_written_a_restaurant()
+      throws Exception {
+    // arrange
+    when(restaurantRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    // act; the other server changes the version in the database, but not the cache of this one
+    tableVersions.bump("restaurants");
+    mockMvc.perform(get("/api/restaurants/all")).andExpect(status().isOk());
+
+    // assert
+    verify(restaurantRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
 }
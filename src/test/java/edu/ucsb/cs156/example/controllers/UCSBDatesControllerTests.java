@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -11,6 +12,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.TableVersions;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
@@ -18,17 +20,29 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBDatesController.class)
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
 @Import(TestConfig.class)
 public class UCSBDatesControllerTests extends ControllerTestCase {
 
@@ -36,6 +50,25 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  private static final Sort BY_DATE = Sort.by("localDateTime").and(Sort.by("id"));
+
+  private static final UCSBDate fall2024 =
+      UCSBDate.builder()
+          .id(1L)
+          .name("firstDayOfClasses")
+          .quarterYYYYQ("20244")
+          .localDateTime(LocalDateTime.parse("2024-09-26T00:00:00"))
+          .build();
+
+  @Autowired CacheManager cacheManager;
+
+  @Autowired TableVersions tableVersions;
+
+  @BeforeEach
+  public void clearCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
   // Authorization tests for /api/ucsbdates/admin/all
 
   @Test
@@ -48,6 +81,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDateRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().is(200)); // logged
   }
 
@@ -150,7 +185,8 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     ArrayList<UCSBDate> expectedDates = new ArrayList<>();
     expectedDates.addAll(Arrays.asList(ucsbDate1, ucsbDate2));
 
-    when(ucsbDateRepository.findAll()).thenReturn(expectedDates);
+    when(ucsbDateRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedDates));
 
     // act
     MvcResult response =
@@ -158,7 +194,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDateRepository, times(1)).findAll();
+    verify(ucsbDateRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedDates);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -328,4 +364,490 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDate with id 67 not found", json.get("message"));
   }
+
+  // Tests for the lookups by quarter and by date
+
+  @Test
+  public void logged_out_users_cannot_get_dates_by_quarter_or_date() throws Exception {
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().is(403));
+    mockMvc.perform(get("/api/ucsbdates/quarters?from=20241&to=20244")).andExpect(status().is(403));
+    mockMvc
+        .perform(get("/api/ucsbdates/between?from=2024-01-01T00:00:00&to=2025-01-01T00:00:00"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_dates_of_a_quarter_which_are_then_cached()
+      throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20244", BY_DATE)).thenReturn(List.of(fall2024));
+
+    // act
+    MvcResult first =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult second =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).findAllByQuarterYYYYQ("20244", BY_DATE);
+    String expectedJson = mapper.writeValueAsString(List.of(fall2024));
+    assertEquals(expectedJson, first.getResponse().getContentAsString());
+    assertEquals(expectedJson, second.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void the_cached_dates_of_a_quarter_are_forgotten_when_a_date_is_posted() throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20244", BY_DATE)).thenReturn(List.of(fall2024));
+    when(ucsbDateRepository.save(any())).thenReturn(fall2024);
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/post?name=lastDayOfClasses&quarterYYYYQ=20244&localDateTime=2024-12-06T00:00:00")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20244", BY_DATE);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void the_cached_dates_of_both_quarters_are_forgotten_when_a_date_moves() throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20244", BY_DATE)).thenReturn(List.of(fall2024));
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20251", BY_DATE)).thenReturn(List.of());
+    when(ucsbDateRepository.findById(eq(1L)))
+        .thenReturn(
+            Optional.of(
+                UCSBDate.builder()
+                    .id(1L)
+                    .name(fall2024.getName())
+                    .quarterYYYYQ("20244")
+                    .localDateTime(fall2024.getLocalDateTime())
+                    .build()));
+    UCSBDate moved =
+        UCSBDate.builder()
+            .id(1L)
+            .name(fall2024.getName())
+            .quarterYYYYQ("20251")
+            .localDateTime(fall2024.getLocalDateTime())
+            .build();
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20251")).andExpect(status().isOk());
+    mockMvc
+        .perform(
+            put("/api/ucsbdates?id=1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(moved))
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20251")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20244", BY_DATE);
+    verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20251", BY_DATE);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void the_cached_dates_of_a_quarter_are_forgotten_when_a_date_is_deleted()
+      throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20244", BY_DATE)).thenReturn(List.of(fall2024));
+    when(ucsbDateRepository.findById(eq(1L))).thenReturn(Optional.of(fall2024));
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+    mockMvc.perform(delete("/api/ucsbdates?id=1").with(csrf())).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20244", BY_DATE);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void the_cached_dates_of_a_quarter_are_forgotten_once_another_server_has_written_a_date()
+      throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAllByQuarterYYYYQ("20244", BY_DATE)).thenReturn(List.of(fall2024));
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+
+    // act
+    tableVersions.bump("ucsbDates");
+    mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20244")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAllByQuarterYYYYQ("20244", BY_DATE);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void quarters_must_be_in_the_format_YYYYQ() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarter?quarterYYYYQ=F24"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    MvcResult badQuarter =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarters?from=20241&to=20245"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    assertEquals("Invalid quarter F24 (expected YYYYQ)", response.getResponse().getErrorMessage());
+    assertEquals(
+        "Invalid quarter 20245 (expected YYYYQ)", badQuarter.getResponse().getErrorMessage());
+    verify(ucsbDateRepository, never()).findAllByQuarterYYYYQ(any(), any());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_dates_of_a_range_of_quarters() throws Exception {
+    // arrange
+    PageRequest pageRequest = PageRequest.of(1, 100, Sort.by("quarterYYYYQ").and(BY_DATE));
+    Page<UCSBDate> page = new PageImpl<>(List.of(fall2024), pageRequest, 101);
+    when(ucsbDateRepository.findByQuarterYYYYQBetween("20241", "20244", pageRequest))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarters?from=20241&to=20244&page=1&size=500"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(new PagedModel<>(page)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_range_of_quarters_must_not_end_before_it_starts() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarters?from=20244&to=20241"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    assertEquals("from must not be after to", response.getResponse().getErrorMessage());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void logged_in_users_can_get_the_dates_in_a_period() throws Exception {
+    // arrange
+    LocalDateTime from = LocalDateTime.parse("2024-09-01T00:00:00");
+    LocalDateTime to = LocalDateTime.parse("2025-01-01T00:00:00");
+    PageRequest pageRequest = PageRequest.of(0, 20, BY_DATE);
+    Page<UCSBDate> page = new PageImpl<>(List.of(fall2024), pageRequest, 1);
+    when(ucsbDateRepository.findByLocalDateTimeGreaterThanEqualAndLocalDateTimeLessThan(
+            from, to, pageRequest))
+        .thenReturn(page);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(get("/api/ucsbdates/between?from=2024-09-01T00:00:00&to=2025-01-01T00:00:00"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        mapper.writeValueAsString(new PagedModel<>(page)),
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void a_period_must_end_after_it_starts_and_be_read_a_page_at_a_time() throws Exception {
+    // act
+    MvcResult empty =
+        mockMvc
+            .perform(get("/api/ucsbdates/between?from=2025-01-01T00:00:00&to=2025-01-01T00:00:00"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    MvcResult negativePage =
+        mockMvc
+            .perform(
+                get(
+                    "/api/ucsbdates/between?from=2024-01-01T00:00:00&to=2025-01-01T00:00:00&page=-1"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+    MvcResult emptyPage =
+        mockMvc
+            .perform(get("/api/ucsbdates/quarters?from=20241&to=20244&size=0"))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    assertEquals("from must be before to", empty.getResponse().getErrorMessage());
+    assertEquals(
+        "page must be at least 0 and size at least 1",
+        negativePage.getResponse().getErrorMessage());
+    assertEquals(
+        "page must be at least 0 and size at least 1", emptyPage.getResponse().getErrorMessage());
+  }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_dates_in_bulk() throws Exception {
+    // arrange
+    UCSBDate good =
+        UCSBDate.builder()
+            .id(1L)
+            .quarterYYYYQ("20251")
+            .name("Good")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    UCSBDate fine =
+        UCSBDate.builder()
+            .id(2L)
+            .quarterYYYYQ("20251")
+            .name("Fine")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(ucsbDateRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1))
+        .saveAll(
+            List.of(
+                UCSBDate.builder()
+                    .quarterYYYYQ("20251")
+                    .name("Good")
+                    .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .build(),
+                UCSBDate.builder()
+                    .quarterYYYYQ("20251")
+                    .name("Fine")
+                    .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void dates_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                UCSBDate.builder()
+                                    .quarterYYYYQ("20251")
+                                    .name("Good")
+                                    .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+                                    .build(),
+                                UCSBDate.builder().quarterYYYYQ("20251").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "name, localDateTime are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_dates_in_bulk() throws Exception {
+    // arrange
+    UCSBDate existing =
+        UCSBDate.builder()
+            .id(7L)
+            .quarterYYYYQ("20251")
+            .name("Old")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    UCSBDate updated =
+        UCSBDate.builder()
+            .id(7L)
+            .quarterYYYYQ("20251")
+            .name("New")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(ucsbDateRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_dates_in_bulk() throws Exception {
+    // arrange
+    UCSBDate existing =
+        UCSBDate.builder()
+            .id(7L)
+            .quarterYYYYQ("20251")
+            .name("Old")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+    when(ucsbDateRepository.findAllById(List.of(7L))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void dates_with_an_invalid_quarter_are_not_created_in_bulk() throws Exception {
+    // arrange
+    UCSBDate date =
+        UCSBDate.builder()
+            .quarterYYYYQ("2025F")
+            .name("finals")
+            .localDateTime(LocalDateTime.parse("2025-01-01T12:00:00"))
+            .build();
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdates/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(date))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDateRepository, never()).saveAll(any());
+    assertEquals(
+        "Invalid quarter 2025F (expected YYYYQ)",
+        ((List<Map<String, Object>>) responseToJson(response).get("results"))
+            .get(0)
+            .get("message"));
+  }
+
+  // Tests for the cache of the /all listings, keyed by the version of the table (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void dates_are_read_once_and_then_served_from_the_cache() throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+
+    // act
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(1)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dates_are_read_again_once_a_date_has_been_written() throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/post?name=lastDayOfClasses&quarterYYYYQ=20244&localDateTime=2024-12-06T00:00:00")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void dates_are_read_again_once_another_server_has_written_a_date() throws Exception {
+    // arrange
+    when(ucsbDateRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+    // act; the other server changes the version in the database, but not the cache of this one
+    tableVersions.bump("ucsbDates");
+    mockMvc.perform(get("/api/ucsbdates/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDateRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
 }
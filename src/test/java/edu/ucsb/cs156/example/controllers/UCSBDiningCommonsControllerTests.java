@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -11,23 +12,33 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.TableVersions;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBDiningCommonsController.class)
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
 @Import(TestConfig.class)
 public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
@@ -35,6 +46,15 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
   @MockitoBean UserRepository userRepository;
 
+  @Autowired CacheManager cacheManager;
+
+  @Autowired TableVersions tableVersions;
+
+  @BeforeEach
+  public void clearCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
   // Authorization tests for /api/ucsbdiningcommons/admin/all
 
   @Test
@@ -47,6 +67,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDiningCommonsRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().is(200)); // logged
   }
 
@@ -163,7 +185,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
     ArrayList<UCSBDiningCommons> expectedCommons = new ArrayList<>();
     expectedCommons.addAll(Arrays.asList(carrillo, dlg));
 
-    when(ucsbDiningCommonsRepository.findAll()).thenReturn(expectedCommons);
+    when(ucsbDiningCommonsRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedCommons));
 
     // act
     MvcResult response =
@@ -171,7 +194,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbDiningCommonsRepository, times(1)).findAll();
+    verify(ucsbDiningCommonsRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedCommons);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -354,4 +377,242 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_dining_commons_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommons good =
+        UCSBDiningCommons.builder()
+            .code("DLG")
+            .name("Good")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(true)
+            .latitude(34.4)
+            .longitude(-119.8)
+            .build();
+    UCSBDiningCommons fine =
+        UCSBDiningCommons.builder()
+            .code("ORT")
+            .name("Fine")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(true)
+            .latitude(34.4)
+            .longitude(-119.8)
+            .build();
+    when(ucsbDiningCommonsRepository.findAllById(List.of("DLG", "ORT"))).thenReturn(List.of());
+    when(ucsbDiningCommonsRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1))
+        .saveAll(
+            List.of(
+                UCSBDiningCommons.builder()
+                    .code("DLG")
+                    .name("Good")
+                    .hasSackMeal(true)
+                    .hasTakeOutMeal(false)
+                    .hasDiningCam(true)
+                    .latitude(34.4)
+                    .longitude(-119.8)
+                    .build(),
+                UCSBDiningCommons.builder()
+                    .code("ORT")
+                    .name("Fine")
+                    .hasSackMeal(true)
+                    .hasTakeOutMeal(false)
+                    .hasDiningCam(true)
+                    .latitude(34.4)
+                    .longitude(-119.8)
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":\"ORT\",\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void dining_commons_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                UCSBDiningCommons.builder()
+                                    .code("DLG")
+                                    .name("Good")
+                                    .hasSackMeal(true)
+                                    .hasTakeOutMeal(false)
+                                    .hasDiningCam(true)
+                                    .latitude(34.4)
+                                    .longitude(-119.8)
+                                    .build(),
+                                UCSBDiningCommons.builder().name("Carrillo").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "code, latitude, longitude are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_dining_commons_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommons existing =
+        UCSBDiningCommons.builder()
+            .code("DLG")
+            .name("Old")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(true)
+            .latitude(34.4)
+            .longitude(-119.8)
+            .build();
+    UCSBDiningCommons updated =
+        UCSBDiningCommons.builder()
+            .code("DLG")
+            .name("New")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(true)
+            .latitude(34.4)
+            .longitude(-119.8)
+            .build();
+    when(ucsbDiningCommonsRepository.findAllById(List.of("DLG"))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_dining_commons_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommons existing =
+        UCSBDiningCommons.builder()
+            .code("DLG")
+            .name("Old")
+            .hasSackMeal(true)
+            .hasTakeOutMeal(false)
+            .hasDiningCam(true)
+            .latitude(34.4)
+            .longitude(-119.8)
+            .build();
+    when(ucsbDiningCommonsRepository.findAllById(List.of("DLG"))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdiningcommons/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[\"DLG\"]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  // Tests for the cache of the /all listings, keyed by the version of the table (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void dining_commons_are_read_once_and_then_served_from_the_cache() throws Exception {
+    // arrange
+    when(ucsbDiningCommonsRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+
+    // act
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(1)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dining_commons_are_read_again_once_a_dining_commons_has_been_written()
+      throws Exception {
+    // arrange
+    when(ucsbDiningCommonsRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/ucsbdiningcommons/post?code=carrillo&name=Carrillo&hasSackMeal=false&hasTakeOutMeal=false&hasDiningCam=true&latitude=34.4&longitude=-119.8")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void dining_commons_are_read_again_once_another_server_has_written_a_dining_commons()
+      throws Exception {
+    // arrange
+    when(ucsbDiningCommonsRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+    // act; the other server changes the version in the database, but not the cache of this one
+    tableVersions.bump("ucsbDiningCommons");
+    mockMvc.perform(get("/api/ucsbdiningcommons/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbDiningCommonsRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
 }
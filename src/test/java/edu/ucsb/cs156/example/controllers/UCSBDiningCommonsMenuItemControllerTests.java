@@ -1,7 +1,9 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -18,12 +20,15 @@ import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
@@ -46,6 +51,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbDiningCommonsMenuItemRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc
         .perform(get("/api/ucsbdiningcommonsmenuitem/all"))
         .andExpect(status().is(200)); // logged
@@ -80,7 +87,8 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     ArrayList<UCSBDiningCommonsMenuItem> expectedDiningCommonsMenuItems = new ArrayList<>();
     expectedDiningCommonsMenuItems.add(ucsbDiningCommonsMenuItem1);
 
-    when(ucsbDiningCommonsMenuItemRepository.findAll()).thenReturn(expectedDiningCommonsMenuItems);
+    when(ucsbDiningCommonsMenuItemRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedDiningCommonsMenuItems));
 
     // act
     MvcResult response =
@@ -91,7 +99,7 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
 
     // assert
 
-    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll();
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedDiningCommonsMenuItems);
 
     String responseString = response.getResponse().getContentAsString();
@@ -317,4 +325,161 @@ public class UCSBDiningCommonsMenuItemControllerTests extends ControllerTestCase
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_menu_items_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommonsMenuItem good =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(1L)
+            .diningCommonsCode("ortega")
+            .name("Good")
+            .station("Grill")
+            .build();
+    UCSBDiningCommonsMenuItem fine =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(2L)
+            .diningCommonsCode("ortega")
+            .name("Fine")
+            .station("Grill")
+            .build();
+    when(ucsbDiningCommonsMenuItemRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1))
+        .saveAll(
+            List.of(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Good")
+                    .station("Grill")
+                    .build(),
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Fine")
+                    .station("Grill")
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":1,\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":2,\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void menu_items_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                UCSBDiningCommonsMenuItem.builder()
+                                    .diningCommonsCode("ortega")
+                                    .name("Good")
+                                    .station("Grill")
+                                    .build(),
+                                UCSBDiningCommonsMenuItem.builder().name("Tacos").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "diningCommonsCode, station are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_menu_items_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommonsMenuItem existing =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(7L)
+            .diningCommonsCode("ortega")
+            .name("Old")
+            .station("Grill")
+            .build();
+    UCSBDiningCommonsMenuItem updated =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(7L)
+            .diningCommonsCode("ortega")
+            .name("New")
+            .station("Grill")
+            .build();
+    when(ucsbDiningCommonsMenuItemRepository.findAllById(List.of(7L)))
+        .thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_menu_items_in_bulk() throws Exception {
+    // arrange
+    UCSBDiningCommonsMenuItem existing =
+        UCSBDiningCommonsMenuItem.builder()
+            .id(7L)
+            .diningCommonsCode("ortega")
+            .name("Old")
+            .station("Grill")
+            .build();
+    when(ucsbDiningCommonsMenuItemRepository.findAllById(List.of(7L)))
+        .thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/ucsbdiningcommonsmenuitem/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[7]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbDiningCommonsMenuItemRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":7,\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
 }
@@ -3,6 +3,7 @@ package edu.ucsb.cs156.example.controllers;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -14,29 +15,48 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.TableVersions;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UCSBOrganizationController.class)
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
 @Import(TestConfig.class)
 public class UCSBOrganizationControllerTests extends ControllerTestCase {
   @MockBean UCSBOrganizationRepository ucsbOrganizationRepository;
 
   @MockBean UserRepository userRepository;
 
+  @Autowired CacheManager cacheManager;
+
+  @Autowired TableVersions tableVersions;
+
+  @BeforeEach
+  public void clearCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
   @Test
   public void logged_out_users_cannot_get_all() throws Exception {
     mockMvc
@@ -47,6 +67,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
   @WithMockUser(roles = {"USER"})
   @Test
   public void logged_in_users_can_get_all() throws Exception {
+    when(ucsbOrganizationRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
     mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().is(200)); // logged
   }
 
@@ -79,7 +101,8 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     ArrayList<UCSBOrganization> expectedUCSBOrganization = new ArrayList<>();
     expectedUCSBOrganization.addAll(Arrays.asList(ucsborganization1));
 
-    when(ucsbOrganizationRepository.findAll()).thenReturn(expectedUCSBOrganization);
+    when(ucsbOrganizationRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(expectedUCSBOrganization));
 
     // act
     MvcResult response =
@@ -87,7 +110,7 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(ucsbOrganizationRepository, times(1)).findAll();
+    verify(ucsbOrganizationRepository, times(1)).findAll(PageRequest.of(0, 1000));
     String expectedJson = mapper.writeValueAsString(expectedUCSBOrganization);
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -311,4 +334,218 @@ public class UCSBOrganizationControllerTests extends ControllerTestCase {
     Map<String, Object> json = responseToJson(response);
     assertEquals("UCSBOrganization with id Yuchao not found", json.get("message"));
   }
+
+  // Tests for the bulk endpoints
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_organizations_in_bulk() throws Exception {
+    // arrange
+    UCSBOrganization good =
+        UCSBOrganization.builder()
+            .orgCode("DLG")
+            .orgTranslationShort("Good")
+            .orgTranslation("Good club")
+            .inactive(false)
+            .build();
+    UCSBOrganization fine =
+        UCSBOrganization.builder()
+            .orgCode("ORT")
+            .orgTranslationShort("Fine")
+            .orgTranslation("Fine club")
+            .inactive(false)
+            .build();
+    when(ucsbOrganizationRepository.findAllById(List.of("DLG", "ORT"))).thenReturn(List.of());
+    when(ucsbOrganizationRepository.saveAll(any())).thenReturn(List.of(good, fine));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/UCSBOrganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(good, fine))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1))
+        .saveAll(
+            List.of(
+                UCSBOrganization.builder()
+                    .orgCode("DLG")
+                    .orgTranslationShort("Good")
+                    .orgTranslation("Good club")
+                    .inactive(false)
+                    .build(),
+                UCSBOrganization.builder()
+                    .orgCode("ORT")
+                    .orgTranslationShort("Fine")
+                    .orgTranslation("Fine club")
+                    .inactive(false)
+                    .build()));
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"created\",\"message\":null},"
+            + "{\"index\":1,\"id\":\"ORT\",\"status\":\"created\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @SuppressWarnings("unchecked")
+  @Test
+  public void organizations_are_not_created_in_bulk_when_a_row_is_invalid() throws Exception {
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/UCSBOrganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(
+                        mapper.writeValueAsString(
+                            List.of(
+                                UCSBOrganization.builder()
+                                    .orgCode("DLG")
+                                    .orgTranslationShort("Good")
+                                    .orgTranslation("Good club")
+                                    .inactive(false)
+                                    .build(),
+                                UCSBOrganization.builder().orgCode("CARRILLO").build()))))
+            .andExpect(status().isBadRequest())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, never()).saveAll(any());
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("1 of 2 rows are invalid; none were written", json.get("message"));
+    assertEquals(
+        "orgTranslationShort, orgTranslation are required",
+        ((List<Map<String, Object>>) json.get("results")).get(1).get("message"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_update_organizations_in_bulk() throws Exception {
+    // arrange
+    UCSBOrganization existing =
+        UCSBOrganization.builder()
+            .orgCode("DLG")
+            .orgTranslationShort("Old")
+            .orgTranslation("Old club")
+            .inactive(false)
+            .build();
+    UCSBOrganization updated =
+        UCSBOrganization.builder()
+            .orgCode("DLG")
+            .orgTranslationShort("New")
+            .orgTranslation("New club")
+            .inactive(false)
+            .build();
+    when(ucsbOrganizationRepository.findAllById(List.of("DLG"))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                put("/api/UCSBOrganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(mapper.writeValueAsString(List.of(updated))))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).saveAll(List.of(updated));
+    assertEquals(updated, existing);
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"updated\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_delete_organizations_in_bulk() throws Exception {
+    // arrange
+    UCSBOrganization existing =
+        UCSBOrganization.builder()
+            .orgCode("DLG")
+            .orgTranslationShort("Old")
+            .orgTranslation("Old club")
+            .inactive(false)
+            .build();
+    when(ucsbOrganizationRepository.findAllById(List.of("DLG"))).thenReturn(List.of(existing));
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(
+                delete("/api/UCSBOrganization/bulk")
+                    .with(csrf())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("[\"DLG\"]"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).deleteAll(List.of(existing));
+    assertEquals(
+        "[{\"index\":0,\"id\":\"DLG\",\"status\":\"deleted\",\"message\":null}]",
+        response.getResponse().getContentAsString());
+  }
+
+  // Tests for the cache of the /all listings, keyed by the version of the table (see TableVersions)
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void organizations_are_read_once_and_then_served_from_the_cache() throws Exception {
+    // arrange
+    when(ucsbOrganizationRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+
+    // act
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbOrganizationRepository, times(1)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void organizations_are_read_again_once_an_organization_has_been_written()
+      throws Exception {
+    // arrange
+    when(ucsbOrganizationRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/UCSBOrganization/post?orgCode=SKY&orgTranslationShort=SKYDIVING&orgTranslation=SKYDIVING%20CLUB&inactive=false")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbOrganizationRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void organizations_are_read_again_once_another_server_has_written_an_organization()
+      throws Exception {
+    // arrange
+    when(ucsbOrganizationRepository.findAll(PageRequest.of(0, 1000)))
+        .thenReturn(new PageImpl<>(new ArrayList<>()));
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+
+    // act; the other server changes the version in the database, but not the cache of this one
+    tableVersions.bump("ucsbOrganizations");
+    mockMvc.perform(get("/api/UCSBOrganization/all")).andExpect(status().isOk());
+
+    // assert
+    verify(ucsbOrganizationRepository, times(2)).findAll(PageRequest.of(0, 1000));
+  }
 }
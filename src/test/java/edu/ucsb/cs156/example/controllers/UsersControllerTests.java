@@ -1,30 +1,58 @@
 package edu.ucsb.cs156.example.controllers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.SecurityConfig;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.cache.CacheType;
+import org.springframework.boot.test.autoconfigure.core.AutoConfigureCache;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PagedModel;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
 
 @WebMvcTest(controllers = UsersController.class)
+@AutoConfigureCache(cacheProvider = CacheType.CAFFEINE)
 @Import(TestConfig.class)
 public class UsersControllerTests extends ControllerTestCase {
 
-  @MockitoBean UserRepository userRepository;
+  @MockitoBean(answers = Answers.CALLS_REAL_METHODS)
+  UserRepository userRepository;
+
+  @Autowired SecurityConfig securityConfig;
+
+  @Autowired CacheManager cacheManager;
+
+  @BeforeEach
+  public void clearCaches() {
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
 
   @Test
   public void users__logged_out() throws Exception {
@@ -50,8 +78,12 @@ public class UsersControllerTests extends ControllerTestCase {
     ArrayList<User> expectedUsers = new ArrayList<>();
     expectedUsers.addAll(Arrays.asList(u1, u2, u));
 
-    when(userRepository.findAll()).thenReturn(expectedUsers);
-    String expectedJson = mapper.writeValueAsString(expectedUsers);
+    PageRequest pageRequest =
+        PageRequest.of(
+            0, 20, Sort.by(Sort.Direction.ASC, "id").and(Sort.by(Sort.Direction.ASC, "id")));
+    Page<User> page = new PageImpl<>(expectedUsers, pageRequest, 3);
+    when(userRepository.search(null, pageRequest)).thenReturn(page);
+    String expectedJson = mapper.writeValueAsString(new PagedModel<>(page));
 
     // act
 
@@ -60,8 +92,155 @@ public class UsersControllerTests extends ControllerTestCase {
 
     // assert
 
-    verify(userRepository, times(1)).findAll();
+    verify(userRepository, times(1)).search(null, pageRequest);
+    assertEquals("application/json", response.getResponse().getContentType());
     String responseString = response.getResponse().getContentAsString();
-    assertEquals(expectedJson, responseString);
+    assertEquals(mapper.readTree(expectedJson), mapper.readTree(responseString));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void users__admin_can_search_sort_and_page() throws Exception {
+
+    // arrange
+
+    User u1 = User.builder().id(1L).email("ph%_!x@ucsb.edu").build();
+    PageRequest pageRequest =
+        PageRequest.of(
+            2, 100, Sort.by(Sort.Direction.DESC, "email").and(Sort.by(Sort.Direction.DESC, "id")));
+    Page<User> page = new PageImpl<>(Arrays.asList(u1), pageRequest, 201);
+    when(userRepository.search("ph!%!_!!", pageRequest)).thenReturn(page);
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                get("/api/admin/users")
+                    .param("page", "2")
+                    .param("size", "500")
+                    .param("sort", "email")
+                    .param("direction", "DESC")
+                    .param("search", " Ph%_! "))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(
+        Map.of("size", 100, "number", 2, "totalElements", 201, "totalPages", 3), json.get("page"));
+    assertEquals(1, ((java.util.List<?>) json.get("content")).size());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void users__blank_search_lists_all_users() throws Exception {
+
+    // arrange
+
+    PageRequest pageRequest =
+        PageRequest.of(
+            0, 20, Sort.by(Sort.Direction.ASC, "id").and(Sort.by(Sort.Direction.ASC, "id")));
+    when(userRepository.search(null, pageRequest)).thenReturn(Page.empty(pageRequest));
+
+    // act
+
+    mockMvc.perform(get("/api/admin/users").param("search", "  ")).andExpect(status().isOk());
+
+    // assert
+
+    verify(userRepository, times(1)).search(null, pageRequest);
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void users__rejects_unknown_sort_property() throws Exception {
+    mockMvc
+        .perform(get("/api/admin/users").param("sort", "pictureUrl"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void users__rejects_bad_page_or_size() throws Exception {
+    mockMvc.perform(get("/api/admin/users").param("page", "-1")).andExpect(status().isBadRequest());
+    mockMvc.perform(get("/api/admin/users").param("size", "0")).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void evictAdminCache__logged_out() throws Exception {
+    mockMvc
+        .perform(post("/api/admin/users/evictAdminCache").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void evictAdminCache__user_logged_in() throws Exception {
+    mockMvc
+        .perform(post("/api/admin/users/evictAdminCache").with(csrf()))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void evictAdminCache__admin_can_evict_one_user() throws Exception {
+
+    // arrange
+
+    User admin = User.builder().email("someone@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("someone@ucsb.edu")).thenReturn(Optional.of(admin));
+    assertTrue(securityConfig.getAdmin("someone@ucsb.edu"));
+    admin.setAdmin(false);
+    assertTrue(securityConfig.getAdmin("SomeOne@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("someone@ucsb.edu");
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                post("/api/admin/users/evictAdminCache")
+                    .param("email", "Someone@ucsb.edu")
+                    .with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(
+        Map.of("message", "Cached admin flag cleared for Someone@ucsb.edu"),
+        responseToJson(response));
+    assertFalse(securityConfig.getAdmin("SOMEONE@ucsb.edu"));
+    // once more to find the subject whose current user is evicted
+    verify(userRepository, times(3)).findByEmail("someone@ucsb.edu");
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void evictAdminCache__admin_can_evict_all_users() throws Exception {
+
+    // arrange
+
+    when(userRepository.findByEmail("nobody@ucsb.edu")).thenReturn(Optional.empty());
+    assertFalse(securityConfig.getAdmin("nobody@ucsb.edu"));
+    assertFalse(securityConfig.getAdmin("nobody@ucsb.edu"));
+    verify(userRepository, times(1)).findByEmail("nobody@ucsb.edu");
+
+    // act
+
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/admin/users/evictAdminCache").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    assertEquals(
+        Map.of("message", "Cached admin flags cleared for all users"), responseToJson(response));
+    assertFalse(securityConfig.getAdmin("nobody@ucsb.edu"));
+    verify(userRepository, times(2)).findByEmail("nobody@ucsb.edu");
   }
 }
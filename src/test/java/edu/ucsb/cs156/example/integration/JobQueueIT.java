@@ -0,0 +1,100 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobQueueService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobQueueIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobQueueService jobQueueService;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobRetentionService jobRetentionService;
+
+  @MockitoBean UserRepository userRepository;
+
+  @Test
+  public void running_jobs_with_an_expired_or_missing_lease_are_recovered() throws Exception {
+    // arrange
+    ZonedDateTime now = ZonedDateTime.now();
+    Job noLease = jobsRepository.save(Job.builder().status("running").build());
+    Job expired =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .leaseOwner("gone")
+                .leaseExpiresAt(now.minusMinutes(5))
+                .build());
+    Job leased =
+        jobsRepository.save(
+            Job.builder()
+                .status("running")
+                .leaseOwner("alive")
+                .leaseExpiresAt(now.plusMinutes(5))
+                .build());
+
+    // act
+    jobQueueService.recoverExpiredLeases();
+
+    // assert
+    assertEquals("error", jobsRepository.findById(noLease.getId()).get().getStatus());
+    assertEquals("error", jobsRepository.findById(expired.getId()).get().getStatus());
+    assertNull(jobsRepository.findById(expired.getId()).get().getLeaseExpiresAt());
+    assertEquals("running", jobsRepository.findById(leased.getId()).get().getStatus());
+  }
+
+  @Test
+  public void deleting_all_jobs_keeps_the_queued_and_running_ones() throws Exception {
+    // arrange
+    for (String status : JobRetentionService.FINISHED_STATUSES) {
+      Job finished = jobsRepository.save(Job.builder().status(status).build());
+      jobLogLinesRepository.save(
+          JobLogLine.builder().jobId(finished.getId()).seq(0).line("done").build());
+    }
+    Job queued = jobsRepository.save(Job.builder().status("queued").build());
+    Job running = jobsRepository.save(Job.builder().status("running").build());
+    jobLogLinesRepository.save(
+        JobLogLine.builder().jobId(running.getId()).seq(0).line("still going").build());
+
+    // act
+    long deleted = jobRetentionService.deleteAllFinished();
+
+    // assert
+    assertEquals(JobRetentionService.FINISHED_STATUSES.size(), deleted);
+    assertEquals(
+        List.of(queued.getId(), running.getId()),
+        jobsRepository.findIdsByStatusIn(List.of("queued", "running"), Pageable.unpaged()));
+    assertEquals(2, jobsRepository.count());
+    assertEquals(1, jobLogLinesRepository.count());
+  }
+}
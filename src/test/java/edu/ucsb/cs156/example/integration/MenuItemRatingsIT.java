@@ -0,0 +1,321 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemTrend;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.RatingSummary;
+import edu.ucsb.cs156.example.models.TrendingMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemTrendRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class MenuItemRatingsIT {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private MenuItemRatingRepository menuItemRatingRepository;
+
+  @Autowired private MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired private PlatformTransactionManager transactionManager;
+
+  @Autowired private UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired private MenuItemTrendRepository menuItemTrendRepository;
+
+  @Autowired private TrendingMenuItemsService trendingMenuItemsService;
+
+  @MockitoBean private UserRepository userRepository;
+
+  private void postReview(long itemId, int stars) throws Exception {
+    postReview(itemId, stars, "2023-01-02T12:00:00");
+  }
+
+  private void postReview(long itemId, int stars, String dateReviewed) throws Exception {
+    mockMvc
+        .perform(
+            post("/api/menuitemreview/post")
+                .param("itemId", Long.toString(itemId))
+                .param("reviewerEmail", "test@ucsb.edu")
+                .param("stars", Integer.toString(stars))
+                .param("dateReviewed", dateReviewed)
+                .param("comments", "ok")
+                .with(csrf()))
+        .andExpect(status().isOk());
+  }
+
+  private RatingSummary rating(String url) throws Exception {
+    MvcResult response =
+        mockMvc.perform(get(url).with(csrf())).andExpect(status().isOk()).andReturn();
+    return mapper.readValue(response.getResponse().getContentAsString(), RatingSummary.class);
+  }
+
+  private static RatingSummary summary(long count, Double average, long... starCounts) {
+    return RatingSummary.builder()
+        .reviewCount(count)
+        .averageStars(average)
+        .starCounts(
+            List.of(starCounts[0], starCounts[1], starCounts[2], starCounts[3], starCounts[4]))
+        .build();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void ratings_follow_reviews_as_they_are_added_changed_and_deleted() throws Exception {
+    // arrange
+    long ortega =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Burrito")
+                    .station("Grill")
+                    .build())
+            .getId();
+    long ortega2 =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Salad")
+                    .station("Deli")
+                    .build())
+            .getId();
+    long dlg =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("de-la-guerra")
+                    .name("Pizza")
+                    .station("Oven")
+                    .build())
+            .getId();
+
+    // act
+    postReview(ortega, 5);
+    postReview(ortega, 4);
+    postReview(ortega, 4);
+    postReview(ortega2, 1);
+    postReview(dlg, 3);
+
+    MenuItemReview changed = menuItemReviewRepository.findById(2L).orElseThrow();
+    changed.setStars(2);
+    mockMvc
+        .perform(
+            put("/api/menuitemreview?id=2")
+                .contentType("application/json")
+                .content(mapper.writeValueAsString(changed))
+                .with(csrf()))
+        .andExpect(status().isOk());
+    mockMvc.perform(delete("/api/menuitemreview?id=3").with(csrf())).andExpect(status().isOk());
+
+    // assert
+    assertEquals(summary(2, 3.5, 0, 1, 0, 0, 1), rating("/api/menuitemratings?itemId=" + ortega));
+    assertEquals(
+        summary(3, 8.0 / 3, 1, 1, 0, 0, 1),
+        rating("/api/menuitemratings/commons?diningCommonsCode=ortega"));
+    assertEquals(summary(0, null, 0, 0, 0, 0, 0), rating("/api/menuitemratings?itemId=999"));
+    assertEquals(
+        summary(0, null, 0, 0, 0, 0, 0),
+        rating("/api/menuitemratings/commons?diningCommonsCode=carrillo"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void existing_totals_do_not_end_the_transaction_that_creates_them_again()
+      throws Exception {
+    // act
+    List<Integer> counts =
+        new TransactionTemplate(transactionManager)
+            .execute(
+                status ->
+                    List.of(
+                        menuItemRatingRepository.insertEmpty(9L),
+                        menuItemRatingRepository.insertEmpty(9L),
+                        menuItemRatingRepository.addReviews(9L, 4, 2)));
+
+    // assert
+    assertEquals(List.of(1, 0, 1), counts);
+    assertEquals(summary(2, 4.0, 0, 0, 0, 2, 0), rating("/api/menuitemratings?itemId=9"));
+    assertEquals(
+        List.of(1, 0),
+        new TransactionTemplate(transactionManager)
+            .execute(
+                status ->
+                    List.of(
+                        menuItemTrendRepository.insertEmpty(9L, "ortega", 0L),
+                        menuItemTrendRepository.insertEmpty(9L, "ortega", 0L))));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void rebuild_computes_ratings_from_reviews_written_directly() throws Exception {
+    // arrange
+    for (int stars : new int[] {5, 3, 3}) {
+      menuItemReviewRepository.save(
+          MenuItemReview.builder()
+              .itemId(7L)
+              .reviewerEmail("test@ucsb.edu")
+              .stars(stars)
+              .dateReviewed(LocalDateTime.parse("2023-01-02T12:00:00"))
+              .comments("ok")
+              .build());
+    }
+    postReview(8L, 1);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/menuitemratings/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "{\"message\":\"Rebuilt the ratings of 2 menu items\"}",
+        response.getResponse().getContentAsString());
+    assertEquals(summary(3, 11.0 / 3, 0, 0, 2, 0, 1), rating("/api/menuitemratings?itemId=7"));
+    assertEquals(summary(1, 1.0, 1, 0, 0, 0, 0), rating("/api/menuitemratings?itemId=8"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void trending_items_are_computed_from_recent_reviews() throws Exception {
+    // arrange
+    long burrito =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Burrito")
+                    .station("Grill")
+                    .build())
+            .getId();
+    long salad =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Salad")
+                    .station("Deli")
+                    .build())
+            .getId();
+    LocalDateTime now = LocalDateTime.now();
+    for (long itemId : new long[] {burrito, salad, salad}) {
+      menuItemReviewRepository.save(
+          MenuItemReview.builder()
+              .itemId(itemId)
+              .reviewerEmail("test@ucsb.edu")
+              .stars(itemId == burrito ? 5 : 3)
+              .dateReviewed(now)
+              .comments("ok")
+              .build());
+    }
+
+    // act
+    MvcResult rebuilt =
+        mockMvc
+            .perform(post("/api/menuitemratings/trending/rebuild").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult byVolume =
+        mockMvc
+            .perform(get("/api/menuitemratings/trending?diningCommonsCode=ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+    MvcResult byStars =
+        mockMvc
+            .perform(get("/api/menuitemratings/trending?ranking=STARS"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    assertEquals(
+        "{\"message\":\"Rebuilt the recent reviews of 2 menu items\"}",
+        rebuilt.getResponse().getContentAsString());
+    assertEquals(2, menuItemTrendRepository.count());
+    List<TrendingMenuItem> volume =
+        mapper.readValue(byVolume.getResponse().getContentAsString(), new TypeReference<>() {});
+    assertEquals(
+        List.of("Salad", "Burrito"), volume.stream().map(TrendingMenuItem::getName).toList());
+    List<TrendingMenuItem> stars =
+        mapper.readValue(byStars.getResponse().getContentAsString(), new TypeReference<>() {});
+    assertEquals(
+        List.of("Burrito", "Salad"), stars.stream().map(TrendingMenuItem::getName).toList());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void trending_items_follow_reviews_posted_through_the_api() throws Exception {
+    // arrange
+    long burrito =
+        ucsbDiningCommonsMenuItemRepository
+            .save(
+                UCSBDiningCommonsMenuItem.builder()
+                    .diningCommonsCode("ortega")
+                    .name("Burrito")
+                    .station("Grill")
+                    .build())
+            .getId();
+    String now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).toString();
+
+    // act
+    postReview(burrito, 5, now);
+    postReview(burrito, 3, now);
+    mockMvc.perform(delete("/api/menuitemreview?id=2").with(csrf())).andExpect(status().isOk());
+    int decayed = trendingMenuItemsService.decay();
+
+    // assert
+    assertEquals(1, decayed);
+    MenuItemTrend row = menuItemTrendRepository.findById(burrito).orElseThrow();
+    assertEquals("ortega", row.getDiningCommonsCode());
+    assertEquals(1.0, row.getWeightedReviews(), 1e-3);
+    assertEquals(5.0, row.getWeightedStars(), 1e-2);
+    MvcResult trending =
+        mockMvc
+            .perform(get("/api/menuitemratings/trending?diningCommonsCode=ortega"))
+            .andExpect(status().isOk())
+            .andReturn();
+    List<TrendingMenuItem> items =
+        mapper.readValue(trending.getResponse().getContentAsString(), new TypeReference<>() {});
+    assertEquals(List.of("Burrito"), items.stream().map(TrendingMenuItem::getName).toList());
+  }
+}
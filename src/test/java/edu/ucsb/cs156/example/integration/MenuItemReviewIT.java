@@ -13,6 +13,9 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -105,4 +108,82 @@ public class MenuItemReviewIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void test_user_can_read_every_review_by_following_the_cursor() throws Exception {
+    // arrange
+    for (int i = 0; i < 5; i++) {
+      menuItemReviewRepository.save(
+          MenuItemReview.builder()
+              .itemId(42L)
+              .reviewerEmail("test@ucsb.edu")
+              .stars(i + 1)
+              .dateReviewed(LocalDateTime.parse("2023-01-02T12:00:00"))
+              .comments("review " + i)
+              .build());
+    }
+
+    // act
+    List<Object> ids = new ArrayList<>();
+    int pages = 0;
+    String cursor = null;
+    do {
+      var request = get("/api/menuitemreview/cursor").param("size", "2");
+      if (cursor != null) {
+        request.param("cursor", cursor);
+      }
+      MvcResult response = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+      Map<String, Object> page =
+          mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+      ((List<Map<String, Object>>) page.get("content")).forEach(r -> ids.add(r.get("id")));
+      cursor = (String) page.get("nextCursor");
+      pages++;
+    } while (cursor != null);
+
+    // assert
+    assertEquals(List.of(5, 4, 3, 2, 1), ids);
+    assertEquals(3, pages);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void test_user_can_get_reviews_by_item_reviewer_and_date() throws Exception {
+    // arrange
+    String[][] rows = {
+      {"42", "a@ucsb.edu", "2023-01-01T12:00:00"},
+      {"42", "b@ucsb.edu", "2023-01-03T12:00:00"},
+      {"43", "a@ucsb.edu", "2023-01-02T12:00:00"},
+      {"42", "a@ucsb.edu", "2023-02-01T12:00:00"}
+    };
+    for (String[] row : rows) {
+      menuItemReviewRepository.save(
+          MenuItemReview.builder()
+              .itemId(Long.parseLong(row[0]))
+              .reviewerEmail(row[1])
+              .stars(3)
+              .dateReviewed(LocalDateTime.parse(row[2]))
+              .comments("ok")
+              .build());
+    }
+
+    // act and assert
+    assertEquals(List.of(4, 2, 1), ids("/api/menuitemreview/byItem?itemId=42"));
+    assertEquals(
+        List.of(1, 3, 4),
+        ids("/api/menuitemreview/byReviewer?reviewerEmail=a@ucsb.edu&direction=ASC"));
+    assertEquals(
+        List.of(2, 3),
+        ids("/api/menuitemreview/byDate?from=2023-01-02T12:00:00&to=2023-02-01T12:00:00"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> ids(String url) throws Exception {
+    MvcResult response = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+    Map<String, Object> page =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    return ((List<Map<String, Object>>) page.get("content"))
+        .stream().map(r -> r.get("id")).toList();
+  }
 }
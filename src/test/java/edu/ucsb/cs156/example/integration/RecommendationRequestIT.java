@@ -16,6 +16,8 @@ import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -123,6 +125,40 @@ public class RecommendationRequestIT {
     assertEquals(expected, actual);
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  @SuppressWarnings("unchecked")
+  public void user_can_filter_sort_and_page_all() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      recommendationRequestRepository.save(
+          RecommendationRequest.builder()
+              .requesterEmail("student" + i + "@ucsb.edu")
+              .professorEmail(i % 2 == 0 ? "p1@ucsb.edu" : "p2@ucsb.edu")
+              .explanation("E" + i)
+              .dateRequested(LocalDateTime.parse("2024-01-01T00:00:00").plusDays(i))
+              .dateNeeded(LocalDateTime.parse("2024-02-01T00:00:00"))
+              .done(i == 4)
+              .build());
+    }
+
+    MvcResult response =
+        mockMvc
+            .perform(
+                get(
+                    "/api/recommendationrequests/all?professorEmail=p1@ucsb.edu&done=false"
+                        + "&sort=dateRequested&direction=DESC&page=0&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // students 0 and 2 asked p1 and are not done; student 2 asked most recently
+    Map<String, Object> json =
+        mapper.readValue(response.getResponse().getContentAsString(), Map.class);
+    List<Map<String, Object>> content = (List<Map<String, Object>>) json.get("content");
+    assertEquals(1, content.size());
+    assertEquals("student2@ucsb.edu", content.get(0).get("requesterEmail"));
+    assertEquals(2, ((Map<String, Object>) json.get("page")).get("totalElements"));
+  }
+
   // ---------- POST /api/recommendationrequests/post (ADMIN only) ----------
   @WithMockUser(roles = {"ADMIN", "USER"})
   @Test
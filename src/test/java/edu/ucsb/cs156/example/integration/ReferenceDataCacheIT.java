@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class ReferenceDataCacheIT {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private MeterRegistry meterRegistry;
+
+  @Autowired private RestaurantRepository restaurantRepository;
+
+  @Autowired private UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired private UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired private UCSBDateRepository ucsbDateRepository;
+
+  @MockitoBean private UserRepository userRepository;
+
+  private int countAll(String url) throws Exception {
+    String json =
+        mockMvc
+            .perform(get(url))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    return mapper.readValue(json, List.class).size();
+  }
+
+  private double gets(String cache, String result) {
+    return meterRegistry
+        .get("cache.gets")
+        .tag("name", cache)
+        .tag("result", result)
+        .functionCounter()
+        .count();
+  }
+
+  /**
+   * Lists a table twice, adds a row behind the cache's back, which is not seen, and then changes
+   * the table through its controller, after which the row is seen.
+   */
+  private void assertCachedUntilWrite(
+      String cache, String url, Runnable addDirectly, MockHttpServletRequestBuilder write)
+      throws Exception {
+    assertEquals(1, countAll(url));
+    assertEquals(1, countAll(url));
+    addDirectly.run();
+    assertEquals(1, countAll(url));
+    assertEquals(1, gets(cache, "miss"));
+    assertEquals(2, gets(cache, "hit"));
+
+    mockMvc.perform(write.with(csrf())).andExpect(status().isOk());
+
+    assertEquals(3, countAll(url));
+    assertEquals(2, gets(cache, "miss"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void restaurants_are_cached_until_one_is_written() throws Exception {
+    restaurantRepository.save(Restaurant.builder().name("Freebirds").description("").build());
+    assertCachedUntilWrite(
+        "restaurants",
+        "/api/restaurants/all",
+        () ->
+            restaurantRepository.save(Restaurant.builder().name("IV Deli").description("").build()),
+        post("/api/restaurants/post").param("name", "Blenders").param("description", "smoothies"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dining_commons_are_cached_until_one_is_written() throws Exception {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").build());
+    assertCachedUntilWrite(
+        "ucsbDiningCommons",
+        "/api/ucsbdiningcommons/all",
+        () -> ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("dlg").build()),
+        post("/api/ucsbdiningcommons/post")
+            .param("code", "carrillo")
+            .param("name", "Carrillo")
+            .param("hasSackMeal", "false")
+            .param("hasTakeOutMeal", "false")
+            .param("hasDiningCam", "true")
+            .param("latitude", "34.4")
+            .param("longitude", "-119.8"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void organizations_are_cached_until_one_is_deleted() throws Exception {
+    ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("ZPR").build());
+    ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("SKY").build());
+    assertEquals(2, countAll("/api/UCSBOrganization/all"));
+    ucsbOrganizationRepository.save(UCSBOrganization.builder().orgCode("OSLI").build());
+    assertEquals(2, countAll("/api/UCSBOrganization/all"));
+
+    mockMvc
+        .perform(delete("/api/UCSBOrganization").param("orgCode", "ZPR").with(csrf()))
+        .andExpect(status().isOk());
+
+    assertEquals(2, countAll("/api/UCSBOrganization/all"));
+    assertEquals(2, gets("ucsbOrganizations", "miss"));
+    assertEquals(1, gets("ucsbOrganizations", "hit"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dates_are_cached_until_one_is_written() throws Exception {
+    LocalDateTime now = LocalDateTime.parse("2024-09-26T00:00:00");
+    ucsbDateRepository.save(UCSBDate.builder().quarterYYYYQ("20244").localDateTime(now).build());
+    assertCachedUntilWrite(
+        "ucsbDates",
+        "/api/ucsbdates/all",
+        () ->
+            ucsbDateRepository.save(
+                UCSBDate.builder().quarterYYYYQ("20244").localDateTime(now).build()),
+        post("/api/ucsbdates/post")
+            .param("quarterYYYYQ", "20244")
+            .param("name", "lastDayOfClasses")
+            .param("localDateTime", "2024-12-06T00:00:00"));
+  }
+}
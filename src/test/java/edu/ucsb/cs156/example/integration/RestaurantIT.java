@@ -12,12 +12,14 @@ import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
@@ -85,4 +87,82 @@ public class RestaurantIT {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void an_admin_user_can_create_update_and_delete_restaurants_in_bulk() throws Exception {
+    // act
+    mockMvc
+        .perform(
+            post("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    mapper.writeValueAsString(
+                        List.of(
+                            Restaurant.builder().name("Chipotle").description("Mexican").build(),
+                            Restaurant.builder().name("Panda").description("Chinese").build(),
+                            Restaurant.builder()
+                                .name("Woodstock's")
+                                .description("Pizza")
+                                .build()))))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(
+            put("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    mapper.writeValueAsString(
+                        List.of(
+                            Restaurant.builder()
+                                .id(2L)
+                                .name("Panda Express")
+                                .description("Chinese")
+                                .build()))))
+        .andExpect(status().isOk());
+    mockMvc
+        .perform(
+            delete("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 3]"))
+        .andExpect(status().isOk());
+
+    // assert
+    assertEquals(
+        List.of(Restaurant.builder().id(2L).name("Panda Express").description("Chinese").build()),
+        restaurantRepository.findAll());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void restaurants_are_not_written_in_bulk_when_any_row_is_invalid() throws Exception {
+    // arrange
+    restaurantRepository.save(Restaurant.builder().name("Chipotle").description("Mexican").build());
+
+    // act
+    mockMvc
+        .perform(
+            put("/api/restaurants/bulk")
+                .with(csrf())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(
+                    mapper.writeValueAsString(
+                        List.of(
+                            Restaurant.builder()
+                                .id(1L)
+                                .name("Qdoba")
+                                .description("Mexican")
+                                .build(),
+                            Restaurant.builder()
+                                .id(9L)
+                                .name("Nowhere")
+                                .description("None")
+                                .build()))))
+        .andExpect(status().isBadRequest());
+
+    // assert
+    assertEquals("Chipotle", restaurantRepository.findById(1L).get().getName());
+  }
 }
@@ -0,0 +1,112 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import edu.ucsb.cs156.example.config.TableVersions;
+import edu.ucsb.cs156.example.config.VersionedTable;
+import edu.ucsb.cs156.example.controllers.DummyController;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.TableVersionRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class TableVersionsIT {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ApplicationContext context;
+
+  @Autowired private TableVersions tableVersions;
+
+  @Autowired private TableVersionRepository tableVersionRepository;
+
+  @Autowired private RestaurantRepository restaurantRepository;
+
+  @MockitoBean private UserRepository userRepository;
+
+  private String etag() throws Exception {
+    return mockMvc
+        .perform(get("/api/restaurants/all"))
+        .andExpect(status().isOk())
+        .andReturn()
+        .getResponse()
+        .getHeader("ETag");
+  }
+
+  @Test
+  public void every_versioned_table_has_a_version() {
+    for (Object controller : context.getBeansWithAnnotation(VersionedTable.class).values()) {
+      if (controller instanceof DummyController) {
+        continue;
+      }
+      String table =
+          AnnotationUtils.findAnnotation(controller.getClass(), VersionedTable.class).value();
+      assertTrue(tableVersionRepository.existsById(table), table);
+    }
+  }
+
+  @Test
+  public void tables_without_a_version_cannot_be_bumped() {
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> tableVersions.bump("noSuchTable"));
+
+    assertEquals("Table noSuchTable has no version in TABLE_VERSIONS", thrown.getMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void writes_through_the_controller_change_the_etag_and_others_do_not() throws Exception {
+    // arrange
+    String before = etag();
+    restaurantRepository.save(Restaurant.builder().name("IV Deli").description("").build());
+    assertEquals(before, etag());
+
+    // act
+    mockMvc
+        .perform(
+            post("/api/restaurants/post")
+                .param("name", "Blenders")
+                .param("description", "smoothies")
+                .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+    String after = etag();
+    assertNotEquals(before, after);
+    assertTrue(tableVersions.version("restaurants") >= System.currentTimeMillis() - 60_000);
+    mockMvc
+        .perform(get("/api/restaurants/all").header("If-None-Match", after))
+        .andExpect(status().isNotModified());
+    mockMvc
+        .perform(get("/api/restaurants/all").header("If-None-Match", before))
+        .andExpect(status().isOk());
+  }
+}
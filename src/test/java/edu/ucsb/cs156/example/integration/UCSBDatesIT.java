@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class UCSBDatesIT {
+
+  @Autowired private MockMvc mockMvc;
+
+  @Autowired private ObjectMapper mapper;
+
+  @Autowired private UCSBDateRepository ucsbDateRepository;
+
+  @MockitoBean private UserRepository userRepository;
+
+  private void save(String quarterYYYYQ, String name, String localDateTime) {
+    ucsbDateRepository.save(
+        UCSBDate.builder()
+            .quarterYYYYQ(quarterYYYYQ)
+            .name(name)
+            .localDateTime(LocalDateTime.parse(localDateTime))
+            .build());
+  }
+
+  private List<String> names(String url) throws Exception {
+    JsonNode json =
+        mapper.readTree(
+            mockMvc
+                .perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString());
+    List<String> names = new ArrayList<>();
+    (json.has("content") ? json.get("content") : json)
+        .forEach(d -> names.add(d.get("name").asText()));
+    return names;
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void dates_can_be_found_by_quarter_range_of_quarters_and_period() throws Exception {
+    // arrange
+    save("20244", "lastDayOfClasses", "2024-12-06T00:00:00");
+    save("20244", "firstDayOfClasses", "2024-09-26T00:00:00");
+    save("20251", "firstDayOfClasses", "2025-01-06T00:00:00");
+    save("20252", "firstDayOfClasses", "2025-03-31T00:00:00");
+
+    // act and assert
+    assertEquals(
+        List.of("firstDayOfClasses", "lastDayOfClasses"),
+        names("/api/ucsbdates/quarter?quarterYYYYQ=20244"));
+    assertEquals(3, names("/api/ucsbdates/quarters?from=20244&to=20251").size());
+    assertEquals(
+        List.of("lastDayOfClasses", "firstDayOfClasses"),
+        names("/api/ucsbdates/between?from=2024-10-01T00:00:00&to=2025-03-31T00:00:00"));
+
+    // a date posted to a cached quarter is seen at once
+    mockMvc
+        .perform(
+            post("/api/ucsbdates/post")
+                .param("quarterYYYYQ", "20244")
+                .param("name", "finals")
+                .param("localDateTime", "2024-12-09T00:00:00")
+                .with(csrf()))
+        .andExpect(status().isOk());
+    assertEquals(
+        List.of("firstDayOfClasses", "lastDayOfClasses", "finals"),
+        names("/api/ucsbdates/quarter?quarterYYYYQ=20244"));
+  }
+}
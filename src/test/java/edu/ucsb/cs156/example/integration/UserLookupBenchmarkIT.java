@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobQueueService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Checks that looking up a user by email uses the unique index on users.email, and measures how
+ * long that takes among 100,000 users, compared with a query on LOWER(email), which cannot use the
+ * index.
+ *
+ * <p>The measurement only logs its timings, and runs only when asked for, with: mvn test
+ * -Dtest=UserLookupBenchmarkIT -Dbenchmark=true
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@TestPropertySource(
+    properties = {
+      "logging.level.sql=INFO",
+      "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+    })
+public class UserLookupBenchmarkIT {
+  private static final int USERS = 100_000;
+
+  private static final int INDEXED_LOOKUPS = 10_000;
+
+  private static final int SCAN_LOOKUPS = 100;
+
+  @Autowired UserRepository userRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @MockitoBean JobQueueService jobQueueService;
+
+  @Test
+  public void lookup_by_email_uses_the_index() {
+    // act
+
+    String byEmail =
+        jdbcTemplate.queryForObject(
+            "EXPLAIN SELECT GOOGLE_SUB FROM USERS WHERE EMAIL = 'user1@ucsb.edu'", String.class);
+    String byLowerEmail =
+        jdbcTemplate.queryForObject(
+            "EXPLAIN SELECT GOOGLE_SUB FROM USERS WHERE LOWER(EMAIL) = 'user1@ucsb.edu'",
+            String.class);
+
+    // assert
+
+    assertTrue(byEmail.contains("USERS_EMAIL_IDX"), byEmail);
+    assertFalse(byLowerEmail.contains("USERS_EMAIL_IDX"), byLowerEmail);
+  }
+
+  @Test
+  @Tag("benchmark")
+  @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+  public void lookup_by_email_among_many_users() {
+    // arrange
+
+    jdbcTemplate.batchUpdate(
+        "INSERT INTO USERS (ADMIN, EMAIL, EMAIL_VERIFIED, GOOGLE_SUB) VALUES (FALSE, ?, TRUE, ?)",
+        IntStream.range(0, USERS)
+            .mapToObj(i -> new Object[] {"user" + i + "@ucsb.edu", "sub" + i})
+            .toList());
+    Random random = new Random(156);
+
+    // act
+
+    long[] indexed = new long[INDEXED_LOOKUPS];
+    for (int i = 0; i < INDEXED_LOOKUPS; i++) {
+      int n = random.nextInt(USERS);
+      long start = System.nanoTime();
+      User u = userRepository.findByEmailIgnoringCase("User" + n + "@UCSB.edu").orElseThrow();
+      indexed[i] = System.nanoTime() - start;
+      assertEquals("sub" + n, u.getGoogleSub());
+    }
+
+    long[] scanned = new long[SCAN_LOOKUPS];
+    for (int i = 0; i < SCAN_LOOKUPS; i++) {
+      int n = random.nextInt(USERS);
+      long start = System.nanoTime();
+      jdbcTemplate.queryForObject(
+          "SELECT GOOGLE_SUB FROM USERS WHERE LOWER(EMAIL) = LOWER(?)",
+          String.class,
+          "User" + n + "@UCSB.edu");
+      scanned[i] = System.nanoTime() - start;
+    }
+
+    // assert
+
+    log.info(
+        "Lookup by email among {} users: indexed {}, LOWER(email) {}",
+        USERS,
+        summarize(indexed),
+        summarize(scanned));
+  }
+
+  private static String summarize(long[] nanos) {
+    return "p50=%dus p99=%dus"
+        .formatted(percentile(nanos, 50) / 1000, percentile(nanos, 99) / 1000);
+  }
+
+  private static long percentile(long[] nanos, int p) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)];
+  }
+}
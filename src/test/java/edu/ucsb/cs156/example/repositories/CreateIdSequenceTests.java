@@ -0,0 +1,104 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CreateIdSequenceTests {
+
+  private Connection connection;
+
+  private Database database;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    connection = DriverManager.getConnection("jdbc:h2:mem:create_id_sequence");
+    database = new H2Database();
+    database.setConnection(new JdbcConnection(connection));
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE THINGS (ID BIGINT PRIMARY KEY)");
+    }
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+    }
+    connection.close();
+  }
+
+  private long nextValue() throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet rows = statement.executeQuery("SELECT NEXT VALUE FOR THINGS_SEQ")) {
+      rows.next();
+      return rows.getLong(1);
+    }
+  }
+
+  private CreateIdSequence change() {
+    CreateIdSequence change = new CreateIdSequence();
+    change.setTableName("THINGS");
+    change.setSequenceName("THINGS_SEQ");
+    return change;
+  }
+
+  @Test
+  void starts_the_sequence_so_that_its_first_block_of_ids_follows_the_largest_id()
+      throws Exception {
+    // arrange
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO THINGS VALUES (1), (7)");
+    }
+    CreateIdSequence change = change();
+
+    // act
+    change.execute(database);
+
+    // assert
+    assertEquals("Created sequence THINGS_SEQ starting at 57", change.getConfirmationMessage());
+    assertEquals(57, nextValue());
+    assertEquals(57 + CreateIdSequence.ALLOCATION_SIZE, nextValue());
+  }
+
+  @Test
+  void starts_the_sequence_of_an_empty_table_at_its_first_block() throws Exception {
+    // arrange
+    CreateIdSequence change = change();
+
+    // act
+    change.setUp();
+    change.setFileOpener(null);
+    assertFalse(change.validate(database).hasErrors());
+    change.execute(database);
+
+    // assert
+    assertEquals(CreateIdSequence.ALLOCATION_SIZE, nextValue());
+  }
+
+  @Test
+  void fails_when_the_table_is_missing() {
+    // arrange
+    CreateIdSequence change = change();
+    change.setTableName("NO_SUCH_TABLE");
+
+    // act
+    CustomChangeException thrown =
+        assertThrows(CustomChangeException.class, () -> change.execute(database));
+
+    // assert
+    assertEquals("Cannot create sequence THINGS_SEQ", thrown.getMessage());
+  }
+}
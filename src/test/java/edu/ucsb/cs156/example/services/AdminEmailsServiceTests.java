@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AdminEmailsServiceTests {
+
+  private final AdminEmailsService adminEmailsService =
+      new AdminEmailsService(List.of("admin@ucsb.edu", " Other.Admin@UCSB.edu "));
+
+  @Test
+  void isAdmin_ignores_case_and_whitespace() {
+    assertTrue(adminEmailsService.isAdmin("admin@ucsb.edu"));
+    assertTrue(adminEmailsService.isAdmin("Admin@UCSB.EDU"));
+    assertTrue(adminEmailsService.isAdmin("other.admin@ucsb.edu"));
+    assertTrue(adminEmailsService.isAdmin(" OTHER.ADMIN@ucsb.edu"));
+  }
+
+  @Test
+  void isAdmin_is_false_for_other_emails_and_null() {
+    assertFalse(adminEmailsService.isAdmin("someone@ucsb.edu"));
+    assertFalse(adminEmailsService.isAdmin(null));
+  }
+}
@@ -0,0 +1,286 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+public class CurrentUserServiceImplTests {
+
+  @Mock private UserRepository userRepository;
+
+  @Mock private GrantedAuthoritiesService grantedAuthoritiesService;
+
+  @Mock private UserProfileSyncService userProfileSyncService;
+
+  @Spy
+  private AdminEmailsService adminEmailsService = new AdminEmailsService(List.of("admin@ucsb.edu"));
+
+  @InjectMocks private CurrentUserServiceImpl currentUserService;
+
+  private final User someone =
+      User.builder().id(7L).email("someone@ucsb.edu").googleSub("subject-7").admin(false).build();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    useCache(Duration.ofMinutes(1));
+    when(userRepository.findByEmailIgnoringCase("someone@ucsb.edu"))
+        .thenReturn(Optional.of(someone));
+
+    authenticateAs("subject-7", "someone@ucsb.edu");
+    newRequest();
+  }
+
+  @AfterEach
+  public void teardown() {
+    SecurityContextHolder.clearContext();
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  private void authenticateAs(String subject, String email) {
+    authenticateAs(Map.of("sub", subject, "email", email, "email_verified", true), "sub");
+  }
+
+  private void authenticateAs(Map<String, Object> attributes, String nameAttributeKey) {
+    var authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    DefaultOAuth2User principal = new DefaultOAuth2User(authorities, attributes, nameAttributeKey);
+    SecurityContextHolder.getContext()
+        .setAuthentication(new OAuth2AuthenticationToken(principal, authorities, "google"));
+  }
+
+  private void useCache(Duration expireAfterWrite) {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.registerCustomCache(
+        CurrentUserServiceImpl.CURRENT_USERS_CACHE,
+        Caffeine.newBuilder().expireAfterWrite(expireAfterWrite).build());
+    ReflectionTestUtils.setField(currentUserService, "cacheManager", cacheManager);
+  }
+
+  private void newRequest() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+  }
+
+  @Test
+  void getUser_looks_user_up_once_per_request() {
+    // arrange
+    useCache(Duration.ZERO);
+
+    // act
+    User first = currentUserService.getUser();
+    User second = currentUserService.getUser();
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    assertSame(someone, first);
+    assertSame(someone, second);
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void getUser_reuses_user_of_earlier_request_until_it_expires() throws Exception {
+    // arrange
+    useCache(Duration.ofMillis(50));
+    currentUserService.getUser();
+
+    // act
+    newRequest();
+    currentUserService.getUser();
+    verify(userRepository, times(1)).findByEmailIgnoringCase("someone@ucsb.edu");
+    Thread.sleep(100);
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void evictUser_makes_the_next_request_look_user_up_again() {
+    // arrange
+    currentUserService.getUser();
+
+    // act
+    currentUserService.evictUser("other@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+    verify(userRepository, times(1)).findByEmailIgnoringCase("someone@ucsb.edu");
+    when(userRepository.findByEmailIgnoringCase("SomeOne@ucsb.edu"))
+        .thenReturn(Optional.of(someone));
+    currentUserService.evictUser("SomeOne@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void evictAllUsers_makes_the_next_request_look_user_up_again() {
+    // arrange
+    currentUserService.getUser();
+
+    // act
+    currentUserService.evictAllUsers();
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void getUser_reuses_user_found_at_login() {
+    // arrange
+    MockHttpSession session = new MockHttpSession();
+    currentUserService.userLoggedIn(
+        SecurityContextHolder.getContext().getAuthentication(), session);
+
+    // act
+    User u = currentUserService.getUser();
+
+    // assert
+    assertSame(someone, u);
+    assertEquals(7L, session.getAttribute(CurrentUserServiceImpl.SESSION_USER_ID));
+    verify(userRepository, times(1)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void getUser_makes_new_user_admin_whatever_the_case_of_their_email() {
+    // arrange
+    authenticateAs("subject-9", "Admin@UCSB.edu");
+    when(userRepository.findByEmailIgnoringCase("Admin@UCSB.edu")).thenReturn(Optional.empty());
+
+    // act
+    User u = currentUserService.getUser();
+
+    // assert
+    assertEquals("admin@ucsb.edu", u.getEmail());
+    assertTrue(u.getAdmin());
+    verify(userRepository, times(1)).save(u);
+  }
+
+  @Test
+  void getUser_caches_users_by_subject() {
+    // arrange
+    currentUserService.getUser();
+
+    // act
+    authenticateAs("subject-8", "someone@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+    authenticateAs("subject-7", "SOMEONE@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void evictUser_forgets_all_users_when_the_user_has_no_subject() {
+    // arrange
+    currentUserService.getUser();
+    User legacy = User.builder().id(8L).email("legacy@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmailIgnoringCase("legacy@ucsb.edu")).thenReturn(Optional.of(legacy));
+
+    // act
+    currentUserService.evictUser("legacy@ucsb.edu");
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(2)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void evictUser_ignores_users_without_email() {
+    // arrange
+    currentUserService.getUser();
+
+    // act
+    currentUserService.evictUser(null);
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(1)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+
+  @Test
+  void getUser_finds_user_without_email_by_subject() {
+    // arrange
+    authenticateAs(Map.of("sub", "subject-9", "email_verified", false), "sub");
+    User stored = User.builder().id(9L).googleSub("subject-9").admin(false).build();
+    when(userRepository.findByGoogleSub("subject-9")).thenReturn(Optional.of(stored));
+
+    // act
+    User u = currentUserService.getUser();
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    assertSame(stored, u);
+    verify(userRepository, times(1)).findByGoogleSub("subject-9");
+  }
+
+  @Test
+  void getUser_saves_new_user_without_email() {
+    // arrange
+    authenticateAs(Map.of("sub", "subject-9", "email_verified", false), "sub");
+    when(userRepository.findByGoogleSub("subject-9")).thenReturn(Optional.empty());
+
+    // act
+    User u = currentUserService.getUser();
+
+    // assert
+    assertNull(u.getEmail());
+    assertEquals("subject-9", u.getGoogleSub());
+    verify(userRepository, times(1)).save(u);
+  }
+
+  @Test
+  void getUser_caches_users_without_subject_by_name() {
+    // arrange
+    authenticateAs(
+        Map.of("login", "someone", "email", "someone@ucsb.edu", "email_verified", true), "login");
+
+    // act
+    currentUserService.getUser();
+    newRequest();
+    currentUserService.getUser();
+
+    // assert
+    verify(userRepository, times(1)).findByEmailIgnoringCase("someone@ucsb.edu");
+  }
+}
@@ -3,14 +3,15 @@ package edu.ucsb.cs156.example.services;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
+import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.Test;
 import org.mockito.Answers;
 
-class CurrentUserServiceTests extends ControllerTestCase {
+class CurrentUserServiceTests {
 
   @Test
   void test_isLoggedIn_returns_false() {
@@ -27,4 +28,21 @@ class CurrentUserServiceTests extends ControllerTestCase {
     when(currentUserService.getUser()).thenReturn(User.builder().build());
     assertTrue(currentUserService.isLoggedIn());
   }
+
+  @Test
+  void test_evict_does_nothing_by_default() {
+    CurrentUserService currentUserService =
+        mock(CurrentUserService.class, Answers.CALLS_REAL_METHODS);
+    currentUserService.evictUser("someone@ucsb.edu");
+    currentUserService.evictAllUsers();
+  }
+
+  @Test
+  void test_userLoggedIn_does_nothing_by_default() {
+    CurrentUserService currentUserService =
+        mock(CurrentUserService.class, Answers.CALLS_REAL_METHODS);
+    HttpSession session = mock(HttpSession.class);
+    currentUserService.userLoggedIn(null, session);
+    verifyNoInteractions(session);
+  }
 }
@@ -1,21 +1,50 @@
 package edu.ucsb.cs156.example.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogArchiveService;
+import edu.ucsb.cs156.example.services.jobs.JobLogListener;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.Writer;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Mock private JobLogArchiveService jobLogArchiveService;
+
+  @Spy private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy private TaskExecutor jobLogStreamExecutor = new SyncTaskExecutor();
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -30,6 +59,9 @@ public class JobLogsServiceTests {
     Job job = Job.builder().build();
     job.setLog("This is a job log");
     when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            jobId, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -45,6 +77,9 @@ public class JobLogsServiceTests {
     Job job = Job.builder().build();
     job.setLog(null);
     when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            jobId, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
 
     // Act
     String result = jobService.getJobLogs(jobId);
@@ -53,6 +88,26 @@ public class JobLogsServiceTests {
     assertEquals("", result);
   }
 
+  @Test
+  void test_getJobLogs_assembles_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            jobId, 0L, Limit.of(1000)))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(jobId).seq(0).line("first").build(),
+                JobLogLine.builder().jobId(jobId).seq(1).line("second").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first\nsecond", result);
+  }
+
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
@@ -62,4 +117,402 @@ public class JobLogsServiceTests {
     // Act & Assert
     assertThrows(IllegalArgumentException.class, () -> jobService.getJobLogs(jobId));
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_getJobLogs_flushes_buffered_lines_of_running_job() {
+    // Arrange
+    Job job = Job.builder().id(5L).status("running").build();
+    when(jobRepository.findById(5L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            5L, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("buffered line");
+          verify(jobLogLinesRepository, never()).saveAll(any());
+          jobService.getJobLogs(5L);
+          verify(jobLogLinesRepository, times(1)).saveAll(any());
+        });
+
+    // Assert
+    assertEquals("complete", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_flushActiveLogWriters_flushes_running_jobs() {
+    // Arrange
+    Job job = Job.builder().id(6L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("buffered line");
+          verify(jobLogLinesRepository, never()).saveAll(any());
+          jobService.flushActiveLogWriters();
+          verify(jobLogLinesRepository, times(1)).saveAll(any());
+        });
+
+    // Assert: nothing left to flush once the job has finished
+    jobService.flushActiveLogWriters();
+    verify(jobLogLinesRepository, times(1)).saveAll(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void test_failed_job_logs_exception_message_and_saves_error_status() {
+    // Arrange
+    Job job = Job.builder().id(7L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          throw new Exception("Fail!");
+        });
+
+    // Assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, times(1)).saveAll(captor.capture());
+    assertEquals(
+        List.of(JobLogLine.builder().jobId(7L).seq(0).line("Fail!").build()), captor.getValue());
+    assertEquals("error", job.getStatus());
+    verify(jobRepository, times(1)).save(job);
+  }
+
+  @Test
+  void test_deleteJobLogs() {
+    jobService.deleteJobLogs(8L);
+    verify(jobLogLinesRepository, times(1)).deleteByJobId(8L);
+    verify(jobLogArchivesRepository, times(1)).deleteByJobIdIn(List.of(8L));
+  }
+
+  @Test
+  void test_streamJobLogs_of_finished_job_sends_stored_lines_then_status() {
+    // Arrange
+    Job job = Job.builder().id(9L).status("complete").build();
+    JobLogLine line1 = JobLogLine.builder().jobId(9L).seq(1).line("second").build();
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            9L, 1L, Limit.of(1000)))
+        .thenReturn(List.of(line1));
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    Runnable stop = jobService.streamJobLogs(job, 1L, listener);
+    stop.run();
+
+    // Assert
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onLine(line1);
+    inOrder.verify(listener).onJobFinished("complete");
+    verifyNoMoreInteractions(listener);
+  }
+
+  @Test
+  void test_streamJobLogs_of_legacy_job_splits_log_column() {
+    // Arrange
+    Job job = Job.builder().id(10L).status("error").log("first\nsecond\nthird").build();
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            10L, 1L, Limit.of(1000)))
+        .thenReturn(List.of());
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 1L, listener);
+
+    // Assert
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onLine(JobLogLine.builder().jobId(10L).seq(1).line("second").build());
+    inOrder.verify(listener).onLine(JobLogLine.builder().jobId(10L).seq(2).line("third").build());
+    inOrder.verify(listener).onJobFinished("error");
+    verify(listener, times(2)).onLine(any());
+  }
+
+  @Test
+  void test_getJobLogs_reads_compressed_log() {
+    // Arrange
+    Job job = Job.builder().id(13L).log("ignored").build();
+    when(jobRepository.findById(13L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            13L, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
+    when(jobLogArchiveService.writeArchivedLog(eq(13L), any(Writer.class)))
+        .thenAnswer(
+            invocation -> {
+              invocation.getArgument(1, Writer.class).write("first\nsecond");
+              return true;
+            });
+
+    // Act
+    String result = jobService.getJobLogs(13L);
+
+    // Assert
+    assertEquals("first\nsecond", result);
+  }
+
+  /** Makes job 14 log a, b, c and d, and have them compressed after the page of a and b is read */
+  private void archiveJob14BetweenTwoPages() {
+    ReflectionTestUtils.setField(jobService, "logReadPageSize", 2);
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(14L, 0L, Limit.of(2)))
+        .thenReturn(
+            List.of(
+                JobLogLine.builder().jobId(14L).seq(0).line("a").build(),
+                JobLogLine.builder().jobId(14L).seq(1).line("b").build()));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(14L, 2L, Limit.of(2)))
+        .thenReturn(List.of());
+    when(jobLogArchiveService.forEachArchivedLine(eq(14L), eq(2L), any()))
+        .thenAnswer(
+            invocation -> {
+              Consumer<JobLogLine> consumer = invocation.getArgument(2);
+              consumer.accept(JobLogLine.builder().jobId(14L).seq(2).line("c").build());
+              consumer.accept(JobLogLine.builder().jobId(14L).seq(3).line("d").build());
+              return true;
+            });
+  }
+
+  @Test
+  void test_getJobLogs_reads_the_rest_of_a_log_compressed_between_two_pages() {
+    // Arrange
+    when(jobRepository.findById(14L))
+        .thenReturn(Optional.of(Job.builder().id(14L).status("complete").build()));
+    archiveJob14BetweenTwoPages();
+
+    // Act
+    String result = jobService.getJobLogs(14L);
+
+    // Assert
+    assertEquals("a\nb\nc\nd", result);
+    verify(jobLogArchiveService, never()).writeArchivedLog(anyLong(), any());
+  }
+
+  @Test
+  void test_streamJobLogs_reads_the_rest_of_a_log_compressed_between_two_pages() {
+    // Arrange
+    Job job = Job.builder().id(14L).status("complete").build();
+    archiveJob14BetweenTwoPages();
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 0L, listener);
+
+    // Assert
+    InOrder inOrder = inOrder(listener);
+    for (String line : List.of("a", "b", "c", "d")) {
+      inOrder.verify(listener).onLine(argThat(l -> l.getLine().equals(line)));
+    }
+    inOrder.verify(listener).onJobFinished("complete");
+  }
+
+  @Test
+  void test_streamJobLogs_of_job_with_compressed_log_streams_it() {
+    // Arrange
+    Job job = Job.builder().id(13L).status("complete").log("ignored").build();
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            13L, 1L, Limit.of(1000)))
+        .thenReturn(List.of());
+    when(jobLogArchiveService.forEachArchivedLine(eq(13L), eq(1L), any())).thenReturn(true);
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 1L, listener);
+
+    // Assert
+    verify(listener, never()).onLine(any());
+    verify(listener, times(1)).onJobFinished("complete");
+  }
+
+  @Test
+  void test_streamJobLogs_with_no_lines_and_no_log_only_sends_status() {
+    // Arrange
+    Job job = Job.builder().id(11L).status("complete").build();
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            11L, 0L, Limit.of(1000)))
+        .thenReturn(List.of());
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 0L, listener);
+
+    // Assert
+    verify(listener, never()).onLine(any());
+    verify(listener, times(1)).onJobFinished("complete");
+  }
+
+  @Test
+  void test_streamJobLogs_of_running_job_subscribes_to_its_log_writer() {
+    // Arrange
+    Job job = Job.builder().id(12L).status("running").build();
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          assertNotNull(jobService.streamJobLogs(job, 0L, listener));
+          ctx.log("live line");
+        });
+
+    // Assert
+    InOrder inOrder = inOrder(listener);
+    inOrder
+        .verify(listener)
+        .onLine(JobLogLine.builder().jobId(12L).seq(0).line("live line").build());
+    inOrder.verify(listener).onJobFinished("complete");
+  }
+
+  private static JobLogLine line(long jobId, long seq, String text) {
+    return JobLogLine.builder().jobId(jobId).seq(seq).line(text).build();
+  }
+
+  @Test
+  void test_streamJobLogs_of_queued_job_follows_its_log_until_it_finishes() {
+    // Arrange
+    Job queued = Job.builder().id(15L).status("queued").build();
+    when(jobRepository.findById(15L))
+        .thenReturn(
+            Optional.of(queued),
+            Optional.of(Job.builder().id(15L).status("running").build()),
+            Optional.of(Job.builder().id(15L).status("complete").build()));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            15L, 0L, Limit.of(1000)))
+        .thenReturn(List.of(), List.of(line(15L, 0, "first")));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            15L, 1L, Limit.of(1000)))
+        .thenReturn(List.of(line(15L, 1, "second")));
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(queued, 0L, listener);
+
+    // Assert: a queued job has not finished, so the stream stays open
+    verify(listener, never()).onLine(any());
+    verify(listener, never()).onJobFinished(any());
+
+    // Act
+    jobService.pollLogTails();
+    jobService.pollLogTails();
+    jobService.pollLogTails();
+
+    // Assert
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onLine(line(15L, 0, "first"));
+    inOrder.verify(listener).onLine(line(15L, 1, "second"));
+    inOrder.verify(listener).onJobFinished("complete");
+    verify(jobRepository, times(3)).findById(15L);
+  }
+
+  @Test
+  void test_streamJobLogs_of_job_leased_to_another_worker_reads_its_lines_from_the_table() {
+    // Arrange
+    Job job = Job.builder().id(16L).status("running").leaseOwner("another-worker").build();
+    when(jobRepository.findById(16L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            16L, 3L, Limit.of(1000)))
+        .thenReturn(List.of(line(16L, 3, "fourth")));
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    Runnable stop = jobService.streamJobLogs(job, 3L, listener);
+
+    // Assert
+    verify(listener).onLine(line(16L, 3, "fourth"));
+    verify(listener, never()).onJobFinished(any());
+
+    // Act: the client goes away
+    stop.run();
+    jobService.pollLogTails();
+
+    // Assert
+    verify(jobRepository, times(1)).findById(16L);
+  }
+
+  @Test
+  void test_streamJobLogs_stops_following_a_job_that_is_deleted() {
+    // Arrange
+    Job job = Job.builder().id(17L).status("queued").build();
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 0L, listener);
+    jobService.pollLogTails();
+
+    // Assert
+    verify(listener).onOverflow();
+    verify(listener, never()).onJobFinished(any());
+    verify(jobRepository, times(1)).findById(17L);
+  }
+
+  @Test
+  void test_streamJobLogs_stops_following_a_job_for_a_listener_that_fails() {
+    // Arrange
+    Job job = Job.builder().id(18L).status("running").build();
+    when(jobRepository.findById(18L)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            18L, 0L, Limit.of(1000)))
+        .thenReturn(List.of(line(18L, 0, "first")));
+    JobLogListener listener = mock(JobLogListener.class);
+    doThrow(new IllegalStateException("Log stream closed")).when(listener).onLine(any());
+
+    // Act
+    jobService.streamJobLogs(job, 0L, listener);
+    jobService.pollLogTails();
+
+    // Assert
+    verify(listener, times(1)).onLine(any());
+    verify(jobRepository, times(1)).findById(18L);
+  }
+
+  @Test
+  void test_streamJobLogs_sends_nothing_more_once_stopped_during_a_poll() {
+    // Arrange
+    Job queued = Job.builder().id(19L).status("queued").build();
+    when(jobRepository.findById(19L))
+        .thenReturn(
+            Optional.of(queued), Optional.of(Job.builder().id(19L).status("complete").build()));
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            19L, 0L, Limit.of(1000)))
+        .thenReturn(List.of(), List.of(line(19L, 0, "first"), line(19L, 1, "second")));
+    JobLogListener listener = mock(JobLogListener.class);
+    Runnable stop = jobService.streamJobLogs(queued, 0L, listener);
+    doAnswer(
+            invocation -> {
+              // a tail that is being polled is not polled again meanwhile
+              jobService.pollLogTails();
+              stop.run();
+              return null;
+            })
+        .when(listener)
+        .onLine(any());
+
+    // Act
+    jobService.pollLogTails();
+
+    // Assert
+    verify(listener, times(1)).onLine(any());
+    verify(listener, never()).onJobFinished(any());
+    verify(jobRepository, times(2)).findById(19L);
+  }
+
+  @Test
+  void test_streamJobLogs_stops_following_a_job_when_the_executor_refuses_work() {
+    // Arrange
+    Job job = Job.builder().id(20L).status("queued").build();
+    doThrow(new TaskRejectedException("shutting down")).when(jobLogStreamExecutor).execute(any());
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // Act
+    jobService.streamJobLogs(job, 0L, listener);
+    jobService.pollLogTails();
+
+    // Assert
+    verify(listener, times(1)).onOverflow();
+    verify(jobLogStreamExecutor, times(1)).execute(any());
+    verify(jobRepository, never()).findById(20L);
+  }
 }
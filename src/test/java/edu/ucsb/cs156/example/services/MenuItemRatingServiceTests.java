@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.MenuItemRating;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.models.RatingSummary;
+import edu.ucsb.cs156.example.repositories.MenuItemRatingRepository;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class MenuItemRatingServiceTests {
+
+  @Mock private MenuItemRatingRepository menuItemRatingRepository;
+
+  @InjectMocks private MenuItemRatingService menuItemRatingService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  private static MenuItemReview review(long itemId, int stars) {
+    return MenuItemReview.builder().itemId(itemId).stars(stars).build();
+  }
+
+  @Test
+  void reviewAdded_updates_the_totals_of_a_reviewed_item() {
+    // arrange
+    when(menuItemRatingRepository.addReviews(7L, 4, 1)).thenReturn(1);
+
+    // act
+    menuItemRatingService.reviewAdded(review(7L, 4));
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).addReviews(7L, 4, 1);
+    verify(menuItemRatingRepository, never()).insertEmpty(anyLong());
+  }
+
+  @Test
+  void reviewAdded_creates_the_totals_of_an_item_reviewed_for_the_first_time() {
+    // arrange
+    when(menuItemRatingRepository.addReviews(7L, 4, 1)).thenReturn(0, 1);
+
+    // act
+    menuItemRatingService.reviewAdded(review(7L, 4));
+
+    // assert
+    InOrder order = inOrder(menuItemRatingRepository);
+    order.verify(menuItemRatingRepository).addReviews(7L, 4, 1);
+    order.verify(menuItemRatingRepository).insertEmpty(7L);
+    order.verify(menuItemRatingRepository).addReviews(7L, 4, 1);
+  }
+
+  @Test
+  void reviewAdded_updates_totals_created_meanwhile_by_another_request() {
+    // arrange
+    when(menuItemRatingRepository.addReviews(7L, 4, 1)).thenReturn(0, 1);
+    when(menuItemRatingRepository.insertEmpty(7L)).thenReturn(0);
+
+    // act
+    menuItemRatingService.reviewAdded(review(7L, 4));
+
+    // assert
+    verify(menuItemRatingRepository, times(2)).addReviews(7L, 4, 1);
+  }
+
+  @Test
+  void reviewRemoved_does_not_create_totals_for_an_item_without_any() {
+    // arrange
+    when(menuItemRatingRepository.addReviews(7L, 4, -1)).thenReturn(0);
+
+    // act
+    menuItemRatingService.reviewRemoved(review(7L, 4));
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).addReviews(7L, 4, -1);
+    verify(menuItemRatingRepository, never()).insertEmpty(anyLong());
+  }
+
+  @Test
+  void reviewChanged_moves_the_review_when_its_item_or_stars_change() {
+    // arrange
+    when(menuItemRatingRepository.addReviews(anyLong(), anyLong(), anyLong())).thenReturn(1);
+
+    // act
+    menuItemRatingService.reviewChanged(review(7L, 4), review(8L, 4));
+    menuItemRatingService.reviewChanged(review(8L, 4), review(8L, 2));
+
+    // assert
+    verify(menuItemRatingRepository, times(1)).addReviews(7L, 4, -1);
+    verify(menuItemRatingRepository, times(1)).addReviews(8L, 4, 1);
+    verify(menuItemRatingRepository, times(1)).addReviews(8L, 4, -1);
+    verify(menuItemRatingRepository, times(1)).addReviews(8L, 2, 1);
+  }
+
+  @Test
+  void reviewChanged_leaves_the_totals_alone_when_only_other_fields_change() {
+    // act
+    menuItemRatingService.reviewChanged(review(7L, 4), review(7L, 4));
+
+    // assert
+    verify(menuItemRatingRepository, never()).addReviews(anyLong(), anyLong(), anyLong());
+  }
+
+  @Test
+  void summaryForItem_averages_the_stars_of_an_item() {
+    // arrange
+    when(menuItemRatingRepository.findById(7L))
+        .thenReturn(
+            Optional.of(
+                MenuItemRating.builder()
+                    .itemId(7L)
+                    .reviewCount(4)
+                    .starsSum(14)
+                    .stars2(1)
+                    .stars4(2)
+                    .stars5(1)
+                    .build()));
+
+    // act
+    RatingSummary summary = menuItemRatingService.summaryForItem(7L);
+
+    // assert
+    assertEquals(new RatingSummary(4, 3.5, List.of(0L, 1L, 0L, 2L, 1L)), summary);
+  }
+
+  @Test
+  void summaryForItem_has_no_average_for_an_item_without_reviews() {
+    // arrange
+    when(menuItemRatingRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // act
+    RatingSummary summary = menuItemRatingService.summaryForItem(7L);
+
+    // assert
+    assertEquals(new RatingSummary(0, null, List.of(0L, 0L, 0L, 0L, 0L)), summary);
+  }
+
+  @Test
+  void summaryForCommons_adds_up_the_totals_of_its_items() {
+    // arrange
+    when(menuItemRatingRepository.findByDiningCommonsCode("ortega"))
+        .thenReturn(
+            List.of(
+                MenuItemRating.builder().itemId(7L).reviewCount(1).starsSum(1).stars1(1).build(),
+                MenuItemRating.builder().itemId(8L).reviewCount(2).starsSum(6).stars3(2).build(),
+                MenuItemRating.builder().itemId(9L).reviewCount(1).starsSum(5).stars5(1).build()));
+
+    // act
+    RatingSummary summary = menuItemRatingService.summaryForCommons("ortega");
+
+    // assert
+    assertEquals(new RatingSummary(4, 3.0, List.of(1L, 0L, 2L, 0L, 1L)), summary);
+  }
+
+  @Test
+  void rebuild_replaces_the_totals_with_those_computed_from_the_reviews() {
+    // arrange
+    when(menuItemRatingRepository.insertTotalsFromReviews()).thenReturn(12);
+
+    // act
+    int items = menuItemRatingService.rebuild();
+
+    // assert
+    assertEquals(12, items);
+    InOrder order = inOrder(menuItemRatingRepository);
+    order.verify(menuItemRatingRepository).deleteAllTotals();
+    order.verify(menuItemRatingRepository).insertTotalsFromReviews();
+  }
+}
@@ -0,0 +1,514 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.MenuItemTrend;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.models.TrendingMenuItem;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.MenuItemTrendRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.TrendingMenuItemsService.Ranking;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TrendingMenuItemsServiceTests {
+
+  @Mock private MenuItemTrendRepository menuItemTrendRepository;
+
+  @Mock private MenuItemReviewRepository menuItemReviewRepository;
+
+  @Mock private UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @InjectMocks private TrendingMenuItemsService trendingMenuItemsService;
+
+  private static final LocalDateTime NOW = LocalDateTime.parse("2025-11-15T12:00:00");
+
+  private static final Map<Long, UCSBDiningCommonsMenuItem> ITEMS =
+      Map.of(
+          1L, item(1L, "ortega", "Burrito"),
+          2L, item(2L, "ortega", "Salad"),
+          3L, item(3L, "ortega", "Soup"),
+          4L, item(4L, "carrillo", "Pizza"),
+          5L, item(5L, null, "Mystery"));
+
+  private static UCSBDiningCommonsMenuItem item(long id, String commons, String name) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .id(id)
+        .diningCommonsCode(commons)
+        .name(name)
+        .station("Grill")
+        .build();
+  }
+
+  private static MenuItemReview review(long itemId, int stars, LocalDateTime dateReviewed) {
+    return MenuItemReview.builder().itemId(itemId).stars(stars).dateReviewed(dateReviewed).build();
+  }
+
+  private Clock clock;
+
+  private void setNow(LocalDateTime now) {
+    clock = Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    ReflectionTestUtils.setField(trendingMenuItemsService, "clock", clock);
+  }
+
+  /** Makes rankings expire after the given time, as told by the clock of the service */
+  private void useCache(Duration expireAfterWrite) {
+    CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    cacheManager.registerCustomCache(
+        TrendingMenuItemsService.TRENDING_CACHE,
+        Caffeine.newBuilder()
+            .expireAfterWrite(expireAfterWrite)
+            .ticker(() -> clock.millis() * 1_000_000)
+            .build());
+    ReflectionTestUtils.setField(trendingMenuItemsService, "cacheManager", cacheManager);
+  }
+
+  /** The rows of MENUITEMTRENDS, which the mocked repository reads and writes as the SQL would */
+  private final Map<Long, MenuItemTrend> rows = new TreeMap<>();
+
+  private static long epochMs(LocalDateTime time) {
+    return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+  }
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    setNow(NOW);
+    useCache(Duration.ofMinutes(1));
+    when(ucsbDiningCommonsMenuItemRepository.findById(anyLong()))
+        .thenAnswer(i -> Optional.ofNullable(ITEMS.get(i.getArgument(0, Long.class))));
+    when(ucsbDiningCommonsMenuItemRepository.findAllById(any()))
+        .thenAnswer(
+            i ->
+                StreamSupport.stream(((Iterable<Long>) i.getArgument(0)).spliterator(), false)
+                    .map(ITEMS::get)
+                    .filter(Objects::nonNull)
+                    .toList());
+
+    when(menuItemTrendRepository.addReviews(
+            anyLong(), anyDouble(), anyDouble(), anyLong(), anyDouble()))
+        .thenAnswer(
+            i -> {
+              MenuItemTrend row = rows.get(i.getArgument(0, Long.class));
+              if (row == null) {
+                return 0;
+              }
+              double weight =
+                  i.getArgument(2, Double.class)
+                      * Math.exp(
+                          i.getArgument(4, Double.class)
+                              * (i.getArgument(3, Long.class) - row.getAsOfMs()));
+              row.setWeightedReviews(row.getWeightedReviews() + weight);
+              row.setWeightedStars(
+                  row.getWeightedStars() + weight * i.getArgument(1, Double.class));
+              return 1;
+            });
+    when(menuItemTrendRepository.insertEmpty(anyLong(), anyString(), anyLong()))
+        .thenAnswer(
+            i -> {
+              long itemId = i.getArgument(0, Long.class);
+              if (rows.containsKey(itemId)) {
+                return 0;
+              }
+              rows.put(
+                  itemId,
+                  MenuItemTrend.builder()
+                      .itemId(itemId)
+                      .diningCommonsCode(i.getArgument(1, String.class))
+                      .asOfMs(i.getArgument(2, Long.class))
+                      .build());
+              return 1;
+            });
+    when(menuItemTrendRepository.decayTo(anyLong(), anyDouble()))
+        .thenAnswer(
+            i -> {
+              long nowMs = i.getArgument(0, Long.class);
+              int updated = 0;
+              for (MenuItemTrend row : rows.values()) {
+                if (row.getAsOfMs() < nowMs) {
+                  double decay =
+                      Math.exp(i.getArgument(1, Double.class) * (row.getAsOfMs() - nowMs));
+                  row.setWeightedReviews(row.getWeightedReviews() * decay);
+                  row.setWeightedStars(row.getWeightedStars() * decay);
+                  row.setAsOfMs(nowMs);
+                  updated++;
+                }
+              }
+              return updated;
+            });
+    when(menuItemTrendRepository.findByDiningCommonsCode(any()))
+        .thenAnswer(
+            i ->
+                rows.values().stream()
+                    .filter(row -> row.getDiningCommonsCode().equals(i.getArgument(0)))
+                    .toList());
+    when(menuItemTrendRepository.findDiningCommonsCodes())
+        .thenAnswer(
+            i ->
+                rows.values().stream()
+                    .map(MenuItemTrend::getDiningCommonsCode)
+                    .distinct()
+                    .toList());
+    when(menuItemTrendRepository.count()).thenAnswer(i -> (long) rows.size());
+    when(menuItemTrendRepository.saveAll(any()))
+        .thenAnswer(
+            i -> {
+              ((Iterable<MenuItemTrend>) i.getArgument(0))
+                  .forEach(row -> rows.put(row.getItemId(), row));
+              return i.getArgument(0);
+            });
+    when(menuItemTrendRepository.deleteAllTrends())
+        .thenAnswer(
+            i -> {
+              int deleted = rows.size();
+              rows.clear();
+              return deleted;
+            });
+  }
+
+  private List<Long> ids(List<TrendingMenuItem> items) {
+    return items.stream().map(TrendingMenuItem::getItemId).toList();
+  }
+
+  @Test
+  void items_are_ranked_by_reviews_that_count_half_as_much_every_week() {
+    // arrange: three reviews two weeks ago count for 0.75, one today for 1
+    for (int i = 0; i < 3; i++) {
+      trendingMenuItemsService.reviewAdded(review(1L, 5, NOW.minusWeeks(2)));
+    }
+    trendingMenuItemsService.reviewAdded(review(2L, 3, NOW));
+    trendingMenuItemsService.reviewAdded(review(2L, 4, NOW.minusHours(1)));
+
+    // act
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+
+    // assert
+    assertEquals(List.of(2L, 1L), ids(top));
+    assertEquals(0.75, top.get(1).getRecentReviews(), 1e-9);
+    assertEquals(5.0, top.get(1).getAverageStars(), 1e-9);
+    assertEquals("Burrito", top.get(1).getName());
+    assertEquals("Grill", top.get(1).getStation());
+    assertEquals("ortega", top.get(1).getDiningCommonsCode());
+    assertEquals(2.0, top.get(0).getRecentReviews(), 0.01);
+  }
+
+  @Test
+  void items_can_be_ranked_by_average_stars_then_by_reviews() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 3, NOW));
+    trendingMenuItemsService.reviewAdded(review(2L, 5, NOW));
+    trendingMenuItemsService.reviewAdded(review(3L, 3, NOW));
+    trendingMenuItemsService.reviewAdded(review(3L, 3, NOW));
+
+    // act
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.STARS, 10);
+
+    // assert
+    assertEquals(List.of(2L, 3L, 1L), ids(top));
+  }
+
+  @Test
+  void items_with_too_few_recent_reviews_are_not_ranked() {
+    // arrange
+    ReflectionTestUtils.setField(trendingMenuItemsService, "minRecentReviews", 1.5);
+    trendingMenuItemsService.reviewAdded(review(1L, 5, NOW));
+    trendingMenuItemsService.reviewAdded(review(2L, 5, NOW));
+    trendingMenuItemsService.reviewAdded(review(2L, 5, NOW));
+
+    // act and assert
+    assertEquals(List.of(2L), ids(trendingMenuItemsService.topItems("ortega", Ranking.STARS, 10)));
+  }
+
+  @Test
+  void at_most_maxItems_are_ranked_per_commons() {
+    // arrange
+    ReflectionTestUtils.setField(trendingMenuItemsService, "maxItems", 2);
+    for (long itemId = 1; itemId <= 3; itemId++) {
+      for (int i = 0; i < itemId; i++) {
+        trendingMenuItemsService.reviewAdded(review(itemId, 4, NOW));
+      }
+    }
+
+    // act and assert
+    assertEquals(
+        List.of(3L, 2L), ids(trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10)));
+    assertEquals(List.of(3L), ids(trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 1)));
+  }
+
+  @Test
+  void items_of_all_commons_are_ranked_together() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+    trendingMenuItemsService.reviewAdded(review(4L, 4, NOW));
+    trendingMenuItemsService.reviewAdded(review(4L, 4, NOW));
+
+    // act and assert
+    assertEquals(List.of(4L, 1L), ids(trendingMenuItemsService.topItems(null, Ranking.VOLUME, 10)));
+    assertEquals(List.of(), ids(trendingMenuItemsService.topItems("dlg", Ranking.VOLUME, 10)));
+  }
+
+  @Test
+  void reviews_of_unknown_items_and_items_without_a_commons_are_ignored() {
+    // act
+    trendingMenuItemsService.reviewAdded(review(5L, 4, NOW));
+    trendingMenuItemsService.reviewAdded(review(99L, 4, NOW));
+    trendingMenuItemsService.reviewRemoved(review(99L, 4, NOW));
+
+    // assert
+    assertEquals(List.of(), trendingMenuItemsService.topItems(null, Ranking.VOLUME, 10));
+    assertTrue(rows.isEmpty());
+  }
+
+  @Test
+  void review_is_counted_once_when_another_request_creates_the_row_first() {
+    // arrange
+    doAnswer(
+            i -> {
+              rows.put(
+                  1L,
+                  MenuItemTrend.builder()
+                      .itemId(1L)
+                      .diningCommonsCode("ortega")
+                      .asOfMs(epochMs(NOW))
+                      .build());
+              return 0;
+            })
+        .when(menuItemTrendRepository)
+        .insertEmpty(eq(1L), anyString(), anyLong());
+
+    // act
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+
+    // assert
+    assertEquals(1.0, rows.get(1L).getWeightedReviews(), 1e-9);
+    assertEquals(4.0, rows.get(1L).getWeightedStars(), 1e-9);
+  }
+
+  @Test
+  void items_whose_menu_item_is_gone_are_left_out_of_the_ranking() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+    doReturn(List.of()).when(ucsbDiningCommonsMenuItemRepository).findAllById(any());
+
+    // act and assert
+    assertEquals(List.of(), trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10));
+  }
+
+  @Test
+  void removed_reviews_no_longer_count() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+    trendingMenuItemsService.reviewAdded(review(1L, 2, NOW.minusDays(1)));
+    trendingMenuItemsService.reviewAdded(review(2L, 4, NOW));
+
+    // act
+    trendingMenuItemsService.reviewRemoved(review(1L, 4, NOW));
+    trendingMenuItemsService.reviewRemoved(review(2L, 4, NOW));
+
+    // assert
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+    assertEquals(List.of(1L), ids(top));
+    assertEquals(2.0, top.get(0).getAverageStars(), 1e-9);
+  }
+
+  @Test
+  void changed_reviews_move_when_their_item_stars_or_date_change() {
+    // arrange
+    MenuItemReview before = review(1L, 4, NOW);
+    trendingMenuItemsService.reviewAdded(before);
+    trendingMenuItemsService.reviewAdded(review(2L, 4, NOW));
+
+    // act
+    trendingMenuItemsService.reviewChanged(before, review(1L, 4, NOW));
+    trendingMenuItemsService.reviewChanged(before, review(2L, 4, NOW));
+    trendingMenuItemsService.reviewChanged(review(2L, 4, NOW), review(2L, 2, NOW));
+    trendingMenuItemsService.reviewChanged(review(2L, 2, NOW), review(2L, 2, NOW.minusWeeks(1)));
+
+    // assert
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+    assertEquals(List.of(2L), ids(top));
+    assertEquals(1.5, top.get(0).getRecentReviews(), 1e-9);
+    assertEquals((4 + 2 * 0.5) / 1.5, top.get(0).getAverageStars(), 1e-9);
+  }
+
+  @Test
+  void reviews_without_a_date_or_dated_in_the_future_count_as_written_now() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, null));
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW.plusWeeks(1)));
+
+    // act
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+
+    // assert
+    assertEquals(2.0, top.get(0).getRecentReviews(), 1e-9);
+  }
+
+  @Test
+  void rankings_are_cached_until_they_expire_or_a_review_changes() {
+    // arrange
+    useCache(Duration.ofDays(14));
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+    trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+
+    // act and assert: a week later, the cached ranking has not decayed
+    setNow(NOW.plusWeeks(1));
+    assertEquals(
+        1.0,
+        trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10).get(0).getRecentReviews(),
+        1e-9);
+
+    // once it expires, it has
+    setNow(NOW.plusWeeks(2).plusMinutes(1));
+    ReflectionTestUtils.setField(trendingMenuItemsService, "minRecentReviews", 0.1);
+    assertEquals(
+        0.25,
+        trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10).get(0).getRecentReviews(),
+        1e-3);
+
+    // and a new review is seen at once
+    trendingMenuItemsService.reviewAdded(review(2L, 4, NOW.plusWeeks(2)));
+    assertEquals(
+        List.of(2L, 1L), ids(trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10)));
+  }
+
+  @Test
+  void decay_weights_every_row_as_of_now() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW.minusWeeks(1)));
+    trendingMenuItemsService.reviewAdded(review(1L, 2, NOW.minusWeeks(2)));
+    setNow(NOW.plusWeeks(1));
+
+    // act
+    int first = trendingMenuItemsService.decay();
+    int second = trendingMenuItemsService.decay();
+
+    // assert
+    assertEquals(1, first);
+    assertEquals(0, second);
+    MenuItemTrend row = rows.get(1L);
+    assertEquals("ortega", row.getDiningCommonsCode());
+    assertEquals(0.375, row.getWeightedReviews(), 1e-9);
+    assertEquals(1.25, row.getWeightedStars(), 1e-9);
+    assertEquals(epochMs(NOW.plusWeeks(1)), row.getAsOfMs());
+  }
+
+  @Test
+  void load_keeps_the_recent_reviews_already_in_the_table() {
+    // arrange
+    rows.put(
+        1L,
+        MenuItemTrend.builder()
+            .itemId(1L)
+            .diningCommonsCode("ortega")
+            .weightedReviews(4)
+            .weightedStars(12)
+            .asOfMs(epochMs(NOW.minusWeeks(1)))
+            .build());
+
+    // act
+    trendingMenuItemsService.load();
+
+    // assert
+    List<TrendingMenuItem> top = trendingMenuItemsService.topItems("ortega", Ranking.VOLUME, 10);
+    assertEquals(List.of(1L), ids(top));
+    assertEquals(2.0, top.get(0).getRecentReviews(), 1e-9);
+    assertEquals(3.0, top.get(0).getAverageStars(), 1e-9);
+    verify(menuItemReviewRepository, never())
+        .findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(any(), any(), any());
+  }
+
+  @Test
+  void load_computes_the_recent_reviews_from_the_reviews_when_the_table_is_empty() {
+    // arrange
+    LocalDateTime from = NOW.minusHours(168 * 20);
+    LocalDateTime to = NOW.plusYears(100);
+    Pageable first = PageRequest.of(0, 1000, org.springframework.data.domain.Sort.by("id"));
+    Pageable second = PageRequest.of(1, 1000, org.springframework.data.domain.Sort.by("id"));
+    List<MenuItemReview> firstPage = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      firstPage.add(review(1L, 4, NOW));
+    }
+    when(menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+            from, to, first))
+        .thenReturn(new PageImpl<>(firstPage, first, 1001));
+    when(menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+            from, to, second))
+        .thenReturn(new PageImpl<>(List.of(review(4L, 2, NOW.minusWeeks(1))), second, 1001));
+
+    // act
+    trendingMenuItemsService.load();
+
+    // assert
+    assertEquals(List.of(1L, 4L), ids(trendingMenuItemsService.topItems(null, Ranking.VOLUME, 10)));
+    assertEquals(1000.0, rows.get(1L).getWeightedReviews(), 1e-6);
+    assertEquals(0.5, rows.get(4L).getWeightedReviews(), 1e-9);
+    assertEquals(1.0, rows.get(4L).getWeightedStars(), 1e-9);
+    assertEquals(epochMs(NOW), rows.get(4L).getAsOfMs());
+  }
+
+  @Test
+  void rebuild_forgets_everything_and_computes_it_again_from_the_reviews() {
+    // arrange
+    trendingMenuItemsService.reviewAdded(review(1L, 4, NOW));
+    when(menuItemReviewRepository.findByDateReviewedGreaterThanEqualAndDateReviewedLessThan(
+            any(), any(), any()))
+        .thenReturn(
+            new PageImpl<>(
+                List.of(
+                    review(2L, 4, NOW),
+                    review(4L, 4, NOW),
+                    review(5L, 4, NOW),
+                    review(99L, 4, NOW))));
+
+    // act
+    int items = trendingMenuItemsService.rebuild();
+
+    // assert
+    assertEquals(2, items);
+    InOrder order = inOrder(menuItemTrendRepository);
+    order.verify(menuItemTrendRepository).deleteAllTrends();
+    order.verify(menuItemTrendRepository).saveAll(any());
+    assertEquals(
+        List.of(2L, 4L),
+        ids(trendingMenuItemsService.topItems(null, Ranking.VOLUME, 10)).stream()
+            .sorted()
+            .toList());
+  }
+}
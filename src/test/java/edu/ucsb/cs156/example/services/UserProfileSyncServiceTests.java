@@ -0,0 +1,111 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class UserProfileSyncServiceTests {
+
+  @Mock private UserRepository userRepository;
+
+  @InjectMocks private UserProfileSyncService userProfileSyncService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  private static User.UserBuilder stored() {
+    return User.builder()
+        .id(7L)
+        .email("someone@ucsb.edu")
+        .googleSub("sub")
+        .pictureUrl("https://example.org/a.jpg")
+        .fullName("Some One")
+        .givenName("Some")
+        .familyName("One")
+        .emailVerified(true)
+        .locale("en")
+        .hostedDomain("ucsb.edu")
+        .admin(true);
+  }
+
+  private void assertChanged(UnaryOperator<User.UserBuilder> change) {
+    assertTrue(
+        userProfileSyncService.profileChanged(stored().build(), change.apply(stored()).build()));
+  }
+
+  @Test
+  void profileChanged_is_true_when_any_profile_field_differs() {
+    assertChanged(b -> b.googleSub("other"));
+    assertChanged(b -> b.pictureUrl("https://example.org/b.jpg"));
+    assertChanged(b -> b.fullName("Someone Else"));
+    assertChanged(b -> b.givenName("Someone"));
+    assertChanged(b -> b.familyName("Else"));
+    assertChanged(b -> b.emailVerified(false));
+    assertChanged(b -> b.locale("fr"));
+    assertChanged(b -> b.hostedDomain(null));
+  }
+
+  @Test
+  void profileChanged_is_false_when_only_other_fields_differ() {
+    assertFalse(
+        userProfileSyncService.profileChanged(
+            stored().build(), stored().id(0L).email("SomeOne@ucsb.edu").admin(false).build()));
+  }
+
+  @Test
+  void syncProfile_copies_the_profile_into_the_stored_row() {
+    // arrange
+    User u = stored().build();
+    when(userRepository.findById(7L)).thenReturn(Optional.of(u));
+    User profile =
+        stored().id(0L).admin(false).pictureUrl("https://example.org/b.jpg").locale("fr").build();
+
+    // act
+    userProfileSyncService.syncProfile(7L, profile);
+
+    // assert
+    verify(userRepository, times(1)).save(u);
+    assertEquals(stored().pictureUrl("https://example.org/b.jpg").locale("fr").build(), u);
+  }
+
+  @Test
+  void syncProfile_does_nothing_when_the_row_is_already_up_to_date() {
+    // arrange
+    when(userRepository.findById(7L)).thenReturn(Optional.of(stored().build()));
+
+    // act
+    userProfileSyncService.syncProfile(7L, stored().build());
+
+    // assert
+    verify(userRepository, never()).save(any());
+  }
+
+  @Test
+  void syncProfile_does_nothing_when_the_user_is_gone() {
+    // arrange
+    when(userRepository.findById(7L)).thenReturn(Optional.empty());
+
+    // act
+    userProfileSyncService.syncProfile(7L, stored().locale("fr").build());
+
+    // assert
+    verify(userRepository, never()).save(any());
+  }
+}
@@ -0,0 +1,127 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import liquibase.database.Database;
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ArchiveLegacyJobLogsTests {
+
+  private Connection connection;
+
+  private Database database;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    connection = DriverManager.getConnection("jdbc:h2:mem:archive_legacy_job_logs");
+    database = new H2Database();
+    database.setConnection(new JdbcConnection(connection));
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("DROP ALL OBJECTS");
+    }
+    connection.close();
+  }
+
+  private void createTables() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE JOBS (ID BIGINT PRIMARY KEY, LOG CLOB)");
+      statement.execute(
+          "CREATE TABLE JOB_LOG_ARCHIVES (JOB_ID BIGINT PRIMARY KEY, FORMAT VARCHAR(255) NOT NULL,"
+              + " LINE_COUNT BIGINT NOT NULL, ORIGINAL_LENGTH BIGINT NOT NULL, COMPRESSED_LOG BLOB)");
+    }
+  }
+
+  private int count(String sql) throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet rows = statement.executeQuery(sql)) {
+      rows.next();
+      return rows.getInt(1);
+    }
+  }
+
+  @Test
+  void moves_logs_off_job_rows_a_batch_at_a_time() throws Exception {
+    // arrange
+    createTables();
+    int jobs = ArchiveLegacyJobLogs.BATCH_SIZE + 1;
+    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO JOBS VALUES (?, ?)")) {
+      for (int id = 1; id <= jobs; id++) {
+        insert.setLong(1, id);
+        insert.setString(2, "log of job " + id + "\nsecond line");
+        insert.executeUpdate();
+      }
+      insert.setLong(1, jobs + 1);
+      insert.setString(2, null);
+      insert.executeUpdate();
+    }
+    ArchiveLegacyJobLogs change = new ArchiveLegacyJobLogs();
+
+    // act
+    change.execute(database);
+
+    // assert
+    assertEquals("Archived the logs of " + jobs + " jobs", change.getConfirmationMessage());
+    assertEquals(0, count("SELECT COUNT(*) FROM JOBS WHERE LOG IS NOT NULL"));
+    assertEquals(jobs, count("SELECT COUNT(*) FROM JOB_LOG_ARCHIVES"));
+
+    JobLogArchive expected = JobLogArchiveService.archiveText(7L, "log of job 7\nsecond line");
+    try (Statement statement = connection.createStatement();
+        ResultSet rows =
+            statement.executeQuery(
+                "SELECT FORMAT, LINE_COUNT, ORIGINAL_LENGTH, COMPRESSED_LOG"
+                    + " FROM JOB_LOG_ARCHIVES WHERE JOB_ID = 7")) {
+      assertTrue(rows.next());
+      assertEquals(JobLogArchiveService.LINES, rows.getString(1));
+      assertEquals(2, rows.getLong(2));
+      assertEquals(expected.getOriginalLength(), rows.getLong(3));
+      assertArrayEquals(expected.getCompressedLog(), rows.getBytes(4));
+    }
+  }
+
+  @Test
+  void does_nothing_when_no_job_has_a_log() throws Exception {
+    // arrange
+    createTables();
+    ArchiveLegacyJobLogs change = new ArchiveLegacyJobLogs();
+
+    // act
+    change.setUp();
+    change.setFileOpener(null);
+    assertFalse(change.validate(database).hasErrors());
+    change.execute(database);
+
+    // assert
+    assertEquals("Archived the logs of 0 jobs", change.getConfirmationMessage());
+    assertEquals(0, count("SELECT COUNT(*) FROM JOB_LOG_ARCHIVES"));
+  }
+
+  @Test
+  void fails_when_the_tables_are_missing() {
+    // act
+    CustomChangeException thrown =
+        assertThrows(
+            CustomChangeException.class, () -> new ArchiveLegacyJobLogs().execute(database));
+
+    // assert
+    assertEquals("Cannot archive the logs stored on job rows", thrown.getMessage());
+  }
+}
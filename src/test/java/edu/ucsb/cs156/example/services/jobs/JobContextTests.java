@@ -1,23 +1,176 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.Test;
 
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void when_log_writer_is_null_does_not_save() throws Exception {
 
     // arrange
 
     Job job1 = Job.builder().build();
-    JobContext ctx = new JobContext(null, job1);
+    JobContext ctx = new JobContext(job1, null);
 
     // act
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    assertEquals(null, job1.getLog());
+  }
+
+  @Test
+  public void log_appends_to_log_writer_and_does_not_touch_job_row() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    JobContext ctx = new JobContext(job1, logWriter);
+
+    // act
+    ctx.log("This is a log message");
+
+    // assert
+    verify(logWriter).append("This is a log message");
+    assertEquals(null, job1.getLog());
+  }
+
+  @Test
+  public void progress_is_recorded_on_the_job_and_saved_at_a_throttled_rate() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    JobContext ctx = new JobContext(job1, null, jobsRepository, 60_000);
+
+    // act
+    ctx.setPhase("importing");
+    ctx.setProgress(30, 120);
+
+    // assert
+    assertEquals("importing", job1.getPhase());
+    assertEquals(30L, job1.getItemsProcessed());
+    assertEquals(120L, job1.getItemsTotal());
+    assertEquals(25, job1.getProgressPercent());
+    verify(jobsRepository, times(1)).save(job1);
+  }
+
+  @Test
+  public void progress_is_saved_on_every_update_when_interval_is_zero() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobsRepository jobsRepository = mock(JobsRepository.class);
+    JobContext ctx = new JobContext(job1, null, jobsRepository, 0);
+
+    // act
+    ctx.setProgress(150);
+    ctx.setProgress(-5);
+    ctx.setProgress(7, 0);
+
+    // assert
+    assertEquals(0, job1.getProgressPercent());
+    assertEquals(7L, job1.getItemsProcessed());
+    verify(jobsRepository, times(3)).save(job1);
+  }
+
+  @Test
+  public void percent_is_capped_and_progress_is_not_saved_without_repository() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().build();
+    JobContext ctx = new JobContext(job1, null);
+
+    // act
+    ctx.setProgress(150, 100);
+    int capped = job1.getProgressPercent();
+    ctx.setProgress(150);
+
+    // assert
+    assertEquals(100, capped);
+    assertEquals(100, job1.getProgressPercent());
+  }
+
+  @Test
+  public void cancel_keeps_the_first_status_and_only_interrupts_while_the_job_runs()
+      throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(Job.builder().build(), null);
+
+    // act
+    ctx.cancel("cancelled");
+    ctx.start();
+    ctx.cancel("timed_out");
+    boolean interrupted = Thread.interrupted();
+    ctx.finish();
+    ctx.cancel("timed_out");
+
+    // assert
+    assertTrue(ctx.isCancelled());
+    assertEquals("cancelled", ctx.getCancelStatus());
+    assertTrue(interrupted);
+    assertFalse(Thread.currentThread().isInterrupted());
+    InterruptedException thrown = assertThrows(InterruptedException.class, ctx::throwIfCancelled);
+    assertEquals("Job cancelled", thrown.getMessage());
+  }
+
+  @Test
+  public void spawn_throws_when_the_job_cannot_have_children() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(Job.builder().id(4L).build(), null);
+
+    // act
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> ctx.spawn(c -> {}));
+
+    // assert
+    assertEquals("Job 4 cannot spawn child jobs", thrown.getMessage());
+  }
+
+  @Test
+  public void spawn_launches_children_and_counts_them() throws Exception {
+
+    // arrange
+
+    JobContext ctx = new JobContext(Job.builder().id(4L).build(), null);
+    List<JobContextConsumer> launched = new ArrayList<>();
+    ctx.setChildLauncher(
+        child -> {
+          launched.add(child);
+          return Job.builder().id(10L + launched.size()).parentJobId(4L).build();
+        });
+    JobContextConsumer first = c -> {};
+    JobContextConsumer second = c -> {};
+
+    // act
+    boolean hadChildrenBefore = ctx.hasChildren();
+    Job firstJob = ctx.spawn(first);
+    Job secondJob = ctx.spawn(second);
+
+    // assert
+    assertFalse(hadChildrenBefore);
+    assertTrue(ctx.hasChildren());
+    assertEquals(List.of(first, second), launched);
+    assertEquals(11L, firstJob.getId());
+    assertEquals(12L, secondJob.getId());
   }
 }
@@ -0,0 +1,249 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLogArchive;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobLogArchiveServiceTests {
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @InjectMocks private JobLogArchiveService jobLogArchiveService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogArchiveService, "compressThresholdChars", 10L);
+    ReflectionTestUtils.setField(jobLogArchiveService, "readPageSize", 2);
+  }
+
+  private JobLogLine line(long seq, String text) {
+    return JobLogLine.builder().jobId(5L).seq(seq).line(text).build();
+  }
+
+  /** Archives the given lines of job 5, and makes the archive readable through the service */
+  private JobLogArchive archiveLines(String... lines) {
+    List<JobLogLine> jobLogLines = new ArrayList<>();
+    long length = 0;
+    for (int seq = 0; seq < lines.length; seq++) {
+      jobLogLines.add(line(seq, lines[seq]));
+      length += lines[seq].length();
+    }
+    when(jobLogLinesRepository.sumLineLengths(5L)).thenReturn(length);
+    when(jobLogLinesRepository.findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(
+            eq(5L), anyLong(), any(Limit.class)))
+        .thenAnswer(
+            invocation ->
+                jobLogLines.stream()
+                    .filter(line -> line.getSeq() >= invocation.getArgument(1, Long.class))
+                    .limit(invocation.getArgument(2, Limit.class).max())
+                    .toList());
+    assertTrue(jobLogArchiveService.archiveIfLarge(5L));
+
+    ArgumentCaptor<JobLogArchive> captor = ArgumentCaptor.forClass(JobLogArchive.class);
+    verify(jobLogArchivesRepository).save(captor.capture());
+    when(jobLogArchivesRepository.findById(5L)).thenReturn(Optional.of(captor.getValue()));
+    return captor.getValue();
+  }
+
+  @Test
+  void archiveIfLarge_leaves_log_of_job_that_logged_nothing_alone() {
+    // arrange
+    when(jobLogLinesRepository.sumLineLengths(5L)).thenReturn(null);
+
+    // act
+    boolean archived = jobLogArchiveService.archiveIfLarge(5L);
+
+    // assert
+    assertFalse(archived);
+    verify(jobLogArchivesRepository, never()).save(any());
+  }
+
+  @Test
+  void archiveIfLarge_leaves_log_at_threshold_alone() {
+    // arrange
+    when(jobLogLinesRepository.sumLineLengths(5L)).thenReturn(10L);
+
+    // act
+    boolean archived = jobLogArchiveService.archiveIfLarge(5L);
+
+    // assert
+    assertFalse(archived);
+    verify(jobLogLinesRepository, never()).deleteByJobId(anyLong());
+  }
+
+  @Test
+  void archiveIfLarge_compresses_large_log_and_deletes_its_lines() {
+    // arrange
+    String repetitive = "x".repeat(10_000);
+
+    // act
+    JobLogArchive archive = archiveLines("first", repetitive, "third");
+
+    // assert
+    assertEquals(5L, archive.getJobId());
+    assertEquals(JobLogArchiveService.ENTRIES, archive.getFormat());
+    assertEquals(3, archive.getLineCount());
+    assertEquals(10_012, archive.getOriginalLength());
+    assertTrue(archive.getCompressedLog().length < 1_000);
+    verify(jobLogLinesRepository, times(1)).deleteByJobId(5L);
+
+    StringWriter out = new StringWriter();
+    assertTrue(jobLogArchiveService.writeArchivedLog(5L, out));
+    assertEquals("first\n" + repetitive + "\nthird", out.toString());
+  }
+
+  @Test
+  void archiveIfLarge_round_trips_log_that_compresses_poorly() {
+    // arrange
+    Random random = new Random(0);
+    StringBuilder noise = new StringBuilder();
+    for (int i = 0; i < 50_000; i++) {
+      noise.append((char) ('!' + random.nextInt(90)));
+    }
+
+    // act
+    JobLogArchive archive = archiveLines(noise.toString());
+
+    // assert
+    assertTrue(archive.getCompressedLog().length > 8192);
+    StringWriter out = new StringWriter();
+    jobLogArchiveService.writeArchivedLog(5L, out);
+    assertEquals(noise.toString(), out.toString());
+  }
+
+  @Test
+  void archiveIfLarge_reads_lines_a_page_at_a_time() {
+    // act
+    archiveLines("first", "second", "third", "fourth");
+
+    // assert
+    InOrder inOrder = inOrder(jobLogLinesRepository);
+    inOrder
+        .verify(jobLogLinesRepository)
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(5L, 0L, Limit.of(2));
+    inOrder
+        .verify(jobLogLinesRepository)
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(5L, 2L, Limit.of(2));
+    inOrder
+        .verify(jobLogLinesRepository)
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(5L, 4L, Limit.of(2));
+    verify(jobLogLinesRepository, times(3))
+        .findByJobIdAndSeqGreaterThanEqualOrderBySeqAsc(eq(5L), anyLong(), any(Limit.class));
+  }
+
+  @Test
+  void archiveIfLarge_keeps_the_seq_of_lines_that_contain_newlines() {
+    // arrange
+    archiveLines("first", "a line\nwith a newline", "third");
+    List<JobLogLine> received = new ArrayList<>();
+
+    // act
+    jobLogArchiveService.forEachArchivedLine(5L, 0L, received::add);
+
+    // assert
+    assertEquals(
+        List.of(line(0, "first"), line(1, "a line\nwith a newline"), line(2, "third")), received);
+    StringWriter out = new StringWriter();
+    jobLogArchiveService.writeArchivedLog(5L, out);
+    assertEquals("first\na line\nwith a newline\nthird", out.toString());
+  }
+
+  @Test
+  void archiveText_splits_legacy_log_on_newlines() {
+    // arrange
+    String log = "a long legacy log\nwith two lines";
+
+    // act
+    JobLogArchive archive = JobLogArchiveService.archiveText(5L, log);
+
+    // assert
+    assertEquals(5L, archive.getJobId());
+    assertEquals(JobLogArchiveService.LINES, archive.getFormat());
+    assertEquals(2, archive.getLineCount());
+    assertEquals(log.length(), archive.getOriginalLength());
+
+    when(jobLogArchivesRepository.findById(5L)).thenReturn(Optional.of(archive));
+    StringWriter out = new StringWriter();
+    assertTrue(jobLogArchiveService.writeArchivedLog(5L, out));
+    assertEquals(log, out.toString());
+    List<JobLogLine> received = new ArrayList<>();
+    assertTrue(jobLogArchiveService.forEachArchivedLine(5L, 1L, received::add));
+    assertEquals(List.of(line(1, "with two lines")), received);
+  }
+
+  @Test
+  void forEachArchivedLine_passes_on_lines_from_seq() {
+    // arrange
+    archiveLines("first", "second", "third", "fourth");
+    List<JobLogLine> received = new ArrayList<>();
+
+    // act
+    boolean found = jobLogArchiveService.forEachArchivedLine(5L, 2L, received::add);
+
+    // assert
+    assertTrue(found);
+    assertEquals(List.of(line(2, "third"), line(3, "fourth")), received);
+  }
+
+  @Test
+  void reading_a_job_without_compressed_log_finds_nothing() {
+    // act and assert
+    assertFalse(jobLogArchiveService.writeArchivedLog(5L, new StringWriter()));
+    assertFalse(jobLogArchiveService.forEachArchivedLine(5L, 0L, line -> {}));
+  }
+
+  @Test
+  void reading_a_corrupt_compressed_log_throws() {
+    // arrange
+    JobLogArchive corrupt =
+        JobLogArchive.builder()
+            .jobId(5L)
+            .lineCount(1)
+            .originalLength(3)
+            .compressedLog(new byte[] {1, 2, 3})
+            .build();
+    when(jobLogArchivesRepository.findById(5L)).thenReturn(Optional.of(corrupt));
+
+    // act and assert
+    UncheckedIOException thrown =
+        assertThrows(
+            UncheckedIOException.class,
+            () -> jobLogArchiveService.writeArchivedLog(5L, new StringWriter()));
+    assertEquals("Cannot read compressed log of job 5", thrown.getMessage());
+    assertThrows(
+        UncheckedIOException.class,
+        () -> jobLogArchiveService.forEachArchivedLine(5L, 0L, line -> {}));
+  }
+}
@@ -0,0 +1,475 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.data.domain.Limit;
+
+public class JobLogWriterTests {
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void lines_are_buffered_until_batch_size_is_reached() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 3, 60_000);
+
+    // act
+    writer.append("line 0");
+    writer.append("line 1");
+
+    // assert
+    verify(repository, never()).saveAll(any());
+    assertEquals(2, writer.getBufferedLineCount());
+
+    // act
+    writer.append("line 2");
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(repository, times(1)).saveAll(captor.capture());
+    List<JobLogLine> expected =
+        List.of(
+            JobLogLine.builder().jobId(7L).seq(0).line("line 0").build(),
+            JobLogLine.builder().jobId(7L).seq(1).line("line 1").build(),
+            JobLogLine.builder().jobId(7L).seq(2).line("line 2").build());
+    assertEquals(expected, captor.getValue());
+    assertEquals(0, writer.getBufferedLineCount());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void writer_can_continue_an_existing_log() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000, 5, Runnable::run, 10, 1000);
+
+    // act
+    writer.append("line 5");
+    writer.flush();
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(repository, times(1)).saveAll(captor.capture());
+    assertEquals(
+        List.of(JobLogLine.builder().jobId(7L).seq(5).line("line 5").build()), captor.getValue());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void lines_are_flushed_when_flush_interval_has_elapsed() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 0);
+
+    // act
+    writer.append("line 0");
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(repository, times(1)).saveAll(captor.capture());
+    assertEquals(
+        List.of(JobLogLine.builder().jobId(7L).seq(0).line("line 0").build()), captor.getValue());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void flush_writes_remaining_lines_and_continues_sequence() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+
+    // act
+    writer.append("line 0");
+    writer.flush();
+    writer.append("line 1");
+    writer.flush();
+
+    // assert
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(repository, times(2)).saveAll(captor.capture());
+    assertEquals(
+        List.of(JobLogLine.builder().jobId(7L).seq(0).line("line 0").build()),
+        captor.getAllValues().get(0));
+    assertEquals(
+        List.of(JobLogLine.builder().jobId(7L).seq(1).line("line 1").build()),
+        captor.getAllValues().get(1));
+  }
+
+  @Test
+  public void flush_with_empty_buffer_does_not_save() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+
+    // act
+    writer.flush();
+
+    // assert
+    verify(repository, never()).saveAll(any());
+  }
+
+  @Test
+  public void listeners_get_lines_as_soon_as_they_are_appended() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.append("line 0");
+
+    // assert
+    verify(listener).onLine(JobLogLine.builder().jobId(7L).seq(0).line("line 0").build());
+    assertEquals(1, writer.getBufferedLineCount());
+    assertEquals(1, writer.getListenerCount());
+  }
+
+  @Test
+  public void subscribe_flushes_then_replays_lines_from_seq() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogLine line1 = JobLogLine.builder().jobId(7L).seq(1).line("line 1").build();
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 1L, 2L, Limit.of(1000)))
+        .thenReturn(List.of(line1));
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+    writer.append("line 0");
+    writer.append("line 1");
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // act
+    writer.subscribe(1L, listener);
+
+    // assert
+    InOrder inOrder = inOrder(repository, listener);
+    inOrder.verify(repository).saveAll(any());
+    inOrder
+        .verify(repository)
+        .findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(7L, 1L, 2L, Limit.of(1000));
+    inOrder.verify(listener).onLine(line1);
+    verify(listener, never()).onJobFinished(any());
+  }
+
+  @Test
+  public void subscribe_replays_on_the_delivery_executor_a_page_at_a_time() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    ManualExecutor executor = new ManualExecutor();
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000, 0, executor, 10, 2);
+    writer.append("line 0");
+    writer.append("line 1");
+    writer.append("line 2");
+    List<JobLogLine> logged = new ArrayList<>();
+    for (int seq = 0; seq < 4; seq++) {
+      logged.add(JobLogLine.builder().jobId(7L).seq(seq).line("line " + seq).build());
+    }
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 0L, 3L, Limit.of(2)))
+        .thenReturn(logged.subList(0, 2));
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 2L, 3L, Limit.of(2)))
+        .thenReturn(logged.subList(2, 3));
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // act
+    writer.subscribe(0L, listener);
+
+    // assert: nothing is read on the subscribing thread
+    verify(repository, never())
+        .findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            anyLong(), anyLong(), anyLong(), any());
+    assertEquals(1, writer.getListenerCount());
+
+    // act: the job logs on while the listener catches up
+    writer.append("line 3");
+    writer.close("complete");
+    executor.runAll();
+
+    // assert
+    InOrder inOrder = inOrder(listener);
+    for (JobLogLine line : logged) {
+      inOrder.verify(listener).onLine(line);
+    }
+    inOrder.verify(listener).onJobFinished("complete");
+    verify(listener, times(4)).onLine(any());
+  }
+
+  @Test
+  public void unsubscribing_while_catching_up_stops_the_replay() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+    writer.append("line 0");
+    writer.append("line 1");
+    JobLogListener listener = mock(JobLogListener.class);
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 0L, 2L, Limit.of(1000)))
+        .thenAnswer(
+            invocation -> {
+              writer.unsubscribe(listener);
+              return List.of(
+                  JobLogLine.builder().jobId(7L).seq(0).line("line 0").build(),
+                  JobLogLine.builder().jobId(7L).seq(1).line("line 1").build());
+            });
+
+    // act
+    writer.subscribe(0L, listener);
+
+    // assert
+    verify(listener, never()).onLine(any());
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  @Test
+  public void close_notifies_and_removes_listeners() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.close("complete");
+    writer.append("after close");
+
+    // assert
+    verify(listener, times(1)).onJobFinished("complete");
+    verify(listener, never()).onLine(any());
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  @Test
+  public void subscribe_after_close_replays_then_finishes_listener() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    JobLogLine line0 = JobLogLine.builder().jobId(7L).seq(0).line("line 0").build();
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 0L, 1L, Limit.of(1000)))
+        .thenReturn(List.of(line0));
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+    writer.append("line 0");
+    writer.close("error");
+    JobLogListener listener = mock(JobLogListener.class);
+
+    // act
+    writer.subscribe(0L, listener);
+
+    // assert
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onLine(line0);
+    inOrder.verify(listener, times(1)).onJobFinished("error");
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  @Test
+  public void unsubscribed_listeners_get_no_more_lines() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.unsubscribe(listener);
+    writer.append("line 0");
+
+    // assert
+    verify(listener, never()).onLine(any());
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  /** An executor that runs its tasks only when the test says so, like a busy delivery thread */
+  private static class ManualExecutor implements Executor {
+    final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    void runAll() {
+      while (!tasks.isEmpty()) {
+        tasks.remove(0).run();
+      }
+    }
+  }
+
+  @Test
+  public void lines_reach_listeners_on_the_delivery_executor_not_the_appending_thread() {
+    // arrange
+    ManualExecutor executor = new ManualExecutor();
+    JobLogWriter writer =
+        new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000, 0, executor, 10, 1000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.append("line 0");
+    writer.append("line 1");
+
+    // assert: the job goes on without waiting for the listener
+    verify(listener, never()).onLine(any());
+    assertEquals(1, executor.tasks.size());
+
+    // act
+    writer.close("complete");
+    executor.runAll();
+
+    // assert
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener).onLine(JobLogLine.builder().jobId(7L).seq(0).line("line 0").build());
+    inOrder.verify(listener).onLine(JobLogLine.builder().jobId(7L).seq(1).line("line 1").build());
+    inOrder.verify(listener).onJobFinished("complete");
+  }
+
+  @Test
+  public void listener_that_falls_too_far_behind_is_dropped() {
+    // arrange
+    ManualExecutor executor = new ManualExecutor();
+    JobLogWriter writer =
+        new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000, 0, executor, 2, 1000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.append("line 0");
+    writer.append("line 1");
+    writer.append("line 2");
+    writer.append("line 3");
+    executor.runAll();
+
+    // assert
+    assertEquals(0, writer.getListenerCount());
+    InOrder inOrder = inOrder(listener);
+    inOrder.verify(listener, times(2)).onLine(any());
+    inOrder.verify(listener).onOverflow();
+    verify(listener, never()).onLine(JobLogLine.builder().jobId(7L).seq(2).line("line 2").build());
+  }
+
+  @Test
+  public void listener_is_unsubscribed_on_its_first_failure() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000);
+    JobLogListener listener = mock(JobLogListener.class);
+    doThrow(new IllegalStateException("Log stream closed")).when(listener).onLine(any());
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.append("line 0");
+    writer.append("line 1");
+    writer.close("complete");
+
+    // assert
+    verify(listener, times(1)).onLine(any());
+    verify(listener, never()).onJobFinished(any());
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  @Test
+  public void listener_that_fails_while_catching_up_is_not_subscribed() {
+    // arrange
+    JobLogLinesRepository repository = mock(JobLogLinesRepository.class);
+    when(repository.findByJobIdAndSeqGreaterThanEqualAndSeqLessThanOrderBySeqAsc(
+            7L, 0L, 1L, Limit.of(1000)))
+        .thenReturn(List.of(JobLogLine.builder().jobId(7L).seq(0).line("line 0").build()));
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 60_000);
+    writer.append("line 0");
+    JobLogListener listener = mock(JobLogListener.class);
+    doThrow(new IllegalStateException("Log stream closed")).when(listener).onLine(any());
+
+    // act
+    writer.subscribe(0L, listener);
+
+    // assert
+    assertEquals(0, writer.getListenerCount());
+    verify(listener, never()).onJobFinished(any());
+  }
+
+  @Test
+  public void listener_is_dropped_when_the_delivery_executor_refuses_work() {
+    // arrange
+    Executor refusing =
+        task -> {
+          throw new RejectedExecutionException("shutting down");
+        };
+    JobLogWriter writer =
+        new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000, 0, refusing, 10, 1000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+
+    // act
+    writer.append("line 0");
+
+    // assert
+    assertEquals(0, writer.getListenerCount());
+    verify(listener, never()).onLine(any());
+  }
+
+  @Test
+  public void unsubscribed_listener_gets_none_of_its_queued_lines() {
+    // arrange
+    ManualExecutor executor = new ManualExecutor();
+    JobLogWriter writer =
+        new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000, 0, executor, 10, 1000);
+    JobLogListener listener = mock(JobLogListener.class);
+    writer.subscribe(0L, listener);
+    writer.append("line 0");
+
+    // act
+    writer.unsubscribe(mock(JobLogListener.class));
+    writer.unsubscribe(listener);
+    executor.runAll();
+
+    // assert
+    verify(listener, never()).onLine(any());
+    assertEquals(0, writer.getListenerCount());
+  }
+
+  @Test
+  public void listeners_ignore_overflow_unless_they_say_otherwise() {
+    // arrange
+    ManualExecutor executor = new ManualExecutor();
+    JobLogWriter writer =
+        new JobLogWriter(mock(JobLogLinesRepository.class), 7L, 100, 60_000, 0, executor, 1, 1000);
+    List<String> received = new ArrayList<>();
+    writer.subscribe(
+        0L,
+        new JobLogListener() {
+          @Override
+          public void onLine(JobLogLine line) {
+            received.add(line.getLine());
+          }
+
+          @Override
+          public void onJobFinished(String status) {
+            received.add(status);
+          }
+        });
+
+    // act
+    writer.append("line 0");
+    writer.append("line 1");
+    writer.close("complete");
+    executor.runAll();
+
+    // assert
+    assertEquals(List.of("line 0"), received);
+  }
+}
@@ -0,0 +1,233 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+
+public class JobQueueServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobService jobService;
+
+  @Mock private JobQueueService self;
+
+  @Mock private JobExecutor jobExecutor;
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @InjectMocks private JobQueueService jobQueueService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+  }
+
+  private Job queuedTestJob(long id) {
+    return Job.builder()
+        .id(id)
+        .status("running")
+        .jobType(TestJob.class.getName())
+        .jobParams("{\"fail\":true,\"sleepMs\":5}")
+        .build();
+  }
+
+  @Test
+  void poll_claims_one_job_per_free_worker_and_starts_them() {
+    // arrange
+    when(jobExecutor.getActiveCount()).thenReturn(1);
+    when(jobExecutor.getQueueSize()).thenReturn(1);
+    Job job = queuedTestJob(1L);
+    when(self.claimQueuedJobs(2)).thenReturn(List.of(job));
+
+    // act
+    jobQueueService.poll();
+
+    // assert
+    verify(self, times(1)).recoverExpiredLeases();
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(jobService, times(1)).startJob(eq(job), captor.capture());
+    assertEquals(TestJob.builder().fail(true).sleepMs(5).build(), captor.getValue());
+  }
+
+  @Test
+  void poll_claims_nothing_when_no_worker_is_free() {
+    // arrange
+    when(jobExecutor.getActiveCount()).thenReturn(4);
+
+    // act
+    jobQueueService.poll();
+
+    // assert
+    verify(self, times(1)).recoverExpiredLeases();
+    verify(self, never()).claimQueuedJobs(anyInt());
+  }
+
+  @Test
+  void poll_keeps_going_when_executor_rejects_a_job() {
+    // arrange
+    Job job1 = queuedTestJob(1L);
+    Job job2 = queuedTestJob(2L);
+    when(self.claimQueuedJobs(4)).thenReturn(List.of(job1, job2));
+    doThrow(new TaskRejectedException("Executor is full"))
+        .when(jobService)
+        .startJob(eq(job1), any(JobContextConsumer.class));
+
+    // act
+    jobQueueService.poll();
+
+    // assert
+    verify(jobService, times(1)).startJob(eq(job2), any(JobContextConsumer.class));
+  }
+
+  @Test
+  void poll_marks_job_of_unknown_type_as_error() {
+    // arrange
+    Job job = Job.builder().id(1L).status("running").jobType("no.such.Job").jobParams("{}").build();
+    jobService.renewLease(job);
+    when(self.claimQueuedJobs(4)).thenReturn(List.of(job));
+
+    // act
+    jobQueueService.poll();
+
+    // assert
+    assertEquals("error", job.getStatus());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(job);
+    ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+    verify(jobService, times(1)).appendJobLog(eq(job), captor.capture());
+    assertTrue(captor.getValue().startsWith("Cannot run job of type no.such.Job: "));
+    verify(jobService, times(1)).notifyParent(job);
+    verify(jobService, never()).startJob(any(Job.class), any(JobContextConsumer.class));
+  }
+
+  @Test
+  void poll_marks_job_whose_type_is_not_a_queueable_job_as_error() {
+    // arrange
+    Job job = Job.builder().id(1L).status("running").jobType("java.lang.String").build();
+    when(self.claimQueuedJobs(4)).thenReturn(List.of(job));
+
+    // act
+    jobQueueService.poll();
+
+    // assert
+    assertEquals("error", job.getStatus());
+    verify(jobService, times(1))
+        .appendJobLog(
+            job,
+            "Cannot run job of type java.lang.String: java.lang.IllegalArgumentException:"
+                + " java.lang.String is not a QueueableJob");
+  }
+
+  @Test
+  void claimQueuedJobs_leases_locked_jobs_to_this_instance() {
+    // arrange
+    Job job1 = Job.builder().id(1L).status("queued").build();
+    Job job2 = Job.builder().id(2L).status("queued").build();
+    when(jobsRepository.lockQueuedJobs(PageRequest.of(0, 3))).thenReturn(List.of(job1, job2));
+
+    // act
+    List<Job> claimed = jobQueueService.claimQueuedJobs(3);
+
+    // assert
+    assertEquals(List.of(job1, job2), claimed);
+    assertEquals("running", job1.getStatus());
+    assertEquals("running", job2.getStatus());
+    verify(jobService, times(1)).renewLease(job1);
+    verify(jobService, times(1)).renewLease(job2);
+    verify(jobsRepository, times(1)).saveAll(List.of(job1, job2));
+  }
+
+  @Test
+  void recoverExpiredLeases_requeues_queued_jobs_and_fails_the_others() {
+    // arrange
+    ZonedDateTime expired = ZonedDateTime.now().minusMinutes(1);
+    Job queueable =
+        Job.builder()
+            .id(1L)
+            .status("running")
+            .jobType(TestJob.class.getName())
+            .leaseOwner("worker-a")
+            .leaseExpiresAt(expired)
+            .build();
+    Job inMemory =
+        Job.builder()
+            .id(2L)
+            .status("running")
+            .leaseOwner("worker-b")
+            .leaseExpiresAt(expired)
+            .build();
+    when(jobsRepository.lockJobsWithExpiredLease(any(ZonedDateTime.class)))
+        .thenReturn(List.of(queueable, inMemory));
+
+    // act
+    jobQueueService.recoverExpiredLeases();
+
+    // assert
+    assertEquals("queued", queueable.getStatus());
+    assertNull(queueable.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(queueable);
+    verify(jobService, times(1))
+        .appendJobLog(queueable, "Lease held by worker-a expired; job re-queued");
+
+    assertEquals("error", inMemory.getStatus());
+    assertNull(inMemory.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(inMemory);
+    verify(jobService, times(1))
+        .appendJobLog(inMemory, "Lease held by worker-b expired; job cannot be re-run");
+
+    // only the job that failed has finished
+    verify(jobService, never()).notifyParent(queueable);
+    verify(jobService, times(1)).notifyParent(inMemory);
+  }
+
+  @Test
+  void recoverExpiredLeases_marks_job_that_was_being_cancelled_as_cancelled() {
+    // arrange
+    Job job =
+        Job.builder()
+            .id(1L)
+            .status("running")
+            .jobType(TestJob.class.getName())
+            .leaseOwner("worker-a")
+            .leaseExpiresAt(ZonedDateTime.now().minusMinutes(1))
+            .cancelRequested(true)
+            .build();
+    when(jobsRepository.lockJobsWithExpiredLease(any(ZonedDateTime.class)))
+        .thenReturn(List.of(job));
+
+    // act
+    jobQueueService.recoverExpiredLeases();
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobService, times(1))
+        .appendJobLog(job, "Lease held by worker-a expired; job was being cancelled");
+  }
+}
@@ -0,0 +1,156 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.models.JobPurgeReport;
+import edu.ucsb.cs156.example.repositories.JobLogArchivesRepository;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.ZonedDateTime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  private static final List<String> STATUSES =
+      List.of("complete", "error", "rejected", "cancelled", "timed_out");
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchivesRepository jobLogArchivesRepository;
+
+  @Mock private JobRetentionService self;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+    when(self.deleteJobs(anyList()))
+        .thenAnswer(invocation -> invocation.getArgument(0, List.class).size());
+  }
+
+  @Test
+  void purge_deletes_old_jobs_in_batches_until_none_are_left() {
+    // arrange
+    when(jobsRepository.findIdsByStatusInCreatedBefore(
+            eq(STATUSES), any(ZonedDateTime.class), eq(PageRequest.of(0, 2))))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L, 4L))
+        .thenReturn(List.of());
+    when(jobsRepository.count()).thenReturn(10L);
+
+    // act
+    JobPurgeReport report = jobRetentionService.purge();
+
+    // assert
+    assertEquals(
+        JobPurgeReport.builder().purgedByAge(4).purgedByCount(0).totalPurged(4).build(), report);
+    verify(self, times(1)).deleteJobs(List.of(1L, 2L));
+    verify(self, times(1)).deleteJobs(List.of(3L, 4L));
+    ArgumentCaptor<ZonedDateTime> cutoff = ArgumentCaptor.forClass(ZonedDateTime.class);
+    verify(jobsRepository, times(3))
+        .findIdsByStatusInCreatedBefore(eq(STATUSES), cutoff.capture(), any());
+    assertTrue(cutoff.getValue().isBefore(ZonedDateTime.now().minusDays(29)));
+    assertTrue(cutoff.getValue().isAfter(ZonedDateTime.now().minusDays(31)));
+  }
+
+  @Test
+  void purge_stops_after_a_partial_batch() {
+    // arrange
+    when(jobsRepository.findIdsByStatusInCreatedBefore(eq(STATUSES), any(), any()))
+        .thenReturn(List.of(1L));
+
+    // act
+    JobPurgeReport report = jobRetentionService.purge();
+
+    // assert
+    assertEquals(1, report.getPurgedByAge());
+    verify(jobsRepository, times(1)).findIdsByStatusInCreatedBefore(eq(STATUSES), any(), any());
+  }
+
+  @Test
+  void purge_deletes_oldest_jobs_beyond_max_rows() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "maxRows", 7L);
+    when(jobsRepository.findIdsByStatusInCreatedBefore(eq(STATUSES), any(), any()))
+        .thenReturn(List.of());
+    when(jobsRepository.count()).thenReturn(10L);
+    when(jobsRepository.findIdsByStatusIn(STATUSES, PageRequest.of(0, 2)))
+        .thenReturn(List.of(1L, 2L));
+    when(jobsRepository.findIdsByStatusIn(STATUSES, PageRequest.of(0, 1))).thenReturn(List.of(3L));
+
+    // act
+    JobPurgeReport report = jobRetentionService.purge();
+
+    // assert
+    assertEquals(
+        JobPurgeReport.builder().purgedByAge(0).purgedByCount(3).totalPurged(3).build(), report);
+    verify(self, times(1)).deleteJobs(List.of(1L, 2L));
+    verify(self, times(1)).deleteJobs(List.of(3L));
+  }
+
+  @Test
+  void purge_does_nothing_when_rules_are_turned_off() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "maxAgeDays", 0);
+    ReflectionTestUtils.setField(jobRetentionService, "maxRows", 0L);
+
+    // act
+    jobRetentionService.purgeOnSchedule();
+
+    // assert
+    verify(jobsRepository, never()).findIdsByStatusInCreatedBefore(any(), any(), any());
+    verify(jobsRepository, never()).count();
+    verify(self, never()).deleteJobs(anyList());
+  }
+
+  @Test
+  void deleteJobs_deletes_jobs_and_their_logs() {
+    // arrange
+    when(jobsRepository.deleteByIdIn(List.of(1L, 2L))).thenReturn(2);
+
+    // act
+    int deleted = jobRetentionService.deleteJobs(List.of(1L, 2L));
+
+    // assert
+    assertEquals(2, deleted);
+    verify(jobLogLinesRepository, times(1)).deleteByJobIdIn(List.of(1L, 2L));
+    verify(jobLogArchivesRepository, times(1)).deleteByJobIdIn(List.of(1L, 2L));
+  }
+
+  @Test
+  void deleteAllFinished_deletes_every_finished_job_in_batches() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "statuses", List.of("complete"));
+    when(jobsRepository.findIdsByStatusIn(STATUSES, PageRequest.of(0, 2)))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L));
+
+    // act
+    long deleted = jobRetentionService.deleteAllFinished();
+
+    // assert
+    assertEquals(3, deleted);
+    verify(self, times(1)).deleteJobs(List.of(1L, 2L));
+    verify(self, times(1)).deleteJobs(List.of(3L));
+  }
+}
@@ -0,0 +1,823 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private JobLogArchiveService jobLogArchiveService;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobService self;
+
+  @Mock private JobExecutor jobExecutor;
+
+  @Spy private ObjectMapper mapper = new ObjectMapper();
+
+  @Spy private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Spy private TaskExecutor jobLogStreamExecutor = new SyncTaskExecutor();
+
+  @InjectMocks private JobService jobService;
+
+  /** A job whose state cannot be written as JSON */
+  public static class SelfReferencingJob implements QueueableJob {
+    public SelfReferencingJob getSelf() {
+      return this;
+    }
+
+    @Override
+    public void accept(JobContext c) {}
+  }
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  void runAsJob_marks_job_rejected_when_executor_is_full() {
+    // arrange
+    JobContextConsumer jobFunction = ctx -> {};
+    TaskRejectedException rejected = new TaskRejectedException("Executor is full");
+    doThrow(rejected).when(self).runJobAsync(any(Job.class), any(JobContextConsumer.class));
+
+    // act
+    TaskRejectedException thrown =
+        assertThrows(TaskRejectedException.class, () -> jobService.runAsJob(jobFunction));
+
+    // assert
+    assertEquals(rejected, thrown);
+    ArgumentCaptor<Job> captor = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(2)).save(captor.capture());
+    assertEquals("rejected", captor.getValue().getStatus());
+    JobLogListener listener = mock(JobLogListener.class);
+    jobService.streamJobLogs(captor.getValue(), 0L, listener);
+    verify(listener, times(1)).onJobFinished("rejected");
+  }
+
+  @Test
+  void runAsJob_hands_job_to_executor() {
+    // arrange
+    JobContextConsumer jobFunction = ctx -> {};
+
+    // act
+    Job job = jobService.runAsJob(jobFunction);
+
+    // assert
+    assertEquals("running", job.getStatus());
+    assertEquals(jobService.getWorkerId(), job.getLeaseOwner());
+    assertTrue(job.getLeaseExpiresAt().isAfter(job.getHeartbeatAt()));
+    verify(self, times(1)).runJobAsync(job, jobFunction);
+    verify(jobsRepository, times(1)).save(job);
+    assertNotNull(jobService.streamJobLogs(job, 0L, mock(JobLogListener.class)));
+  }
+
+  @Test
+  void runAsJob_queues_queueable_job() {
+    // arrange
+    TestJob testJob = TestJob.builder().fail(true).sleepMs(5).build();
+
+    // act
+    Job job = jobService.runAsJob(testJob);
+
+    // assert
+    assertEquals("queued", job.getStatus());
+    assertEquals("edu.ucsb.cs156.example.jobs.TestJob", job.getJobType());
+    assertEquals("{\"fail\":true,\"sleepMs\":5}", job.getJobParams());
+    assertNull(job.getLeaseOwner());
+    verify(jobsRepository, times(1)).save(job);
+    verify(self, never()).runJobAsync(any(Job.class), any(JobContextConsumer.class));
+  }
+
+  @Test
+  void runAsJob_rejects_queueable_job_when_queue_is_full() {
+    // arrange
+    when(jobsRepository.countByStatus("queued")).thenReturn(100L);
+
+    // act
+    assertThrows(
+        TaskRejectedException.class,
+        () -> jobService.runAsJob(TestJob.builder().fail(false).sleepMs(0).build()));
+
+    // assert
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @Test
+  void runAsJob_queues_queueable_job_past_capacity_when_policy_is_queue() {
+    // arrange
+    ReflectionTestUtils.setField(jobService, "rejectionPolicy", "queue");
+    when(jobsRepository.countByStatus("queued")).thenReturn(100L);
+
+    // act
+    Job job = jobService.runAsJob(TestJob.builder().fail(false).sleepMs(0).build());
+
+    // assert
+    assertEquals("queued", job.getStatus());
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  void runAsJob_throws_when_queueable_job_cannot_be_serialized() {
+    // arrange
+    QueueableJob jobFunction = new SelfReferencingJob();
+
+    // act
+    IllegalArgumentException thrown =
+        assertThrows(IllegalArgumentException.class, () -> jobService.runAsJob(jobFunction));
+
+    // assert
+    assertTrue(thrown.getMessage().startsWith("Cannot queue job of type "));
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @Test
+  void startJob_puts_queued_job_back_on_queue_when_executor_is_full() {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").jobType(TestJob.class.getName()).build();
+    jobService.renewLease(job);
+    JobContextConsumer jobFunction = ctx -> {};
+    doThrow(new TaskRejectedException("Executor is full")).when(self).runJobAsync(job, jobFunction);
+
+    // act
+    assertThrows(TaskRejectedException.class, () -> jobService.startJob(job, jobFunction));
+
+    // assert
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(job);
+
+    // its log is no longer written on this instance, so a client follows it in the table
+    JobLogListener listener = mock(JobLogListener.class);
+    when(jobsRepository.findById(3L)).thenReturn(Optional.of(job));
+    jobService.streamJobLogs(job, 0L, listener);
+    verify(jobsRepository, times(1)).findById(3L);
+    verify(listener, never()).onJobFinished(any());
+
+    // a job that is no longer active gets no heartbeats
+    jobService.sendHeartbeats();
+    verify(jobsRepository, times(1)).save(job);
+  }
+
+  @Test
+  void sendHeartbeats_renews_leases_of_active_jobs() {
+    // arrange
+    Job job = jobService.runAsJob(ctx -> {});
+    ZonedDateTime expired = ZonedDateTime.now().minusMinutes(1);
+    job.setLeaseExpiresAt(expired);
+
+    // act
+    jobService.sendHeartbeats();
+
+    // assert
+    assertTrue(job.getLeaseExpiresAt().isAfter(ZonedDateTime.now()));
+    verify(jobsRepository, times(2)).save(job);
+  }
+
+  @Test
+  void runJobAsync_continues_log_and_gives_up_lease() {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    jobService.renewLease(job);
+    when(jobLogLinesRepository.findFirstByJobIdOrderBySeqDesc(3L))
+        .thenReturn(Optional.of(JobLogLine.builder().jobId(3L).seq(4).line("old").build()));
+
+    // act
+    jobService.runJobAsync(job, ctx -> ctx.log("new"));
+
+    // assert
+    assertEquals("complete", job.getStatus());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobsRepository, times(1)).save(job);
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(List.of(JobLogLine.builder().jobId(3L).seq(5).line("new").build()));
+    verify(jobLogArchiveService, times(1)).archiveIfLarge(3L);
+  }
+
+  @Test
+  void runJobAsync_records_timings_and_progress() {
+    // arrange
+    Job job =
+        Job.builder()
+            .id(3L)
+            .status("running")
+            .jobType(TestJob.class.getName())
+            .createdAt(ZonedDateTime.now().minusSeconds(5))
+            .build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.setPhase("counting");
+          throw new Exception("Fail!");
+        });
+
+    // assert
+    assertEquals("error", job.getStatus());
+    assertEquals("counting", job.getPhase());
+    assertFalse(job.getCompletedAt().isBefore(job.getStartedAt()));
+    Timer queueLatency = meterRegistry.get("jobs.queue.latency").tag("type", "TestJob").timer();
+    assertEquals(1, queueLatency.count());
+    assertTrue(queueLatency.totalTime(TimeUnit.SECONDS) >= 5);
+    Timer execution =
+        meterRegistry.get("jobs.execution").tag("type", "TestJob").tag("status", "error").timer();
+    assertEquals(1, execution.count());
+    // saved once by the progress report, once at the end
+    verify(jobsRepository, times(2)).save(job);
+  }
+
+  @Test
+  void runJobAsync_tags_unqueued_jobs_as_in_memory_and_skips_queue_latency_without_createdAt() {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+
+    // act
+    jobService.runJobAsync(job, ctx -> {});
+
+    // assert
+    assertEquals(
+        1,
+        meterRegistry
+            .get("jobs.execution")
+            .tag("type", "in-memory")
+            .tag("status", "complete")
+            .timer()
+            .count());
+    assertTrue(meterRegistry.find("jobs.queue.latency").timers().isEmpty());
+  }
+
+  @Test
+  void cancelJob_cancels_queued_job_without_running_it() {
+    // arrange
+    when(jobsRepository.cancelQueuedJob(any(Long.class), any(ZonedDateTime.class))).thenReturn(1);
+
+    // act
+    boolean cancelled = jobService.cancelJob(3L);
+
+    // assert
+    assertTrue(cancelled);
+    verify(jobsRepository, never()).requestCancel(3L);
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(3L)
+                    .seq(0)
+                    .line("Job cancelled before it started")
+                    .build()));
+  }
+
+  @Test
+  void cancelJob_returns_false_for_finished_job() {
+    // act
+    boolean cancelled = jobService.cancelJob(3L);
+
+    // assert
+    assertFalse(cancelled);
+  }
+
+  @Test
+  void cancelJob_flags_job_running_on_another_instance() {
+    // arrange
+    when(jobsRepository.requestCancel(3L)).thenReturn(1);
+
+    // act
+    boolean cancelled = jobService.cancelJob(3L);
+
+    // assert
+    assertTrue(cancelled);
+    verify(jobsRepository, times(1)).requestCancel(3L);
+  }
+
+  @Test
+  void cancelJob_interrupts_running_job_and_marks_it_cancelled() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    CountDownLatch started = new CountDownLatch(1);
+    JobContextConsumer jobFunction =
+        ctx -> {
+          started.countDown();
+          Thread.sleep(60_000);
+        };
+    jobService.startJob(job, jobFunction);
+    Thread worker = new Thread(() -> jobService.runJobAsync(job, jobFunction));
+    worker.start();
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    when(jobsRepository.requestCancel(3L)).thenReturn(1);
+
+    // act
+    boolean cancelled = jobService.cancelJob(3L);
+    worker.join(10_000);
+
+    // assert
+    assertTrue(cancelled);
+    assertFalse(worker.isAlive());
+    assertEquals("cancelled", job.getStatus());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(List.of(JobLogLine.builder().jobId(3L).seq(0).line("Job cancelled").build()));
+    assertEquals(
+        1,
+        meterRegistry
+            .get("jobs.execution")
+            .tag("type", "in-memory")
+            .tag("status", "cancelled")
+            .timer()
+            .count());
+  }
+
+  @Test
+  void cancelJob_before_job_starts_means_it_never_runs() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    JobContextConsumer jobFunction = mock(JobContextConsumer.class);
+    jobService.startJob(job, jobFunction);
+    when(jobsRepository.requestCancel(3L)).thenReturn(1);
+
+    // act
+    jobService.cancelJob(3L);
+    jobService.runJobAsync(job, jobFunction);
+
+    // assert
+    assertEquals("cancelled", job.getStatus());
+    verify(jobFunction, never()).accept(any(JobContext.class));
+  }
+
+  @Test
+  void sendHeartbeats_cancels_jobs_flagged_by_another_instance() {
+    // arrange
+    Job job = jobService.runAsJob(ctx -> {});
+    job.setId(3L);
+    Job other = Job.builder().id(4L).status("running").build();
+    jobService.startJob(other, ctx -> {});
+    when(jobsRepository.findIdsToCancel(jobService.getWorkerId())).thenReturn(List.of(4L));
+
+    // act
+    jobService.sendHeartbeats();
+    jobService.runJobAsync(other, ctx -> ctx.log("should not run"));
+
+    // assert
+    assertEquals("cancelled", other.getStatus());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(List.of(JobLogLine.builder().jobId(4L).seq(0).line("Job cancelled").build()));
+  }
+
+  @Test
+  void runJobAsync_stops_job_that_runs_longer_than_its_max_runtime() throws Exception {
+    // arrange
+    Job job = Job.builder().id(3L).status("running").build();
+    JobContextConsumer jobFunction =
+        new JobContextConsumer() {
+          @Override
+          public void accept(JobContext ctx) throws Exception {
+            Thread.sleep(5);
+            // the check runs on the job's own thread here, so it interrupts this very thread
+            jobService.stopOverdueJobs();
+            jobService.stopOverdueJobs();
+            ctx.throwIfCancelled();
+          }
+
+          @Override
+          public Duration maxRuntime() {
+            return Duration.ofMillis(1);
+          }
+        };
+
+    // act
+    jobService.runJobAsync(job, jobFunction);
+
+    // assert
+    assertEquals("timed_out", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(3L)
+                    .seq(0)
+                    .line("Job stopped after running for longer than 1 ms")
+                    .build()));
+  }
+
+  @Test
+  void runJobAsync_lets_job_run_within_default_max_runtime() {
+    // arrange
+    ReflectionTestUtils.setField(jobService, "defaultMaxRuntimeMs", 60_000L);
+    Job job = Job.builder().id(3L).status("running").build();
+
+    // act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          jobService.stopOverdueJobs();
+          ctx.throwIfCancelled();
+        });
+
+    // assert
+    assertEquals("complete", job.getStatus());
+  }
+
+  /** Gives jobs saved for the first time the next id, as the database would */
+  private void assignIdsOnSave() {
+    AtomicLong nextId = new AtomicLong(100);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job saved = invocation.getArgument(0);
+              if (saved.getId() == 0) {
+                saved.setId(nextId.getAndIncrement());
+              }
+              return saved;
+            });
+  }
+
+  private JobSummary child(long id, String status) {
+    return JobSummary.builder().id(id).parentJobId(1L).status(status).build();
+  }
+
+  @Test
+  void spawned_children_run_concurrently_and_the_parent_waits_for_them() {
+    // arrange
+    assignIdsOnSave();
+    User user = User.builder().id(7L).build();
+    Job parent = Job.builder().id(1L).createdBy(user).status("running").build();
+    List<Job> children = new ArrayList<>();
+    JobContextConsumer inMemoryChild = ctx -> {};
+    TestJob queuedChild = TestJob.builder().fail(false).sleepMs(0).build();
+
+    // act
+    jobService.runJobAsync(
+        parent,
+        ctx -> {
+          children.add(ctx.spawn(inMemoryChild));
+          children.add(ctx.spawn(queuedChild));
+        });
+
+    // assert
+    assertEquals("waiting", parent.getStatus());
+    assertEquals(2, children.size());
+    assertEquals(1L, children.get(0).getParentJobId());
+    assertEquals(user, children.get(0).getCreatedBy());
+    assertEquals("running", children.get(0).getStatus());
+    verify(self, times(1)).runJobAsync(children.get(0), inMemoryChild);
+    assertEquals(1L, children.get(1).getParentJobId());
+    assertEquals("queued", children.get(1).getStatus());
+    verify(self, times(1)).onChildFinished(1L);
+    verify(jobLogArchiveService, never()).archiveIfLarge(1L);
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(1L)
+                    .seq(0)
+                    .line("Waiting for child jobs to finish")
+                    .build()));
+  }
+
+  @Test
+  void parent_finishes_once_its_concurrently_running_children_have() throws Exception {
+    // arrange: a jobs table in memory, children run on their own threads, and the parent row
+    // lock is a monitor, as the database would provide
+    Map<Long, Job> rows = new ConcurrentHashMap<>();
+    AtomicLong nextId = new AtomicLong(100);
+    when(jobsRepository.save(any(Job.class)))
+        .thenAnswer(
+            invocation -> {
+              Job saved = invocation.getArgument(0);
+              if (saved.getId() == 0) {
+                saved.setId(nextId.getAndIncrement());
+              }
+              rows.put(saved.getId(), saved);
+              return saved;
+            });
+    when(jobsRepository.lockById(any(Long.class)))
+        .thenAnswer(invocation -> Optional.ofNullable(rows.get(invocation.getArgument(0))));
+    when(jobsRepository.findChildSummaries(any(Long.class)))
+        .thenAnswer(
+            invocation ->
+                rows.values().stream()
+                    .filter(row -> invocation.getArgument(0).equals(row.getParentJobId()))
+                    .sorted(Comparator.comparing(Job::getId))
+                    .map(row -> child(row.getId(), row.getStatus()))
+                    .toList());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    doAnswer(
+            invocation -> {
+              executor.execute(
+                  () ->
+                      jobService.runJobAsync(invocation.getArgument(0), invocation.getArgument(1)));
+              return null;
+            })
+        .when(self)
+        .runJobAsync(any(Job.class), any(JobContextConsumer.class));
+    Object parentRowLock = new Object();
+    doAnswer(
+            invocation -> {
+              synchronized (parentRowLock) {
+                jobService.onChildFinished(invocation.getArgument(0));
+              }
+              return null;
+            })
+        .when(self)
+        .onChildFinished(any(Long.class));
+
+    Job parent = Job.builder().id(1L).status("running").build();
+    rows.put(1L, parent);
+    CountDownLatch bothChildrenStarted = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    JobContextConsumer child =
+        ctx -> {
+          bothChildrenStarted.countDown();
+          assertTrue(release.await(10, TimeUnit.SECONDS));
+          ctx.log("child done");
+        };
+
+    // act
+    try {
+      jobService.runJobAsync(
+          parent,
+          ctx -> {
+            ctx.spawn(child);
+            ctx.spawn(child);
+            // neither child can finish until both are running, so they run side by side
+            assertTrue(bothChildrenStarted.await(10, TimeUnit.SECONDS));
+          });
+      assertEquals("waiting", parent.getStatus());
+      release.countDown();
+
+      // assert
+      await().atMost(10, TimeUnit.SECONDS).until(() -> "complete".equals(parent.getStatus()));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(2L, parent.getItemsTotal());
+    assertEquals(2L, parent.getItemsProcessed());
+    assertEquals(100, parent.getProgressPercent());
+    assertEquals(
+        List.of("complete", "complete"),
+        jobsRepository.findChildSummaries(1L).stream().map(JobSummary::getStatus).toList());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder().jobId(1L).seq(0).line("Child job 100: complete").build(),
+                JobLogLine.builder().jobId(1L).seq(1).line("Child job 101: complete").build(),
+                JobLogLine.builder()
+                    .jobId(1L)
+                    .seq(2)
+                    .line("All child jobs finished: {complete=2}")
+                    .build()));
+    verify(jobLogArchiveService, times(1)).archiveIfLarge(1L);
+  }
+
+  @Test
+  void finished_child_lets_its_parent_know() {
+    // arrange
+    Job child = Job.builder().id(5L).parentJobId(1L).status("running").build();
+
+    // act
+    jobService.runJobAsync(child, ctx -> {});
+
+    // assert
+    assertEquals("complete", child.getStatus());
+    verify(self, times(1)).onChildFinished(1L);
+  }
+
+  @Test
+  void parent_that_fails_cancels_its_unfinished_children() {
+    // arrange
+    assignIdsOnSave();
+    Job parent = Job.builder().id(1L).status("running").build();
+    when(jobsRepository.findChildSummaries(1L))
+        .thenReturn(List.of(child(100L, "running"), child(101L, "complete")));
+    when(jobsRepository.requestCancel(100L)).thenReturn(1);
+
+    // act
+    jobService.runJobAsync(
+        parent,
+        ctx -> {
+          ctx.spawn(c -> {});
+          ctx.spawn(c -> {});
+          throw new Exception("Fail!");
+        });
+
+    // assert
+    assertEquals("error", parent.getStatus());
+    verify(jobsRepository, times(1)).requestCancel(100L);
+    verify(jobsRepository, never()).requestCancel(101L);
+    verify(self, never()).onChildFinished(1L);
+    verify(jobLogArchiveService, times(1)).archiveIfLarge(1L);
+  }
+
+  @Test
+  void onChildFinished_ignores_parent_that_is_missing_or_still_running() {
+    // arrange
+    when(jobsRepository.lockById(2L))
+        .thenReturn(Optional.of(Job.builder().id(2L).status("running").build()));
+
+    // act
+    jobService.onChildFinished(1L);
+    jobService.onChildFinished(2L);
+
+    // assert
+    verify(jobsRepository, never()).findChildSummaries(any(Long.class));
+    verify(jobsRepository, never()).save(any(Job.class));
+  }
+
+  @Test
+  void onChildFinished_reports_progress_while_children_are_still_running() {
+    // arrange
+    Job parent = Job.builder().id(1L).status("waiting").build();
+    when(jobsRepository.lockById(1L)).thenReturn(Optional.of(parent));
+    when(jobsRepository.findChildSummaries(1L))
+        .thenReturn(
+            List.of(
+                child(5L, "complete"),
+                child(6L, "running"),
+                child(7L, "queued"),
+                child(8L, "waiting")));
+
+    // act
+    jobService.onChildFinished(1L);
+
+    // assert
+    assertEquals("waiting", parent.getStatus());
+    assertEquals(1L, parent.getItemsProcessed());
+    assertEquals(4L, parent.getItemsTotal());
+    assertEquals(25, parent.getProgressPercent());
+    verify(jobsRepository, times(1)).save(parent);
+    verify(jobLogLinesRepository, never()).saveAll(any());
+  }
+
+  @Test
+  void onChildFinished_rolls_up_status_and_log_when_the_last_child_finishes() {
+    // arrange
+    Job parent = Job.builder().id(1L).parentJobId(9L).status("waiting").build();
+    when(jobsRepository.lockById(1L)).thenReturn(Optional.of(parent));
+    when(jobsRepository.findChildSummaries(1L))
+        .thenReturn(List.of(child(5L, "complete"), child(6L, "complete")));
+
+    // act
+    jobService.onChildFinished(1L);
+
+    // assert
+    assertEquals("complete", parent.getStatus());
+    assertEquals(100, parent.getProgressPercent());
+    assertNotNull(parent.getCompletedAt());
+    verify(jobsRepository, times(1)).save(parent);
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder().jobId(1L).seq(0).line("Child job 5: complete").build(),
+                JobLogLine.builder().jobId(1L).seq(1).line("Child job 6: complete").build(),
+                JobLogLine.builder()
+                    .jobId(1L)
+                    .seq(2)
+                    .line("All child jobs finished: {complete=2}")
+                    .build()));
+    verify(jobLogArchiveService, times(1)).archiveIfLarge(1L);
+    // a parent is itself a child in a deeper graph
+    verify(self, times(1)).onChildFinished(9L);
+  }
+
+  private String rolledUpStatus(String... childStatuses) {
+    Job parent = Job.builder().id(1L).status("waiting").build();
+    when(jobsRepository.lockById(1L)).thenReturn(Optional.of(parent));
+    List<JobSummary> children = new ArrayList<>();
+    for (String status : childStatuses) {
+      children.add(child(children.size() + 5L, status));
+    }
+    when(jobsRepository.findChildSummaries(1L)).thenReturn(children);
+    jobService.onChildFinished(1L);
+    return parent.getStatus();
+  }
+
+  @Test
+  void onChildFinished_rolls_up_failed_or_cancelled_children() {
+    assertEquals("error", rolledUpStatus("complete", "error", "cancelled"));
+    assertEquals("error", rolledUpStatus("complete", "timed_out"));
+    assertEquals("error", rolledUpStatus("rejected", "cancelled"));
+    assertEquals("cancelled", rolledUpStatus("complete", "cancelled"));
+  }
+
+  @Test
+  void cancelJob_cancels_the_unfinished_children_of_a_waiting_parent() {
+    // arrange
+    when(jobsRepository.findChildSummaries(1L))
+        .thenReturn(List.of(child(5L, "running"), child(6L, "complete")));
+    when(jobsRepository.requestCancel(5L)).thenReturn(1);
+
+    // act
+    boolean cancelled = jobService.cancelJob(1L);
+
+    // assert
+    assertTrue(cancelled);
+    verify(jobsRepository, times(1)).requestCancel(5L);
+    verify(jobsRepository, never()).requestCancel(6L);
+  }
+
+  @Test
+  void cancelJob_of_queued_child_lets_its_parent_know() {
+    // arrange
+    when(jobsRepository.cancelQueuedJob(any(Long.class), any(ZonedDateTime.class))).thenReturn(1);
+    when(jobsRepository.findById(5L))
+        .thenReturn(Optional.of(Job.builder().id(5L).parentJobId(1L).status("cancelled").build()));
+
+    // act
+    jobService.cancelJob(5L);
+
+    // assert
+    verify(self, times(1)).onChildFinished(1L);
+  }
+
+  @Test
+  void appendJobLog_appends_line_to_log_of_job() {
+    // arrange
+    Job job = Job.builder().id(3L).status("error").build();
+
+    // act
+    jobService.appendJobLog(job, "note");
+
+    // assert
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(List.of(JobLogLine.builder().jobId(3L).seq(0).line("note").build()));
+  }
+
+  @Test
+  void getExecutorStatus_reports_executor_load() {
+    // arrange
+    when(jobExecutor.getMaxPoolSize()).thenReturn(4);
+    when(jobExecutor.getActiveCount()).thenReturn(3);
+    when(jobExecutor.getQueueSize()).thenReturn(7);
+    when(jobExecutor.getQueueCapacity()).thenReturn(100);
+
+    // act
+    JobExecutorStatus status = jobService.getExecutorStatus();
+
+    // assert
+    JobExecutorStatus expected =
+        JobExecutorStatus.builder()
+            .maxConcurrency(4)
+            .activeCount(3)
+            .queueDepth(7)
+            .queueCapacity(100)
+            .build();
+    assertEquals(expected, status);
+  }
+}
@@ -0,0 +1,95 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class SseJobLogListenerTests {
+
+  @Test
+  public void onLine_sends_log_event() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+
+    // act
+    listener.onLine(JobLogLine.builder().jobId(1L).seq(3).line("hello").build());
+
+    // assert
+    verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter, never()).completeWithError(any());
+  }
+
+  @Test
+  public void onLine_completes_with_error_when_client_is_gone() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    IOException e = new IOException("Broken pipe");
+    doThrow(e).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+
+    // act
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class,
+            () -> listener.onLine(JobLogLine.builder().jobId(1L).seq(3).line("hello").build()));
+
+    // assert
+    verify(emitter, times(1)).completeWithError(e);
+    assertEquals(e, thrown.getCause());
+  }
+
+  @Test
+  public void onOverflow_completes_so_that_the_client_reconnects() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+
+    // act
+    listener.onOverflow();
+
+    // assert
+    verify(emitter, times(1)).complete();
+    verify(emitter, never()).send(any(SseEmitter.SseEventBuilder.class));
+  }
+
+  @Test
+  public void onJobFinished_sends_status_event_and_completes() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+
+    // act
+    listener.onJobFinished("complete");
+
+    // assert
+    verify(emitter, times(1)).send(any(SseEmitter.SseEventBuilder.class));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void onJobFinished_completes_with_error_when_client_is_gone() throws Exception {
+    // arrange
+    SseEmitter emitter = mock(SseEmitter.class);
+    IOException e = new IOException("Broken pipe");
+    doThrow(e).when(emitter).send(any(SseEmitter.SseEventBuilder.class));
+    SseJobLogListener listener = new SseJobLogListener(emitter);
+
+    // act
+    listener.onJobFinished("complete");
+
+    // assert
+    verify(emitter, never()).complete();
+    verify(emitter, times(1)).completeWithError(e);
+  }
+}
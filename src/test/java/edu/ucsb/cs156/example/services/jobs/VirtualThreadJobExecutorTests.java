@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+
+public class VirtualThreadJobExecutorTests {
+
+  @Test
+  void runs_jobs_on_virtual_threads_up_to_max_concurrency_and_queues_the_rest() throws Exception {
+    // arrange
+    VirtualThreadJobExecutor executor = new VirtualThreadJobExecutor(2, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(2);
+    AtomicBoolean virtual = new AtomicBoolean();
+    Runnable job =
+        () -> {
+          virtual.set(Thread.currentThread().isVirtual());
+          started.countDown();
+          try {
+            release.await(10, TimeUnit.SECONDS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+
+    try {
+      // act
+      executor.execute(job);
+      executor.execute(job);
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      executor.execute(job);
+
+      // assert
+      await().atMost(10, TimeUnit.SECONDS).until(() -> executor.getQueueSize() == 1);
+      assertTrue(virtual.get());
+      assertEquals(2, executor.getActiveCount());
+      assertEquals(2, executor.getMaxPoolSize());
+      assertEquals(1, executor.getQueueCapacity());
+      TaskRejectedException thrown =
+          assertThrows(TaskRejectedException.class, () -> executor.execute(job));
+      assertEquals("Job executor is full", thrown.getMessage());
+
+      // act
+      release.countDown();
+
+      // assert
+      await()
+          .atMost(10, TimeUnit.SECONDS)
+          .until(() -> executor.getActiveCount() == 0 && executor.getQueueSize() == 0);
+    } finally {
+      executor.destroy();
+    }
+  }
+
+  @Test
+  void shutdown_interrupts_running_and_waiting_jobs_and_refuses_new_ones() throws Exception {
+    // arrange
+    VirtualThreadJobExecutor executor = new VirtualThreadJobExecutor(1, 10);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    AtomicBoolean waitingJobRan = new AtomicBoolean();
+    executor.execute(
+        () -> {
+          started.countDown();
+          try {
+            Thread.sleep(60_000);
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+          }
+        });
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    executor.execute(() -> waitingJobRan.set(true));
+    await().atMost(10, TimeUnit.SECONDS).until(() -> executor.getQueueSize() == 1);
+
+    // act
+    executor.destroy();
+
+    // assert
+    assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    await()
+        .atMost(10, TimeUnit.SECONDS)
+        .until(() -> executor.getActiveCount() == 0 && executor.getQueueSize() == 0);
+    assertFalse(waitingJobRan.get());
+    TaskRejectedException thrown =
+        assertThrows(TaskRejectedException.class, () -> executor.execute(() -> {}));
+    assertEquals("Job executor is shut down", thrown.getMessage());
+  }
+}
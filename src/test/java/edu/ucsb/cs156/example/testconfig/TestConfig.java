@@ -1,8 +1,12 @@
 package edu.ucsb.cs156.example.testconfig;
 
 import edu.ucsb.cs156.example.config.SecurityConfig;
+import edu.ucsb.cs156.example.services.AdminEmailsService;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserProfileSyncService;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
@@ -16,8 +20,19 @@ public class TestConfig {
     return new MockCurrentUserServiceImpl();
   }
 
+  @Bean
+  public AdminEmailsService adminEmailsService(
+      @Value("${app.admin.emails}") List<String> adminEmails) {
+    return new AdminEmailsService(adminEmails);
+  }
+
   @Bean
   public GrantedAuthoritiesService grantedAuthoritiesService() {
     return new GrantedAuthoritiesService();
   }
+
+  @Bean
+  public UserProfileSyncService userProfileSyncService() {
+    return new UserProfileSyncService();
+  }
 }